@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.codec.Base64Codec;
+import org.linkedin.util.codec.Codec;
+import org.linkedin.util.codec.HexaCodec;
+import org.linkedin.util.codec.StandardBase64Codec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link Base64Codec}, {@link StandardBase64Codec} and {@link HexaCodec}.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class CodecBenchmark
+{
+  @Param({"16", "256", "4096"})
+  public int size;
+
+  private final Base64Codec _base64Codec = new Base64Codec("benchmark");
+
+  private byte[] _bytes;
+  private String _base64Encoded;
+  private String _hexaEncoded;
+  private String _standardBase64Encoded;
+
+  // reused from one call to the next
+  private final StringBuilder _sb = new StringBuilder();
+  private ByteBuffer _buffer;
+
+  @Setup
+  public void setup()
+  {
+    _bytes = new byte[size];
+    new Random(size).nextBytes(_bytes);
+    // HexaCodec.decode goes through BigInteger which drops leading 0s
+    _bytes[0] = 1;
+    _base64Encoded = _base64Codec.encode(_bytes);
+    _hexaEncoded = HexaCodec.INSTANCE.encode(_bytes);
+    _standardBase64Encoded = StandardBase64Codec.INSTANCE.encode(_bytes);
+    _buffer = ByteBuffer.allocate(size);
+  }
+
+  @Benchmark
+  public String base64Encode()
+  {
+    return _base64Codec.encode(_bytes);
+  }
+
+  @Benchmark
+  public byte[] base64Decode() throws Codec.CannotDecodeException
+  {
+    return _base64Codec.decode(_base64Encoded);
+  }
+
+  @Benchmark
+  public String hexaEncode()
+  {
+    return HexaCodec.INSTANCE.encode(_bytes);
+  }
+
+  @Benchmark
+  public byte[] hexaDecode() throws Codec.CannotDecodeException
+  {
+    return HexaCodec.INSTANCE.decode(_hexaEncoded);
+  }
+
+  @Benchmark
+  public StringBuilder base64EncodeAppend() throws IOException
+  {
+    _sb.setLength(0);
+    return _base64Codec.encode(_bytes, 0, _bytes.length, _sb);
+  }
+
+  @Benchmark
+  public ByteBuffer base64DecodeBuffer() throws Codec.CannotDecodeException
+  {
+    _buffer.clear();
+    _base64Codec.decode(_base64Encoded, _buffer);
+    return _buffer;
+  }
+
+  @Benchmark
+  public StringBuilder hexaEncodeAppend() throws IOException
+  {
+    _sb.setLength(0);
+    return HexaCodec.INSTANCE.encode(_bytes, 0, _bytes.length, _sb);
+  }
+
+  @Benchmark
+  public ByteBuffer hexaDecodeBuffer() throws Codec.CannotDecodeException
+  {
+    _buffer.clear();
+    HexaCodec.INSTANCE.decode(_hexaEncoded, _buffer);
+    return _buffer;
+  }
+
+  @Benchmark
+  public String standardBase64Encode()
+  {
+    return StandardBase64Codec.INSTANCE.encode(_bytes);
+  }
+
+  @Benchmark
+  public byte[] standardBase64Decode() throws Codec.CannotDecodeException
+  {
+    return StandardBase64Codec.INSTANCE.decode(_standardBase64Encoded);
+  }
+
+  @Benchmark
+  public StringBuilder standardBase64EncodeAppend() throws IOException
+  {
+    _sb.setLength(0);
+    return StandardBase64Codec.INSTANCE.encode(_bytes, 0, _bytes.length, _sb);
+  }
+
+  @Benchmark
+  public ByteBuffer standardBase64DecodeBuffer() throws Codec.CannotDecodeException
+  {
+    _buffer.clear();
+    StandardBase64Codec.INSTANCE.decode(_standardBase64Encoded, _buffer);
+    return _buffer;
+  }
+}
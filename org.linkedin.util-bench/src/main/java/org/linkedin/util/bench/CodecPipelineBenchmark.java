@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.codec.Base64Codec;
+import org.linkedin.util.codec.CipherCodecStage;
+import org.linkedin.util.codec.CodecPipeline;
+import org.linkedin.util.codec.CodecStages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Benchmarks for {@link CodecPipeline}: compress, encrypt and encode as separate whole buffer
+ * steps against the same stages in one pass.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class CodecPipelineBenchmark
+{
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  @Param({"4096", "1048576"})
+  public int size;
+
+  private SecretKeySpec _key;
+  private CodecPipeline _pipeline;
+  private byte[] _bytes;
+
+  @Setup
+  public void setup()
+  {
+    _key = new SecretKeySpec("encryptionkey123".getBytes(), "AES");
+    _pipeline = new CodecPipeline(CodecStages.deflate(),
+                                  new CipherCodecStage("AES/CBC/PKCS5Padding", _key),
+                                  CodecStages.base64(Base64Codec.INSTANCE));
+    Random random = new Random(size);
+    _bytes = new byte[size];
+    for(int i = 0; i < size; i++)
+      _bytes[i] = (byte) (random.nextInt(8) == 0 ? ' ' : 'a' + random.nextInt(16));
+  }
+
+  @Benchmark
+  public String separateSteps() throws IOException, GeneralSecurityException
+  {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    DeflaterOutputStream dos = new DeflaterOutputStream(compressed);
+    dos.write(_bytes);
+    dos.close();
+
+    Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+    byte[] iv = new byte[cipher.getBlockSize()];
+    RANDOM.nextBytes(iv);
+    cipher.init(Cipher.ENCRYPT_MODE, _key, new IvParameterSpec(iv), RANDOM);
+    byte[] encrypted = cipher.doFinal(compressed.toByteArray());
+
+    return Base64Codec.INSTANCE.encode(encrypted);
+  }
+
+  @Benchmark
+  public int pipeline() throws IOException
+  {
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    OutputStream os = _pipeline.encode(encoded);
+    os.write(_bytes);
+    os.close();
+    return encoded.size();
+  }
+}
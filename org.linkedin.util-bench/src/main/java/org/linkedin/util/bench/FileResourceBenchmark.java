@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.io.IOUtils;
+import org.linkedin.util.io.resource.FileResource;
+import org.linkedin.util.io.resource.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for listing a directory and inspecting every entry (last modified, length, is
+ * directory). <code>listAndInspectFiles</code> is the baseline using <code>java.io.File</code>
+ * directly (one stat per attribute): the closer <code>listAndInspect</code> gets to it, the fewer
+ * extra stats the resource api issues. The number of stats itself is checked by
+ * <code>TestFileResourceStats</code>.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class FileResourceBenchmark
+{
+  @Param({"1000"})
+  public int fileCount;
+
+  private File _root;
+  private Resource _rootResource;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException
+  {
+    _root = IOUtils.createTempDirectory(FileResourceBenchmark.class.getName(), "files");
+    for(int i = 0; i < fileCount; i++)
+    {
+      if(i % 10 == 0)
+        IOUtils.createNewDirectory(new File(_root, "dir" + i));
+      else
+      {
+        FileOutputStream fos = new FileOutputStream(new File(_root, "file" + i));
+        try
+        {
+          fos.write(new byte[i % 100]);
+        }
+        finally
+        {
+          fos.close();
+        }
+      }
+    }
+    _rootResource = FileResource.create(_root);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException
+  {
+    IOUtils.deleteFile(_root);
+  }
+
+  @Benchmark
+  public long listAndInspect() throws IOException
+  {
+    long res = 0;
+    for(Resource resource : _rootResource.list())
+    {
+      res += resource.lastModified();
+      res += resource.length();
+      if(resource.isDirectory())
+        res++;
+    }
+    return res;
+  }
+
+  @Benchmark
+  public long listAndInspectFiles()
+  {
+    long res = 0;
+    for(File file : _root.listFiles())
+    {
+      res += file.lastModified();
+      res += file.length();
+      if(file.isDirectory())
+        res++;
+    }
+    return res;
+  }
+}
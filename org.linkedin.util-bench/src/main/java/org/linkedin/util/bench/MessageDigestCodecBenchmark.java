@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.codec.HexaCodec;
+import org.linkedin.util.codec.OneWayMessageDigestCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link OneWayMessageDigestCodec}: cloning the message digest on every call (what
+ * the codec used to do) against the per thread digests.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MessageDigestCodecBenchmark
+{
+  @Param({"MD5", "SHA-1"})
+  public String algorithm;
+
+  @Param({"32", "4096"})
+  public int size;
+
+  private MessageDigest _prototype;
+  private OneWayMessageDigestCodec _codec;
+  private byte[] _bytes;
+
+  @Setup
+  public void setup() throws Exception
+  {
+    _prototype = MessageDigest.getInstance(algorithm);
+    _prototype.update("benchmark".getBytes());
+    _codec = new OneWayMessageDigestCodec(algorithm, "benchmark", HexaCodec.INSTANCE);
+    _bytes = new byte[size];
+    new Random(size).nextBytes(_bytes);
+  }
+
+  @Benchmark
+  public String cloneDigest() throws CloneNotSupportedException
+  {
+    MessageDigest md = (MessageDigest) _prototype.clone();
+    return HexaCodec.INSTANCE.encode(md.digest(_bytes));
+  }
+
+  @Benchmark
+  public String pooledDigest()
+  {
+    return _codec.encode(_bytes);
+  }
+
+  @Benchmark
+  public String streamDigest() throws IOException
+  {
+    return _codec.encode(new ByteArrayInputStream(_bytes));
+  }
+}
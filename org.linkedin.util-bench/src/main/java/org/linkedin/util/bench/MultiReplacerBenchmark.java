@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.text.MultiReplacer;
+import org.linkedin.util.text.TextUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link MultiReplacer} against chained calls to
+ * {@link TextUtils#searchAndReplace(String, String, String)}.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MultiReplacerBenchmark
+{
+  public static final Map<String, String> REPLACEMENTS = new LinkedHashMap<String, String>();
+  static
+  {
+    REPLACEMENTS.put("&", "&amp;");
+    REPLACEMENTS.put("<", "&lt;");
+    REPLACEMENTS.put(">", "&gt;");
+    REPLACEMENTS.put("\"", "&quot;");
+    REPLACEMENTS.put("'", "&apos;");
+    REPLACEMENTS.put("password", "********");
+  }
+
+  @Param({
+    "nothing to replace in this fairly ordinary sentence of about eighty characters...",
+    "<a href=\"/profile?id=1&trk='nav'\">password & <b>stuff</b></a> and some more text"
+  })
+  public String text;
+
+  private final MultiReplacer _replacer = MultiReplacer.compile(REPLACEMENTS);
+
+  @Benchmark
+  public String multiReplacer()
+  {
+    return _replacer.replace(text);
+  }
+
+  /**
+   * Baseline: one pass per replacement
+   */
+  @Benchmark
+  public String chainedSearchAndReplace()
+  {
+    String s = text;
+    for(Map.Entry<String, String> entry : REPLACEMENTS.entrySet())
+      s = TextUtils.searchAndReplace(s, entry.getKey(), entry.getValue());
+    return s;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.url.PathRouter;
+import org.linkedin.util.url.URLBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks for {@link PathRouter} (600 routes) against a linear scan of regular expressions.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class PathRouterBenchmark
+{
+  public static final int RESOURCE_COUNT = 100;
+
+  public static final String[] ROUTE_PATTERNS = {
+    "/resource{r}",
+    "/resource{r}/search",
+    "/resource{r}/{id}",
+    "/resource{r}/{id}/edit",
+    "/resource{r}/{id}/items/{item}",
+    "/resource{r}/static/*"
+  };
+
+  @State(Scope.Benchmark)
+  public static class RouterState
+  {
+    @Param({
+      "/resource0/search",
+      "/resource50/12345/items/a%20b",
+      "/resource99/static/css/main.css",
+      "/unknown/path"
+    })
+    public String path;
+
+    public PathRouter<String> router;
+    public List<Pattern> regexps;
+    public List<String> targets;
+
+    @Setup
+    public void setup()
+    {
+      router = new PathRouter<String>();
+      regexps = new ArrayList<Pattern>();
+      targets = new ArrayList<String>();
+
+      for(int r = 0; r < RESOURCE_COUNT; r++)
+      {
+        for(String routePattern : ROUTE_PATTERNS)
+        {
+          String pattern = routePattern.replace("{r}", String.valueOf(r));
+          router.addRoute(pattern, pattern);
+          String regexp = pattern.replace("*", "(.*)").replaceAll("\\{[a-z]+\\}", "([^/]+)");
+          regexps.add(Pattern.compile(regexp));
+          targets.add(pattern);
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public PathRouter.Match<String> route(RouterState state)
+  {
+    return state.router.route(state.path);
+  }
+
+  /**
+   * Baseline: decodes all the path components then scans the regular expressions one after the
+   * other
+   */
+  @Benchmark
+  public String regexpScan(RouterState state)
+  {
+    String[] components = URLBuilder.getPathComponents(state.path, "/");
+    StringBuilder sb = new StringBuilder();
+    for(String component : components)
+      sb.append('/').append(component);
+    String path = sb.toString();
+
+    for(int i = 0; i < state.regexps.size(); i++)
+    {
+      Matcher matcher = state.regexps.get(i).matcher(path);
+      if(matcher.matches())
+        return state.targets.get(i);
+    }
+    return null;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.url.QueryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link QueryBuilder}.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class QueryBuilderBenchmark
+{
+  public static final String QUERY =
+    "id=12345&trk=prof-edit-edit-contact_info&lang=en&q=java+developer&page=3&f=a&f=b&f=c&ref=http%3A%2F%2Fwww.linkedin.com%2F";
+
+  private QueryBuilder _query;
+
+  @Setup
+  public void setup() throws URISyntaxException
+  {
+    _query = new QueryBuilder();
+    _query.addQuery(QUERY);
+  }
+
+  @Benchmark
+  public String addParameter()
+  {
+    QueryBuilder query = new QueryBuilder();
+    query.addParameter("id", 12345);
+    query.addParameter("trk", "prof-edit-edit-contact_info");
+    query.addParameter("lang", "en");
+    query.addParameter("q", "java developer");
+    query.addParameter("ref", "http://www.linkedin.com/");
+    return query.getQuery();
+  }
+
+  @Benchmark
+  public String addQueryAndGetParameter() throws URISyntaxException
+  {
+    QueryBuilder query = new QueryBuilder();
+    query.addQuery(QUERY);
+    return query.getParameter("ref");
+  }
+
+  @Benchmark
+  public String getParameter()
+  {
+    return _query.getParameter("q");
+  }
+
+  @Benchmark
+  public String addReplaceRemove() throws URISyntaxException
+  {
+    QueryBuilder query = new QueryBuilder();
+    query.addQuery(QUERY);
+    query.replaceParameter("lang", "fr");
+    query.removeParameter("trk");
+    query.addParameter("trk", "bench");
+    query.removeParameters("f", "page");
+    return query.getQuery();
+  }
+}
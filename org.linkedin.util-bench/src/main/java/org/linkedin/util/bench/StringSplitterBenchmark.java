@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.text.StringSplitter;
+import org.linkedin.util.text.TokenVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link StringSplitter}.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class StringSplitterBenchmark
+{
+  public static final String CSV =
+    "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8,en-US,en;q=0.5";
+
+  public static final String BLOCK_IGNORE =
+    "param1=value1&param2='toto=3&titi=4'&param3=value3&param4='a&b&c'&param5=value5";
+
+  private final StringSplitter _ss = new StringSplitter(',');
+  private final StringSplitter _ssBlockIgnore = new StringSplitter('&', '\'');
+
+  @Benchmark
+  public String[] split()
+  {
+    return _ss.split(CSV);
+  }
+
+  @Benchmark
+  public List<String> splitAsList()
+  {
+    return _ss.splitAsList(CSV);
+  }
+
+  @Benchmark
+  public Set<String> splitAsSet()
+  {
+    return _ss.splitAsSet(CSV);
+  }
+
+  @Benchmark
+  public String[] splitBlockIgnore()
+  {
+    return _ssBlockIgnore.split(BLOCK_IGNORE);
+  }
+
+  @Benchmark
+  public Iterator<String> splitToIteratorBlockIgnore()
+  {
+    Iterator<String> iterator = _ssBlockIgnore.splitToIterator(BLOCK_IGNORE);
+    while(iterator.hasNext())
+      iterator.next();
+    return iterator;
+  }
+
+  /**
+   * Finds the 3rd token without creating any string
+   */
+  @Benchmark
+  public int visitThirdToken()
+  {
+    final int[] range = new int[3];
+    _ss.split(CSV, new TokenVisitor()
+    {
+      @Override
+      public boolean visitToken(CharSequence s, int start, int end)
+      {
+        range[1] = start;
+        range[2] = end;
+        return ++range[0] < 3;
+      }
+    });
+    return range[2] - range[1];
+  }
+
+  /**
+   * Baseline for {@link #visitThirdToken()}
+   */
+  @Benchmark
+  public String splitThirdToken()
+  {
+    return _ss.split(CSV)[2];
+  }
+}
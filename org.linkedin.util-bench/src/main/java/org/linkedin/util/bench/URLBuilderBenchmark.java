@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.url.URLBuilder;
+import org.linkedin.util.url.URLTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link URLBuilder}.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class URLBuilderBenchmark
+{
+  @State(Scope.Benchmark)
+  public static class URLState
+  {
+    @Param({
+      "http://www.linkedin.com/",
+      "https://user@www.linkedin.com:8443/profile/view?id=12345&trk=nav_responsive_tab_profile&lang=en#top",
+      "http://jim_stoll.home.comcast.net/a/b/c?q=x%20y"
+    })
+    public String url;
+  }
+
+  @Benchmark
+  public URLBuilder createFromURL(URLState state) throws URISyntaxException
+  {
+    return URLBuilder.createFromURL(state.url);
+  }
+
+  /**
+   * Baseline: what <code>createFromURL</code> used to do (parse with <code>java.net.URI</code>,
+   * and <code>java.net.URL</code> for hosts with underscores)
+   */
+  @Benchmark
+  public URLBuilder createFromJavaURI(URLState state) throws Exception
+  {
+    URI uri = new URI(state.url);
+    URLBuilder res = new URLBuilder();
+    res.setScheme(uri.getScheme());
+    res.setUserInfo(uri.getUserInfo());
+    if(uri.getHost() == null)
+    {
+      java.net.URL u = new java.net.URL(state.url);
+      res.setHost(u.getHost());
+      res.setPort(u.getPort());
+    }
+    else
+    {
+      res.setHost(uri.getHost());
+      res.setPort(uri.getPort());
+    }
+    res.setPath(uri.getRawPath());
+    res.setFragment(uri.getFragment());
+    res.addQuery(uri);
+    return res;
+  }
+
+  @Benchmark
+  public String createFromURLAndGetURL(URLState state) throws URISyntaxException
+  {
+    return URLBuilder.createFromURL(state.url).getURL();
+  }
+
+  @Benchmark
+  public String createFromPath()
+  {
+    URLBuilder builder = URLBuilder.createFromPath("/profile/12345");
+    builder.addQueryParameter("trk", "nav_responsive_tab_profile");
+    builder.addQueryParameter("lang", "en");
+    return builder.getURL();
+  }
+
+  @State(Scope.Thread)
+  public static class TemplateState
+  {
+    public final URLTemplate template = URLTemplate.compile("/profile/{id}?trk={trk}&lang={lang}");
+    public final StringBuilder sb = new StringBuilder();
+  }
+
+  /**
+   * Same url as {@link #createFromPath()}
+   */
+  @Benchmark
+  public String expandTemplate(TemplateState state)
+  {
+    return state.template.expand(12345, "nav_responsive_tab_profile", "en");
+  }
+
+  /**
+   * Same url as {@link #createFromPath()} expanded in a reused buffer
+   */
+  @Benchmark
+  public StringBuilder expandTemplateInBuffer(TemplateState state)
+  {
+    state.sb.setLength(0);
+    return state.template.appendTo(state.sb, 12345, "nav_responsive_tab_profile", "en");
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.url.URLCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link URLCodec}.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class URLCodecBenchmark
+{
+  @Param({"simple_value-123", "a value/with=some&special?chars.txt", "caf\u00e9 cr\u00e8me \u4eba\u4e4b"})
+  public String value;
+
+  private final URLCodec _codec = new URLCodec(false);
+  private final URLCodec _dotCodec = new URLCodec(true);
+
+  private final StringBuilder _sb = new StringBuilder();
+
+  private String _encoded;
+
+  @Setup
+  public void setup()
+  {
+    _encoded = _codec.urlEncode(value);
+  }
+
+  @Benchmark
+  public String urlEncode()
+  {
+    return _codec.urlEncode(value);
+  }
+
+  @Benchmark
+  public String urlEncodeDot()
+  {
+    return _dotCodec.urlEncode(value);
+  }
+
+  @Benchmark
+  public StringBuilder urlEncodeAppend()
+  {
+    _sb.setLength(0);
+    return _codec.urlEncode(value, _sb);
+  }
+
+  @Benchmark
+  public String urlDecode()
+  {
+    return _codec.urlDecode(_encoded);
+  }
+}
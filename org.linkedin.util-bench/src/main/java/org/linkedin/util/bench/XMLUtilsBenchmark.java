@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.bench;
+
+import org.linkedin.util.xml.XMLUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link XMLUtils}.
+ *
+ * @author yan@pongasoft.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class XMLUtilsBenchmark
+{
+  @Param({
+    "A plain sentence without any character that needs to be escaped in xml.",
+    "<mytag>A & B +\"C\"* &lt;</mytag>",
+    "caf\u00e9 cr\u00e8me \u4eba\u4e4b\u521d \ud800\udfb0"
+  })
+  public String value;
+
+  private String _encoded;
+  private final StringBuilder _sb = new StringBuilder();
+
+  @Setup
+  public void setup()
+  {
+    _encoded = XMLUtils.xmlEncode(value);
+  }
+
+  @Benchmark
+  public String xmlEncode()
+  {
+    return XMLUtils.xmlEncode(value);
+  }
+
+  @Benchmark
+  public String xmlEncodeRaw()
+  {
+    return XMLUtils.xmlEncodeRaw(value);
+  }
+
+  @Benchmark
+  public String xmlDecode()
+  {
+    return XMLUtils.xmlDecode(_encoded);
+  }
+
+  /**
+   * Encodes into a reused buffer (the way the xml builders use it)
+   */
+  @Benchmark
+  public StringBuilder xmlEncodeAppend()
+  {
+    _sb.setLength(0);
+    return XMLUtils.xmlEncode(value, _sb);
+  }
+}
@@ -16,6 +16,10 @@
 
 package org.linkedin.util.codec;
 
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.util.Random;
 
 /**
@@ -100,22 +104,52 @@ public class Base64Codec implements Codec
   @Override
   public String encode(byte[] byteArray)
   {
-    int l = (byteArray.length * 8) / 6;
+    char [] conv = new char[encodedLength(byteArray.length)];
+    encode(byteArray, 0, byteArray.length, conv, 0);
+    return new String(conv);
+  }
+
+  /**
+   * @param len number of bytes to encode
+   * @return the number of chars of the encoded bytes */
+  static int encodedLength(int len)
+  {
+    int l = (len * 8) / 6;
     if(l % 4 != 0)
     {
       l++;
     }
+    return l;
+  }
 
-    char [] conv = new char[l];
+  /**
+   * @param len number of chars to decode
+   * @return the number of decoded bytes */
+  static int decodedLength(int len)
+  {
+    return (len * 6) / 8;
+  }
 
-    int i = 0;
-    int k = conv.length - 1;
+  /**
+   * Encodes a range of the array (the result is the same as {@link #encode(byte[])} on a copy of
+   * the range)
+   *
+   * @param conv where to write the encoded chars (must have room for
+   *             {@link #encodedLength(int)} chars from <code>convOffset</code>)
+   * @return the number of chars written */
+  int encode(byte[] byteArray, int offset, int len, char[] conv, int convOffset)
+  {
+    int l = encodedLength(len);
+    int end = offset + len;
+
+    int i = offset;
+    int k = convOffset + l - 1;
     int b;
     int c;
     int d;
     
 
-    while(i <= (byteArray.length - 3))
+    while(i <= (end - 3))
     {
       b = ((int) byteArray[i++]) & 0x000000FF;
       conv[k--] = _radix[b & INT_RADIX_MASK];
@@ -136,7 +170,7 @@ public class Base64Codec implements Codec
       conv[k--] = _radix[b];
     }
 
-    if(i == (byteArray.length - 2))
+    if(i == (end - 2))
     {
       b = ((int) byteArray[i++]) & 0x000000FF;
       conv[k--] = _radix[b & INT_RADIX_MASK];
@@ -150,10 +184,10 @@ public class Base64Codec implements Codec
       b = d >>> 4;
       conv[k] = _radix[b];
 
-      return new String(conv);
+      return l;
     }
 
-    if(i == (byteArray.length - 1))
+    if(i == (end - 1))
     {
       b = ((int) byteArray[i]) & 0x000000FF;
       conv[k--] = _radix[b & INT_RADIX_MASK];
@@ -162,7 +196,87 @@ public class Base64Codec implements Codec
       conv[k] = _radix[b];
     }
 
-    return new String(conv);
+    return l;
+  }
+
+  /**
+   * Encodes the range directly in <code>out</code>: the digits are computed one at a time
+   * starting from the last one (so no intermediate buffer is needed).
+   */
+  @Override
+  public <T extends Appendable> T encode(byte[] byteArray, int offset, int len, T out)
+    throws IOException
+  {
+    if(offset < 0 || len < 0 || offset + len > byteArray.length)
+      throw new IndexOutOfBoundsException();
+
+    int end = offset + len;
+
+    // digit m is made of the bits [6m, 6m + 6[ of the bytes (least significant bits first)
+    for(int m = encodedLength(len) - 1; m >= 0; m--)
+    {
+      int p = m * NUM_BITS_PER_DIGIT;
+      int i = offset + (p >>> 3);
+      int shift = p & 7;
+      int b = (((int) byteArray[i]) & 0x000000FF) >>> shift;
+      if(shift > 2 && i + 1 < end)
+        b |= (((int) byteArray[i + 1]) & 0x000000FF) << (8 - shift);
+      out.append(_radix[b & INT_RADIX_MASK]);
+    }
+
+    return out;
+  }
+
+  /**
+   * Decodes the output of {@link #encode(byte[])}. Unlike {@link #decode(String)}, this method
+   * rejects any char which does not belong to the radix.
+   */
+  @Override
+  public int decode(CharSequence s, ByteBuffer out) throws CannotDecodeException
+  {
+    int len = s.length();
+    if(len % 4 == 1)
+      throw new CannotDecodeException("invalid length: " + len);
+
+    int l = decodedLength(len);
+    if(out.remaining() < l)
+      throw new BufferOverflowException();
+
+    // the digits are read from the end, 6 bits at a time (least significant bits first)
+    int bits = 0;
+    int numBits = 0;
+    for(int k = len - 1; k >= 0; k--)
+    {
+      char c = s.charAt(k);
+      int b = c < _reverseRadix.length ? _reverseRadix[c] : -1;
+      if(b == -1)
+        throw new CannotDecodeException("invalid character: " + c);
+
+      bits |= b << numBits;
+      numBits += NUM_BITS_PER_DIGIT;
+      if(numBits >= 8)
+      {
+        out.put((byte) bits);
+        bits >>>= 8;
+        numBits -= 8;
+      }
+    }
+
+    return l;
+  }
+
+  /**
+   * Decodes a range of chars (see {@link #decode(CharSequence, ByteBuffer)})
+   *
+   * @param res where to write the decoded bytes (must have room for
+   *            {@link #decodedLength(int)} bytes from <code>resOffset</code>)
+   * @return the number of bytes written
+   * @exception CannotDecodeException if the chars have not been encoded with this codec */
+  int decode(char[] array, int offset, int len, byte[] res, int resOffset)
+    throws CannotDecodeException
+  {
+    return decode(CharBuffer.wrap(array, offset, len),
+                  ByteBuffer.wrap(res, resOffset, res.length - resOffset));
   }
 
   /**
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+
+package org.linkedin.util.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Decodes the chars written by a {@link Base64EncoderOutputStream} (using the same codec and
+ * frame size), using a constant amount of memory whatever the size of the content. A string
+ * encoded with {@link Base64Codec#encode(byte[])} can be read as well as long as it is not longer
+ * than one frame.
+ *
+ * @author yan@pongasoft.com
+ */
+public class Base64DecoderInputStream extends InputStream
+{
+  private final Base64Codec _codec;
+  private final Reader _in;
+  private final char[] _chars;
+  private final byte[] _frame;
+
+  private int _position = 0;
+  private int _count = 0;
+  private boolean _eof = false;
+
+  public Base64DecoderInputStream(Base64Codec codec, Reader in)
+  {
+    this(codec, in, Base64EncoderOutputStream.DEFAULT_FRAME_SIZE);
+  }
+
+  /**
+   * @param frameSize the size of the frames in bytes (must be the one used to encode)
+   */
+  public Base64DecoderInputStream(Base64Codec codec, Reader in, int frameSize)
+  {
+    Base64EncoderOutputStream.checkFrameSize(frameSize);
+    _codec = codec;
+    _in = in;
+    _frame = new byte[frameSize];
+    _chars = new char[Base64Codec.encodedLength(frameSize)];
+  }
+
+  @Override
+  public int read() throws IOException
+  {
+    if(!fill())
+      return -1;
+    return _frame[_position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException
+  {
+    if(off < 0 || len < 0 || len > b.length - off)
+      throw new IndexOutOfBoundsException();
+
+    if(len == 0)
+      return 0;
+
+    if(!fill())
+      return -1;
+
+    // returns what has already been decoded (does not wait for the next frame)
+    int count = Math.min(len, _count - _position);
+    System.arraycopy(_frame, _position, b, off, count);
+    _position += count;
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException
+  {
+    return _count - _position;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    _in.close();
+  }
+
+  /**
+   * Decodes the next frame when the current one has been read
+   *
+   * @return <code>false</code> if there is nothing left to read
+   */
+  private boolean fill() throws IOException
+  {
+    while(_position == _count)
+    {
+      if(_eof)
+        return false;
+
+      int len = 0;
+      while(len < _chars.length)
+      {
+        int n = _in.read(_chars, len, _chars.length - len);
+        if(n == -1)
+        {
+          _eof = true;
+          break;
+        }
+        len += n;
+      }
+
+      try
+      {
+        _count = _codec.decode(_chars, 0, len, _frame, 0);
+      }
+      catch(Codec.CannotDecodeException e)
+      {
+        throw new IOException("cannot decode frame", e);
+      }
+      _position = 0;
+    }
+
+    return true;
+  }
+}
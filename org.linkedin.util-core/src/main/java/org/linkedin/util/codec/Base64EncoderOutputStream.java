@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+
+package org.linkedin.util.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Encodes the bytes written to this stream with a {@link Base64Codec} and writes the chars to a
+ * <code>Writer</code>, using a constant amount of memory whatever the size of the content.
+ *
+ * <p>{@link Base64Codec} writes the encoded chars in reverse order (the first char depends on the
+ * last bytes) so the content is encoded in frames of <code>frameSize</code> bytes: the output is
+ * the concatenation of {@link Base64Codec#encode(byte[])} on each frame (the last one being
+ * shorter). As a result, a content which fits in one frame is encoded exactly like
+ * {@link Base64Codec#encode(byte[])} does. The output must be read back with a
+ * {@link Base64DecoderInputStream} using the same frame size.</p>
+ *
+ * <p>The last frame is written when the stream is closed (or {@link #finish()} is called).</p>
+ *
+ * @author yan@pongasoft.com
+ */
+public class Base64EncoderOutputStream extends OutputStream
+{
+  /**
+   * Default frame size (in bytes) */
+  public static final int DEFAULT_FRAME_SIZE = 3 * 1024;
+
+  private final Base64Codec _codec;
+  private final Writer _out;
+  private final byte[] _frame;
+  private final char[] _chars;
+
+  private int _count = 0;
+  private boolean _finished = false;
+
+  public Base64EncoderOutputStream(Base64Codec codec, Writer out)
+  {
+    this(codec, out, DEFAULT_FRAME_SIZE);
+  }
+
+  /**
+   * @param frameSize the size of the frames in bytes (must be a multiple of 3)
+   */
+  public Base64EncoderOutputStream(Base64Codec codec, Writer out, int frameSize)
+  {
+    checkFrameSize(frameSize);
+    _codec = codec;
+    _out = out;
+    _frame = new byte[frameSize];
+    _chars = new char[Base64Codec.encodedLength(frameSize)];
+  }
+
+  static void checkFrameSize(int frameSize)
+  {
+    if(frameSize <= 0 || frameSize % 3 != 0)
+      throw new IllegalArgumentException("frame size must be a positive multiple of 3: " +
+                                         frameSize);
+  }
+
+  @Override
+  public void write(int b) throws IOException
+  {
+    ensureOpen();
+    if(_count == _frame.length)
+      writeFrame();
+    _frame[_count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException
+  {
+    if(off < 0 || len < 0 || len > b.length - off)
+      throw new IndexOutOfBoundsException();
+
+    ensureOpen();
+    while(len > 0)
+    {
+      if(_count == _frame.length)
+        writeFrame();
+      int count = Math.min(len, _frame.length - _count);
+      System.arraycopy(b, off, _frame, _count, count);
+      _count += count;
+      off += count;
+      len -= count;
+    }
+  }
+
+  /**
+   * Flushes the underlying writer. The bytes of the current frame cannot be encoded until the
+   * frame is full (or the stream is finished), so they are not written.
+   */
+  @Override
+  public void flush() throws IOException
+  {
+    _out.flush();
+  }
+
+  /**
+   * Writes the last frame without closing the underlying writer. Nothing can be written
+   * afterwards.
+   */
+  public void finish() throws IOException
+  {
+    if(_finished)
+      return;
+
+    _finished = true;
+    if(_count > 0)
+      writeFrame();
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      finish();
+    }
+    finally
+    {
+      _out.close();
+    }
+  }
+
+  private void writeFrame() throws IOException
+  {
+    int len = _codec.encode(_frame, 0, _count, _chars, 0);
+    _out.write(_chars, 0, len);
+    _count = 0;
+  }
+
+  private void ensureOpen() throws IOException
+  {
+    if(_finished)
+      throw new IOException("stream finished");
+  }
+}
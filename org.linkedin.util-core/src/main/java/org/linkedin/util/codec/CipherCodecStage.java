@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.codec;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.SecureRandom;
+
+/**
+ * {@link CodecStage} which encrypts the content with a <code>javax.crypto.Cipher</code> (ex:
+ * <code>AES/CBC/PKCS5Padding</code>). A new cipher is initialized for each stream: its parameters
+ * (the random iv for example) are written (encoded) in front of the encrypted content, so that the
+ * decoding side does not need to know them. This class is thread safe.
+ *
+ * @author yan@pongasoft.com
+ */
+public class CipherCodecStage implements CodecStage
+{
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private final String _transformation;
+  private final Key _key;
+
+  /**
+   * @param transformation the transformation (see <code>Cipher.getInstance(String)</code>)
+   * @param key the key used to encrypt and decrypt
+   */
+  public CipherCodecStage(String transformation, Key key)
+  {
+    if(key == null)
+      throw new IllegalArgumentException("key is null");
+
+    _transformation = transformation;
+    _key = key;
+  }
+
+  public String getTransformation()
+  {
+    return _transformation;
+  }
+
+  @Override
+  public String getName()
+  {
+    return "cipher(" + _transformation + ")";
+  }
+
+  /**
+   * Writes the length of the encoded parameters (2 bytes, <code>0</code> when there is none) and
+   * the encoded parameters before the encrypted content.
+   */
+  @Override
+  public OutputStream encode(OutputStream out) throws IOException
+  {
+    Cipher cipher;
+    byte[] parameters = null;
+    try
+    {
+      cipher = Cipher.getInstance(_transformation);
+      cipher.init(Cipher.ENCRYPT_MODE, _key, RANDOM);
+      AlgorithmParameters algorithmParameters = cipher.getParameters();
+      if(algorithmParameters != null)
+        parameters = algorithmParameters.getEncoded();
+    }
+    catch(GeneralSecurityException e)
+    {
+      throw new IOException("cannot initialize cipher " + _transformation, e);
+    }
+
+    int len = parameters == null ? 0 : parameters.length;
+    if(len > 0xffff)
+      throw new IOException("cipher parameters too big: " + len);
+
+    out.write(len >>> 8);
+    out.write(len);
+    if(len > 0)
+      out.write(parameters);
+
+    return new CipherOutputStream(out, cipher);
+  }
+
+  @Override
+  public InputStream decode(InputStream in) throws IOException
+  {
+    DataInputStream dis = new DataInputStream(in);
+    int len;
+    byte[] parameters;
+    try
+    {
+      len = dis.readUnsignedShort();
+      parameters = new byte[len];
+      dis.readFully(parameters);
+    }
+    catch(EOFException e)
+    {
+      throw new IOException("missing cipher parameters", e);
+    }
+
+    Cipher cipher;
+    try
+    {
+      cipher = Cipher.getInstance(_transformation);
+      if(len > 0)
+      {
+        AlgorithmParameters algorithmParameters =
+          AlgorithmParameters.getInstance(cipher.getAlgorithm().split("/")[0]);
+        algorithmParameters.init(parameters);
+        cipher.init(Cipher.DECRYPT_MODE, _key, algorithmParameters);
+      }
+      else
+        cipher.init(Cipher.DECRYPT_MODE, _key);
+    }
+    catch(GeneralSecurityException e)
+    {
+      throw new IOException("cannot initialize cipher " + _transformation, e);
+    }
+
+    return new CipherInputStream(in, cipher);
+  }
+}
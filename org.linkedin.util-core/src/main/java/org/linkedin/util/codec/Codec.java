@@ -16,6 +16,8 @@
 
 package org.linkedin.util.codec;
 
+import java.nio.ByteBuffer;
+
 /**
  * Defines the API of a codec. There is a method to encode an array of byte
  * into a <code>String</code> and one that does the opposite.
@@ -48,4 +50,17 @@ public interface Codec extends OneWayCodec
    * @exception CannotDecodeException if the string has not been encoded
    * with this codec */
   public byte[] decode(String s) throws CannotDecodeException;
+
+  /**
+   * Decodes the chars into the buffer (starting at its position which is advanced by the number
+   * of bytes decoded)
+   *
+   * @param s the chars to decode (use <code>CharBuffer.wrap</code> for a range of chars)
+   * @param out where to write the decoded bytes
+   * @return the number of bytes decoded
+   * @exception CannotDecodeException if the chars have not been encoded
+   * with this codec
+   * @exception java.nio.BufferOverflowException if there is not enough room left in
+   * <code>out</code> (in which case nothing is written) */
+  public int decode(CharSequence s, ByteBuffer out) throws CannotDecodeException;
 }
@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.codec;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chains {@link CodecStage}s (ex: compress, then encrypt, then encode in base64) so that the
+ * content goes through all of them in one pass: each stage streams its output into the next one,
+ * so the memory used does not depend on the size of the content and there is no intermediate
+ * copy of the whole content. The stages are applied in order when encoding and in reverse order
+ * when decoding.
+ *
+ * <p>The streams returned by {@link #encode(OutputStream)} and {@link #decode(InputStream)}
+ * keep track, for each stage, of the number of bytes on each side of the stage and of the time
+ * spent in the stage (see {@link #getStats()}). This class is immutable (and thread safe) as long
+ * as the stages are.</p>
+ *
+ * @author yan@pongasoft.com
+ */
+public class CodecPipeline
+{
+  /**
+   * What went through one stage (in either direction)
+   */
+  public static class StageStats
+  {
+    private final String _name;
+    private final long _decodedBytes;
+    private final long _encodedBytes;
+    private final long _timeNanos;
+
+    public StageStats(String name, long decodedBytes, long encodedBytes, long timeNanos)
+    {
+      _name = name;
+      _decodedBytes = decodedBytes;
+      _encodedBytes = encodedBytes;
+      _timeNanos = timeNanos;
+    }
+
+    public String getName()
+    {
+      return _name;
+    }
+
+    /**
+     * @return the number of bytes on the decoded side of the stage
+     */
+    public long getDecodedBytes()
+    {
+      return _decodedBytes;
+    }
+
+    /**
+     * @return the number of bytes on the encoded side of the stage
+     */
+    public long getEncodedBytes()
+    {
+      return _encodedBytes;
+    }
+
+    /**
+     * @return the time spent in the stage itself (not in the stages after it) in nanoseconds
+     */
+    public long getTimeNanos()
+    {
+      return _timeNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+      return _name + "[decoded=" + _decodedBytes + ", encoded=" + _encodedBytes +
+             ", time=" + (_timeNanos / 1000) + "us]";
+    }
+  }
+
+  private final List<CodecStage> _stages;
+
+  public CodecPipeline(List<CodecStage> stages)
+  {
+    _stages = Collections.unmodifiableList(new ArrayList<CodecStage>(stages));
+  }
+
+  public CodecPipeline(CodecStage... stages)
+  {
+    this(Arrays.asList(stages));
+  }
+
+  public List<CodecStage> getStages()
+  {
+    return _stages;
+  }
+
+  /**
+   * @return a pipeline with the stage added at the end
+   */
+  public CodecPipeline then(CodecStage stage)
+  {
+    List<CodecStage> stages = new ArrayList<CodecStage>(_stages);
+    stages.add(stage);
+    return new CodecPipeline(stages);
+  }
+
+  /**
+   * The content written to the returned stream goes through all the stages (in order) and
+   * ends up in <code>out</code>. The stream must be closed for the stages to write the end of
+   * the content (closing it closes <code>out</code>). If a stage cannot be created, the stages
+   * already created (and <code>out</code>) are closed.
+   *
+   * @param out where to write the encoded content
+   */
+  public PipelineOutputStream encode(OutputStream out) throws IOException
+  {
+    Meter[] meters = newMeters();
+    OutputStream os = new MeteredOutputStream(out, meters[_stages.size()]);
+    boolean created = false;
+    try
+    {
+      // a stage may already write when created (ex: a header): the time to create it is part of
+      // its time (and of the time of the stages before it, like any other time)
+      long creationNanos = 0;
+      for(int i = _stages.size() - 1; i >= 0; i--)
+      {
+        long start = System.nanoTime();
+        OutputStream encoder = _stages.get(i).encode(os);
+        creationNanos += System.nanoTime() - start;
+        meters[i].nanos += creationNanos;
+        os = new MeteredOutputStream(encoder, meters[i]);
+      }
+      created = true;
+    }
+    finally
+    {
+      // gives back the resources of the stages already created (ex: deflater)
+      if(!created)
+        closeAfterFailure(os);
+    }
+    return new PipelineOutputStream(_stages, os, meters);
+  }
+
+  /**
+   * The content read from <code>in</code> goes through all the stages (in reverse order).
+   * Closing the returned stream closes <code>in</code>. If a stage cannot be created, the stages
+   * already created (and <code>in</code>) are closed.
+   *
+   * @param in the encoded content
+   */
+  public PipelineInputStream decode(InputStream in) throws IOException
+  {
+    Meter[] meters = newMeters();
+    InputStream is = new MeteredInputStream(in, meters[_stages.size()]);
+    boolean created = false;
+    try
+    {
+      // a stage may already read when created (ex: a header): the time to create it is part of
+      // its time (and of the time of the stages before it, like any other time)
+      long creationNanos = 0;
+      for(int i = _stages.size() - 1; i >= 0; i--)
+      {
+        long start = System.nanoTime();
+        InputStream decoder = _stages.get(i).decode(is);
+        creationNanos += System.nanoTime() - start;
+        meters[i].nanos += creationNanos;
+        is = new MeteredInputStream(decoder, meters[i]);
+      }
+      created = true;
+    }
+    finally
+    {
+      if(!created)
+        closeAfterFailure(is);
+    }
+    return new PipelineInputStream(_stages, is, meters);
+  }
+
+  /**
+   * Closes the stream without hiding the exception being thrown
+   */
+  private static void closeAfterFailure(Closeable closeable)
+  {
+    try
+    {
+      closeable.close();
+    }
+    catch(IOException e)
+    {
+      // ignored: the failure to create the pipeline is what matters
+    }
+  }
+
+  private Meter[] newMeters()
+  {
+    Meter[] meters = new Meter[_stages.size() + 1];
+    for(int i = 0; i < meters.length; i++)
+      meters[i] = new Meter();
+    return meters;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "CodecPipeline" + _stages;
+  }
+
+  /**
+   * @param meters one meter on the decoded side of each stage (in order) and one for the encoded
+   * side of the last stage
+   */
+  private static List<StageStats> computeStats(List<CodecStage> stages, Meter[] meters)
+  {
+    List<StageStats> stats = new ArrayList<StageStats>(stages.size());
+    for(int i = 0; i < stages.size(); i++)
+    {
+      // the time of a meter includes the time spent in the following stages (the time of a
+      // meter is measured around the time of the next one so the difference is not negative)
+      stats.add(new StageStats(stages.get(i).getName(),
+                               meters[i].bytes,
+                               meters[i + 1].bytes,
+                               meters[i].nanos - meters[i + 1].nanos));
+    }
+    return stats;
+  }
+
+  /**
+   * Bytes and time measured at one point of the pipeline
+   */
+  private static class Meter
+  {
+    private long bytes = 0;
+    private long nanos = 0;
+  }
+
+  /**
+   * The stream returned by {@link CodecPipeline#encode(OutputStream)}
+   */
+  public static class PipelineOutputStream extends FilterOutputStream
+  {
+    private final List<CodecStage> _stages;
+    private final Meter[] _meters;
+
+    private PipelineOutputStream(List<CodecStage> stages, OutputStream out, Meter[] meters)
+    {
+      super(out);
+      _stages = stages;
+      _meters = meters;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      // no flush before closing: the stages finish the content on close
+      out.close();
+    }
+
+    /**
+     * @return the stats of each stage (in order) so far (complete once the stream is closed)
+     */
+    public List<StageStats> getStats()
+    {
+      return computeStats(_stages, _meters);
+    }
+  }
+
+  /**
+   * The stream returned by {@link CodecPipeline#decode(InputStream)}
+   */
+  public static class PipelineInputStream extends FilterInputStream
+  {
+    private final List<CodecStage> _stages;
+    private final Meter[] _meters;
+
+    private PipelineInputStream(List<CodecStage> stages, InputStream out, Meter[] meters)
+    {
+      super(out);
+      _stages = stages;
+      _meters = meters;
+    }
+
+    /**
+     * @return the stats of each stage (in order) so far
+     */
+    public List<StageStats> getStats()
+    {
+      return computeStats(_stages, _meters);
+    }
+  }
+
+  /**
+   * Counts the bytes written to the stream and the time spent writing them (including the time
+   * spent in the streams after this one)
+   */
+  private static class MeteredOutputStream extends FilterOutputStream
+  {
+    private final Meter _meter;
+
+    private MeteredOutputStream(OutputStream out, Meter meter)
+    {
+      super(out);
+      _meter = meter;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+      long start = System.nanoTime();
+      try
+      {
+        out.write(b);
+        _meter.bytes++;
+      }
+      finally
+      {
+        _meter.nanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      long start = System.nanoTime();
+      try
+      {
+        out.write(b, off, len);
+        _meter.bytes += len;
+      }
+      finally
+      {
+        _meter.nanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+      long start = System.nanoTime();
+      try
+      {
+        out.flush();
+      }
+      finally
+      {
+        _meter.nanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      long start = System.nanoTime();
+      try
+      {
+        out.close();
+      }
+      finally
+      {
+        _meter.nanos += System.nanoTime() - start;
+      }
+    }
+  }
+
+  /**
+   * Counts the bytes read from the stream and the time spent reading them (including the time
+   * spent in the streams before this one)
+   */
+  private static class MeteredInputStream extends FilterInputStream
+  {
+    private final Meter _meter;
+
+    private MeteredInputStream(InputStream in, Meter meter)
+    {
+      super(in);
+      _meter = meter;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      long start = System.nanoTime();
+      try
+      {
+        int b = in.read();
+        if(b != -1)
+          _meter.bytes++;
+        return b;
+      }
+      finally
+      {
+        _meter.nanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      long start = System.nanoTime();
+      try
+      {
+        int count = in.read(b, off, len);
+        if(count > 0)
+          _meter.bytes += count;
+        return count;
+      }
+      finally
+      {
+        _meter.nanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+      long start = System.nanoTime();
+      try
+      {
+        long count = in.skip(n);
+        _meter.bytes += count;
+        return count;
+      }
+      finally
+      {
+        _meter.nanos += System.nanoTime() - start;
+      }
+    }
+
+    /**
+     * Mark is not supported (the stats would be wrong)
+     */
+    @Override
+    public boolean markSupported()
+    {
+      return false;
+    }
+  }
+}
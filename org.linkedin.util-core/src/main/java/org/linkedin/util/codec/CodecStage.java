@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * One step of a {@link CodecPipeline}: wraps a stream with the stream which transforms (encodes)
+ * the content and another one with the stream which reverts it (decodes). See
+ * {@link CodecStages} for the stages provided.
+ *
+ * @author yan@pongasoft.com
+ */
+public interface CodecStage
+{
+  /**
+   * @return the name of the stage (used in the stats)
+   */
+  String getName();
+
+  /**
+   * @param out where to write the encoded content
+   * @return the stream to write the content to encode to (closing it must close <code>out</code>)
+   */
+  OutputStream encode(OutputStream out) throws IOException;
+
+  /**
+   * @param in the encoded content
+   * @return the stream to read the decoded content from (closing it must close <code>in</code>)
+   */
+  InputStream decode(InputStream in) throws IOException;
+}
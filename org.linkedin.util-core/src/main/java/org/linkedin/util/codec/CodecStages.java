@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The stages which can be used in a {@link CodecPipeline} (see {@link CipherCodecStage} for
+ * encryption).
+ *
+ * @author yan@pongasoft.com
+ */
+public class CodecStages
+{
+  /**
+   * The encoded chars (base64 or hexa) are written as ascii bytes
+   */
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+
+  /**
+   * Compresses with the <code>deflate</code> format (no header)
+   *
+   * @param level the compression level (see <code>java.util.zip.Deflater</code>)
+   */
+  public static CodecStage deflate(final int level)
+  {
+    if(level != Deflater.DEFAULT_COMPRESSION &&
+       (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION))
+      throw new IllegalArgumentException("invalid compression level: " + level);
+
+    return new CodecStage()
+    {
+      @Override
+      public String getName()
+      {
+        return "deflate";
+      }
+
+      @Override
+      public OutputStream encode(OutputStream out) throws IOException
+      {
+        final Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(out, deflater)
+        {
+          @Override
+          public void close() throws IOException
+          {
+            try
+            {
+              super.close();
+            }
+            finally
+            {
+              // the stream does not end a deflater it did not create
+              deflater.end();
+            }
+          }
+        };
+      }
+
+      @Override
+      public InputStream decode(InputStream in) throws IOException
+      {
+        final Inflater inflater = new Inflater();
+        return new InflaterInputStream(in, inflater)
+        {
+          @Override
+          public void close() throws IOException
+          {
+            try
+            {
+              super.close();
+            }
+            finally
+            {
+              inflater.end();
+            }
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Compresses with the <code>deflate</code> format using the default compression level
+   */
+  public static CodecStage deflate()
+  {
+    return deflate(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Compresses with the <code>gzip</code> format
+   */
+  public static CodecStage gzip()
+  {
+    return new CodecStage()
+    {
+      @Override
+      public String getName()
+      {
+        return "gzip";
+      }
+
+      @Override
+      public OutputStream encode(OutputStream out) throws IOException
+      {
+        return new GZIPOutputStream(out);
+      }
+
+      @Override
+      public InputStream decode(InputStream in) throws IOException
+      {
+        return new GZIPInputStream(in);
+      }
+    };
+  }
+
+  /**
+   * Encodes with {@link Base64EncoderOutputStream} (the chars are written as ascii bytes)
+   *
+   * @param frameSize the size of the frames in bytes (must be a multiple of 3)
+   */
+  public static CodecStage base64(final Base64Codec codec, final int frameSize)
+  {
+    Base64EncoderOutputStream.checkFrameSize(frameSize);
+
+    return new CodecStage()
+    {
+      @Override
+      public String getName()
+      {
+        return "base64";
+      }
+
+      @Override
+      public OutputStream encode(OutputStream out) throws IOException
+      {
+        return new Base64EncoderOutputStream(codec,
+                                             new OutputStreamWriter(out, ASCII),
+                                             frameSize);
+      }
+
+      @Override
+      public InputStream decode(InputStream in) throws IOException
+      {
+        return new Base64DecoderInputStream(codec,
+                                            new InputStreamReader(in, ASCII),
+                                            frameSize);
+      }
+    };
+  }
+
+  /**
+   * Encodes with {@link Base64EncoderOutputStream} and the default frame size
+   */
+  public static CodecStage base64(Base64Codec codec)
+  {
+    return base64(codec, Base64EncoderOutputStream.DEFAULT_FRAME_SIZE);
+  }
+
+  /**
+   * Encodes in hexadecimal (the chars are written as ascii bytes)
+   */
+  public static CodecStage hexa()
+  {
+    return new CodecStage()
+    {
+      @Override
+      public String getName()
+      {
+        return "hexa";
+      }
+
+      @Override
+      public OutputStream encode(OutputStream out) throws IOException
+      {
+        return new HexaEncoderOutputStream(new OutputStreamWriter(out, ASCII));
+      }
+
+      @Override
+      public InputStream decode(InputStream in) throws IOException
+      {
+        return new HexaDecoderInputStream(new InputStreamReader(in, ASCII));
+      }
+    };
+  }
+
+  /**
+   * Constructor
+   */
+  private CodecStages()
+  {
+  }
+}
@@ -17,6 +17,7 @@
 
 package org.linkedin.util.codec;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -28,6 +29,21 @@ import java.util.Random;
  */
 public class CodecUtils
 {
+  /**
+   * Buffers bigger than this are not kept from one call to the next */
+  private static final int MAX_CACHED_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Per thread buffer in which the strings are encoded in UTF-8 */
+  private static final ThreadLocal<byte[]> UTF8_BUFFER = new ThreadLocal<byte[]>()
+  {
+    @Override
+    protected byte[] initialValue()
+    {
+      return new byte[256];
+    }
+  };
+
   /**
    * Encodes the string using the codec provided.
    *
@@ -38,15 +54,88 @@ public class CodecUtils
   {
     try
     {
-      return codec.encode(s.getBytes("UTF-8"));
+      return encodeString(codec, s, new StringBuilder()).toString();
     }
-    catch(UnsupportedEncodingException ex)
+    catch(IOException ex)
     {
-      // shouldn't happen
+      // shouldn't happen with a StringBuilder
       throw new RuntimeException(ex);
     }
   }
 
+  /**
+   * Encodes the string (in UTF-8) using the codec provided and appends the result to
+   * <code>out</code>. The UTF-8 bytes are written in a buffer reused from one call to the next
+   * (per thread) so no intermediate array is created.
+   *
+   * @param codec encode the string
+   * @param s the string to encode
+   * @param out where to append the encoded string
+   * @return <code>out</code> */
+  public static <T extends Appendable> T encodeString(OneWayCodec codec, CharSequence s, T out)
+    throws IOException
+  {
+    // a char is at most 3 bytes (a surrogate pair is 4 bytes)
+    int maxLength = s.length() * 3;
+
+    byte[] buffer = UTF8_BUFFER.get();
+    if(buffer.length < maxLength)
+    {
+      buffer = new byte[maxLength];
+      if(maxLength <= MAX_CACHED_BUFFER_SIZE)
+        UTF8_BUFFER.set(buffer);
+    }
+
+    int len = encodeUTF8(s, buffer);
+    return codec.encode(buffer, 0, len, out);
+  }
+
+  /**
+   * Encodes the chars in UTF-8 like <code>String.getBytes("UTF-8")</code> does (an unpaired
+   * surrogate is replaced by <code>'?'</code>)
+   *
+   * @return the number of bytes written */
+  private static int encodeUTF8(CharSequence s, byte[] buffer)
+  {
+    int len = s.length();
+    int j = 0;
+    for(int i = 0; i < len; i++)
+    {
+      char c = s.charAt(i);
+      if(c < 0x80)
+      {
+        buffer[j++] = (byte) c;
+      }
+      else if(c < 0x800)
+      {
+        buffer[j++] = (byte) (0xc0 | (c >> 6));
+        buffer[j++] = (byte) (0x80 | (c & 0x3f));
+      }
+      else if(c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+      {
+        if(Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1)))
+        {
+          int codePoint = Character.toCodePoint(c, s.charAt(++i));
+          buffer[j++] = (byte) (0xf0 | (codePoint >> 18));
+          buffer[j++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+          buffer[j++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+          buffer[j++] = (byte) (0x80 | (codePoint & 0x3f));
+        }
+        else
+        {
+          buffer[j++] = '?';
+        }
+      }
+      else
+      {
+        buffer[j++] = (byte) (0xe0 | (c >> 12));
+        buffer[j++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buffer[j++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    return j;
+  }
+
   /**
    * Decodes the string using the codec provided. Returns a string
    *
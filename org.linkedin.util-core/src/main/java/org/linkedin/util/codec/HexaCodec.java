@@ -17,7 +17,9 @@
 
 package org.linkedin.util.codec;
 
-import java.math.BigInteger;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 /**
  * Simply returns the hexadecimal values of the byte array.
@@ -35,25 +37,7 @@ public class HexaCodec implements Codec
     return INSTANCE;
   }
 
-  private static String[] HEXA_VALUES =
-    {
-      "00", "01", "02", "03", "04", "05", "06", "07", "08", "09", "0a", "0b", "0c", "0d","0e", "0f",
-      "10", "11", "12", "13", "14", "15", "16", "17", "18", "19", "1a", "1b", "1c", "1d","1e", "1f",
-      "20", "21", "22", "23", "24", "25", "26", "27", "28", "29", "2a", "2b", "2c", "2d","2e", "2f",
-      "30", "31", "32", "33", "34", "35", "36", "37", "38", "39", "3a", "3b", "3c", "3d","3e", "3f",
-      "40", "41", "42", "43", "44", "45", "46", "47", "48", "49", "4a", "4b", "4c", "4d","4e", "4f",
-      "50", "51", "52", "53", "54", "55", "56", "57", "58", "59", "5a", "5b", "5c", "5d","5e", "5f",
-      "60", "61", "62", "63", "64", "65", "66", "67", "68", "69", "6a", "6b", "6c", "6d","6e", "6f",
-      "70", "71", "72", "73", "74", "75", "76", "77", "78", "79", "7a", "7b", "7c", "7d","7e", "7f",
-      "80", "81", "82", "83", "84", "85", "86", "87", "88", "89", "8a", "8b", "8c", "8d","8e", "8f",
-      "90", "91", "92", "93", "94", "95", "96", "97", "98", "99", "9a", "9b", "9c", "9d","9e", "9f",
-      "a0", "a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8", "a9", "aa", "ab", "ac", "ad","ae", "af",
-      "b0", "b1", "b2", "b3", "b4", "b5", "b6", "b7", "b8", "b9", "ba", "bb", "bc", "bd","be", "bf",
-      "c0", "c1", "c2", "c3", "c4", "c5", "c6", "c7", "c8", "c9", "ca", "cb", "cc", "cd","ce", "cf",
-      "d0", "d1", "d2", "d3", "d4", "d5", "d6", "d7", "d8", "d9", "da", "db", "dc", "dd","de", "df",
-      "e0", "e1", "e2", "e3", "e4", "e5", "e6", "e7", "e8", "e9", "ea", "eb", "ec", "ed","ee", "ef",
-      "f0", "f1", "f2", "f3", "f4", "f5", "f6", "f7", "f8", "f9", "fa", "fb", "fc", "fd","fe", "ff"
-    };
+  private static final char[] HEXA_DIGITS = "0123456789abcdef".toCharArray();
 
   /**
    * Constructor
@@ -63,7 +47,8 @@ public class HexaCodec implements Codec
   }
 
   /**
-   * Decodes the <code>String</code> into a byte array
+   * Decodes the <code>String</code> into a byte array (2 digits, upper or lower case, per byte):
+   * this is the exact opposite of {@link #encode(byte[])}.
    *
    * @param s the string to decode
    * @return the byte array decoded
@@ -72,14 +57,12 @@ public class HexaCodec implements Codec
   @Override
   public byte[] decode(String s) throws CannotDecodeException
   {
-    if(s == null || s.length() <= 0)
-    {
-      throw new CannotDecodeException("Cannot decode null or empty String");
-    }
-    else
-    {
-      return new BigInteger(s, 16).toByteArray();
-    }
+    if(s == null)
+      throw new CannotDecodeException("Cannot decode null String");
+
+    byte[] res = new byte[s.length() / 2];
+    decode(s, ByteBuffer.wrap(res));
+    return res;
   }
 
   /**
@@ -91,19 +74,85 @@ public class HexaCodec implements Codec
   @Override
   public String encode(byte[] byteArray)
   {
-    int len = byteArray.length;
+    char[] encoded = new char[byteArray.length * 2];
+    encode(byteArray, 0, byteArray.length, encoded, 0);
+    return new String(encoded);
+  }
 
-    char[] encoded = new char[len * 2];
+  /**
+   * Encodes a range of the array (2 chars per byte)
+   *
+   * @return the number of chars written
+   */
+  static int encode(byte[] byteArray, int offset, int len, char[] encoded, int encodedOffset)
+  {
+    int j = encodedOffset;
+    int end = offset + len;
+    for(int i = offset; i < end; i++)
+    {
+      int b = byteArray[i] & 0xFF;
+      encoded[j++] = HEXA_DIGITS[b >>> 4];
+      encoded[j++] = HEXA_DIGITS[b & 0x0F];
+    }
 
-    int j = 0;
-    for(int i = 0; i < byteArray.length; i++)
+    return j - encodedOffset;
+  }
+
+  @Override
+  public <T extends Appendable> T encode(byte[] byteArray, int offset, int len, T out)
+    throws IOException
+  {
+    if(offset < 0 || len < 0 || offset + len > byteArray.length)
+      throw new IndexOutOfBoundsException();
+
+    int end = offset + len;
+    for(int i = offset; i < end; i++)
     {
       int b = byteArray[i] & 0xFF;
-      String hexa = HEXA_VALUES[b];
-      encoded[j++] = hexa.charAt(0);
-      encoded[j++] = hexa.charAt(1);
+      out.append(HEXA_DIGITS[b >>> 4]).append(HEXA_DIGITS[b & 0x0F]);
     }
 
-    return new String(encoded);
+    return out;
+  }
+
+  /**
+   * Decodes 2 digits (upper or lower case) per byte (same as {@link #decode(String)}).
+   */
+  @Override
+  public int decode(CharSequence s, ByteBuffer out) throws CannotDecodeException
+  {
+    int len = s.length();
+    if(len % 2 != 0)
+      throw new CannotDecodeException("odd number of hexadecimal digits: " + len);
+
+    int l = len / 2;
+    if(out.remaining() < l)
+      throw new BufferOverflowException();
+
+    for(int i = 0; i < len; i += 2)
+    {
+      int high = hexaValue(s.charAt(i));
+      int low = hexaValue(s.charAt(i + 1));
+      if(high == -1 || low == -1)
+        throw new CannotDecodeException("invalid hexadecimal digits: " + s.charAt(i) +
+                                        s.charAt(i + 1));
+      out.put((byte) ((high << 4) | low));
+    }
+
+    return l;
+  }
+
+  /**
+   * @return the value of the hexadecimal digit (<code>-1</code> if <code>c</code> is not one)
+   */
+  static int hexaValue(char c)
+  {
+    if(c >= '0' && c <= '9')
+      return c - '0';
+    if(c >= 'a' && c <= 'f')
+      return c - 'a' + 10;
+    if(c >= 'A' && c <= 'F')
+      return c - 'A' + 10;
+    return -1;
   }
 }
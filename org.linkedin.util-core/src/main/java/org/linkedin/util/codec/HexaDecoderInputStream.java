@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+
+package org.linkedin.util.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Decodes the hexadecimal chars read from a <code>Reader</code> (2 digits per byte, upper or
+ * lower case), using a constant amount of memory whatever the size of the content. This is the
+ * exact opposite of {@link HexaCodec#encode(byte[])} and {@link HexaEncoderOutputStream}.
+ *
+ * @author yan@pongasoft.com
+ */
+public class HexaDecoderInputStream extends InputStream
+{
+  private final Reader _in;
+  private final char[] _chars;
+
+  private int _position = 0;
+  private int _count = 0;
+  private boolean _eof = false;
+
+  public HexaDecoderInputStream(Reader in)
+  {
+    this(in, HexaEncoderOutputStream.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param bufferSize how many bytes are decoded at once
+   */
+  public HexaDecoderInputStream(Reader in, int bufferSize)
+  {
+    if(bufferSize <= 0)
+      throw new IllegalArgumentException("invalid buffer size: " + bufferSize);
+    _in = in;
+    _chars = new char[bufferSize * 2];
+  }
+
+  @Override
+  public int read() throws IOException
+  {
+    if(!fill())
+      return -1;
+    int b = decodeByte(_position);
+    _position += 2;
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException
+  {
+    if(off < 0 || len < 0 || len > b.length - off)
+      throw new IndexOutOfBoundsException();
+
+    if(len == 0)
+      return 0;
+
+    if(!fill())
+      return -1;
+
+    // returns what has already been read (does not wait for more chars)
+    int count = Math.min(len, (_count - _position) / 2);
+    for(int i = 0; i < count; i++)
+    {
+      b[off++] = (byte) decodeByte(_position);
+      _position += 2;
+    }
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException
+  {
+    return (_count - _position) / 2;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    _in.close();
+  }
+
+  private int decodeByte(int position) throws IOException
+  {
+    int high = HexaCodec.hexaValue(_chars[position]);
+    int low = HexaCodec.hexaValue(_chars[position + 1]);
+    if(high == -1 || low == -1)
+      throw new IOException("invalid hexadecimal digits: " + _chars[position] +
+                            _chars[position + 1]);
+    return (high << 4) | low;
+  }
+
+  /**
+   * Reads the next chars when all the current ones have been decoded
+   *
+   * @return <code>false</code> if there is nothing left to read
+   */
+  private boolean fill() throws IOException
+  {
+    while(_position == _count)
+    {
+      if(_eof)
+        return false;
+
+      // reads at least one (whole) byte
+      int len = 0;
+      while(len == 0 || len % 2 != 0)
+      {
+        int n = _in.read(_chars, len, _chars.length - len);
+        if(n == -1)
+        {
+          _eof = true;
+          break;
+        }
+        len += n;
+      }
+
+      if(len % 2 != 0)
+        throw new IOException("odd number of hexadecimal digits");
+
+      _count = len;
+      _position = 0;
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+
+package org.linkedin.util.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Encodes the bytes written to this stream in hexadecimal (like {@link HexaCodec#encode(byte[])})
+ * and writes the chars to a <code>Writer</code>, using a constant amount of memory whatever the
+ * size of the content.
+ *
+ * @author yan@pongasoft.com
+ */
+public class HexaEncoderOutputStream extends OutputStream
+{
+  /**
+   * Default buffer size (in bytes) */
+  public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+  private final Writer _out;
+  private final char[] _chars;
+
+  private int _count = 0;
+  private boolean _closed = false;
+
+  public HexaEncoderOutputStream(Writer out)
+  {
+    this(out, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param bufferSize how many bytes are encoded before the chars are written to the writer
+   */
+  public HexaEncoderOutputStream(Writer out, int bufferSize)
+  {
+    if(bufferSize <= 0)
+      throw new IllegalArgumentException("invalid buffer size: " + bufferSize);
+    _out = out;
+    _chars = new char[bufferSize * 2];
+  }
+
+  @Override
+  public void write(int b) throws IOException
+  {
+    ensureOpen();
+    if(_count == _chars.length)
+      flushBuffer();
+    _chars[_count++] = Character.forDigit((b >> 4) & 0xf, 16);
+    _chars[_count++] = Character.forDigit(b & 0xf, 16);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException
+  {
+    if(off < 0 || len < 0 || len > b.length - off)
+      throw new IndexOutOfBoundsException();
+
+    ensureOpen();
+    while(len > 0)
+    {
+      if(_count == _chars.length)
+        flushBuffer();
+      int count = Math.min(len, (_chars.length - _count) / 2);
+      _count += HexaCodec.encode(b, off, count, _chars, _count);
+      off += count;
+      len -= count;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException
+  {
+    ensureOpen();
+    flushBuffer();
+    _out.flush();
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    if(_closed)
+      return;
+
+    try
+    {
+      flushBuffer();
+    }
+    finally
+    {
+      _closed = true;
+      _out.close();
+    }
+  }
+
+  private void flushBuffer() throws IOException
+  {
+    if(_count > 0)
+    {
+      _out.write(_chars, 0, _count);
+      _count = 0;
+    }
+  }
+
+  private void ensureOpen() throws IOException
+  {
+    if(_closed)
+      throw new IOException("stream closed");
+  }
+}
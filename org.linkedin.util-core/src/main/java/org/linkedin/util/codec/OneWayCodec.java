@@ -16,6 +16,8 @@
 
 package org.linkedin.util.codec;
 
+import java.io.IOException;
+
 /**
  * A one way codec simply define a method to encode.
  *
@@ -29,4 +31,17 @@ public interface OneWayCodec
    * @param byteArray the array to encode
    * @return the encoded <code>String</code> */
   String encode(byte[] byteArray);
+
+  /**
+   * Encode a range of the array at the end of <code>out</code> (which can be reused from one
+   * call to the next). The chars appended are the same as {@link #encode(byte[])} on a copy of
+   * the range.
+   *
+   * @param byteArray the array to encode
+   * @param offset where the range starts
+   * @param len the number of bytes to encode
+   * @param out where to append the encoded chars
+   * @return <code>out</code> */
+  <T extends Appendable> T encode(byte[] byteArray, int offset, int len, T out)
+    throws IOException;
 }
\ No newline at end of file
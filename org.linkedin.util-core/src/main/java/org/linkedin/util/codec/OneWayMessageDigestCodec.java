@@ -16,23 +16,58 @@
 
 package org.linkedin.util.codec;
 
+import org.linkedin.util.io.resource.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * This codec will computes the digest of the input and then encode the result
  * with the codec. It is one way only because there is no way to go back to
  * the input. This class is thread safe!
  *
+ * <p>Each thread reuses its own copy of the message digest (instead of cloning
+ * it on every call) unless the codec was created with an already initialized
+ * <code>MessageDigest</code> whose state cannot be restored.</p>
+ *
  * @author ypujante@linkedin.com
  */
 public class OneWayMessageDigestCodec implements OneWayCodec
 {
   public static final String MODULE = OneWayMessageDigestCodec.class.getName();
 
+  /**
+   * Size of the buffer used to read the streams */
+  private static final int READ_BUFFER_SIZE = 8 * 1024;
+
   private final MessageDigest _md;
   private final OneWayCodec _codec;
 
+  /**
+   * What the message digest is initialized with (<code>null</code> when the digests cannot be
+   * reused) */
+  private final byte[] _prefix;
+
+  /**
+   * The message digest of each thread */
+  private final ThreadLocal<MessageDigest> _digests = new ThreadLocal<MessageDigest>()
+  {
+    @Override
+    protected MessageDigest initialValue()
+    {
+      return newMessageDigest();
+    }
+  };
+
   /**
    * Constructor.
    *
@@ -63,19 +98,20 @@ public class OneWayMessageDigestCodec implements OneWayCodec
     throws NoSuchAlgorithmException, CloneNotSupportedException
   {
     _md = MessageDigest.getInstance(algorithm);
-    if(password != null)
-      _md.update(password.getBytes());
+    _prefix = password == null ? new byte[0] : password.getBytes();
+    _md.update(_prefix);
     _md.clone(); // verify that it is cloneable
     _codec = codec;
   }
 
   /**
-   * Constructor */
+   * Constructor (the state of <code>md</code> is unknown so it is cloned on every call) */
   public OneWayMessageDigestCodec(MessageDigest md, OneWayCodec codec)
     throws CloneNotSupportedException
   {
     _md = md;
     _md.clone(); // verify that it is cloneable
+    _prefix = null;
     _codec = codec;
   }
 
@@ -87,19 +123,155 @@ public class OneWayMessageDigestCodec implements OneWayCodec
   @Override
   public String encode(byte[] byteArray)
   {
-    MessageDigest md = null;
+    return _codec.encode(getMessageDigest().digest(byteArray));
+  }
+
+  /**
+   * Digests the range (no copy of the range is made) and encodes the digest in <code>out</code>
+   */
+  @Override
+  public <T extends Appendable> T encode(byte[] byteArray, int offset, int len, T out)
+    throws IOException
+  {
+    MessageDigest md = getMessageDigest();
+    md.update(byteArray, offset, len);
+    byte[] digest = md.digest();
+    return _codec.encode(digest, 0, digest.length, out);
+  }
+
+  /**
+   * Digests the stream as it is read (it is not buffered in memory). The stream is not closed.
+   *
+   * @param in the stream to digest (read until the end)
+   * @return the encoded digest */
+  public String encode(InputStream in) throws IOException
+  {
+    MessageDigest md = getMessageDigest();
+    byte[] buffer = new byte[READ_BUFFER_SIZE];
+    int n;
+    while((n = in.read(buffer)) != -1)
+      md.update(buffer, 0, n);
+    return _codec.encode(md.digest());
+  }
+
+  /**
+   * Digests the content of the resource (see {@link #encode(InputStream)})
+   *
+   * @return the encoded digest */
+  public String encode(Resource resource) throws IOException
+  {
+    InputStream in = resource.getInputStream();
+    try
+    {
+      return encode(in);
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * Digests the content of the resources in parallel: each resource is digested in its own
+   * task so the parallelism is bounded by the executor.
+   *
+   * @param resources the resources to digest
+   * @param executor the executor running the tasks (<code>null</code> means that the resources
+   *                 are digested one after the other in the calling thread)
+   * @return the encoded digests (in the same order as the resources)
+   * @throws IOException if digesting one of the resources fails (the tasks not started yet are
+   *                     cancelled)
+   * @throws InterruptedException if interrupted while waiting for the tasks to end */
+  public List<String> encodeAll(List<? extends Resource> resources, ExecutorService executor)
+    throws IOException, InterruptedException
+  {
+    List<String> res = new ArrayList<String>(resources.size());
+
+    if(executor == null)
+    {
+      for(Resource resource : resources)
+        res.add(encode(resource));
+      return res;
+    }
+
+    List<Future<String>> futures = new ArrayList<Future<String>>(resources.size());
+    try
+    {
+      for(final Resource resource : resources)
+      {
+        try
+        {
+          futures.add(executor.submit(new Callable<String>()
+          {
+            @Override
+            public String call() throws Exception
+            {
+              return encode(resource);
+            }
+          }));
+        }
+        catch(RejectedExecutionException e)
+        {
+          throw new IOException("cannot digest " + resource, e);
+        }
+      }
+
+      for(int i = 0; i < futures.size(); i++)
+      {
+        try
+        {
+          res.add(futures.get(i).get());
+        }
+        catch(ExecutionException e)
+        {
+          Throwable cause = e.getCause();
+          if(cause instanceof IOException)
+            throw (IOException) cause;
+          if(cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+          throw new IOException("error while digesting " + resources.get(i), cause);
+        }
+      }
+    }
+    finally
+    {
+      // no-op for the tasks which are done
+      for(Future<String> future : futures)
+        future.cancel(false);
+    }
+
+    return res;
+  }
+
+  /**
+   * @return the message digest of the current thread (ready to use) or a new one if the digests
+   * cannot be reused */
+  private MessageDigest getMessageDigest()
+  {
+    if(_prefix == null)
+      return newMessageDigest();
+
+    // the digest may have been left in the middle of an update (if reading a stream failed)
+    MessageDigest md = _digests.get();
+    md.reset();
+    if(_prefix.length > 0)
+      md.update(_prefix);
+    return md;
+  }
 
+  /**
+   * @return a new message digest (a clone of the one provided at construction time) */
+  private MessageDigest newMessageDigest()
+  {
     try
     {
-      md = (MessageDigest) _md.clone();
+      return (MessageDigest) _md.clone();
     }
     catch(CloneNotSupportedException e)
     {
       // should not happen... already tested in constructor!!
       throw new RuntimeException(e);
     }
-
-    return _codec.encode(md.digest(byteArray));
   }
 
   /**
@@ -0,0 +1,482 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.codec;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The base64 encoding defined in RFC 4648 (with the standard or the url safe alphabet),
+ * compatible with the other systems (unlike {@link Base64Codec} which uses its own alphabet and
+ * order). Groups of 3 bytes are converted into groups of 4 chars with table lookups only: the
+ * only branch in the main loops is the one checking (once per group) that the chars are valid.
+ *
+ * <p>The output can be padded with <code>'='</code> (the default) and wrapped in lines of a
+ * given length separated by <code>"\r\n"</code> (like MIME does). When decoding, the padding is
+ * optional, and line separators are skipped only when the codec wraps lines. Any other char
+ * which does not belong to the alphabet is rejected. This class is immutable and thread
+ * safe.</p>
+ *
+ * @author yan@pongasoft.com
+ */
+public class StandardBase64Codec implements Codec
+{
+  /**
+   * Length of the lines for MIME */
+  public static final int MIME_LINE_LENGTH = 76;
+
+  private static final char[] STANDARD_ALPHABET =
+    "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+  private static final char[] URL_SAFE_ALPHABET =
+    "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+  private static final char PAD = '=';
+
+  /**
+   * Standard alphabet, padded, no line wrapping */
+  public static final StandardBase64Codec INSTANCE = new StandardBase64Codec(false, true, 0);
+
+  /**
+   * Url (and file name) safe alphabet, padded, no line wrapping */
+  public static final StandardBase64Codec URL_SAFE_INSTANCE =
+    new StandardBase64Codec(true, true, 0);
+
+  private final boolean _urlSafe;
+  private final boolean _padding;
+  private final int _lineLength;
+
+  private final char[] _alphabet;
+
+  /**
+   * The value of each char (<code>-1</code> if not in the alphabet) */
+  private final int[] _values = new int[256];
+
+  /**
+   * @param urlSafe <code>true</code> for the url safe alphabet (<code>'-'</code> and
+   *                <code>'_'</code> instead of <code>'+'</code> and <code>'/'</code>)
+   * @param padding <code>true</code> to pad the output with <code>'='</code>
+   * @param lineLength the length of the lines (a multiple of 4) or <code>0</code> for no line
+   *                   wrapping
+   */
+  public StandardBase64Codec(boolean urlSafe, boolean padding, int lineLength)
+  {
+    if(lineLength < 0 || lineLength % 4 != 0)
+      throw new IllegalArgumentException("line length must be a multiple of 4: " + lineLength);
+
+    _urlSafe = urlSafe;
+    _padding = padding;
+    _lineLength = lineLength;
+    _alphabet = urlSafe ? URL_SAFE_ALPHABET : STANDARD_ALPHABET;
+
+    for(int i = 0; i < _values.length; i++)
+      _values[i] = -1;
+    for(int i = 0; i < _alphabet.length; i++)
+      _values[_alphabet[i]] = i;
+  }
+
+  public boolean isUrlSafe()
+  {
+    return _urlSafe;
+  }
+
+  public boolean isPadding()
+  {
+    return _padding;
+  }
+
+  public int getLineLength()
+  {
+    return _lineLength;
+  }
+
+  /**
+   * @return the same codec without padding
+   */
+  public StandardBase64Codec withoutPadding()
+  {
+    return _padding ? new StandardBase64Codec(_urlSafe, false, _lineLength) : this;
+  }
+
+  /**
+   * @param lineLength the length of the lines (a multiple of 4) or <code>0</code> for no line
+   *                   wrapping
+   * @return the same codec with line wrapping
+   */
+  public StandardBase64Codec withLineLength(int lineLength)
+  {
+    if(lineLength == _lineLength)
+      return this;
+    return new StandardBase64Codec(_urlSafe, _padding, lineLength);
+  }
+
+  /**
+   * @param len number of bytes to encode
+   * @return the number of chars of the encoded bytes (line separators included)
+   */
+  public int encodedLength(int len)
+  {
+    int chars = _padding ? ((len + 2) / 3) * 4 : (len * 4 + 2) / 3;
+    if(_lineLength > 0 && chars > 0)
+      chars += ((chars - 1) / _lineLength) * 2;
+    return chars;
+  }
+
+  @Override
+  public String encode(byte[] byteArray)
+  {
+    char[] encoded = new char[encodedLength(byteArray.length)];
+    encode(byteArray, 0, byteArray.length, encoded, 0);
+    return new String(encoded);
+  }
+
+  /**
+   * Encodes the range in the array of chars (which must have room for
+   * {@link #encodedLength(int)} chars from <code>encodedOffset</code>)
+   *
+   * @return the number of chars written
+   */
+  public int encode(byte[] byteArray, int offset, int len, char[] encoded, int encodedOffset)
+  {
+    if(offset < 0 || len < 0 || offset + len > byteArray.length)
+      throw new IndexOutOfBoundsException();
+
+    final char[] alphabet = _alphabet;
+    final int end = offset + len;
+    // groups per line (0 means no line wrapping)
+    final int lineGroups = _lineLength / 4;
+
+    int i = offset;
+    int j = encodedOffset;
+    int groups = 0;
+
+    while(end - i >= 3)
+    {
+      if(groups == lineGroups && lineGroups > 0)
+      {
+        encoded[j++] = '\r';
+        encoded[j++] = '\n';
+        groups = 0;
+      }
+
+      int bits = (byteArray[i] & 0xff) << 16 | (byteArray[i + 1] & 0xff) << 8 |
+                 (byteArray[i + 2] & 0xff);
+      encoded[j] = alphabet[bits >>> 18];
+      encoded[j + 1] = alphabet[(bits >>> 12) & 0x3f];
+      encoded[j + 2] = alphabet[(bits >>> 6) & 0x3f];
+      encoded[j + 3] = alphabet[bits & 0x3f];
+      i += 3;
+      j += 4;
+      groups++;
+    }
+
+    int remaining = end - i;
+    if(remaining > 0)
+    {
+      if(groups == lineGroups && lineGroups > 0)
+      {
+        encoded[j++] = '\r';
+        encoded[j++] = '\n';
+      }
+
+      int bits = (byteArray[i] & 0xff) << 16;
+      if(remaining == 2)
+        bits |= (byteArray[i + 1] & 0xff) << 8;
+
+      encoded[j++] = alphabet[bits >>> 18];
+      encoded[j++] = alphabet[(bits >>> 12) & 0x3f];
+      if(remaining == 2)
+        encoded[j++] = alphabet[(bits >>> 6) & 0x3f];
+      else if(_padding)
+        encoded[j++] = PAD;
+      if(_padding)
+        encoded[j++] = PAD;
+    }
+
+    return j - encodedOffset;
+  }
+
+  @Override
+  public <T extends Appendable> T encode(byte[] byteArray, int offset, int len, T out)
+    throws IOException
+  {
+    if(offset < 0 || len < 0 || offset + len > byteArray.length)
+      throw new IndexOutOfBoundsException();
+
+    final char[] alphabet = _alphabet;
+    final int end = offset + len;
+    final int lineGroups = _lineLength / 4;
+
+    int i = offset;
+    int groups = 0;
+
+    while(end - i >= 3)
+    {
+      if(groups == lineGroups && lineGroups > 0)
+      {
+        out.append("\r\n");
+        groups = 0;
+      }
+
+      int bits = (byteArray[i] & 0xff) << 16 | (byteArray[i + 1] & 0xff) << 8 |
+                 (byteArray[i + 2] & 0xff);
+      out.append(alphabet[bits >>> 18]);
+      out.append(alphabet[(bits >>> 12) & 0x3f]);
+      out.append(alphabet[(bits >>> 6) & 0x3f]);
+      out.append(alphabet[bits & 0x3f]);
+      i += 3;
+      groups++;
+    }
+
+    int remaining = end - i;
+    if(remaining > 0)
+    {
+      if(groups == lineGroups && lineGroups > 0)
+        out.append("\r\n");
+
+      int bits = (byteArray[i] & 0xff) << 16;
+      if(remaining == 2)
+        bits |= (byteArray[i + 1] & 0xff) << 8;
+
+      out.append(alphabet[bits >>> 18]);
+      out.append(alphabet[(bits >>> 12) & 0x3f]);
+      if(remaining == 2)
+        out.append(alphabet[(bits >>> 6) & 0x3f]);
+      else if(_padding)
+        out.append(PAD);
+      if(_padding)
+        out.append(PAD);
+    }
+
+    return out;
+  }
+
+  @Override
+  public byte[] decode(String s) throws CannotDecodeException
+  {
+    if(s == null)
+      throw new CannotDecodeException("Cannot decode null String");
+
+    byte[] res = new byte[decodedLength(s)];
+    decode(s, res, 0);
+    return res;
+  }
+
+  /**
+   * Decodes straight in the array backing the buffer when there is one
+   */
+  @Override
+  public int decode(CharSequence s, ByteBuffer out) throws CannotDecodeException
+  {
+    int len = decodedLength(s);
+    if(out.remaining() < len)
+      throw new BufferOverflowException();
+
+    if(out.hasArray())
+    {
+      decode(s, out.array(), out.arrayOffset() + out.position());
+      out.position(out.position() + len);
+    }
+    else
+    {
+      byte[] res = new byte[len];
+      decode(s, res, 0);
+      out.put(res);
+    }
+
+    return len;
+  }
+
+  /**
+   * Decodes the chars in the array (which must have enough room)
+   */
+  private void decode(CharSequence s, byte[] res, int resOffset) throws CannotDecodeException
+  {
+    if(_lineLength > 0)
+      decodeLines(s, res, resOffset);
+    else
+      decodeGroups(s, 0, dataEnd(s), res, resOffset);
+  }
+
+  /**
+   * @return the number of decoded bytes
+   * @throws CannotDecodeException if the length (or the padding) is invalid
+   */
+  private int decodedLength(CharSequence s) throws CannotDecodeException
+  {
+    int len = s.length();
+    int dataEnd = dataEnd(s);
+
+    // number of chars (line separators excluded)
+    int chars = dataEnd;
+    int pads = 0;
+    if(_lineLength > 0)
+    {
+      for(int i = 0; i < dataEnd; i++)
+      {
+        if(isLineSeparator(s.charAt(i)))
+          chars--;
+      }
+      for(int i = dataEnd; i < len; i++)
+      {
+        if(s.charAt(i) == PAD)
+          pads++;
+      }
+    }
+    else
+    {
+      pads = len - dataEnd;
+    }
+
+    if(pads > 0 && (chars + pads) % 4 != 0)
+      throw new CannotDecodeException("invalid padding");
+
+    if(chars % 4 == 1)
+      throw new CannotDecodeException("invalid length: " + chars);
+
+    return chars / 4 * 3 + (chars % 4 == 0 ? 0 : chars % 4 - 1);
+  }
+
+  /**
+   * @return the end of the data: the padding (at most 2 chars) and the trailing line separators
+   * (if the lines are wrapped) are excluded
+   */
+  private int dataEnd(CharSequence s)
+  {
+    int end = s.length();
+    int pads = 0;
+    while(end > 0)
+    {
+      char c = s.charAt(end - 1);
+      if(c == PAD && pads < 2)
+        pads++;
+      else if(!(_lineLength > 0 && isLineSeparator(c)))
+        break;
+      end--;
+    }
+    return end;
+  }
+
+  private static boolean isLineSeparator(char c)
+  {
+    return c == '\r' || c == '\n';
+  }
+
+  /**
+   * Decodes the chars (without padding nor line separators) between start and end
+   *
+   * @return the offset in <code>res</code> after the decoded bytes
+   */
+  private int decodeGroups(CharSequence s, int start, int end, byte[] res, int j)
+    throws CannotDecodeException
+  {
+    final int[] values = _values;
+
+    int i = start;
+    int groupsEnd = start + (end - start) / 4 * 4;
+    while(i < groupsEnd)
+    {
+      char c0 = s.charAt(i);
+      char c1 = s.charAt(i + 1);
+      char c2 = s.charAt(i + 2);
+      char c3 = s.charAt(i + 3);
+
+      // a single check for the 4 chars
+      if((c0 | c1 | c2 | c3) > 0xff)
+        throw invalidChars(s, i, i + 4);
+
+      int v0 = values[c0];
+      int v1 = values[c1];
+      int v2 = values[c2];
+      int v3 = values[c3];
+      if((v0 | v1 | v2 | v3) < 0)
+        throw invalidChars(s, i, i + 4);
+
+      int bits = v0 << 18 | v1 << 12 | v2 << 6 | v3;
+      res[j] = (byte) (bits >>> 16);
+      res[j + 1] = (byte) (bits >>> 8);
+      res[j + 2] = (byte) bits;
+      i += 4;
+      j += 3;
+    }
+
+    int remaining = end - i;
+    if(remaining > 1)
+    {
+      int bits = 0;
+      for(int k = 0; k < remaining; k++)
+      {
+        char c = s.charAt(i + k);
+        int v = c > 0xff ? -1 : values[c];
+        if(v < 0)
+          throw invalidChars(s, i, end);
+        bits |= v << (18 - k * 6);
+      }
+      res[j++] = (byte) (bits >>> 16);
+      if(remaining == 3)
+        res[j++] = (byte) (bits >>> 8);
+    }
+
+    return j;
+  }
+
+  /**
+   * Decodes the chars line by line (the line separators are skipped)
+   */
+  private void decodeLines(CharSequence s, byte[] res, int j) throws CannotDecodeException
+  {
+    int end = dataEnd(s);
+
+    // 0 to 3 chars which did not make a whole group at the end of the previous line (in case the
+    // lines are not a multiple of 4)
+    StringBuilder partial = null;
+
+    int lineStart = 0;
+    while(lineStart < end)
+    {
+      int lineEnd = lineStart;
+      while(lineEnd < end && !isLineSeparator(s.charAt(lineEnd)))
+        lineEnd++;
+
+      if(partial == null && (lineEnd - lineStart) % 4 == 0)
+      {
+        j = decodeGroups(s, lineStart, lineEnd, res, j);
+      }
+      else
+      {
+        if(partial == null)
+          partial = new StringBuilder();
+        partial.append(s, lineStart, lineEnd);
+        int groups = partial.length() / 4 * 4;
+        j = decodeGroups(partial, 0, groups, res, j);
+        partial.delete(0, groups);
+      }
+
+      lineStart = lineEnd + 1;
+    }
+
+    if(partial != null)
+      decodeGroups(partial, 0, partial.length(), res, j);
+  }
+
+  private static CannotDecodeException invalidChars(CharSequence s, int start, int end)
+  {
+    return new CannotDecodeException("invalid chars: " + s.subSequence(start, end));
+  }
+}
@@ -26,9 +26,15 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * @author ypujante@linkedin.com
@@ -307,7 +313,118 @@ public class IOUtils
     }
   }
 
-  
+  /**
+   * Copies the input channel into the output channel (all). When the input channel is a
+   * <code>FileChannel</code>, the copy is delegated to <code>FileChannel.transferTo</code> which
+   * lets the OS copy the bytes without bringing them into the heap. If the output channel stops
+   * accepting bytes that way (ex: non blocking channel), the rest is copied through a buffer.
+   *
+   * @param in the channel to read data
+   * @param out the channel to write data
+   * @return the number of bytes copied */
+  public static long copy(ReadableByteChannel in, WritableByteChannel out) throws IOException
+  {
+    long count = 0;
+
+    if(in instanceof FileChannel)
+    {
+      FileChannel fileChannel = (FileChannel) in;
+      long position = fileChannel.position();
+      long size = fileChannel.size();
+      while(position < size)
+      {
+        long n = fileChannel.transferTo(position, size - position, out);
+        if(n == 0)
+          break;
+        position += n;
+        count += n;
+      }
+      fileChannel.position(position);
+
+      if(position < size)
+        count += copyBuffered(fileChannel, out);
+    }
+    else
+    {
+      count += copyBuffered(in, out);
+    }
+
+    return count;
+  }
+
+  private static long copyBuffered(ReadableByteChannel in, WritableByteChannel out)
+    throws IOException
+  {
+    long count = 0;
+    ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+    while(in.read(buffer) >= 0 || buffer.position() > 0)
+    {
+      buffer.flip();
+      count += out.write(buffer);
+      buffer.compact();
+    }
+    return count;
+  }
+
+  /**
+   * Maps the file in memory (read only). The mapping remains valid after this call even though
+   * the underlying channel is closed.
+   *
+   * @param file the file to map
+   * @return the (read only) buffer */
+  public static MappedByteBuffer map(File file) throws IOException
+  {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try
+    {
+      FileChannel channel = raf.getChannel();
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    finally
+    {
+      raf.close();
+    }
+  }
+
+  /**
+   * Reads the input stream fully into a (read only) buffer.
+   *
+   * @param in the input stream to read data
+   * @param sizeHint the expected number of bytes (<code>&lt;= 0</code> if unknown)
+   * @return the (read only) buffer */
+  public static ByteBuffer readFully(InputStream in, long sizeHint) throws IOException
+  {
+    if(sizeHint > 0 && sizeHint < Integer.MAX_VALUE)
+    {
+      byte[] b = new byte[(int) sizeHint];
+      int offset = 0;
+      int n;
+      while(offset < b.length && (n = in.read(b, offset, b.length - offset)) > 0)
+        offset += n;
+
+      // the stream was shorter than the hint
+      if(offset < b.length)
+        return ByteBuffer.wrap(b, 0, offset).slice().asReadOnlyBuffer();
+
+      int next = in.read();
+
+      // the stream matched the hint
+      if(next == -1)
+        return ByteBuffer.wrap(b).asReadOnlyBuffer();
+
+      // the stream was longer than the hint
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(b.length * 2);
+      baos.write(b);
+      baos.write(next);
+      copy(in, baos);
+      return ByteBuffer.wrap(baos.toByteArray()).asReadOnlyBuffer();
+    }
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    copy(in, baos);
+    return ByteBuffer.wrap(baos.toByteArray()).asReadOnlyBuffer();
+  }
+
   /**
    * Constructor
    */
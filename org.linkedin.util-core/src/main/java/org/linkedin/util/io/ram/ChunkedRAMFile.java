@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.ram;
+
+import org.linkedin.util.clock.Clock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link RAMFile} whose content is stored in fixed size segments allocated by a
+ * {@link RAMBufferAllocator} (off heap by default) instead of a single <code>byte[]</code>. It is
+ * created by writing to the stream returned by {@link RAMDirectory#createOutputStream(String)}.
+ * Reading it through {@link #getInputStream()} does not copy the content. {@link #getContent()}
+ * and {@link #toByteBuffer()} (when there is more than one segment) copy it on the heap.
+ *
+ * @author yan@pongasoft.com
+ */
+public class ChunkedRAMFile extends RAMFile
+{
+  /**
+   * The content (shared between the copies of the file)
+   */
+  private static class Chunks
+  {
+    private final ByteBuffer[] buffers;
+    private final long length;
+    private final RAMBufferAllocator allocator;
+
+    // number of files (copies) which have not been released yet
+    private final AtomicInteger holders = new AtomicInteger(1);
+
+    private Chunks(ByteBuffer[] buffers, long length, RAMBufferAllocator allocator)
+    {
+      this.buffers = buffers;
+      this.length = length;
+      this.allocator = allocator;
+    }
+  }
+
+  private final Chunks _chunks;
+  private final AtomicBoolean _released;
+
+  private ChunkedRAMFile(Clock clock,
+                         String name,
+                         long lastModifiedDate,
+                         Chunks chunks,
+                         boolean released)
+  {
+    super(clock, name, lastModifiedDate);
+    _chunks = chunks;
+    _released = new AtomicBoolean(released);
+  }
+
+  /**
+   * @return a copy of the content (on the heap)
+   */
+  @Override
+  public byte[] getContent()
+  {
+    if(_chunks.length > Integer.MAX_VALUE)
+      throw new IllegalStateException("content too big for an array: " + _chunks.length);
+
+    byte[] content = new byte[(int) _chunks.length];
+    int offset = 0;
+    for(ByteBuffer buffer : _chunks.buffers)
+    {
+      buffer = buffer.duplicate();
+      int len = buffer.remaining();
+      buffer.get(content, offset, len);
+      offset += len;
+    }
+    return content;
+  }
+
+  /**
+   * @return a stream reading the segments directly (no copy)
+   */
+  @Override
+  public InputStream getInputStream()
+  {
+    return new ChunksInputStream(_chunks.buffers);
+  }
+
+  /**
+   * @return a read only view of the content: no copy when the content fits in one segment,
+   * otherwise a copy on the heap
+   */
+  @Override
+  public ByteBuffer toByteBuffer()
+  {
+    switch(_chunks.buffers.length)
+    {
+      case 0:
+        return ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+      case 1:
+        return _chunks.buffers[0].duplicate();
+
+      default:
+        return ByteBuffer.wrap(getContent()).asReadOnlyBuffer();
+    }
+  }
+
+  /**
+   * @return a copy sharing the content: the memory is given back to the allocator once all the
+   * copies have been released
+   */
+  @Override
+  public RAMFile copy()
+  {
+    while(true)
+    {
+      int holders = _chunks.holders.get();
+
+      // the memory has already been given back => the copy does not hold it
+      if(holders == 0)
+        return new ChunkedRAMFile(_clock, name(), lastModified(), _chunks, true);
+
+      if(_chunks.holders.compareAndSet(holders, holders + 1))
+        return new ChunkedRAMFile(_clock, name(), lastModified(), _chunks, false);
+    }
+  }
+
+  /**
+   * Releases this copy (only the first time): the memory is given back to the allocator when the
+   * last copy is released
+   */
+  @Override
+  void release()
+  {
+    if(_released.compareAndSet(false, true) && _chunks.holders.decrementAndGet() == 0)
+      _chunks.allocator.release(_chunks.buffers.length);
+  }
+
+  @Override
+  public long getContentLength()
+  {
+    return _chunks.length;
+  }
+
+  /**
+   * Stream which builds the file: the file is added to the directory when the stream is closed
+   */
+  static class Writer extends OutputStream
+  {
+    private final RAMDirectory _directory;
+    private final String _name;
+    private final RAMBufferAllocator _allocator;
+
+    private final List<ByteBuffer> _buffers = new ArrayList<ByteBuffer>();
+    private ByteBuffer _current = null;
+    private long _length = 0;
+    private boolean _closed = false;
+
+    Writer(RAMDirectory directory, String name, RAMBufferAllocator allocator)
+    {
+      _directory = directory;
+      _name = name;
+      _allocator = allocator;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+      nextBuffer().put((byte) b);
+      _length++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+        throw new IndexOutOfBoundsException();
+
+      while(len > 0)
+      {
+        ByteBuffer buffer = nextBuffer();
+        int count = Math.min(len, buffer.remaining());
+        buffer.put(b, off, count);
+        off += count;
+        len -= count;
+        _length += count;
+      }
+    }
+
+    /**
+     * @return the buffer to write into (allocates a new one when the current one is full)
+     */
+    private ByteBuffer nextBuffer() throws IOException
+    {
+      if(_closed)
+        throw new IOException("stream closed");
+
+      if(_current == null || !_current.hasRemaining())
+      {
+        boolean allocated = false;
+        try
+        {
+          _current = _allocator.allocate();
+          allocated = true;
+        }
+        finally
+        {
+          // the file will never be created => gives back what has been allocated so far
+          if(!allocated)
+            abort();
+        }
+        _buffers.add(_current);
+      }
+
+      return _current;
+    }
+
+    /**
+     * Closes the stream without creating the file and gives back the memory
+     */
+    private void abort()
+    {
+      _closed = true;
+      _allocator.release(_buffers.size());
+      _buffers.clear();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      if(_closed)
+        return;
+
+      _closed = true;
+
+      ByteBuffer[] buffers = new ByteBuffer[_buffers.size()];
+      for(int i = 0; i < buffers.length; i++)
+      {
+        ByteBuffer buffer = _buffers.get(i);
+        buffer.flip();
+        buffers[i] = buffer.asReadOnlyBuffer();
+      }
+
+      boolean added = false;
+      try
+      {
+        _directory.add(new ChunkedRAMFile(_directory._clock,
+                                          _name,
+                                          _directory._clock.currentTimeMillis(),
+                                          new Chunks(buffers, _length, _allocator),
+                                          false));
+        added = true;
+      }
+      finally
+      {
+        // the file has not been added (ex: the directory has been removed)
+        if(!added)
+          _allocator.release(buffers.length);
+        _buffers.clear();
+      }
+    }
+
+    /**
+     * Gives back the memory of a stream which has been abandoned (never closed)
+     */
+    @Override
+    protected void finalize() throws Throwable
+    {
+      super.finalize();
+      if(!_closed)
+        abort();
+    }
+  }
+
+  /**
+   * Reads the segments one after the other
+   */
+  private static class ChunksInputStream extends InputStream
+  {
+    private final ByteBuffer[] _buffers;
+    private int _index = -1;
+    private ByteBuffer _current = null;
+
+    private ChunksInputStream(ByteBuffer[] buffers)
+    {
+      _buffers = buffers;
+    }
+
+    /**
+     * @return the buffer to read from or <code>null</code> when all the content has been read
+     */
+    private ByteBuffer currentBuffer()
+    {
+      while(_current == null || !_current.hasRemaining())
+      {
+        if(_index + 1 >= _buffers.length)
+          return null;
+        _current = _buffers[++_index].duplicate();
+      }
+      return _current;
+    }
+
+    @Override
+    public int read()
+    {
+      ByteBuffer buffer = currentBuffer();
+      if(buffer == null)
+        return -1;
+      return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+        throw new IndexOutOfBoundsException();
+
+      if(len == 0)
+        return 0;
+
+      int total = 0;
+      while(len > 0)
+      {
+        ByteBuffer buffer = currentBuffer();
+        if(buffer == null)
+          break;
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        off += count;
+        len -= count;
+        total += count;
+      }
+
+      return total == 0 ? -1 : total;
+    }
+
+    @Override
+    public long skip(long n)
+    {
+      long total = 0;
+      while(n > 0)
+      {
+        ByteBuffer buffer = currentBuffer();
+        if(buffer == null)
+          break;
+        int count = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + count);
+        n -= count;
+        total += count;
+      }
+      return total;
+    }
+
+    @Override
+    public int available()
+    {
+      ByteBuffer buffer = currentBuffer();
+      return buffer == null ? 0 : buffer.remaining();
+    }
+  }
+}
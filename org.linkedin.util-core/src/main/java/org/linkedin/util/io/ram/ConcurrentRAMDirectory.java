@@ -0,0 +1,841 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.ram;
+
+import org.linkedin.util.clock.Clock;
+import org.linkedin.util.clock.SystemClock;
+import org.linkedin.util.io.resource.RAMResource;
+import org.linkedin.util.io.resource.Resource;
+import org.linkedin.util.lang.MemorySize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread safe version of {@link RAMDirectory} built as a copy on write tree of immutable
+ * directories: a modification copies the directories on the path from the root to the modified
+ * directory and publishes the new root atomically (concurrent modifications retry). Reads
+ * (lookups and listings) are lock free and never wait for modifications.
+ *
+ * <p>This directory and the directories returned by its methods are views which always read the
+ * current tree. {@link #toResource()} returns a resource on the tree as it is right now (without
+ * copying anything): readers get a consistent view which is not affected by further
+ * modifications. Use {@link #toLiveResource()} for a resource which reflects the modifications as
+ * they happen.</p>
+ *
+ * <p>The memory of the files removed from the tree is given back to the allocator once the
+ * resources which can still see them have been garbage collected.</p>
+ *
+ * <p>Note that the tree is considered modified only when going through the methods of the
+ * directories (ex: use {@link #touch(String, long)} rather than touching the entry
+ * directly). A directory removed from the tree cannot be modified anymore
+ * (<code>IllegalStateException</code>).</p>
+ *
+ * @author yan@pongasoft.com
+ */
+public class ConcurrentRAMDirectory extends RAMDirectory
+{
+  /**
+   * State shared by all the directories of the tree
+   */
+  private static class Tree
+  {
+    private final AtomicReference<Root> root;
+
+    // number of snapshots being taken (not registered yet)
+    private final AtomicInteger snapshotsInProgress = new AtomicInteger(0);
+
+    // the snapshots not garbage collected yet
+    private final ReferenceQueue<RAMDirectory> snapshotQueue = new ReferenceQueue<RAMDirectory>();
+    private final Set<SnapshotReference> snapshots =
+      Collections.newSetFromMap(new ConcurrentHashMap<SnapshotReference, Boolean>());
+
+    // the files removed from the tree which may still be seen by a snapshot
+    private final Queue<RemovedFile> removedFiles = new ConcurrentLinkedQueue<RemovedFile>();
+
+    private Tree(Node root)
+    {
+      this.root = new AtomicReference<Root>(new Root(root, 0));
+    }
+  }
+
+  /**
+   * A version of the tree
+   */
+  private static class Root
+  {
+    private final Node node;
+    private final long version;
+
+    private Root(Node node, long version)
+    {
+      this.node = node;
+      this.version = version;
+    }
+  }
+
+  /**
+   * Immutable directory (copied on write)
+   */
+  private static class Node extends RAMDirectory
+  {
+    // identifies the directory (all the copies of a node share it)
+    private final Object id;
+
+    private Node(Clock clock,
+                 String name,
+                 long lastModifiedDate,
+                 Map<String, RAMEntry> directoryContent,
+                 RAMBufferAllocator allocator,
+                 Object id)
+    {
+      super(clock,
+            name,
+            lastModifiedDate,
+            Collections.unmodifiableMap(directoryContent),
+            allocator);
+      this.id = id;
+    }
+
+    /**
+     * @return a copy of this node with the entry added (or replaced)
+     */
+    private Node put(RAMEntry entry, long lastModifiedDate)
+    {
+      Map<String, RAMEntry> content = content();
+      content.put(entry.name(), entry);
+      return new Node(_clock, name(), lastModifiedDate, content, getAllocator(), id);
+    }
+
+    /**
+     * @return a copy of this node without the entry
+     */
+    private Node remove(String name)
+    {
+      Map<String, RAMEntry> content = content();
+      content.remove(name);
+      return new Node(_clock, name(), lastModified(), content, getAllocator(), id);
+    }
+
+    private Node withLastModified(long lastModifiedDate)
+    {
+      return new Node(_clock, name(), lastModifiedDate, content(), getAllocator(), id);
+    }
+
+    private Map<String, RAMEntry> content()
+    {
+      Collection<RAMEntry> entries = ls();
+      Map<String, RAMEntry> content = new HashMap<String, RAMEntry>(entries.size() * 2 + 1);
+      for(RAMEntry entry : entries)
+        content.put(entry.name(), entry);
+      return content;
+    }
+
+    @Override
+    public void touch(long lastModifiedDate)
+    {
+      throw new UnsupportedOperationException("read only directory");
+    }
+
+    @Override
+    public void touch()
+    {
+      throw new UnsupportedOperationException("read only directory");
+    }
+
+    @Override
+    public RAMEntry touch(String name, long lastModifiedDate)
+    {
+      throw new UnsupportedOperationException("read only directory");
+    }
+
+    @Override
+    public RAMEntry add(RAMEntry entry)
+    {
+      throw new UnsupportedOperationException("read only directory");
+    }
+
+    @Override
+    public OutputStream createOutputStream(String name)
+    {
+      throw new UnsupportedOperationException("read only directory");
+    }
+
+    @Override
+    public RAMDirectory mkdir(String name) throws IOException
+    {
+      throw new UnsupportedOperationException("read only directory");
+    }
+
+    @Override
+    public RAMEntry rm(String name)
+    {
+      throw new UnsupportedOperationException("read only directory");
+    }
+  }
+
+  /**
+   * A modification of a directory
+   */
+  private static abstract class Update
+  {
+    // what the modification returns
+    protected RAMEntry result;
+
+    // the entry removed from the tree
+    protected RAMEntry removed;
+
+    /**
+     * @return the modified copy of the directory (<code>null</code> if nothing changed)
+     */
+    protected abstract Node update(Node directory);
+  }
+
+  /**
+   * Keeps track of a snapshot of the tree: the files removed from the tree after the snapshot was
+   * taken are given back to the allocator only once the snapshot is garbage collected. Also keeps
+   * track of the files of the copies of the tree (see {@link #snapshot()}) which are released
+   * once the copy is garbage collected.
+   */
+  private static class SnapshotReference extends PhantomReference<RAMDirectory>
+  {
+    private final long version;
+    private final List<RAMFile> files;
+
+    private SnapshotReference(RAMDirectory snapshot,
+                              long version,
+                              List<RAMFile> files,
+                              ReferenceQueue<RAMDirectory> queue)
+    {
+      super(snapshot, queue);
+      this.version = version;
+      this.files = files;
+    }
+  }
+
+  private static class RemovedFile
+  {
+    private final RAMFile file;
+
+    // the version of the tree without the file
+    private final long version;
+
+    private RemovedFile(RAMFile file, long version)
+    {
+      this.file = file;
+      this.version = version;
+    }
+  }
+
+  /**
+   * The last resource returned by {@link #toResource()} (kept while someone uses it)
+   */
+  private static class CachedResource extends WeakReference<Resource>
+  {
+    private final long version;
+
+    private CachedResource(Resource resource, long version)
+    {
+      super(resource);
+      this.version = version;
+    }
+  }
+
+  private final Tree _tree;
+  private final ConcurrentRAMDirectory _parent;
+  private final Object _id;
+
+  // the (views of the) sub directories
+  private final ConcurrentMap<String, ConcurrentRAMDirectory> _directories =
+    new ConcurrentHashMap<String, ConcurrentRAMDirectory>();
+
+  private final AtomicReference<CachedResource> _resource = new AtomicReference<CachedResource>();
+
+  public ConcurrentRAMDirectory()
+  {
+    this(SystemClock.instance());
+  }
+
+  public ConcurrentRAMDirectory(Clock clock)
+  {
+    this(clock, new RAMBufferAllocator());
+  }
+
+  /**
+   * @see RAMDirectory#RAMDirectory(Clock, MemorySize)
+   */
+  public ConcurrentRAMDirectory(Clock clock, MemorySize budget)
+  {
+    this(clock, new RAMBufferAllocator(budget));
+  }
+
+  public ConcurrentRAMDirectory(Clock clock, RAMBufferAllocator allocator)
+  {
+    this(clock,
+         allocator,
+         new Node(clock,
+                  "",
+                  clock.currentTimeMillis(),
+                  new HashMap<String, RAMEntry>(),
+                  allocator,
+                  new Object()));
+  }
+
+  private ConcurrentRAMDirectory(Clock clock, RAMBufferAllocator allocator, Node root)
+  {
+    this(clock, "", allocator, new Tree(root), null, root.id);
+  }
+
+  private ConcurrentRAMDirectory(Clock clock,
+                                 String name,
+                                 RAMBufferAllocator allocator,
+                                 Tree tree,
+                                 ConcurrentRAMDirectory parent,
+                                 Object id)
+  {
+    super(clock, name, Collections.<String, RAMEntry>emptyMap(), allocator);
+    _tree = tree;
+    _parent = parent;
+    _id = id;
+  }
+
+  @Override
+  public RAMEntry getEntry(String name)
+  {
+    Node directory = resolve(_tree.root.get().node);
+    if(directory == null)
+      return null;
+    return view(directory.getEntry(name));
+  }
+
+  @Override
+  public Collection<RAMEntry> ls()
+  {
+    Node directory = resolve(_tree.root.get().node);
+    if(directory == null)
+      return Collections.emptyList();
+
+    Collection<RAMEntry> entries = directory.ls();
+    List<RAMEntry> res = new ArrayList<RAMEntry>(entries.size());
+    for(RAMEntry entry : entries)
+      res.add(view(entry));
+    return res;
+  }
+
+  @Override
+  public long lastModified()
+  {
+    Node directory = resolve(_tree.root.get().node);
+    return directory == null ? super.lastModified() : directory.lastModified();
+  }
+
+  @Override
+  public void touch(final long lastModifiedDate)
+  {
+    modify(new Update()
+    {
+      @Override
+      protected Node update(Node directory)
+      {
+        return directory.withLastModified(lastModifiedDate);
+      }
+    });
+  }
+
+  @Override
+  public void touch()
+  {
+    touch(_clock.currentTimeMillis());
+  }
+
+  @Override
+  public RAMEntry touch(final String name, final long lastModifiedDate)
+  {
+    return view(modify(new Update()
+    {
+      @Override
+      protected Node update(Node directory)
+      {
+        RAMEntry entry = directory.getEntry(name);
+
+        if(entry == null)
+        {
+          result = new RAMFile(_clock, name, lastModifiedDate, new byte[0]);
+          return directory.put(result, _clock.currentTimeMillis());
+        }
+
+        if(entry instanceof Node)
+        {
+          result = ((Node) entry).withLastModified(lastModifiedDate);
+        }
+        else
+        {
+          // the file may be seen by a snapshot => touches a copy
+          result = ((RAMFile) entry).copy();
+          result.touch(lastModifiedDate);
+          removed = entry;
+        }
+
+        return directory.put(result, directory.lastModified());
+      }
+    }));
+  }
+
+  @Override
+  public RAMEntry add(RAMEntry entry)
+  {
+    final RAMEntry added =
+      entry instanceof RAMDirectory ? freeze((RAMDirectory) entry) : entry;
+
+    return view(modify(new Update()
+    {
+      @Override
+      protected Node update(Node directory)
+      {
+        RAMEntry previous = directory.getEntry(added.name());
+        if(previous != added)
+          removed = previous;
+        result = added;
+        return directory.put(added, _clock.currentTimeMillis());
+      }
+    }));
+  }
+
+  /**
+   * Same as {@link RAMDirectory#mkdir(String)} but atomic: 2 threads creating the same directory
+   * get the same instance.
+   */
+  @Override
+  public RAMDirectory mkdir(final String name) throws IOException
+  {
+    RAMEntry entry = modify(new Update()
+    {
+      @Override
+      protected Node update(Node directory)
+      {
+        result = directory.getEntry(name);
+        if(result != null)
+          return null;
+
+        long now = _clock.currentTimeMillis();
+        result = new Node(_clock,
+                          name,
+                          now,
+                          new HashMap<String, RAMEntry>(),
+                          getAllocator(),
+                          new Object());
+        return directory.put(result, now);
+      }
+    });
+
+    if(entry instanceof Node)
+      return view((Node) entry);
+    else
+      throw new IOException("File exists: " + name);
+  }
+
+  /**
+   * @return the entry removed (a read only directory for a directory)
+   */
+  @Override
+  public RAMEntry rm(final String name)
+  {
+    RAMEntry entry = modify(new Update()
+    {
+      @Override
+      protected Node update(Node directory)
+      {
+        result = directory.getEntry(name);
+        if(result == null)
+          return null;
+        removed = result;
+        return directory.remove(name);
+      }
+    });
+
+    if(entry instanceof Node)
+    {
+      ConcurrentRAMDirectory directory = _directories.get(name);
+      if(directory != null && directory._id == ((Node) entry).id)
+        _directories.remove(name, directory);
+    }
+
+    return entry;
+  }
+
+  /**
+   * @return a copy of this directory (and its content) as it is right now. The copy is a plain
+   * (not thread safe) {@link RAMDirectory} (the content of the files is shared).
+   */
+  public RAMDirectory snapshot()
+  {
+    releaseFiles();
+
+    _tree.snapshotsInProgress.incrementAndGet();
+    try
+    {
+      Node directory = resolve(_tree.root.get().node);
+      if(directory == null)
+        throw new IllegalStateException("directory has been removed: " + path());
+
+      List<RAMFile> files = new ArrayList<RAMFile>();
+      RAMDirectory copy = copy(directory, files);
+      // the copies of the files do not prevent the release of the files of the tree
+      if(!files.isEmpty())
+        _tree.snapshots.add(new SnapshotReference(copy,
+                                                  Long.MAX_VALUE,
+                                                  files,
+                                                  _tree.snapshotQueue));
+      return copy;
+    }
+    finally
+    {
+      _tree.snapshotsInProgress.decrementAndGet();
+    }
+  }
+
+  /**
+   * @return a resource on this directory as it is right now: it does not copy anything (the tree
+   * is immutable) and is not affected by further modifications. The same resource is returned
+   * until the tree gets modified.
+   */
+  @Override
+  public Resource toResource()
+  {
+    releaseFiles();
+
+    _tree.snapshotsInProgress.incrementAndGet();
+    try
+    {
+      Root root = _tree.root.get();
+
+      CachedResource cached = _resource.get();
+      Resource resource = cached != null && cached.version == root.version ? cached.get() : null;
+
+      if(resource == null)
+      {
+        if(resolve(root.node) == null)
+          throw new IllegalStateException("directory has been removed: " + path());
+
+        resource = RAMResource.create(root.node);
+        if(_parent != null)
+          resource = resource.chroot(path());
+
+        _tree.snapshots.add(new SnapshotReference(root.node,
+                                                  root.version,
+                                                  Collections.<RAMFile>emptyList(),
+                                                  _tree.snapshotQueue));
+
+        // another thread may have created the resource at the same time
+        if(!_resource.compareAndSet(cached, new CachedResource(resource, root.version)))
+        {
+          cached = _resource.get();
+          Resource other = cached != null && cached.version == root.version ? cached.get() : null;
+          if(other != null)
+            resource = other;
+        }
+      }
+
+      return resource;
+    }
+    finally
+    {
+      _tree.snapshotsInProgress.decrementAndGet();
+    }
+  }
+
+  /**
+   * @return a resource which reflects the modifications of this directory as they happen
+   */
+  public Resource toLiveResource()
+  {
+    return RAMResource.create(this);
+  }
+
+  /**
+   * Applies the modification to the current tree and publishes the new tree (tries again if
+   * the tree has been modified in the meantime).
+   *
+   * @return the result of the modification
+   */
+  private RAMEntry modify(Update update)
+  {
+    releaseFiles();
+
+    while(true)
+    {
+      Root root = _tree.root.get();
+
+      Node[] path = path(root.node);
+      if(path == null)
+        throw new IllegalStateException("directory has been removed: " + path());
+
+      update.result = null;
+      update.removed = null;
+      Node node = update.update(path[path.length - 1]);
+      if(node == null)
+        return update.result;
+
+      // copies the path up to the root
+      for(int i = path.length - 2; i >= 0; i--)
+        node = path[i].put(node, path[i].lastModified());
+
+      Root newRoot = new Root(node, root.version + 1);
+      if(_tree.root.compareAndSet(root, newRoot))
+      {
+        if(update.removed != null)
+        {
+          removed(update.removed, newRoot.version);
+          releaseFiles();
+        }
+        return update.result;
+      }
+    }
+  }
+
+  /**
+   * Records the files removed from the tree (recursively for a directory)
+   */
+  private void removed(RAMEntry entry, long version)
+  {
+    if(entry instanceof RAMFile)
+    {
+      _tree.removedFiles.add(new RemovedFile((RAMFile) entry, version));
+    }
+    else
+    {
+      if(entry instanceof RAMDirectory)
+      {
+        for(RAMEntry child : ((RAMDirectory) entry).ls())
+          removed(child, version);
+      }
+    }
+  }
+
+  /**
+   * Gives back the memory held by the copies which have been garbage collected and by the
+   * removed files which cannot be seen by a snapshot anymore
+   */
+  private void releaseFiles()
+  {
+    Reference<? extends RAMDirectory> reference;
+    while((reference = _tree.snapshotQueue.poll()) != null)
+    {
+      SnapshotReference snapshotReference = (SnapshotReference) reference;
+      _tree.snapshots.remove(snapshotReference);
+      for(RAMFile file : snapshotReference.files)
+        file.release();
+    }
+
+    if(_tree.removedFiles.isEmpty())
+      return;
+
+    // a snapshot being taken may see any version of the tree (must be checked before looking at
+    // the registered snapshots)
+    if(_tree.snapshotsInProgress.get() > 0)
+      return;
+
+    long oldestSnapshot = Long.MAX_VALUE;
+    for(SnapshotReference snapshot : _tree.snapshots)
+      oldestSnapshot = Math.min(oldestSnapshot, snapshot.version);
+
+    Iterator<RemovedFile> iterator = _tree.removedFiles.iterator();
+    while(iterator.hasNext())
+    {
+      RemovedFile removedFile = iterator.next();
+      // the snapshots older than the removal can still see the file
+      if(removedFile.version <= oldestSnapshot)
+      {
+        iterator.remove();
+        removedFile.file.release();
+      }
+    }
+  }
+
+  /**
+   * @return the node of this directory in the tree (<code>null</code> if it has been removed)
+   */
+  private Node resolve(Node root)
+  {
+    if(_parent == null)
+      return root;
+
+    Node parent = _parent.resolve(root);
+    if(parent == null)
+      return null;
+
+    RAMEntry entry = parent.getEntry(name());
+    if(entry instanceof Node && ((Node) entry).id == _id)
+      return (Node) entry;
+    else
+      return null;
+  }
+
+  /**
+   * @return the nodes from the root to this directory (<code>null</code> if it has been removed)
+   */
+  private Node[] path(Node root)
+  {
+    if(_parent == null)
+      return new Node[] { root };
+
+    Node[] path = _parent.path(root);
+    if(path == null)
+      return null;
+
+    RAMEntry entry = path[path.length - 1].getEntry(name());
+    if(!(entry instanceof Node) || ((Node) entry).id != _id)
+      return null;
+
+    path = Arrays.copyOf(path, path.length + 1);
+    path[path.length - 1] = (Node) entry;
+    return path;
+  }
+
+  /**
+   * @return the path of this directory (ends with /)
+   */
+  private String path()
+  {
+    return _parent == null ? "/" : _parent.path() + name() + "/";
+  }
+
+  /**
+   * @return the view on the entry (the entry itself for a file)
+   */
+  private RAMEntry view(RAMEntry entry)
+  {
+    if(entry instanceof Node)
+      return view((Node) entry);
+    else
+      return entry;
+  }
+
+  /**
+   * @return the (unique) view on the sub directory
+   */
+  private ConcurrentRAMDirectory view(Node node)
+  {
+    while(true)
+    {
+      ConcurrentRAMDirectory directory = _directories.get(node.name());
+      if(directory != null && directory._id == node.id)
+        return directory;
+
+      ConcurrentRAMDirectory newDirectory = new ConcurrentRAMDirectory(_clock,
+                                                                       node.name(),
+                                                                       getAllocator(),
+                                                                       _tree,
+                                                                       this,
+                                                                       node.id);
+      if(directory == null)
+      {
+        if(_directories.putIfAbsent(node.name(), newDirectory) == null)
+          return newDirectory;
+      }
+      else
+      {
+        if(_directories.replace(node.name(), directory, newDirectory))
+          return newDirectory;
+      }
+    }
+  }
+
+  /**
+   * @return an immutable copy of the directory: the files of a plain directory are moved to this
+   * tree, the other ones are copied (they are shared with another tree)
+   */
+  private Node freeze(RAMDirectory directory)
+  {
+    boolean shared = directory instanceof ConcurrentRAMDirectory || directory instanceof Node;
+
+    Map<String, RAMEntry> content = new HashMap<String, RAMEntry>();
+    for(RAMEntry entry : directory.ls())
+    {
+      if(entry instanceof RAMDirectory)
+        entry = freeze((RAMDirectory) entry);
+      else
+      {
+        if(shared && entry instanceof RAMFile)
+          entry = ((RAMFile) entry).copy();
+      }
+      content.put(entry.name(), entry);
+    }
+
+    return new Node(_clock,
+                    directory.name(),
+                    directory.lastModified(),
+                    content,
+                    getAllocator(),
+                    new Object());
+  }
+
+  /**
+   * Deep copy of the directory (the content of the files is shared)
+   *
+   * @param files the copies of the files which hold memory
+   */
+  private static RAMDirectory copy(RAMDirectory directory, List<RAMFile> files)
+  {
+    Map<String, RAMEntry> content = new HashMap<String, RAMEntry>();
+
+    for(RAMEntry entry : directory.ls())
+    {
+      if(entry instanceof RAMDirectory)
+      {
+        content.put(entry.name(), copy((RAMDirectory) entry, files));
+      }
+      else
+      {
+        if(entry instanceof RAMFile)
+        {
+          RAMFile file = ((RAMFile) entry).copy();
+          if(file instanceof ChunkedRAMFile)
+            files.add(file);
+          entry = file;
+        }
+        content.put(entry.name(), entry);
+      }
+    }
+
+    return new RAMDirectory(directory._clock,
+                            directory.name(),
+                            directory.lastModified(),
+                            content,
+                            directory.getAllocator());
+  }
+}
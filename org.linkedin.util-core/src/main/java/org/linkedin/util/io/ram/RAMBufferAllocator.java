@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.ram;
+
+import org.linkedin.util.lang.MemorySize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates the fixed size (direct) segments used by {@link ChunkedRAMFile} and keeps track of
+ * the memory in use against a budget. The memory is given back to the budget when the file is
+ * removed from its directory (the segments themselves are reclaimed by the garbage collector once
+ * nobody reads them anymore). This class is thread safe.
+ *
+ * @author yan@pongasoft.com
+ */
+public class RAMBufferAllocator
+{
+  public static final MemorySize DEFAULT_CHUNK_SIZE =
+    new MemorySize(64, MemorySize.SizeUnit.KILO_BYTE);
+
+  private final int _chunkSize;
+  private final long _budget;
+  private final boolean _direct;
+
+  private final AtomicLong _used = new AtomicLong(0);
+
+  /**
+   * Unbounded allocator of direct segments of {@link #DEFAULT_CHUNK_SIZE}
+   */
+  public RAMBufferAllocator()
+  {
+    this(DEFAULT_CHUNK_SIZE, null);
+  }
+
+  /**
+   * Allocator of direct segments of {@link #DEFAULT_CHUNK_SIZE}
+   *
+   * @param budget the maximum amount of memory to allocate (<code>null</code> for unbounded)
+   */
+  public RAMBufferAllocator(MemorySize budget)
+  {
+    this(DEFAULT_CHUNK_SIZE, budget);
+  }
+
+  public RAMBufferAllocator(MemorySize chunkSize, MemorySize budget)
+  {
+    this(chunkSize, budget, true);
+  }
+
+  /**
+   * @param chunkSize the size of each segment
+   * @param budget the maximum amount of memory to allocate (<code>null</code> for unbounded)
+   * @param direct <code>true</code> for direct (off heap) segments
+   */
+  public RAMBufferAllocator(MemorySize chunkSize, MemorySize budget, boolean direct)
+  {
+    long size = chunkSize.getSizeInBytes();
+    if(size <= 0 || size > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("invalid chunk size: " + chunkSize);
+
+    _chunkSize = (int) size;
+    _budget = budget == null ? Long.MAX_VALUE : budget.getSizeInBytes();
+    _direct = direct;
+  }
+
+  public MemorySize getChunkSize()
+  {
+    return new MemorySize(_chunkSize);
+  }
+
+  /**
+   * @return the budget (<code>null</code> if unbounded)
+   */
+  public MemorySize getBudget()
+  {
+    return _budget == Long.MAX_VALUE ? null : new MemorySize(_budget);
+  }
+
+  /**
+   * @return the memory currently allocated
+   */
+  public MemorySize getUsed()
+  {
+    return new MemorySize(_used.get());
+  }
+
+  public boolean isDirect()
+  {
+    return _direct;
+  }
+
+  /**
+   * @return a new (empty) segment
+   * @throws IOException if allocating it would exceed the budget
+   */
+  public ByteBuffer allocate() throws IOException
+  {
+    while(true)
+    {
+      long used = _used.get();
+      if(used + _chunkSize > _budget)
+        throw new IOException("RAM budget exceeded: " + getBudget() + " (used: " +
+                              new MemorySize(used) + ")");
+      if(_used.compareAndSet(used, used + _chunkSize))
+        break;
+    }
+
+    try
+    {
+      return _direct ? ByteBuffer.allocateDirect(_chunkSize) : ByteBuffer.allocate(_chunkSize);
+    }
+    catch(OutOfMemoryError e)
+    {
+      release(1);
+      throw e;
+    }
+  }
+
+  /**
+   * Gives back the memory of the segments to the budget.
+   */
+  public void release(int chunkCount)
+  {
+    _used.addAndGet(-(long) chunkCount * _chunkSize);
+  }
+}
@@ -20,6 +20,7 @@ import org.linkedin.util.clock.Clock;
 import org.linkedin.util.clock.SystemClock;
 import org.linkedin.util.io.resource.RAMResource;
 import org.linkedin.util.io.resource.Resource;
+import org.linkedin.util.lang.MemorySize;
 
 import java.util.Map;
 import java.util.HashMap;
@@ -27,6 +28,7 @@ import java.util.Collection;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.io.FileNotFoundException;
+import java.io.OutputStream;
 
 /**
  * @author ypujante@linkedin.com
@@ -35,6 +37,7 @@ import java.io.FileNotFoundException;
 public class RAMDirectory extends RAMEntry
 {
   private final Map<String, RAMEntry> _directoryContent;
+  private final RAMBufferAllocator _allocator;
 
   public RAMDirectory()
   {
@@ -46,21 +49,57 @@ public class RAMDirectory extends RAMEntry
     this(clock, "");
   }
 
+  /**
+   * Creates an empty root directory whose files created with {@link #createOutputStream(String)}
+   * (in this directory or any directory created from it) cannot use more than
+   * <code>budget</code> memory.
+   */
+  public RAMDirectory(Clock clock, MemorySize budget)
+  {
+    this(clock, "", new HashMap<String, RAMEntry>(), new RAMBufferAllocator(budget));
+  }
+
+  /**
+   * Creates a root directory with its own (unbounded) allocator: use the constructors taking an
+   * allocator (or {@link #mkdir(String)}) for a directory belonging to an existing tree.
+   */
   public RAMDirectory(Clock clock,
                       String name,
                       Map<String, RAMEntry> directoryContent)
+  {
+    this(clock, name, directoryContent, new RAMBufferAllocator());
+  }
+
+  public RAMDirectory(Clock clock,
+                      String name,
+                      Map<String, RAMEntry> directoryContent,
+                      RAMBufferAllocator allocator)
   {
     super(clock, name);
     _directoryContent = directoryContent;
+    _allocator = allocator;
   }
 
+  /**
+   * Creates a root directory with its own (unbounded) allocator.
+   */
   public RAMDirectory(Clock clock,
                       String name,
                       long lastModifiedDate,
                       Map<String, RAMEntry> directoryContent)
+  {
+    this(clock, name, lastModifiedDate, directoryContent, new RAMBufferAllocator());
+  }
+
+  public RAMDirectory(Clock clock,
+                      String name,
+                      long lastModifiedDate,
+                      Map<String, RAMEntry> directoryContent,
+                      RAMBufferAllocator allocator)
   {
     super(clock, name, lastModifiedDate);
     _directoryContent = directoryContent;
+    _allocator = allocator;
   }
 
   /**
@@ -103,26 +142,30 @@ public class RAMDirectory extends RAMEntry
   {
     RAMEntry entry = this;
 
-    String[] pathComponents = path.split("/");
+    int len = path.length();
+    int start = 0;
 
-    for(String pathComponent : pathComponents)
+    while(start < len && entry != null)
     {
-      // we skip empty path components (caused by leading / + double //)
-      if(pathComponent.equals(""))
-        continue;
+      int end = path.indexOf('/', start);
+      if(end == -1)
+        end = len;
 
-      if(entry instanceof RAMDirectory)
-      {
-        RAMDirectory ramDirectory = (RAMDirectory) entry;
-        entry = ramDirectory.getEntry(pathComponent);
-      }
-      else
+      // we skip empty path components (caused by leading / + double //)
+      if(end > start)
       {
-        entry = null;
+        if(entry instanceof RAMDirectory)
+        {
+          RAMDirectory ramDirectory = (RAMDirectory) entry;
+          entry = ramDirectory.getEntry(path.substring(start, end));
+        }
+        else
+        {
+          entry = null;
+        }
       }
 
-      if(entry == null)
-        break;
+      start = end + 1;
     }
 
     return entry;
@@ -176,7 +219,9 @@ public class RAMDirectory extends RAMEntry
   public RAMEntry add(RAMEntry entry)
   {
     touch();
-    _directoryContent.put(entry.name(), entry);
+    RAMEntry previous = _directoryContent.put(entry.name(), entry);
+    if(previous != null && previous != entry)
+      release(previous);
     return entry;
   }
 
@@ -211,6 +256,19 @@ public class RAMDirectory extends RAMEntry
     }
   }
 
+  /**
+   * Creates a file (stored in segments allocated by {@link #getAllocator()}) with the content
+   * written to the stream: the file is added to the directory with this name when the stream is
+   * closed. Writing throws an <code>IOException</code> when the budget is exceeded.
+   *
+   * @param name
+   * @return the stream to write the content to (must be closed!)
+   */
+  public OutputStream createOutputStream(String name)
+  {
+    return new ChunkedRAMFile.Writer(this, name, _allocator);
+  }
+
   /**
    * Creates an empty directory and add it to this directory with this name. If the directory
    * already exists, it does not recreate it.
@@ -231,7 +289,7 @@ public class RAMDirectory extends RAMEntry
     {
       if(entry == null)
       {
-        RAMDirectory directory = new RAMDirectory(_clock, name);
+        RAMDirectory directory = createDirectory(name);
         return (RAMDirectory) add(directory);
       }
       else
@@ -249,7 +307,31 @@ public class RAMDirectory extends RAMEntry
    */
   public RAMEntry rm(String name)
   {
-    return _directoryContent.remove(name);
+    RAMEntry entry = _directoryContent.remove(name);
+    if(entry != null)
+      release(entry);
+    return entry;
+  }
+
+  /**
+   * Gives back the memory used by the entry (and its content for a directory)
+   */
+  private static void release(RAMEntry entry)
+  {
+    if(entry instanceof RAMFile)
+    {
+      ((RAMFile) entry).release();
+    }
+    else
+    {
+      if(entry instanceof RAMDirectory)
+      {
+        for(RAMEntry child : ((RAMDirectory) entry).ls())
+        {
+          release(child);
+        }
+      }
+    }
   }
 
   /**
@@ -263,12 +345,20 @@ public class RAMDirectory extends RAMEntry
   {
     RAMDirectory directory = this;
 
-    String[] pathComponents = path.split("/");
+    int len = path.length();
+    int start = 0;
 
-    for(String pathComponent : pathComponents)
+    while(start < len)
     {
+      int end = path.indexOf('/', start);
+      if(end == -1)
+        end = len;
+
+      String pathComponent = path.substring(start, end);
+      start = end + 1;
+
       // we skip empty path components (caused by leading / + double //)
-      if(pathComponent.equals(""))
+      if(pathComponent.length() == 0)
         continue;
 
       RAMEntry entry = directory.getEntry(pathComponent);
@@ -293,6 +383,23 @@ public class RAMDirectory extends RAMEntry
     return directory;
   }
 
+  /**
+   * Creates a new (empty) directory with this name (not added to this directory). Subclasses
+   * can override it to create directories of the same kind.
+   */
+  protected RAMDirectory createDirectory(String name)
+  {
+    return new RAMDirectory(_clock, name, new HashMap<String, RAMEntry>(), _allocator);
+  }
+
+  /**
+   * @return the allocator used for the files created with {@link #createOutputStream(String)}
+   */
+  public RAMBufferAllocator getAllocator()
+  {
+    return _allocator;
+  }
+
   /**
    * @return the content of the directory
    */
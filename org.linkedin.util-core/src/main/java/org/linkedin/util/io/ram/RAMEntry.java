@@ -28,7 +28,7 @@ public abstract class RAMEntry
 
   private final String _name;
   
-  private long _lastModifiedDate;
+  private volatile long _lastModifiedDate;
 
   public RAMEntry(Clock clock, String name)
   {
@@ -18,6 +18,10 @@ package org.linkedin.util.io.ram;
 
 import org.linkedin.util.clock.Clock;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
 /**
  * @author ypujante@linkedin.com
  *
@@ -39,11 +43,52 @@ public class RAMFile extends RAMEntry
     _content = content;
   }
 
+  /**
+   * For subclasses which store their content differently
+   */
+  protected RAMFile(Clock clock, String name, long lastModifiedDate)
+  {
+    super(clock, name, lastModifiedDate);
+    _content = null;
+  }
+
   public byte[] getContent()
   {
     return _content;
   }
 
+  /**
+   * @return a stream on the content (no copy)
+   */
+  public InputStream getInputStream()
+  {
+    return new ByteArrayInputStream(_content);
+  }
+
+  /**
+   * @return a read only view of the content
+   */
+  public ByteBuffer toByteBuffer()
+  {
+    return ByteBuffer.wrap(_content).asReadOnlyBuffer();
+  }
+
+  /**
+   * @return a copy of this file (the content is shared)
+   */
+  public RAMFile copy()
+  {
+    return new RAMFile(_clock, name(), lastModified(), _content);
+  }
+
+  /**
+   * Called when the file is removed from its directory
+   */
+  void release()
+  {
+    // nothing to do: the content is on the heap
+  }
+
   @Override
   public long getContentLength()
   {
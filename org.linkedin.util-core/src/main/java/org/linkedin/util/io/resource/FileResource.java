@@ -16,6 +16,7 @@
 
 package org.linkedin.util.io.resource;
 
+import org.linkedin.util.io.IOUtils;
 import org.linkedin.util.io.PathUtils;
 import org.linkedin.util.io.resource.internal.AbstractResource;
 import org.linkedin.util.io.resource.internal.FileResourceProvider;
@@ -27,6 +28,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * @author ypujante@linkedin.com
@@ -100,6 +103,28 @@ public class FileResource extends AbstractResource
     return new FileInputStream(_file);
   }
 
+  /**
+   * Important note: the caller of this method is responsible for properly closing the channel!
+   *
+   * @return a <code>FileChannel</code> to the resource.
+   * @throws IOException if cannot get a channel
+   */
+  @Override
+  public ReadableByteChannel getReadableChannel() throws IOException
+  {
+    return new FileInputStream(_file).getChannel();
+  }
+
+  /**
+   * @return the file mapped in memory (read only)
+   * @throws IOException if the file cannot be mapped
+   */
+  @Override
+  public ByteBuffer map() throws IOException
+  {
+    return IOUtils.map(_file);
+  }
+
 
   /**
    * Efficiently returns all information about the resource.
@@ -117,6 +142,30 @@ public class FileResource extends AbstractResource
   }
 
 
+  /**
+   * Same meaning as the default implementation but with a single stat of the file (instead of
+   * checking for existence first).
+   *
+   * @return the last modified date of this resource.
+   */
+  @Override
+  public long lastModified()
+  {
+    return _file.lastModified();
+  }
+
+  /**
+   * Same meaning as the default implementation with less stats of the file.
+   *
+   * @return the length in bytes of the resource.
+   */
+  @Override
+  public long length()
+  {
+    return _file.isDirectory() ? 0 : _file.length();
+  }
+
+
   /**
    * @return <code>true</code> if this resource represents a directory.
    */
@@ -23,6 +23,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * @author ypujante@linkedin.com
@@ -98,6 +100,29 @@ public class FilteredResource extends AbstractResource
     return _resource.getInputStream();
   }
 
+  /**
+   * Important note: the caller of this method is responsible for properly closing the
+   * channel!
+   *
+   * @return a channel to read the resource.
+   * @throws IOException if cannot get a channel
+   */
+  @Override
+  public ReadableByteChannel getReadableChannel() throws IOException
+  {
+    return _resource.getReadableChannel();
+  }
+
+  /**
+   * @return the content of the resource.
+   * @throws IOException if cannot read the content
+   */
+  @Override
+  public ByteBuffer map() throws IOException
+  {
+    return _resource.map();
+  }
+
   /**
    * @return <code>true</code> if this resource represents a directory.
    */
@@ -20,9 +20,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.linkedin.util.io.PathUtils;
 import org.linkedin.util.io.resource.internal.AbstractResource;
+import org.linkedin.util.io.resource.internal.CachedJarFile;
 import org.linkedin.util.io.resource.internal.InternalResourceProvider;
+import org.linkedin.util.io.resource.internal.JarFileCache;
 import org.linkedin.util.io.resource.internal.JarResourceProvider;
 import org.linkedin.util.io.resource.internal.LeafResource;
+import org.linkedin.util.io.resource.internal.LocalContentCache;
 import org.linkedin.util.io.resource.internal.ResourceProvider;
 
 import java.io.File;
@@ -32,7 +35,6 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 /**
  * @author ypujante@linkedin.com
@@ -45,21 +47,23 @@ public class JarResource extends AbstractResource
 
   private final String _fullPath;
   private final LeafResource _jarResource;
+  private final JarFileCache _jarFileCache;
 
   /**
-   * Make sure we close the jar file when the input stream gets closed
+   * Make sure we release the jar file when the input stream gets closed
    */
   private static class CloseJarFileInputStream extends FilterInputStream
   {
-    private final JarFile _jarFile;
+    private final CachedJarFile _jarFile;
+    private boolean _released = false;
 
-    public CloseJarFileInputStream(Resource resource, JarFile jarFile, String location) throws IOException
+    public CloseJarFileInputStream(Resource resource, CachedJarFile jarFile, String location) throws IOException
     {
       super(extractInputStream(jarFile, location, resource));
       _jarFile = jarFile;
     }
 
-    private static InputStream extractInputStream(JarFile jarFile, String location, Resource resource)
+    private static InputStream extractInputStream(CachedJarFile jarFile, String location, Resource resource)
       throws IOException
     {
       JarEntry jarEntry = jarFile.getJarEntry(location);
@@ -75,7 +79,7 @@ public class JarResource extends AbstractResource
           throw new IOException("cannot read directory for " + resource.toURI());
 
       }
-      InputStream is = jarFile.getInputStream(jarEntry);
+      InputStream is = jarFile.getJarFile().getInputStream(jarEntry);
       if(is == null)
       {
         throw new IOException("cannot get input stream for entry " + jarEntry + " for " + resource.toURI());
@@ -88,14 +92,19 @@ public class JarResource extends AbstractResource
     {
       // YP Note: I know it looks like a bug because in general we do super.close in the finally
       // but in this case the input stream is actually associated to the jar file so we need
-      // to close it first before closing the jar file...
+      // to close it first before releasing the jar file...
       try
       {
         super.close();
       }
       finally
       {
-        _jarFile.close();
+        // closing twice must not release the jar file twice
+        if(!_released)
+        {
+          _released = true;
+          _jarFile.release();
+        }
       }
     }
   }
@@ -107,21 +116,34 @@ public class JarResource extends AbstractResource
                         String path,
                         LeafResource jarResource,
                         String fullPath)
+  {
+    this(resourceProvider, path, jarResource, fullPath, JarFileCache.DEFAULT);
+  }
+
+  /**
+   * Constructor
+   */
+  public JarResource(InternalResourceProvider resourceProvider,
+                     String path,
+                     LeafResource jarResource,
+                     String fullPath,
+                     JarFileCache jarFileCache)
   {
     super(resourceProvider, path);
 
     _jarResource = jarResource;
+    _jarFileCache = jarFileCache;
     // the full path within the jar should not start with '/'
     _fullPath = PathUtils.removeLeadingSlash(fullPath);
   }
 
   /**
-   * @return the content jar file (please close it when done!)
+   * @return the content jar file (please release it when done!)
    * @throws IOException
    */
-  private JarFile getContentJarFile() throws IOException
+  private CachedJarFile getContentJarFile() throws IOException
   {
-    return new JarFile(_jarResource.getFile());
+    return _jarFileCache.acquire(_jarResource.getFile());
   }
 
   /**
@@ -150,7 +172,7 @@ public class JarResource extends AbstractResource
     
     try
     {
-      JarFile contentJarFile = getContentJarFile();
+      CachedJarFile contentJarFile = getContentJarFile();
       try
       {
         JarEntry jarEntry = contentJarFile.getJarEntry(_fullPath);
@@ -158,7 +180,7 @@ public class JarResource extends AbstractResource
       }
       finally
       {
-        contentJarFile.close();
+        contentJarFile.release();
       }
     }
     catch(IOException e)
@@ -180,20 +202,20 @@ public class JarResource extends AbstractResource
   @Override
   public InputStream getInputStream() throws IOException
   {
-    JarFile contentJarFile = getContentJarFile();
+    CachedJarFile contentJarFile = getContentJarFile();
     try
     {
       CloseJarFileInputStream jarFileInputStream =
         new CloseJarFileInputStream(this, contentJarFile, _fullPath);
 
-      // we are delegating the closure of the jar file to the input stream...
+      // we are delegating the release of the jar file to the input stream...
       contentJarFile = null;
       return jarFileInputStream;
     }
     finally
     {
       if(contentJarFile != null)
-        contentJarFile.close();
+        contentJarFile.release();
     }
   }
 
@@ -214,7 +236,7 @@ public class JarResource extends AbstractResource
                             _jarResource.getInfo().getLastModified()); // last modified is the jar file itself!
     }
 
-    JarFile contentJarFile = getContentJarFile();
+    CachedJarFile contentJarFile = getContentJarFile();
     try
     {
       JarEntry jarEntry = contentJarFile.getJarEntry(_fullPath);
@@ -227,7 +249,7 @@ public class JarResource extends AbstractResource
     }
     finally
     {
-      contentJarFile.close();
+      contentJarFile.release();
     }
   }
 
@@ -269,7 +291,7 @@ public class JarResource extends AbstractResource
     {
       String fullPath = PathUtils.removeTrailingSlash(_fullPath);
 
-      JarFile contentJarFile = getContentJarFile();
+      CachedJarFile contentJarFile = getContentJarFile();
       try
       {
         JarEntry entry = contentJarFile.getJarEntry(fullPath);
@@ -288,7 +310,7 @@ public class JarResource extends AbstractResource
       }
       finally
       {
-        contentJarFile.close();
+        contentJarFile.release();
       }
     }
     catch(IOException e)
@@ -402,4 +424,24 @@ public class JarResource extends AbstractResource
   {
     return new JarResourceProvider(jarResource, rootPath).getRootResource();
   }
+
+  /**
+   * Convenient call to create a resource from the jar resource (points at rootPath in the
+   * jar...). If the jar resource is not a local file, its local copy is kept in
+   * <code>contentCache</code> so that it does not get downloaded again next time.
+   *
+   * @param jarResource
+   * @param rootPath where is the root in the jar
+   * @param contentCache the cache to use for the local copy of the jar
+   * @return the resource with root at rootPath
+   */
+  public static Resource create(Resource jarResource,
+                                String rootPath,
+                                LocalContentCache contentCache)
+  {
+    return new JarResourceProvider(jarResource,
+                                   rootPath,
+                                   JarFileCache.DEFAULT,
+                                   contentCache).getRootResource();
+  }
 }
@@ -22,12 +22,12 @@ import org.linkedin.util.io.ram.RAMFile;
 import org.linkedin.util.io.resource.internal.AbstractResource;
 import org.linkedin.util.io.resource.internal.RAMResourceProvider;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 
 /**
  * @author ypujante@linkedin.com
@@ -95,7 +95,22 @@ public class RAMResource extends AbstractResource
     if(entry == null || entry instanceof RAMDirectory)
       throw new ResourceNotFoundException(toURI());
 
-    return new ByteArrayInputStream(((RAMFile) entry).getContent());
+    return ((RAMFile) entry).getInputStream();
+  }
+
+  /**
+   * @return a read only view of the content (see {@link RAMFile#toByteBuffer()})
+   * @throws IOException if the resource does not exist
+   */
+  @Override
+  public ByteBuffer map() throws IOException
+  {
+    RAMEntry entry = getRAMEntry();
+
+    if(entry == null || entry instanceof RAMDirectory)
+      throw new ResourceNotFoundException(toURI());
+
+    return ((RAMFile) entry).toByteBuffer();
   }
 
 
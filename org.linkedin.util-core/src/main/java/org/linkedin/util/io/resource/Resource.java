@@ -20,6 +20,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * Abstraction to a resource. Note that like {@link java.io.File}, a <code>Resource</code> simply
@@ -175,6 +177,27 @@ public interface Resource
    */
   InputStream getInputStream() throws IOException;
 
+  /**
+   * Important note: the caller of this method is responsible for properly closing the
+   * channel! When the resource is a file, the channel is a <code>FileChannel</code> (which can
+   * be copied efficiently with {@link org.linkedin.util.io.IOUtils#copy(ReadableByteChannel,
+   * java.nio.channels.WritableByteChannel)}).
+   *
+   * @return a channel to read the resource.
+   * @throws IOException if cannot get a channel
+   */
+  ReadableByteChannel getReadableChannel() throws IOException;
+
+  /**
+   * Returns the content of the resource as a read only buffer. When the resource is a file, the
+   * buffer is a <code>MappedByteBuffer</code> (the content is not read in the heap), otherwise
+   * the content is read in memory.
+   *
+   * @return the content of the resource.
+   * @throws IOException if cannot read the content
+   */
+  ByteBuffer map() throws IOException;
+
   /**
    * @return a uri representation of the resource
    */
@@ -25,6 +25,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
@@ -81,6 +83,29 @@ public class ResourceChain extends AbstractResource
     return _resource.getInputStream();
   }
 
+  /**
+   * Important note: the caller of this method is responsible for properly closing the
+   * channel!
+   *
+   * @return a channel to read the resource.
+   * @throws IOException if cannot get a channel
+   */
+  @Override
+  public ReadableByteChannel getReadableChannel() throws IOException
+  {
+    return _resource.getReadableChannel();
+  }
+
+  /**
+   * @return the content of the resource.
+   * @throws IOException if cannot read the content
+   */
+  @Override
+  public ByteBuffer map() throws IOException
+  {
+    return _resource.map();
+  }
+
   /**
    * Efficiently returns all information about the resource.
    *
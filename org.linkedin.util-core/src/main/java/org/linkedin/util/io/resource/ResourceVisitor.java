@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.resource;
+
+/**
+ * Called for each resource found by a {@link ResourceWalker}.
+ *
+ * @author yan@pongasoft.com
+ */
+public interface ResourceVisitor
+{
+  /**
+   * @param resource the resource found
+   * @return <code>true</code> to continue the walk, <code>false</code> to stop it
+   */
+  boolean visit(Resource resource);
+}
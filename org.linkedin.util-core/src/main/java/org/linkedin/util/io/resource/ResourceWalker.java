@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.resource;
+
+import org.linkedin.util.concurrent.WaitableCounter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Walks a tree of resources and calls a visitor for every resource found (the root itself is
+ * not visited). Resources are handed to the visitor as soon as they are found (nothing is
+ * collected) and the walk stops as soon as the visitor returns <code>false</code>.
+ *
+ * <p>The filter is pushed down to {@link Resource#list(ResourceFilter)} so that resources which
+ * are not accepted are never accumulated. Directories are descended into as long as the
+ * directory filter accepts them and the max depth is not reached (a depth of 1 means only the
+ * children of the root).</p>
+ *
+ * <p>When an executor is provided, each directory is listed in its own task so that large trees
+ * are walked in parallel: in this case the visitor (and the filters) are called from multiple
+ * threads and must be thread safe, and the order in which resources are visited is not
+ * defined. Without an executor, the walk happens in the calling thread: the children of a
+ * directory are visited before descending into its subdirectories.</p>
+ *
+ * @author yan@pongasoft.com
+ */
+public class ResourceWalker
+{
+  private final ExecutorService _executor;
+
+  private int _maxDepth = -1;
+  private ResourceFilter _filter = AcceptAllResourceFilter.INSTANCE;
+  private ResourceFilter _directoryFilter = AcceptAllResourceFilter.INSTANCE;
+
+  /**
+   * Constructor: the walk happens in the calling thread
+   */
+  public ResourceWalker()
+  {
+    this(null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param executor the executor used to list directories in parallel (<code>null</code> means
+   *                 that the walk happens in the calling thread)
+   */
+  public ResourceWalker(ExecutorService executor)
+  {
+    _executor = executor;
+  }
+
+  public ExecutorService getExecutor()
+  {
+    return _executor;
+  }
+
+  public int getMaxDepth()
+  {
+    return _maxDepth;
+  }
+
+  /**
+   * @param maxDepth how deep to walk the tree (<code>-1</code> for unlimited)
+   */
+  public void setMaxDepth(int maxDepth)
+  {
+    _maxDepth = maxDepth;
+  }
+
+  public ResourceFilter getFilter()
+  {
+    return _filter;
+  }
+
+  /**
+   * @param filter only the resources accepted by this filter are visited
+   */
+  public void setFilter(ResourceFilter filter)
+  {
+    _filter = filter == null ? AcceptAllResourceFilter.INSTANCE : filter;
+  }
+
+  public ResourceFilter getDirectoryFilter()
+  {
+    return _directoryFilter;
+  }
+
+  /**
+   * @param directoryFilter only the directories accepted by this filter are descended into
+   */
+  public void setDirectoryFilter(ResourceFilter directoryFilter)
+  {
+    _directoryFilter =
+      directoryFilter == null ? AcceptAllResourceFilter.INSTANCE : directoryFilter;
+  }
+
+  /**
+   * Walks the tree.
+   *
+   * @param root the root of the tree to walk
+   * @param visitor called for every resource found (and accepted by the filter)
+   * @return <code>false</code> if the visitor stopped the walk, <code>true</code> otherwise
+   * @throws IOException if listing a directory fails (the walk is stopped)
+   * @throws InterruptedException if interrupted while waiting for the parallel walk to end
+   */
+  public boolean walk(Resource root, ResourceVisitor visitor)
+    throws IOException, InterruptedException
+  {
+    Walk walk = new Walk(visitor);
+
+    if(_executor == null)
+    {
+      walk.walkDirectory(root, 1);
+    }
+    else
+    {
+      walk.submit(root, 1);
+      try
+      {
+        walk.pending.waitForCounter();
+      }
+      catch(InterruptedException e)
+      {
+        // no need to keep on walking
+        walk.stopped = true;
+        throw e;
+      }
+    }
+
+    if(walk.ioException != null)
+      throw walk.ioException;
+
+    return !walk.stopped;
+  }
+
+  /**
+   * Convenient call which collects the resources accepted by the filter
+   *
+   * @return all the resources found (in no specific order if an executor is used)
+   */
+  public List<Resource> findAll(Resource root) throws IOException, InterruptedException
+  {
+    final List<Resource> resources = new ArrayList<Resource>();
+
+    walk(root, new ResourceVisitor()
+    {
+      @Override
+      public boolean visit(Resource resource)
+      {
+        synchronized(resources)
+        {
+          resources.add(resource);
+        }
+        return true;
+      }
+    });
+
+    return resources;
+  }
+
+  /**
+   * The state of one walk
+   */
+  private class Walk
+  {
+    private final ResourceVisitor visitor;
+    private final WaitableCounter pending = new WaitableCounter();
+
+    private volatile boolean stopped = false;
+    private volatile IOException ioException = null;
+
+    private Walk(ResourceVisitor visitor)
+    {
+      this.visitor = visitor;
+    }
+
+    private void submit(final Resource directory, final int depth)
+    {
+      pending.inc();
+      try
+      {
+        _executor.execute(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            try
+            {
+              walkDirectory(directory, depth);
+            }
+            catch(IOException e)
+            {
+              fail(e);
+            }
+            catch(RuntimeException e)
+            {
+              fail(new IOException("error while walking " + directory, e));
+            }
+            finally
+            {
+              pending.dec();
+            }
+          }
+        });
+      }
+      catch(RejectedExecutionException e)
+      {
+        pending.dec();
+        fail(new IOException("cannot walk " + directory, e));
+      }
+    }
+
+    private void fail(IOException e)
+    {
+      synchronized(this)
+      {
+        if(ioException == null)
+          ioException = e;
+      }
+      stopped = true;
+    }
+
+    private void walkDirectory(Resource directory, final int depth) throws IOException
+    {
+      if(stopped)
+        return;
+
+      final boolean descend = _maxDepth < 0 || depth < _maxDepth;
+      final List<Resource> subDirectories =
+        _executor == null && descend ? new ArrayList<Resource>() : null;
+
+      directory.list(new ResourceFilter()
+      {
+        @Override
+        public boolean accept(Resource resource)
+        {
+          if(stopped)
+            return false;
+
+          if(_filter.accept(resource) && !visitor.visit(resource))
+          {
+            stopped = true;
+            return false;
+          }
+
+          if(descend && resource.isDirectory() && _directoryFilter.accept(resource))
+          {
+            if(subDirectories != null)
+              subDirectories.add(resource);
+            else
+              submit(resource, depth + 1);
+          }
+
+          // nothing is collected by list
+          return false;
+        }
+      });
+
+      if(subDirectories != null)
+      {
+        for(Resource subDirectory : subDirectories)
+        {
+          walkDirectory(subDirectory, depth + 1);
+        }
+      }
+    }
+  }
+}
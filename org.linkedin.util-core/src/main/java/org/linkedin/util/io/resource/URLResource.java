@@ -17,8 +17,10 @@
 package org.linkedin.util.io.resource;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -26,6 +28,7 @@ import java.net.URLConnection;
 
 import org.linkedin.util.clock.Timespan;
 import org.linkedin.util.io.PathUtils;
+import org.linkedin.util.io.resource.internal.URLResourceInfoCache;
 import org.linkedin.util.io.resource.internal.URLResourceProvider;
 import org.linkedin.util.url.URLBuilder;
 import org.linkedin.util.io.resource.internal.AbstractResource;
@@ -40,6 +43,7 @@ public class URLResource extends AbstractResource
   private final URL _url;
   private final Timespan _connectTimeout;
   private final Timespan _readTimeout;
+  private final URLResourceInfoCache _infoCache;
   
   public static final Timespan DEFAULT_CONNECT_TIMEOUT = Timespan.ZERO_MILLISECONDS;
   public static final Timespan DEFAULT_READ_TIMEOUT    = Timespan.ZERO_MILLISECONDS;
@@ -64,12 +68,27 @@ public class URLResource extends AbstractResource
    * @param readTimeout
    */
   public URLResource(InternalResourceProvider resourceProvider, String path, URL url, Timespan connectTimeout, Timespan readTimeout)
+  {
+    this(resourceProvider, path, url, connectTimeout, readTimeout, null);
+  }
+
+  /**
+   * @param infoCache where to cache the information about the url (<code>null</code> means
+   *                  that the url is probed every time)
+   */
+  public URLResource(InternalResourceProvider resourceProvider,
+                     String path,
+                     URL url,
+                     Timespan connectTimeout,
+                     Timespan readTimeout,
+                     URLResourceInfoCache infoCache)
   {
     super(resourceProvider, path);
     _url = url;
     
     _connectTimeout = connectTimeout;
     _readTimeout = readTimeout;
+    _infoCache = infoCache;
   }
 
   /**
@@ -102,7 +121,53 @@ public class URLResource extends AbstractResource
   @Override
   public ResourceInfo getInfo() throws IOException
   {
-    return extractInfo(_url);
+    try
+    {
+      if(_infoCache != null)
+        return _infoCache.getInfo(_url, _connectTimeout, _readTimeout);
+
+      return extractInfo(_url, null, _connectTimeout, _readTimeout);
+    }
+    catch(ResourceNotFoundException e)
+    {
+      throw e;
+    }
+    catch(FileNotFoundException e)
+    {
+      throw new ResourceNotFoundException(toURI(), e);
+    }
+  }
+
+  /**
+   * Same as the default implementation but only one call to {@link #getInfo()}.
+   */
+  @Override
+  public long lastModified()
+  {
+    try
+    {
+      return getInfo().getLastModified();
+    }
+    catch(IOException e)
+    {
+      return 0L;
+    }
+  }
+
+  /**
+   * Same as the default implementation but only one call to {@link #getInfo()}.
+   */
+  @Override
+  public long length()
+  {
+    try
+    {
+      return getInfo().getContentLength();
+    }
+    catch(IOException e)
+    {
+      return 0L;
+    }
   }
 
 
@@ -116,13 +181,7 @@ public class URLResource extends AbstractResource
   @Override
   public InputStream getInputStream() throws IOException
   {
-    URLConnection urlConnection = _url.openConnection();
-
-    urlConnection.setDoInput(true);
-    urlConnection.setDoOutput(false);
-    urlConnection.setUseCaches(false);
-    urlConnection.setConnectTimeout(new Long(_connectTimeout.getDurationInMilliseconds()).intValue());
-    urlConnection.setReadTimeout(new Long(_readTimeout.getDurationInMilliseconds()).intValue());
+    URLConnection urlConnection = openConnection(_url, _connectTimeout, _readTimeout);
     urlConnection.connect();
     
     return urlConnection.getInputStream();
@@ -134,6 +193,20 @@ public class URLResource extends AbstractResource
   @Override
   public boolean exists()
   {
+    // for http, probing the url is enough (no need to read the content)
+    if(isHttp(_url))
+    {
+      try
+      {
+        getInfo();
+        return true;
+      }
+      catch(IOException e)
+      {
+        return false;
+      }
+    }
+
     try
     {
       InputStream is = getInputStream();
@@ -173,23 +246,117 @@ public class URLResource extends AbstractResource
    */
   public static ResourceInfo extractInfo(URL url) throws IOException
   {
-    URLConnection urlConnection = url.openConnection();
+    return extractInfo(url, null, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+  }
+
+  /**
+   * Extracts the info from the url. For http(s) urls, a <code>HEAD</code> request is issued (or a
+   * <code>GET</code> without reading the content if the server does not support it) and when
+   * <code>previousInfo</code> is provided, the request is conditional
+   * (<code>If-Modified-Since</code>): if the server answers 'not modified', then
+   * <code>previousInfo</code> is returned.
+   *
+   * @param previousInfo the information previously extracted (<code>null</code> if none)
+   * @throws FileNotFoundException if the server answers 404 (or 410)
+   */
+  public static ResourceInfo extractInfo(URL url,
+                                         ResourceInfo previousInfo,
+                                         Timespan connectTimeout,
+                                         Timespan readTimeout) throws IOException
+  {
+    if(!isHttp(url))
+    {
+      URLConnection urlConnection = openConnection(url, connectTimeout, readTimeout);
+      urlConnection.connect();
+      InputStream is = urlConnection.getInputStream();
+      try
+      {
+        return new StaticInfo(urlConnection.getContentLength(), urlConnection.getLastModified());
+      }
+      finally
+      {
+        is.close();
+      }
+    }
+
+    ResourceInfo info = extractHttpInfo(url, "HEAD", previousInfo, connectTimeout, readTimeout);
+    if(info == null)
+      info = extractHttpInfo(url, "GET", previousInfo, connectTimeout, readTimeout);
+    return info;
+  }
+
+  /**
+   * @return the info or <code>null</code> if the server does not support the method
+   */
+  private static ResourceInfo extractHttpInfo(URL url,
+                                              String method,
+                                              ResourceInfo previousInfo,
+                                              Timespan connectTimeout,
+                                              Timespan readTimeout) throws IOException
+  {
+    HttpURLConnection urlConnection =
+      (HttpURLConnection) openConnection(url, connectTimeout, readTimeout);
+
+    urlConnection.setRequestMethod(method);
+    if(previousInfo != null && previousInfo.getLastModified() > 0)
+      urlConnection.setIfModifiedSince(previousInfo.getLastModified());
 
-    urlConnection.setDoInput(true);
-    urlConnection.setDoOutput(false);
-    urlConnection.setUseCaches(false);
-    urlConnection.connect();
-    InputStream is = urlConnection.getInputStream();
     try
     {
+      int responseCode = urlConnection.getResponseCode();
+
+      switch(responseCode)
+      {
+        case HttpURLConnection.HTTP_NOT_MODIFIED:
+          if(previousInfo != null)
+            return previousInfo;
+          break;
+
+        case HttpURLConnection.HTTP_NOT_FOUND:
+        case HttpURLConnection.HTTP_GONE:
+          throw new FileNotFoundException(url.toString());
+
+        case HttpURLConnection.HTTP_BAD_METHOD:
+        case HttpURLConnection.HTTP_NOT_IMPLEMENTED:
+          if("HEAD".equals(method))
+            return null;
+          break;
+      }
+
+      if(responseCode / 100 != 2)
+        throw new IOException("Server returned HTTP response code: " + responseCode +
+                              " for URL: " + url);
+
       return new StaticInfo(urlConnection.getContentLength(), urlConnection.getLastModified());
     }
     finally
     {
-      is.close();
+      // we never read the content: closing the connection right away
+      urlConnection.disconnect();
     }
   }
 
+  private static URLConnection openConnection(URL url,
+                                              Timespan connectTimeout,
+                                              Timespan readTimeout) throws IOException
+  {
+    URLConnection urlConnection = url.openConnection();
+
+    urlConnection.setDoInput(true);
+    urlConnection.setDoOutput(false);
+    urlConnection.setUseCaches(false);
+    urlConnection.setConnectTimeout(new Long(connectTimeout.getDurationInMilliseconds()).intValue());
+    urlConnection.setReadTimeout(new Long(readTimeout.getDurationInMilliseconds()).intValue());
+
+    return urlConnection;
+  }
+
+  private static boolean isHttp(URL url)
+  {
+    String protocol = url.getProtocol();
+    return "http".equals(protocol) || "https".equals(protocol);
+  }
+
   /**
    * Creates the resource from a url...
    *
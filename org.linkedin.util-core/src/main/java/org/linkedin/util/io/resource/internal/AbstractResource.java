@@ -16,12 +16,17 @@
 
 package org.linkedin.util.io.resource.internal;
 
+import org.linkedin.util.io.IOUtils;
 import org.linkedin.util.io.PathUtils;
 import org.linkedin.util.io.resource.AcceptAllResourceFilter;
 import org.linkedin.util.io.resource.Resource;
 import org.linkedin.util.io.resource.ResourceFilter;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * Base implementation of all resources. Implement the basic behavior and will delegate to
@@ -230,6 +235,41 @@ public abstract class AbstractResource implements InternalResource
     }
   }
 
+  /**
+   * Default implementation wraps the input stream. Subclasses which have direct access to a
+   * file should return a <code>FileChannel</code> instead.
+   *
+   * @return a channel to read the resource.
+   * @throws IOException if cannot get a channel
+   */
+  @Override
+  public ReadableByteChannel getReadableChannel() throws IOException
+  {
+    return Channels.newChannel(getInputStream());
+  }
+
+  /**
+   * Default implementation reads the input stream in memory. Subclasses which have direct access
+   * to a file should map it instead.
+   *
+   * @return the content of the resource.
+   * @throws IOException if cannot read the content
+   */
+  @Override
+  public ByteBuffer map() throws IOException
+  {
+    long sizeHint = getInfo().getContentLength();
+    InputStream is = getInputStream();
+    try
+    {
+      return IOUtils.readFully(is, sizeHint);
+    }
+    finally
+    {
+      is.close();
+    }
+  }
+
   /**
    * @return the filename portion of this resource. If it is a directory, returns the name of the
    *         directory.
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.io.resource.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * A jar file shared through {@link JarFileCache}: it keeps the (open) {@link JarFile} handle as
+ * well as an index of all the entries sorted by name so that looking up an entry or listing a
+ * directory does not require to iterate over all the entries of the jar file. Each call to
+ * {@link JarFileCache#acquire(File)} must be matched by a call to {@link #release()} (and the
+ * jar file must never be closed directly!).
+ *
+ * @author yan@pongasoft.com
+ */
+public class CachedJarFile
+{
+  private static final Comparator<JarEntry> ENTRY_NAME_COMPARATOR = new Comparator<JarEntry>()
+  {
+    @Override
+    public int compare(JarEntry e1, JarEntry e2)
+    {
+      return e1.getName().compareTo(e2.getName());
+    }
+  };
+
+  /**
+   * Some filesystems only have a 1 or 2s granularity for last modified */
+  private static final long LAST_MODIFIED_GRANULARITY = 2000;
+
+  private final JarFileCache _cache;
+  private final String _key;
+  private final JarFile _jarFile;
+  private final long _lastModified;
+  private final long _length;
+  private final boolean _checkLength;
+
+  // sorted by name
+  private final String[] _names;
+  private final JarEntry[] _entries;
+
+  // all those fields are protected by the cache lock
+  private int _refCount = 0;
+  private long _lastReleaseTime;
+  private boolean _stale = false;
+  private boolean _closed = false;
+
+  /**
+   * Constructor
+   */
+  CachedJarFile(JarFileCache cache, String key, File file, long now) throws IOException
+  {
+    _cache = cache;
+    _key = key;
+    _lastModified = file.lastModified();
+    _length = file.length();
+    // a change within the same last modified tick can only be detected with the length
+    _checkLength = System.currentTimeMillis() - _lastModified < LAST_MODIFIED_GRANULARITY;
+    _jarFile = new JarFile(file);
+    _lastReleaseTime = now;
+
+    List<JarEntry> entries = new ArrayList<JarEntry>();
+    Enumeration<JarEntry> iter = _jarFile.entries();
+    while(iter.hasMoreElements())
+      entries.add(iter.nextElement());
+
+    _entries = entries.toArray(new JarEntry[entries.size()]);
+    Arrays.sort(_entries, ENTRY_NAME_COMPARATOR);
+
+    _names = new String[_entries.length];
+    for(int i = 0; i < _entries.length; i++)
+      _names[i] = _entries[i].getName();
+  }
+
+  /**
+   * @return the underlying jar file (do NOT close it: call {@link #release()} instead)
+   */
+  public JarFile getJarFile()
+  {
+    return _jarFile;
+  }
+
+  /**
+   * @return the number of entries in the jar file
+   */
+  public int getEntryCount()
+  {
+    return _entries.length;
+  }
+
+  /**
+   * @return the entry at the given index (entries are sorted by name)
+   */
+  public JarEntry getEntry(int idx)
+  {
+    return _entries[idx];
+  }
+
+  /**
+   * @return the name of the entry at the given index (entries are sorted by name)
+   */
+  public String getEntryName(int idx)
+  {
+    return _names[idx];
+  }
+
+  /**
+   * Same semantic as {@link JarFile#getJarEntry(String)}: if there is no entry with the given name
+   * then it tries the entry with a trailing '/' (directory).
+   *
+   * @return the entry or <code>null</code> if there is no such entry
+   */
+  public JarEntry getJarEntry(String name)
+  {
+    JarEntry entry = getExactJarEntry(name);
+    if(entry == null && !name.endsWith("/"))
+      entry = getExactJarEntry(name + "/");
+    return entry;
+  }
+
+  /**
+   * @return the entry with exactly this name or <code>null</code> if there is no such entry
+   */
+  public JarEntry getExactJarEntry(String name)
+  {
+    int idx = Arrays.binarySearch(_names, name);
+    return idx < 0 ? null : _entries[idx];
+  }
+
+  /**
+   * @return the index of the first entry whose name is greater or equal to the prefix: all entries
+   * starting with the prefix are contiguous starting at this index.
+   */
+  public int findFirstIndex(String prefix)
+  {
+    int idx = Arrays.binarySearch(_names, prefix);
+    return idx < 0 ? -(idx + 1) : idx;
+  }
+
+  /**
+   * Must be called when done with this jar file (for each call to
+   * {@link JarFileCache#acquire(File)}).
+   */
+  public void release()
+  {
+    _cache.release(this);
+  }
+
+  String getKey()
+  {
+    return _key;
+  }
+
+  /**
+   * @return <code>true</code> if the file is not the one that was opened anymore. Only the last
+   * modified date is checked (one stat) unless the file was opened right after being modified, in
+   * which case a change in the same last modified tick is detected with the length.
+   */
+  boolean isModified(File file)
+  {
+    if(file.lastModified() != _lastModified)
+      return true;
+    return _checkLength && file.length() != _length;
+  }
+
+  int getRefCount()
+  {
+    return _refCount;
+  }
+
+  void incRefCount()
+  {
+    _refCount++;
+  }
+
+  /**
+   * @return the new reference count
+   */
+  int decRefCount(long now)
+  {
+    if(_refCount == 0)
+      throw new IllegalStateException("too many release for " + _key);
+    _refCount--;
+    _lastReleaseTime = now;
+    return _refCount;
+  }
+
+  long getLastReleaseTime()
+  {
+    return _lastReleaseTime;
+  }
+
+  boolean isStale()
+  {
+    return _stale;
+  }
+
+  void markStale()
+  {
+    _stale = true;
+  }
+
+  boolean isClosed()
+  {
+    return _closed;
+  }
+
+  void close() throws IOException
+  {
+    if(!_closed)
+    {
+      _closed = true;
+      _jarFile.close();
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return _key;
+  }
+}
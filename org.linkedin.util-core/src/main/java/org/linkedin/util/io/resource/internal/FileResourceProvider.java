@@ -99,10 +99,16 @@ public class FileResourceProvider extends AbstractResourceProvider
       return false;
     }
 
-    if(!file.isDirectory())
-      return false;
+    // listFiles returns null when not a directory (no need to check first)
+    File[] files = listFiles(file);
+
+    if(files == null)
+    {
+      if(file.isDirectory() && log.isDebugEnabled())
+        log.debug("cannot list directory (ignored) " + file);
 
-    File[] files = file.listFiles();
+      return false;
+    }
 
     for(File f : files)
     {
@@ -112,6 +118,15 @@ public class FileResourceProvider extends AbstractResourceProvider
     return true;
   }
 
+  /**
+   * @return the content of the directory (<code>null</code> if it is not a directory or if it
+   * cannot be read)
+   */
+  protected File[] listFiles(File directory)
+  {
+    return directory.listFiles();
+  }
+
   @Override
   public boolean equals(Object o)
   {
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.io.resource.internal;
+
+import org.linkedin.util.clock.Clock;
+import org.linkedin.util.clock.SystemClock;
+import org.linkedin.util.clock.Timespan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process wide cache of open jar files (opening a jar file means parsing its central directory
+ * which is expensive when done thousands of times). Jar files are reference counted: each
+ * {@link #acquire(File)} must be matched with a {@link CachedJarFile#release()}. A jar file which
+ * is not used anymore stays open until it has been idle for longer than the idle timeout. If the
+ * file changes on disk (last modified or length), the next {@link #acquire(File)} opens it again
+ * and the previous handle gets closed as soon as it is not used anymore.
+ *
+ * @author yan@pongasoft.com
+ */
+public class JarFileCache
+{
+  public static final String MODULE = JarFileCache.class.getName();
+  public static final Logger log = LoggerFactory.getLogger(MODULE);
+
+  public static final Timespan DEFAULT_IDLE_TIMEOUT = Timespan.parse("1m");
+
+  public static final JarFileCache DEFAULT = new JarFileCache();
+
+  private final Clock _clock;
+  private final long _idleTimeout;
+
+  private final Map<String, CachedJarFile> _jarFiles = new HashMap<String, CachedJarFile>();
+
+  // the jar files being opened (protected by the cache lock as well)
+  private final Map<String, FutureTask<CachedJarFile>> _openingJarFiles =
+    new HashMap<String, FutureTask<CachedJarFile>>();
+
+  private long _lastEvictionTime;
+
+  /**
+   * Constructor
+   */
+  public JarFileCache()
+  {
+    this(SystemClock.INSTANCE, DEFAULT_IDLE_TIMEOUT);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param clock the clock used to determine how long a jar file has been idle
+   * @param idleTimeout how long a jar file which is not used anymore stays open
+   */
+  public JarFileCache(Clock clock, Timespan idleTimeout)
+  {
+    _clock = clock;
+    _idleTimeout = idleTimeout.getDurationInMilliseconds();
+    _lastEvictionTime = clock.currentTimeMillis();
+  }
+
+  /**
+   * Returns the (shared) jar file. Do not close the jar file but call
+   * {@link CachedJarFile#release()} when done. The jar file is opened (and indexed) outside of
+   * the cache lock: concurrent calls for the same file wait for the one opening it, the other
+   * ones are not blocked.
+   *
+   * @param file the jar file
+   * @return the cached jar file
+   * @throws IOException if the jar file cannot be opened
+   */
+  public CachedJarFile acquire(File file) throws IOException
+  {
+    String key = file.getPath();
+
+    while(true)
+    {
+      FutureTask<CachedJarFile> opening;
+      boolean owner = false;
+
+      synchronized(this)
+      {
+        long now = _clock.currentTimeMillis();
+
+        evictIdle(now);
+
+        CachedJarFile jarFile = _jarFiles.get(key);
+
+        if(jarFile != null && jarFile.isModified(file))
+        {
+          if(log.isDebugEnabled())
+            log.debug("jar file modified " + key);
+          _jarFiles.remove(key);
+          jarFile.markStale();
+          if(jarFile.getRefCount() == 0)
+            close(jarFile);
+          jarFile = null;
+        }
+
+        if(jarFile != null)
+        {
+          jarFile.incRefCount();
+          return jarFile;
+        }
+
+        opening = _openingJarFiles.get(key);
+        if(opening == null)
+        {
+          opening = new FutureTask<CachedJarFile>(new JarFileOpener(key, file, now));
+          _openingJarFiles.put(key, opening);
+          owner = true;
+        }
+      }
+
+      if(owner)
+        opening.run();
+
+      // the jar file is in the cache once opened => try again
+      waitFor(opening);
+    }
+  }
+
+  /**
+   * Opens the jar file (outside of the lock) and adds it to the cache
+   */
+  private class JarFileOpener implements Callable<CachedJarFile>
+  {
+    private final String _key;
+    private final File _file;
+    private final long _now;
+
+    private JarFileOpener(String key, File file, long now)
+    {
+      _key = key;
+      _file = file;
+      _now = now;
+    }
+
+    @Override
+    public CachedJarFile call() throws IOException
+    {
+      CachedJarFile jarFile = null;
+      try
+      {
+        jarFile = new CachedJarFile(JarFileCache.this, _key, _file, _now);
+      }
+      finally
+      {
+        synchronized(JarFileCache.this)
+        {
+          _openingJarFiles.remove(_key);
+          if(jarFile != null)
+            _jarFiles.put(_key, jarFile);
+        }
+      }
+      return jarFile;
+    }
+  }
+
+  private static void waitFor(FutureTask<CachedJarFile> opening) throws IOException
+  {
+    try
+    {
+      opening.get();
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while opening jar file");
+    }
+    catch(ExecutionException e)
+    {
+      Throwable cause = e.getCause();
+      if(cause instanceof IOException)
+        throw (IOException) cause;
+      if(cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if(cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Called by {@link CachedJarFile#release()}
+   */
+  synchronized void release(CachedJarFile jarFile)
+  {
+    long now = _clock.currentTimeMillis();
+
+    if(jarFile.decRefCount(now) == 0 && jarFile.isStale())
+      close(jarFile);
+
+    evictIdle(now);
+  }
+
+  /**
+   * Closes all the jar files which have not been used for longer than the idle timeout.
+   */
+  public synchronized void evictIdle()
+  {
+    _lastEvictionTime = 0;
+    evictIdle(_clock.currentTimeMillis());
+  }
+
+  /**
+   * Removes all jar files from the cache: jar files which are not used are closed right away,
+   * the others will be closed when released.
+   */
+  public synchronized void clear()
+  {
+    for(CachedJarFile jarFile : _jarFiles.values())
+    {
+      jarFile.markStale();
+      if(jarFile.getRefCount() == 0)
+        close(jarFile);
+    }
+    _jarFiles.clear();
+  }
+
+  /**
+   * @return the number of jar files currently in the cache
+   */
+  public synchronized int size()
+  {
+    return _jarFiles.size();
+  }
+
+  /**
+   * Evicts idle entries (at most once per half idle timeout)
+   */
+  private void evictIdle(long now)
+  {
+    if(now - _lastEvictionTime < _idleTimeout / 2)
+      return;
+
+    _lastEvictionTime = now;
+
+    Iterator<CachedJarFile> iter = _jarFiles.values().iterator();
+    while(iter.hasNext())
+    {
+      CachedJarFile jarFile = iter.next();
+      if(jarFile.getRefCount() == 0 && now - jarFile.getLastReleaseTime() >= _idleTimeout)
+      {
+        iter.remove();
+        close(jarFile);
+      }
+    }
+  }
+
+  private void close(CachedJarFile jarFile)
+  {
+    try
+    {
+      jarFile.close();
+    }
+    catch(IOException e)
+    {
+      if(log.isDebugEnabled())
+        log.debug("exception (ignored) while closing jar file " + jarFile, e);
+    }
+  }
+}
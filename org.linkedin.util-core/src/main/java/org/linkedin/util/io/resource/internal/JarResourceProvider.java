@@ -24,9 +24,6 @@ import org.linkedin.util.io.resource.Resource;
 import org.linkedin.util.io.resource.ResourceFilter;
 
 import java.io.IOException;
-import java.util.Enumeration;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 /**
  * @author ypujante@linkedin.com
@@ -38,6 +35,7 @@ public class JarResourceProvider extends PathBasedResourceProvider
   public static final Logger log = LoggerFactory.getLogger(MODULE);
 
   private final LeafResource _jarResource;
+  private final JarFileCache _jarFileCache;
 
   /**
    * Constructor
@@ -51,19 +49,46 @@ public class JarResourceProvider extends PathBasedResourceProvider
    * Constructor
    */
   public JarResourceProvider(Resource jarResource, String root)
+  {
+    this(jarResource, root, JarFileCache.DEFAULT);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param jarFileCache the cache of open jar files to use
+   */
+  public JarResourceProvider(Resource jarResource, String root, JarFileCache jarFileCache)
+  {
+    this(jarResource, root, jarFileCache, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param jarFileCache the cache of open jar files to use
+   * @param contentCache where to keep the local copy of a (remote) jar resource
+   *                     (<code>null</code> means a temporary file)
+   */
+  public JarResourceProvider(Resource jarResource,
+                             String root,
+                             JarFileCache jarFileCache,
+                             LocalContentCache contentCache)
   {
     super(root);
     // we need to have access to a File no matter what...
-    _jarResource = LocalCacheLeafResource.create(jarResource);
+    _jarResource = LocalCacheLeafResource.create(jarResource, contentCache);
+    _jarFileCache = jarFileCache;
   }
 
   /**
    * Constructor
    */
-  private JarResourceProvider(LeafResource jarResource, String root)
+  private JarResourceProvider(LeafResource jarResource, String root, JarFileCache jarFileCache)
   {
     super(root);
     _jarResource = jarResource;
+    _jarFileCache = jarFileCache;
   }
 
   /**
@@ -75,7 +100,7 @@ public class JarResourceProvider extends PathBasedResourceProvider
   @Override
   public InternalResourceProvider doCreateResourceProvider(String rootPath)
   {
-    return new JarResourceProvider(_jarResource, getFullPath(rootPath));
+    return new JarResourceProvider(_jarResource, getFullPath(rootPath), _jarFileCache);
   }
 
   /**
@@ -87,7 +112,7 @@ public class JarResourceProvider extends PathBasedResourceProvider
   @Override
   public InternalResource doBuildResource(String path)
   {
-    return new JarResource(this, path, _jarResource, getFullPath(path));
+    return new JarResource(this, path, _jarResource, getFullPath(path), _jarFileCache);
   }
 
   /**
@@ -103,14 +128,14 @@ public class JarResourceProvider extends PathBasedResourceProvider
   {
     try
     {
-      JarFile jarFile = new JarFile(_jarResource.getFile());
+      CachedJarFile jarFile = _jarFileCache.acquire(_jarResource.getFile());
       try
       {
         return doList(path, filter, jarFile);
       }
       finally
       {
-        jarFile.close();
+        jarFile.release();
       }
     }
     catch(IOException e)
@@ -122,42 +147,41 @@ public class JarResourceProvider extends PathBasedResourceProvider
     }
   }
 
-  private boolean doList(String path, ResourceFilter filter, JarFile jarFile)
+  private boolean doList(String path, ResourceFilter filter, CachedJarFile jarFile)
   {
     String directory = PathUtils.removeLeadingSlash(getFullPath(path));
 
     boolean isDirectory = false;
 
-    // we iterate over ALL entries in the jar file (unfortunately there is no other api to
-    // do that :( ).
-    Enumeration<JarEntry> iter = jarFile.entries();
-    while(iter.hasMoreElements())
+    // entries are sorted by name so all the entries starting with directory are contiguous
+    int count = jarFile.getEntryCount();
+    for(int i = jarFile.findFirstIndex(directory); i < count; i++)
     {
-      JarEntry entry = iter.nextElement();
-      String entryName = entry.getName();
+      String entryName = jarFile.getEntryName(i);
+
+      if(!entryName.startsWith(directory))
+        break;
 
       // we found the root entry => we know for sure it is a directory! but we don't add it to
       // the resultset
-      if(entryName.equals(directory))
+      if(entryName.length() == directory.length())
       {
         isDirectory = true;
         continue;
       }
 
-      if(entryName.startsWith(directory))
+      int idx = entryName.indexOf("/", directory.length());
+      // if it is a simple file or a subdir then accept it
+      if(idx == -1 || idx == (entryName.length() - 1))
       {
-        int idx = entryName.indexOf("/", directory.length());
-        // if it is a simple file or a subdir then accept it
-        if(idx == -1 || idx == (entryName.length() - 1))
-        {
-          isDirectory = true;
-          Resource resource = new JarResource(this,
-                                              getRelativePath(PathUtils.addLeadingSlash(entryName)),
-                                              _jarResource,
-                                              entryName);
-
-          filter.accept(resource);
-        }
+        isDirectory = true;
+        Resource resource = new JarResource(this,
+                                            getRelativePath(PathUtils.addLeadingSlash(entryName)),
+                                            _jarResource,
+                                            entryName,
+                                            _jarFileCache);
+
+        filter.accept(resource);
       }
     }
 
@@ -33,7 +33,9 @@ import java.net.URI;
 
 /**
  * This implementation caches the resource locally (file): the input stream gets copied into
- * a local file and the info about the remote resource is cached as well.
+ * a local file and the info about the remote resource is cached as well. When a
+ * {@link LocalContentCache} is provided, the local file comes from (and is shared through) the
+ * cache, otherwise it is a temporary file deleted when not used anymore.
  * 
  * @author ypujante@linkedin.com
  *
@@ -41,17 +43,45 @@ import java.net.URI;
 public class LocalCacheLeafResource implements LeafResource
 {
   private final Resource _resource;
+  private final LocalContentCache _contentCache;
 
-  private File _localFile = null;
-  private StaticInfo _resourceInfo = null;
-  private IOException _ioException = null;
+  /**
+   * The result of the local copy (immutable so that it can be used outside of the lock)
+   */
+  private static class State
+  {
+    private final File localFile;
+    private final StaticInfo resourceInfo;
+    private final IOException ioException;
+
+    private State(File localFile, StaticInfo resourceInfo, IOException ioException)
+    {
+      this.localFile = localFile;
+      this.resourceInfo = resourceInfo;
+      this.ioException = ioException;
+    }
+  }
+
+  private State _state = null;
 
   /**
    * Constructor
    */
   public LocalCacheLeafResource(Resource resource)
+  {
+    this(resource, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contentCache the cache to use for the local copy (<code>null</code> means a temporary
+   *                     file is used instead)
+   */
+  public LocalCacheLeafResource(Resource resource, LocalContentCache contentCache)
   {
     _resource = resource;
+    _contentCache = contentCache;
   }
 
   /**
@@ -73,8 +103,7 @@ public class LocalCacheLeafResource implements LeafResource
   @Override
   public boolean exists()
   {
-    init();
-    return _resourceInfo.getLastModified() > 0;
+    return init().resourceInfo.getLastModified() > 0;
   }
 
   /**
@@ -86,12 +115,12 @@ public class LocalCacheLeafResource implements LeafResource
   @Override
   public File getFile() throws IOException
   {
-    init();
+    State state = initWithLocalFile();
 
-    if(_ioException != null)
-      throw _ioException;
+    if(state.ioException != null)
+      throw state.ioException;
 
-    return _localFile;
+    return state.localFile;
   }
 
   /**
@@ -103,12 +132,12 @@ public class LocalCacheLeafResource implements LeafResource
   @Override
   public ResourceInfo getInfo() throws IOException
   {
-    init();
+    State state = init();
 
-    if(_ioException != null)
-      throw _ioException;
+    if(state.ioException != null)
+      throw state.ioException;
 
-    return _resourceInfo;
+    return state.resourceInfo;
   }
 
   /**
@@ -121,8 +150,7 @@ public class LocalCacheLeafResource implements LeafResource
   @Override
   public long lastModified()
   {
-    init();
-    return _resourceInfo.getLastModified();
+    return init().resourceInfo.getLastModified();
   }
 
   /**
@@ -150,8 +178,7 @@ public class LocalCacheLeafResource implements LeafResource
   @Override
   public long length()
   {
-    init();
-    return _resourceInfo.getContentLength();
+    return init().resourceInfo.getContentLength();
   }
 
   /**
@@ -183,52 +210,82 @@ public class LocalCacheLeafResource implements LeafResource
   }
 
   /**
-   * Initializes the fields (safe to call multiple times). Thread safe.
+   * Initializes the state (safe to call multiple times). Thread safe.
    */
-  private synchronized void init()
+  private synchronized State init()
   {
-    // already initialized
-    if(_resourceInfo != null)
-      return;
+    if(_state == null)
+      _state = createState();
+    return _state;
+  }
+
+  /**
+   * Same as {@link #init()} but initializes the state again if the local copy has been evicted
+   * from the content cache in the meantime (in the same lock).
+   */
+  private synchronized State initWithLocalFile()
+  {
+    State state = init();
+
+    if(_contentCache != null && state.localFile != null && !state.localFile.exists())
+    {
+      _state = null;
+      state = init();
+    }
 
-    // make a local copy of the file
+    return state;
+  }
+
+  /**
+   * Makes the local copy of the resource
+   */
+  private State createState()
+  {
     try
     {
-      InputStream is = _resource.getInputStream();
-      try
+      ResourceInfo info;
+      File file;
+
+      if(_contentCache != null)
       {
-        File file = GCFile.createTempFile(LocalCacheLeafResource.class.getName(),
-                                          _resource.getFilename());
-        FileOutputStream fos = new FileOutputStream(file);
+        info = _resource.getInfo();
+        file = _contentCache.getFile(_resource, info);
+      }
+      else
+      {
+        file = GCFile.createTempFile(LocalCacheLeafResource.class.getName(),
+                                     _resource.getFilename());
+        InputStream is = _resource.getInputStream();
         try
         {
-          BufferedOutputStream out = new BufferedOutputStream(fos);
-          IOUtils.copy(new BufferedInputStream(is), out);
-          out.flush();
+          FileOutputStream fos = new FileOutputStream(file);
+          try
+          {
+            BufferedOutputStream out = new BufferedOutputStream(fos);
+            IOUtils.copy(new BufferedInputStream(is), out);
+            out.flush();
+          }
+          finally
+          {
+            fos.close();
+          }
         }
         finally
         {
-          fos.close();
+          is.close();
         }
 
-        ResourceInfo info = _resource.getInfo();
-
-        _localFile = file;
-        _resourceInfo = new StaticInfo(info.getContentLength(), info.getLastModified());
-        _ioException = null;
-      }
-      finally
-      {
-        is.close();
+        info = _resource.getInfo();
       }
+
+      return new State(file,
+                       new StaticInfo(info.getContentLength(), info.getLastModified()),
+                       null);
     }
     catch(IOException e)
     {
-      _localFile = null;
-      _resourceInfo = new StaticInfo(0, 0);
-      _ioException = e;
+      return new State(null, new StaticInfo(0, 0), e);
     }
-
   }
 
   /**
@@ -238,6 +295,19 @@ public class LocalCacheLeafResource implements LeafResource
    * @return the (locally cached) resource
    */
   public static LeafResource create(Resource resource)
+  {
+    return create(resource, null);
+  }
+
+  /**
+   * Decorates the resource to implement a caching strategy.
+   *
+   * @param resource the resource to cache locally
+   * @param contentCache the cache to use for the local copy (<code>null</code> means a temporary
+   *                     file)
+   * @return the (locally cached) resource
+   */
+  public static LeafResource create(Resource resource, LocalContentCache contentCache)
   {
     try
     {
@@ -247,7 +317,7 @@ public class LocalCacheLeafResource implements LeafResource
     }
     catch(IOException e)
     {
-      return new LocalCacheLeafResource(resource);
+      return new LocalCacheLeafResource(resource, contentCache);
     }
   }
 
@@ -0,0 +1,534 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.resource.internal;
+
+import org.linkedin.util.codec.CodecUtils;
+import org.linkedin.util.codec.HexaCodec;
+import org.linkedin.util.codec.OneWayCodec;
+import org.linkedin.util.codec.OneWayMessageDigestCodec;
+import org.linkedin.util.io.IOUtils;
+import org.linkedin.util.io.resource.Resource;
+import org.linkedin.util.io.resource.ResourceInfo;
+import org.linkedin.util.lang.MemorySize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On disk cache for the content of (remote) resources. Each resource is stored in the cache
+ * directory under a name computed from its uri (SHA-1) alongside a small file keeping the
+ * information (uri, last modified, length) used to revalidate it: when the resource changes, the
+ * cached copy is downloaded again. The total size of the cache is bounded and the least recently
+ * used entries are evicted when the limit is reached. Since everything lives on disk, the cache
+ * survives restarts (when created again on the same directory). This class is thread safe.
+ *
+ * @author yan@pongasoft.com
+ */
+public class LocalContentCache
+{
+  public static final String MODULE = LocalContentCache.class.getName();
+  public static final Logger log = LoggerFactory.getLogger(MODULE);
+
+  public static final String DATA_EXTENSION = ".data";
+  public static final String INFO_EXTENSION = ".info";
+  public static final String TMP_EXTENSION = ".tmp";
+
+  private static final OneWayCodec KEY_CODEC =
+    OneWayMessageDigestCodec.createSHA1Instance(HexaCodec.INSTANCE);
+
+  private final File _directory;
+  private final long _maxSize;
+
+  // access order => iteration starts with the least recently used entry
+  private final Map<String, Entry> _entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  private long _size = 0;
+
+  // the downloads in progress (protected by the lock as well)
+  private final Map<String, FutureTask<File>> _downloads = new HashMap<String, FutureTask<File>>();
+
+  private final AtomicLong _hitCount = new AtomicLong(0);
+  private final AtomicLong _missCount = new AtomicLong(0);
+  private final AtomicLong _evictionCount = new AtomicLong(0);
+
+  /**
+   * Constructor: entries already present in the directory (from a previous run) are reused.
+   *
+   * @param directory where to store the content (created if it does not exist)
+   * @param maxSize the maximum total size of the content stored in the cache
+   * @throws IOException if the directory cannot be created or read
+   */
+  public LocalContentCache(File directory, MemorySize maxSize) throws IOException
+  {
+    _directory = directory;
+    _maxSize = maxSize.getSizeInBytes();
+    IOUtils.createNewDirectory(_directory);
+    load();
+  }
+
+  public File getDirectory()
+  {
+    return _directory;
+  }
+
+  public MemorySize getMaxSize()
+  {
+    return new MemorySize(_maxSize);
+  }
+
+  /**
+   * @return the total size of the content currently stored in the cache
+   */
+  public synchronized MemorySize getSize()
+  {
+    return new MemorySize(_size);
+  }
+
+  /**
+   * @return the number of entries currently stored in the cache
+   */
+  public synchronized int getEntryCount()
+  {
+    return _entries.size();
+  }
+
+  public long getHitCount()
+  {
+    return _hitCount.get();
+  }
+
+  public long getMissCount()
+  {
+    return _missCount.get();
+  }
+
+  public long getEvictionCount()
+  {
+    return _evictionCount.get();
+  }
+
+  /**
+   * Shortcut for <code>getFile(resource, resource.getInfo())</code>
+   */
+  public File getFile(Resource resource) throws IOException
+  {
+    return getFile(resource, resource.getInfo());
+  }
+
+  /**
+   * Returns a local file with the content of the resource. The content is downloaded only if
+   * the resource is not in the cache or if it changed (last modified or length differ from
+   * <code>info</code>). Note that the file returned may be deleted later on if it gets evicted
+   * from the cache (so callers should check that it still exists when holding on to it).
+   *
+   * @param resource the resource to cache locally
+   * @param info the (current) information about the resource
+   * @return the local file
+   * @throws IOException if the resource cannot be read
+   */
+  public File getFile(Resource resource, ResourceInfo info) throws IOException
+  {
+    String key = computeKey(resource);
+    long lastModified = info.getLastModified();
+    long contentLength = info.getContentLength();
+
+    while(true)
+    {
+      FutureTask<File> download;
+      boolean owner = false;
+
+      synchronized(this)
+      {
+        Entry entry = _entries.get(key);
+        if(entry != null)
+        {
+          if(entry.lastModified == lastModified &&
+             entry.contentLength == contentLength &&
+             entry.dataFile.exists())
+          {
+            _hitCount.incrementAndGet();
+            return entry.dataFile;
+          }
+
+          if(log.isDebugEnabled())
+            log.debug("resource modified " + entry.uri);
+
+          remove(entry);
+        }
+
+        // each resource is downloaded at most once at a time
+        download = _downloads.get(key);
+        if(download == null)
+        {
+          download = new FutureTask<File>(new Downloader(key,
+                                                         resource,
+                                                         lastModified,
+                                                         contentLength));
+          _downloads.put(key, download);
+          owner = true;
+        }
+      }
+
+      if(owner)
+      {
+        _missCount.incrementAndGet();
+        download.run();
+        return waitFor(download);
+      }
+
+      // the entry is in the cache once downloaded => check it again (the resource may have been
+      // downloaded with a different info)
+      waitFor(download);
+    }
+  }
+
+  /**
+   * Downloads the content (outside of the lock) and adds the entry to the cache
+   */
+  private class Downloader implements Callable<File>
+  {
+    private final String _key;
+    private final Resource _resource;
+    private final long _lastModified;
+    private final long _contentLength;
+
+    private Downloader(String key, Resource resource, long lastModified, long contentLength)
+    {
+      _key = key;
+      _resource = resource;
+      _lastModified = lastModified;
+      _contentLength = contentLength;
+    }
+
+    @Override
+    public File call() throws IOException
+    {
+      File tmpFile = null;
+      try
+      {
+        tmpFile = File.createTempFile(_key, TMP_EXTENSION, _directory);
+
+        copy(_resource, tmpFile);
+
+        Entry entry = new Entry(_key,
+                                _resource.toURI().toString(),
+                                _lastModified,
+                                _contentLength,
+                                tmpFile.length());
+
+        synchronized(LocalContentCache.this)
+        {
+          Entry previous = _entries.get(_key);
+          if(previous != null)
+            remove(previous);
+
+          if(!tmpFile.renameTo(entry.dataFile))
+            throw new IOException("cannot rename " + tmpFile + " to " + entry.dataFile);
+
+          try
+          {
+            saveInfo(entry);
+          }
+          catch(IOException e)
+          {
+            delete(entry.dataFile);
+            delete(entry.infoFile);
+            throw e;
+          }
+
+          _entries.put(_key, entry);
+          _size += entry.size;
+
+          evict(entry);
+        }
+
+        return entry.dataFile;
+      }
+      finally
+      {
+        synchronized(LocalContentCache.this)
+        {
+          _downloads.remove(_key);
+        }
+
+        if(tmpFile != null)
+          delete(tmpFile);
+      }
+    }
+  }
+
+  private static File waitFor(FutureTask<File> download) throws IOException
+  {
+    try
+    {
+      return download.get();
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while downloading");
+    }
+    catch(ExecutionException e)
+    {
+      Throwable cause = e.getCause();
+      if(cause instanceof IOException)
+        throw (IOException) cause;
+      if(cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if(cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Removes all the entries from the cache (and deletes their content).
+   */
+  public synchronized void clear()
+  {
+    for(Entry entry : new ArrayList<Entry>(_entries.values()))
+    {
+      remove(entry);
+    }
+  }
+
+  /**
+   * Evicts the least recently used entries until the cache fits in its max size (the entry
+   * provided is never evicted, even if it is too big on its own).
+   */
+  private void evict(Entry keep)
+  {
+    Iterator<Entry> iter = _entries.values().iterator();
+    while(_size > _maxSize && iter.hasNext())
+    {
+      Entry entry = iter.next();
+      if(entry == keep)
+        continue;
+
+      if(log.isDebugEnabled())
+        log.debug("evicting " + entry.uri);
+
+      iter.remove();
+      _size -= entry.size;
+      delete(entry.dataFile);
+      delete(entry.infoFile);
+      _evictionCount.incrementAndGet();
+    }
+  }
+
+  private void remove(Entry entry)
+  {
+    _entries.remove(entry.key);
+    _size -= entry.size;
+    delete(entry.dataFile);
+    delete(entry.infoFile);
+  }
+
+  /**
+   * Rebuilds the entries from the content of the directory: the least recently modified data
+   * files are considered the least recently used. Anything which does not belong to a valid
+   * entry is deleted.
+   */
+  private synchronized void load() throws IOException
+  {
+    File[] files = _directory.listFiles();
+    if(files == null)
+      throw new IOException("cannot list " + _directory);
+
+    List<Entry> entries = new ArrayList<Entry>();
+
+    for(File file : files)
+    {
+      String name = file.getName();
+      if(name.endsWith(INFO_EXTENSION))
+      {
+        Entry entry = loadInfo(name.substring(0, name.length() - INFO_EXTENSION.length()));
+        if(entry != null)
+          entries.add(entry);
+        else
+          delete(file);
+      }
+    }
+
+    Collections.sort(entries, new Comparator<Entry>()
+    {
+      @Override
+      public int compare(Entry e1, Entry e2)
+      {
+        long l1 = e1.dataFile.lastModified();
+        long l2 = e2.dataFile.lastModified();
+        return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+      }
+    });
+
+    for(Entry entry : entries)
+    {
+      _entries.put(entry.key, entry);
+      _size += entry.size;
+    }
+
+    // deletes leftovers (interrupted downloads or data without info)
+    for(File file : files)
+    {
+      String name = file.getName();
+      if(name.endsWith(TMP_EXTENSION) ||
+         (name.endsWith(DATA_EXTENSION) &&
+          !_entries.containsKey(name.substring(0, name.length() - DATA_EXTENSION.length()))))
+        delete(file);
+    }
+
+    // the max size may have been reduced since last time
+    evict(null);
+  }
+
+  /**
+   * @return the entry or <code>null</code> if the entry is not valid
+   */
+  private Entry loadInfo(String key)
+  {
+    File infoFile = new File(_directory, key + INFO_EXTENSION);
+    try
+    {
+      Properties properties = new Properties();
+      InputStream is = new FileInputStream(infoFile);
+      try
+      {
+        properties.load(is);
+      }
+      finally
+      {
+        is.close();
+      }
+
+      Entry entry = new Entry(key,
+                              properties.getProperty("uri"),
+                              Long.parseLong(properties.getProperty("lastModified")),
+                              Long.parseLong(properties.getProperty("contentLength")),
+                              Long.parseLong(properties.getProperty("size")));
+
+      if(entry.uri != null && entry.dataFile.length() == entry.size)
+        return entry;
+    }
+    catch(Exception e)
+    {
+      if(log.isDebugEnabled())
+        log.debug("exception (ignored) while loading " + infoFile, e);
+    }
+
+    return null;
+  }
+
+  private void saveInfo(Entry entry) throws IOException
+  {
+    Properties properties = new Properties();
+    properties.setProperty("uri", entry.uri);
+    properties.setProperty("lastModified", String.valueOf(entry.lastModified));
+    properties.setProperty("contentLength", String.valueOf(entry.contentLength));
+    properties.setProperty("size", String.valueOf(entry.size));
+
+    OutputStream os = new FileOutputStream(entry.infoFile);
+    try
+    {
+      properties.store(os, null);
+    }
+    finally
+    {
+      os.close();
+    }
+  }
+
+  private static void copy(Resource resource, File file) throws IOException
+  {
+    InputStream is = resource.getInputStream();
+    try
+    {
+      FileOutputStream fos = new FileOutputStream(file);
+      try
+      {
+        BufferedOutputStream out = new BufferedOutputStream(fos);
+        IOUtils.copy(new BufferedInputStream(is), out);
+        out.flush();
+      }
+      finally
+      {
+        fos.close();
+      }
+    }
+    finally
+    {
+      is.close();
+    }
+  }
+
+  private static void delete(File file)
+  {
+    if(file.exists() && !file.delete())
+    {
+      if(log.isDebugEnabled())
+        log.debug("could not delete " + file);
+    }
+  }
+
+  private static String computeKey(Resource resource)
+  {
+    return CodecUtils.encodeString(KEY_CODEC, resource.toURI().toString());
+  }
+
+  private class Entry
+  {
+    private final String key;
+    private final String uri;
+    private final long lastModified;
+    private final long contentLength;
+    private final long size;
+    private final File dataFile;
+    private final File infoFile;
+
+    private Entry(String key, String uri, long lastModified, long contentLength, long size)
+    {
+      this.key = key;
+      this.uri = uri;
+      this.lastModified = lastModified;
+      this.contentLength = contentLength;
+      this.size = size;
+      dataFile = new File(_directory, key + DATA_EXTENSION);
+      infoFile = new File(_directory, key + INFO_EXTENSION);
+    }
+  }
+}
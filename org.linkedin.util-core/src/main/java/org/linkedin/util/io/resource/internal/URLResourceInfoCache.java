@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.resource.internal;
+
+import org.linkedin.util.clock.Clock;
+import org.linkedin.util.clock.SystemClock;
+import org.linkedin.util.clock.Timespan;
+import org.linkedin.util.io.resource.ResourceInfo;
+import org.linkedin.util.io.resource.URLResource;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Cache of the information (last modified, length) about urls so that polling a
+ * {@link URLResource} does not hit the network every time. An entry is reused as long as it is
+ * younger than the time to live. Once it has expired, the url is probed again with the previous
+ * information so that the server can simply answer 'not modified'. This class is thread safe.
+ *
+ * @author yan@pongasoft.com
+ */
+public class URLResourceInfoCache
+{
+  public static final Timespan DEFAULT_TIME_TO_LIVE = Timespan.parse("10s");
+
+  private final Clock _clock;
+  private final long _timeToLive;
+
+  private final Map<String, CachedInfo> _infos = new HashMap<String, CachedInfo>();
+
+  private long _lastEvictionTime;
+
+  /**
+   * Constructor
+   */
+  public URLResourceInfoCache()
+  {
+    this(SystemClock.INSTANCE, DEFAULT_TIME_TO_LIVE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param clock the clock used to determine how old an entry is
+   * @param timeToLive how long an entry is used without probing the url again
+   */
+  public URLResourceInfoCache(Clock clock, Timespan timeToLive)
+  {
+    _clock = clock;
+    _timeToLive = timeToLive.getDurationInMilliseconds();
+    _lastEvictionTime = clock.currentTimeMillis();
+  }
+
+  /**
+   * Returns the information about the url, probing it only if the cached entry is missing or
+   * has expired.
+   *
+   * @throws IOException if the url cannot be probed (in which case nothing is cached)
+   */
+  public ResourceInfo getInfo(URL url, Timespan connectTimeout, Timespan readTimeout)
+    throws IOException
+  {
+    String key = url.toExternalForm();
+
+    CachedInfo cachedInfo;
+
+    synchronized(this)
+    {
+      long now = _clock.currentTimeMillis();
+
+      evictExpired(now);
+
+      cachedInfo = _infos.get(key);
+      if(cachedInfo != null && !cachedInfo.isExpired(now))
+        return cachedInfo.info;
+    }
+
+    // the network call happens outside the lock
+    ResourceInfo info;
+    try
+    {
+      info = URLResource.extractInfo(url,
+                                     cachedInfo == null ? null : cachedInfo.info,
+                                     connectTimeout,
+                                     readTimeout);
+    }
+    catch(IOException e)
+    {
+      invalidate(url);
+      throw e;
+    }
+
+    synchronized(this)
+    {
+      _infos.put(key, new CachedInfo(info, _clock.currentTimeMillis()));
+    }
+
+    return info;
+  }
+
+  /**
+   * Removes the information about the url (next call will probe it).
+   */
+  public synchronized void invalidate(URL url)
+  {
+    _infos.remove(url.toExternalForm());
+  }
+
+  /**
+   * Removes all the entries.
+   */
+  public synchronized void clear()
+  {
+    _infos.clear();
+  }
+
+  /**
+   * @return the number of entries currently in the cache
+   */
+  public synchronized int size()
+  {
+    return _infos.size();
+  }
+
+  /**
+   * Removes the expired entries (at most once per time to live) so that the cache does not grow
+   * with urls which are not used anymore.
+   */
+  private void evictExpired(long now)
+  {
+    if(now - _lastEvictionTime < _timeToLive)
+      return;
+
+    _lastEvictionTime = now;
+
+    Iterator<CachedInfo> iter = _infos.values().iterator();
+    while(iter.hasNext())
+    {
+      // keeping entries which expired recently since they can still be revalidated cheaply
+      if(now - iter.next().fetchTime >= 2 * _timeToLive)
+        iter.remove();
+    }
+  }
+
+  private class CachedInfo
+  {
+    private final ResourceInfo info;
+    private final long fetchTime;
+
+    private CachedInfo(ResourceInfo info, long fetchTime)
+    {
+      this.info = info;
+      this.fetchTime = fetchTime;
+    }
+
+    private boolean isExpired(long now)
+    {
+      return now - fetchTime >= _timeToLive;
+    }
+  }
+}
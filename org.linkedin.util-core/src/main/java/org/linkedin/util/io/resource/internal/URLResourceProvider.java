@@ -36,6 +36,7 @@ public class URLResourceProvider extends PathBasedResourceProvider
   private final URL _baseURL;
   private final Timespan _connectTimeout;
   private final Timespan _readTimeout;
+  private final URLResourceInfoCache _infoCache;
 
   /**
    * Constructor
@@ -65,6 +66,22 @@ public class URLResourceProvider extends PathBasedResourceProvider
    * Constructor
    */
   public URLResourceProvider(URL baseURL, String root, Timespan connectTimeout, Timespan readTimeout) throws UnsupportedURIException, URISyntaxException
+  {
+    this(baseURL, root, connectTimeout, readTimeout, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param infoCache where to cache the information about the urls (<code>null</code> means
+   *                  that the urls are probed every time)
+   */
+  public URLResourceProvider(URL baseURL,
+                             String root,
+                             Timespan connectTimeout,
+                             Timespan readTimeout,
+                             URLResourceInfoCache infoCache)
+    throws UnsupportedURIException, URISyntaxException
   {
     super(PathUtils.addPaths(baseURL.getPath(), root));
 
@@ -74,6 +91,7 @@ public class URLResourceProvider extends PathBasedResourceProvider
     _baseURL = baseURL;
     _connectTimeout = connectTimeout;
     _readTimeout = readTimeout;
+    _infoCache = infoCache;
   }
 
 
@@ -88,7 +106,11 @@ public class URLResourceProvider extends PathBasedResourceProvider
   {
     try
     {
-      return new URLResourceProvider(_baseURL, getFullPath(rootPath));
+      return new URLResourceProvider(_baseURL,
+                                     getFullPath(rootPath),
+                                     _connectTimeout,
+                                     _readTimeout,
+                                     _infoCache);
     }
     catch(UnsupportedURIException e)
     {
@@ -121,7 +143,12 @@ public class URLResourceProvider extends PathBasedResourceProvider
                            null,
                            null);
 
-      return new URLResource(this, path, newURI.toURL(), _connectTimeout, _readTimeout);
+      return new URLResource(this,
+                             path,
+                             newURI.toURL(),
+                             _connectTimeout,
+                             _readTimeout,
+                             _infoCache);
     }
     catch(URISyntaxException e)
     {
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.text;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Replaces several (literal) strings at once in a single left to right pass. The strings to
+ * search for are compiled once in an Aho-Corasick automaton (see {@link #compile(Map)}). At each
+ * position the leftmost match wins, and among the matches starting at the same position the
+ * longest one wins. The replaced text is never searched again (so the result can differ from
+ * calling {@link TextUtils#searchAndReplace(String, String, String)} once per string when the
+ * replacements overlap or contain the searched strings). This class is immutable (and thread
+ * safe).
+ *
+ * @author yan@pongasoft.com
+ */
+public class MultiReplacer
+{
+  private final String[] _replacements;
+
+  // char => class of char (0 for the chars which are not in any searched string)
+  private final int[] _asciiClasses;
+  private final char[] _otherChars;
+  private final int[] _otherClasses;
+  private final int _classCount;
+
+  // transitions of the automaton: _next[state * _classCount + class]
+  private final int[] _next;
+
+  // length of the string matched by the state
+  private final int[] _depth;
+
+  // for each state: length of the longest searched string ending there (0 if none) and its index
+  private final int[] _matchLength;
+  private final int[] _matchIndex;
+
+  private MultiReplacer(String[] replacements,
+                        int[] asciiClasses,
+                        char[] otherChars,
+                        int[] otherClasses,
+                        int classCount,
+                        int[] next,
+                        int[] depth,
+                        int[] matchLength,
+                        int[] matchIndex)
+  {
+    _replacements = replacements;
+    _asciiClasses = asciiClasses;
+    _otherChars = otherChars;
+    _otherClasses = otherClasses;
+    _classCount = classCount;
+    _next = next;
+    _depth = depth;
+    _matchLength = matchLength;
+    _matchIndex = matchIndex;
+  }
+
+  /**
+   * Replaces all the occurrences
+   *
+   * @param s the string to search
+   * @return the string with the text replaced (<code>s</code> itself when nothing matched,
+   * <code>null</code> if <code>s</code> is <code>null</code>)
+   */
+  public String replace(String s)
+  {
+    if(s == null)
+      return null;
+
+    int[] match = new int[2];
+    int start = findMatch(s, 0, match);
+    if(start == -1)
+      return s;
+
+    StringBuilder sb = new StringBuilder(s.length() + 16);
+    replace(s, start, match, sb);
+    return sb.toString();
+  }
+
+  /**
+   * Replaces all the occurrences and appends the result to the builder
+   *
+   * @return <code>sb</code>
+   */
+  public StringBuilder replace(CharSequence s, StringBuilder sb)
+  {
+    int[] match = new int[2];
+    replace(s, findMatch(s, 0, match), match, sb);
+    return sb;
+  }
+
+  /**
+   * Replaces all the occurrences and appends the result to <code>out</code>
+   *
+   * @return <code>out</code>
+   */
+  public Appendable replace(CharSequence s, Appendable out) throws IOException
+  {
+    int[] match = new int[2];
+    int pos = 0;
+    int start = findMatch(s, 0, match);
+    while(start != -1)
+    {
+      out.append(s, pos, start);
+      out.append(_replacements[match[1]]);
+      pos = match[0];
+      start = findMatch(s, pos, match);
+    }
+    out.append(s, pos, s.length());
+    return out;
+  }
+
+  /**
+   * @return <code>true</code> if at least one of the strings is in <code>s</code>
+   */
+  public boolean matches(CharSequence s)
+  {
+    return findMatch(s, 0, new int[2]) != -1;
+  }
+
+  private void replace(CharSequence s, int start, int[] match, StringBuilder sb)
+  {
+    int pos = 0;
+    while(start != -1)
+    {
+      sb.append(s, pos, start);
+      sb.append(_replacements[match[1]]);
+      pos = match[0];
+      start = findMatch(s, pos, match);
+    }
+    sb.append(s, pos, s.length());
+  }
+
+  /**
+   * Finds the leftmost (then longest) match starting at or after <code>from</code>
+   *
+   * @param match where to store the end of the match and the index of its replacement
+   * @return the start of the match (<code>-1</code> if there is none)
+   */
+  private int findMatch(CharSequence s, int from, int[] match)
+  {
+    int len = s.length();
+    int state = 0;
+
+    int bestStart = -1;
+
+    for(int i = from; i < len; i++)
+    {
+      state = _next[state * _classCount + charClass(s.charAt(i))];
+
+      // most chars do not start anything
+      if(state == 0)
+      {
+        if(bestStart != -1)
+          break;
+        continue;
+      }
+
+      int end = i + 1;
+
+      // no match starting at or before bestStart can be found anymore
+      if(bestStart != -1 && end - _depth[state] > bestStart)
+        break;
+
+      int matchLength = _matchLength[state];
+      if(matchLength > 0)
+      {
+        int start = end - matchLength;
+        if(bestStart == -1 || start < bestStart || (start == bestStart && end > match[0]))
+        {
+          bestStart = start;
+          match[0] = end;
+          match[1] = _matchIndex[state];
+        }
+      }
+    }
+
+    return bestStart;
+  }
+
+  private int charClass(char c)
+  {
+    if(c < 128)
+      return _asciiClasses[c];
+
+    int idx = Arrays.binarySearch(_otherChars, c);
+    return idx < 0 ? 0 : _otherClasses[idx];
+  }
+
+  /**
+   * Compiles the replacements
+   *
+   * @param replacements key = string to search for, value = replacement
+   * @return the replacer
+   * @throws IllegalArgumentException if a string to search for is empty or <code>null</code> or
+   * if a replacement is <code>null</code>
+   */
+  public static MultiReplacer compile(Map<String, String> replacements)
+  {
+    List<String> searches = new ArrayList<String>(replacements.size());
+    String[] dsts = new String[replacements.size()];
+    for(Map.Entry<String, String> entry : replacements.entrySet())
+    {
+      String src = entry.getKey();
+      if(src == null || src.length() == 0)
+        throw new IllegalArgumentException("cannot search for an empty string");
+      if(entry.getValue() == null)
+        throw new IllegalArgumentException("null replacement for " + src);
+      dsts[searches.size()] = entry.getValue();
+      searches.add(src);
+    }
+
+    // classes of chars
+    TreeSet<Character> chars = new TreeSet<Character>();
+    for(String src : searches)
+    {
+      for(int i = 0; i < src.length(); i++)
+        chars.add(src.charAt(i));
+    }
+
+    int[] asciiClasses = new int[128];
+    List<Character> otherCharList = new ArrayList<Character>();
+    int classCount = 1;
+    for(Character c : chars)
+    {
+      if(c < 128)
+        asciiClasses[c] = classCount++;
+      else
+        otherCharList.add(c);
+    }
+    char[] otherChars = new char[otherCharList.size()];
+    int[] otherClasses = new int[otherCharList.size()];
+    for(int i = 0; i < otherChars.length; i++)
+    {
+      otherChars[i] = otherCharList.get(i);
+      otherClasses[i] = classCount++;
+    }
+
+    // trie
+    List<Map<Integer, Integer>> children = new ArrayList<Map<Integer, Integer>>();
+    List<Integer> depths = new ArrayList<Integer>();
+    List<Integer> terminals = new ArrayList<Integer>();
+    children.add(new HashMap<Integer, Integer>());
+    depths.add(0);
+    terminals.add(-1);
+
+    for(int p = 0; p < searches.size(); p++)
+    {
+      String src = searches.get(p);
+      int state = 0;
+      for(int i = 0; i < src.length(); i++)
+      {
+        int cls = classOf(src.charAt(i), asciiClasses, otherChars, otherClasses);
+        Integer child = children.get(state).get(cls);
+        if(child == null)
+        {
+          child = children.size();
+          children.add(new HashMap<Integer, Integer>());
+          depths.add(i + 1);
+          terminals.add(-1);
+          children.get(state).put(cls, child);
+        }
+        state = child;
+      }
+      terminals.set(state, p);
+    }
+
+    // automaton (breadth first so that the failure state is always computed first)
+    int stateCount = children.size();
+    int[] next = new int[stateCount * classCount];
+    int[] depth = new int[stateCount];
+    int[] matchLength = new int[stateCount];
+    int[] matchIndex = new int[stateCount];
+    int[] fail = new int[stateCount];
+
+    LinkedList<Integer> queue = new LinkedList<Integer>();
+    queue.add(0);
+    while(!queue.isEmpty())
+    {
+      int state = queue.removeFirst();
+      depth[state] = depths.get(state);
+
+      int terminal = terminals.get(state);
+      if(terminal != -1)
+      {
+        matchLength[state] = depth[state];
+        matchIndex[state] = terminal;
+      }
+      else
+      {
+        // longest searched string which is a suffix of this state
+        matchLength[state] = matchLength[fail[state]];
+        matchIndex[state] = matchIndex[fail[state]];
+      }
+
+      Map<Integer, Integer> stateChildren = children.get(state);
+      for(int cls = 0; cls < classCount; cls++)
+      {
+        Integer child = stateChildren.get(cls);
+        if(child == null)
+        {
+          next[state * classCount + cls] = state == 0 ? 0 : next[fail[state] * classCount + cls];
+        }
+        else
+        {
+          next[state * classCount + cls] = child;
+          fail[child] = state == 0 ? 0 : next[fail[state] * classCount + cls];
+          queue.add(child);
+        }
+      }
+    }
+
+    return new MultiReplacer(dsts,
+                             asciiClasses,
+                             otherChars,
+                             otherClasses,
+                             classCount,
+                             next,
+                             depth,
+                             matchLength,
+                             matchIndex);
+  }
+
+  private static int classOf(char c, int[] asciiClasses, char[] otherChars, int[] otherClasses)
+  {
+    if(c < 128)
+      return asciiClasses[c];
+    return otherClasses[Arrays.binarySearch(otherChars, c)];
+  }
+}
@@ -25,12 +25,17 @@ import java.util.List;
 import java.util.Collections;
 
 /**
- * This is a utility class to split up a string
+ * This is a utility class to split up a string. All the methods are built on
+ * {@link #split(CharSequence, TokenVisitor)} which finds the tokens in one pass and hands them
+ * out as ranges (no copy) and can be stopped early.
  * 
  * @author ypujante@linkedin.com */
 public class StringSplitter
 {
-  private final char _delim;
+  private final String _delim;
+
+  // first (and only when 1 char long) char of the delimiter
+  private final char _delimChar;
 
   private final String _blockIgnore;
 
@@ -68,7 +73,30 @@ public class StringSplitter
    * @param blockIgnore the character to use to ignore delim within it */
   public StringSplitter(char delim, String blockIgnore)
   {
+    this(String.valueOf(delim), blockIgnore);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param delim the string to use as a delimiter for splitting (ex: <code>", "</code>) */
+  public StringSplitter(String delim)
+  {
+    this(delim, null);
+  }
+
+  /**
+   * Constructor. Same as {@link #StringSplitter(char, String)} with a delimiter made of
+   * several characters.
+   *
+   * @param delim the string to use as a delimiter for splitting
+   * @param blockIgnore the string to use to ignore delim within it */
+  public StringSplitter(String delim, String blockIgnore)
+  {
+    if(delim == null || delim.length() == 0)
+      throw new IllegalArgumentException("delimiter cannot be null or the empty string");
     _delim = delim;
+    _delimChar = delim.charAt(0);
     if(blockIgnore != null && blockIgnore.length() == 0)
       throw new IllegalArgumentException("block ignore cannot be the empty string");
     _blockIgnore = blockIgnore;
@@ -102,17 +130,22 @@ public class StringSplitter
     if(s == null)
       return null;
 
-    int len = s.length();
-
-    if(len == 0)
+    if(s.length() == 0)
     {
       return Collections.emptyList();
     }
 
-    if(_blockIgnore == null)
-      return splitNoBlockIgnore(s);
-    else
-      return splitBlockIgnore(s);
+    final List<String> res = new ArrayList<String>();
+    split(s, new TokenVisitor()
+    {
+      @Override
+      public boolean visitToken(CharSequence s, int start, int end)
+      {
+        res.add(s.subSequence(start, end).toString());
+        return true;
+      }
+    });
+    return res;
   }
 
   /**
@@ -124,20 +157,26 @@ public class StringSplitter
    *         <code>null</code>) */
   public Set<String> splitAsSet(String s)
   {
-    String[] ss = split(s);
-    if(ss == null)
+    if(s == null)
       return null;
 
-    Set<String> res = new TreeSet<String>();
-    for(int i = 0; i < ss.length; i++)
-      res.add(ss[i]);
-
+    final Set<String> res = new TreeSet<String>();
+    split(s, new TokenVisitor()
+    {
+      @Override
+      public boolean visitToken(CharSequence s, int start, int end)
+      {
+        res.add(s.subSequence(start, end).toString());
+        return true;
+      }
+    });
     return res;
   }
 
   /**
    * Splits the string and return an iterator using the delimiter
-   * provided in the constructor.
+   * provided in the constructor. The tokens are extracted as the iterator
+   * advances.
    *
    * @param s the string to split
    * @return iterator of <code>String</code> (<code>null</code> if <code>s</code> is
@@ -147,106 +186,174 @@ public class StringSplitter
     if(s == null)
       return null;
 
-    if(_blockIgnore == null)
-      return new SplitNoBlockIgnoreIterator(s);
-    else
-      throw new RuntimeException("TODO");
+    return new SplitIterator(s);
   }
 
   /**
-   * Called when no block ignore */
-  private List<String> splitNoBlockIgnore(String s)
+   * Splits the string and hands out each token to the visitor (as a range
+   * in <code>s</code>, so that nothing is copied) until the visitor returns
+   * <code>false</code>. An empty (or <code>null</code>) string has no token.
+   *
+   * @param s the string to split
+   * @param visitor the visitor
+   * @return <code>true</code> if all the tokens have been visited,
+   *         <code>false</code> if the visitor stopped the split */
+  public boolean split(CharSequence s, TokenVisitor visitor)
   {
-    int len = s.length();
+    if(s == null)
+      return true;
 
-    ArrayList<String> res = new ArrayList<String>();
+    int len = s.length();
+    if(len == 0)
+      return true;
 
-    int idx = 0;
-    int prev = 0;
+    boolean blockIgnore = hasBlockIgnore(s);
 
+    int start = 0;
     while(true)
     {
-      idx = s.indexOf(_delim, idx);
+      int end = tokenEnd(s, start, blockIgnore);
 
-      if(idx == -1)
-      {
-        res.add((prev == len) ? "" : s.substring(prev));
-        break;
-      }
+      if(!visitor.visitToken(s, start, end))
+        return false;
+
+      if(end == len)
+        return true;
+
+      start = end + _delim.length();
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the block ignore string is in <code>s</code>
+   *         (otherwise it can be ignored altogether) */
+  private boolean hasBlockIgnore(CharSequence s)
+  {
+    if(_blockIgnore == null)
+      return false;
+    return indexOf(s, _blockIgnore, 0) != -1;
+  }
+
+  /**
+   * @param start where the token starts
+   * @param blockIgnore <code>true</code> if the block ignore must be handled
+   * @return the end of the token (the index of the delimiter or the length
+   *         of the string) */
+  private int tokenEnd(CharSequence s, int start, boolean blockIgnore)
+  {
+    if(!blockIgnore)
+    {
+      int idx = indexOfDelim(s, start);
+      return idx == -1 ? s.length() : idx;
+    }
+
+    String bi = _blockIgnore;
+    boolean inBlockIgnore = false;
+    int blockIgnoreIdx = 0;
+    int len = s.length();
 
-      if(prev == idx)
+    int i = start;
+    while(i < len)
+    {
+      char c = s.charAt(i);
+      if(c == bi.charAt(blockIgnoreIdx))
       {
-        res.add("");
+        blockIgnoreIdx++;
+        if(bi.length() == blockIgnoreIdx)
+        {
+          blockIgnoreIdx = 0;
+          inBlockIgnore = !inBlockIgnore;
+        }
       }
       else
       {
-        res.add(s.substring(prev, idx));
+        blockIgnoreIdx = 0;
+        if(!inBlockIgnore && c == _delimChar && regionMatches(s, i, _delim))
+          return i;
       }
+      i++;
+    }
 
-      prev = ++idx;
+    return len;
+  }
+
+  /**
+   * @return the index of the delimiter (<code>-1</code> if not found) */
+  private int indexOfDelim(CharSequence s, int from)
+  {
+    if(_delim.length() > 1 || !(s instanceof String))
+      return indexOf(s, _delim, from);
+
+    return ((String) s).indexOf(_delimChar, from);
+  }
+
+  /**
+   * Same as <code>String.indexOf(String, int)</code> for any char sequence */
+  private static int indexOf(CharSequence s, String str, int from)
+  {
+    if(s instanceof String)
+      return ((String) s).indexOf(str, from);
+
+    char first = str.charAt(0);
+    int max = s.length() - str.length();
+    for(int i = from; i <= max; i++)
+    {
+      if(s.charAt(i) == first && regionMatches(s, i, str))
+        return i;
     }
+    return -1;
+  }
 
-    return res;
+  /**
+   * @return <code>true</code> if <code>str</code> is at <code>offset</code>
+   *         in <code>s</code> */
+  private static boolean regionMatches(CharSequence s, int offset, String str)
+  {
+    int len = str.length();
+    if(offset + len > s.length())
+      return false;
+
+    for(int i = 0; i < len; i++)
+    {
+      if(s.charAt(offset + i) != str.charAt(i))
+        return false;
+    }
+    return true;
   }
 
   /**
    * The iterator */
-  private class SplitNoBlockIgnoreIterator implements Iterator<String>
+  private class SplitIterator implements Iterator<String>
   {
     private final String _s;
-    private int _idx = 0;
-    private int _prev = 0;
-    private String _next = null;
+    private final boolean _blockIgnore;
+
+    // start of the next token (-1 when there is no more token)
+    private int _start;
 
-    private SplitNoBlockIgnoreIterator(String s)
+    private SplitIterator(String s)
     {
       _s = s;
-      if(_s.length() == 0)
-      {
-        _next = null;
-        _idx = -1;
-      }
-      else
-        _next = advanceNext();
+      _blockIgnore = hasBlockIgnore(s);
+      _start = s.length() == 0 ? -1 : 0;
     }
 
     @Override
     public boolean hasNext()
     {
-      return _next != null;
+      return _start != -1;
     }
 
     @Override
     public String next()
     {
-      String next = _next;
-      if(next == null)
+      if(_start == -1)
         throw new NoSuchElementException();
-      _next = advanceNext();
-      return next;
-    }
-
-    private String advanceNext()
-    {
-      if(_idx == -1)
-        return null;
-
-      _idx = _s.indexOf(_delim, _idx);
 
-      if(_idx == -1)
-        return (_prev == _s.length()) ? "" : _s.substring(_prev);
-
-      try
-      {
-        if(_prev == _idx)
-          return "";
-        else
-          return _s.substring(_prev, _idx);
-      }
-      finally
-      {
-        _prev = ++_idx;
-      }
+      int end = tokenEnd(_s, _start, _blockIgnore);
+      String next = _s.substring(_start, end);
+      _start = end == _s.length() ? -1 : end + _delim.length();
+      return next;
     }
 
     @Override
@@ -255,58 +362,4 @@ public class StringSplitter
       throw new UnsupportedOperationException("not supported!");
     }
   }
-
-  /**
-   * Called when block ignore */
-  private List<String> splitBlockIgnore(String s)
-  {
-    if(s.indexOf(_blockIgnore) == -1)
-      // if the character is not present then we can call the other method
-      return splitNoBlockIgnore(s);
-
-    boolean inBlockIgnore = false;
-    int blockIgnoreIdx = 0;
-    StringBuffer sb = new StringBuffer();
-    ArrayList<String> al = new ArrayList<String>();
-
-    int len = s.length();
-
-    for(int i = 0; i < len; i++)
-    {
-      char c = s.charAt(i);
-      if(c == _blockIgnore.charAt(blockIgnoreIdx))
-      {
-        blockIgnoreIdx++;
-        if(_blockIgnore.length() == blockIgnoreIdx)
-        {
-          blockIgnoreIdx = 0;
-          inBlockIgnore = !inBlockIgnore;
-        }
-        sb.append(c);
-      }
-      else
-      {
-        blockIgnoreIdx = 0;
-        if(c == _delim)
-        {
-          if(inBlockIgnore)
-            sb.append(c);
-          else
-          {
-            al.add(sb.toString());
-            sb = new StringBuffer();
-          }
-        }
-        else
-          sb.append(c);
-      }
-    }
-
-    al.add(sb.toString());
-
-//     if(inBlockIgnore)
-//       throw new IllegalArgumentException("Wrong block ignore in string " + s);
-
-    return al;
-  }
 }
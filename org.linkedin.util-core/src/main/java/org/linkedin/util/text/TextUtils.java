@@ -17,6 +17,8 @@
 
 package org.linkedin.util.text;
 
+import java.util.Map;
+
 /**
  * @author ypujante@linkedin.com
  *
@@ -74,6 +76,23 @@ public class TextUtils
     return result.toString();
   }
 
+  /**
+   * Searches in the string '<code>s</code>' all occurences of the keys of
+   * '<code>replacements</code>' and replaces them with their values in one
+   * pass (see {@link MultiReplacer}: compile it once when the same
+   * replacements are used many times).
+   *
+   * @param s the string to search
+   * @param replacements key = substring to search for, value = replacing string
+   * @return the string with the text replaced */
+  public static String searchAndReplace(String s, Map<String, String> replacements)
+  {
+    if(s == null)
+      return null;
+
+    return MultiReplacer.compile(replacements).replace(s);
+  }
+
   /**
    * Constructor
    */
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.text;
+
+/**
+ * Called for each token found by {@link StringSplitter#split(CharSequence, TokenVisitor)}. The
+ * token is given as a range in the string being split so that nothing needs to be copied
+ * (<code>s.subSequence(start, end)</code> or <code>CharBuffer.wrap(s, start, end)</code> when
+ * the token itself is needed).
+ *
+ * @author yan@pongasoft.com
+ */
+public interface TokenVisitor
+{
+  /**
+   * @param s the string being split
+   * @param start the index of the first char of the token
+   * @param end the index after the last char of the token (<code>start == end</code> for an
+   * empty token)
+   * @return <code>true</code> to continue splitting, <code>false</code> to stop
+   */
+  boolean visitToken(CharSequence s, int start, int end);
+}
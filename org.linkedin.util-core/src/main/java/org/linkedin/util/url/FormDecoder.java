@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+import org.linkedin.util.lang.MemorySize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Decodes <code>application/x-www-form-urlencoded</code> content (a query string or a form
+ * body) directly from bytes, without building a string with the whole content: the parameters
+ * are decoded one at a time and handed to a {@link QueryParameterVisitor} (or added to a
+ * {@link QueryBuilder}). The decoding follows the same rules as {@link QueryBuilder} (empty
+ * parameters are skipped, a parameter without <code>=</code> has a <code>null</code> value) and
+ * {@link URLCodec}. The number of parameters and the size of each name and value are limited.
+ * This class is thread safe.
+ *
+ * @author yan@pongasoft.com
+ */
+public class FormDecoder
+{
+  public static final int DEFAULT_MAX_PARAMETER_COUNT = 10000;
+  public static final MemorySize DEFAULT_MAX_PARAMETER_SIZE =
+    new MemorySize(1, MemorySize.SizeUnit.MEGA_BYTE);
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private final String _characterEncoding;
+  private final Charset _charset;
+  private final int _maxParameterCount;
+  private final int _maxParameterSize;
+
+  /**
+   * Decoder with the default encoding (utf-8) and limits
+   */
+  public FormDecoder()
+  {
+    this(URLCodec.CHARACTER_ENCODING, DEFAULT_MAX_PARAMETER_COUNT, DEFAULT_MAX_PARAMETER_SIZE);
+  }
+
+  /**
+   * @param characterEncoding the encoding of the escaped bytes
+   * @param maxParameterCount maximum number of parameters
+   * @param maxParameterSize maximum size of the name (resp. value) of a parameter (decoded)
+   * @throws IllegalArgumentException if the encoding is not supported
+   */
+  public FormDecoder(String characterEncoding, int maxParameterCount, MemorySize maxParameterSize)
+  {
+    if(!Charset.isSupported(characterEncoding))
+      throw new IllegalArgumentException(new UnsupportedEncodingException(characterEncoding));
+
+    long size = maxParameterSize.getSizeInBytes();
+    if(size > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("max parameter size too big: " + maxParameterSize);
+
+    _characterEncoding = characterEncoding;
+    _charset = Charset.forName(characterEncoding);
+    _maxParameterCount = maxParameterCount;
+    _maxParameterSize = (int) size;
+  }
+
+  public String getCharacterEncoding()
+  {
+    return _characterEncoding;
+  }
+
+  public int getMaxParameterCount()
+  {
+    return _maxParameterCount;
+  }
+
+  public MemorySize getMaxParameterSize()
+  {
+    return new MemorySize(_maxParameterSize);
+  }
+
+  /**
+   * Decodes the content of the stream (read until the end or until the visitor stops). The
+   * stream is not closed.
+   *
+   * @throws FormLimitExceededException if a limit is exceeded
+   * @throws IllegalArgumentException if an escape (%) pattern is invalid
+   */
+  public void decode(InputStream in, QueryParameterVisitor visitor) throws IOException
+  {
+    Decoder decoder = new Decoder(visitor);
+    byte[] buffer = new byte[BUFFER_SIZE];
+
+    int len;
+    while((len = in.read(buffer)) != -1)
+    {
+      if(!decoder.decode(buffer, 0, len))
+        return;
+    }
+
+    decoder.end();
+  }
+
+  /**
+   * Decodes the remaining content of the buffer (the position of the buffer is moved to where
+   * the decoding stopped).
+   *
+   * @throws FormLimitExceededException if a limit is exceeded
+   * @throws IllegalArgumentException if an escape (%) pattern is invalid
+   */
+  public void decode(ByteBuffer buffer, QueryParameterVisitor visitor) throws IOException
+  {
+    Decoder decoder = new Decoder(visitor);
+
+    if(buffer.hasArray())
+    {
+      int offset = buffer.arrayOffset() + buffer.position();
+      int len = buffer.remaining();
+      boolean complete = decoder.decode(buffer.array(), offset, len);
+      buffer.position(buffer.position() + (complete ? len : decoder._consumed));
+      if(!complete)
+        return;
+    }
+    else
+    {
+      byte[] chunk = new byte[Math.min(BUFFER_SIZE, buffer.remaining())];
+      while(buffer.hasRemaining())
+      {
+        int len = Math.min(chunk.length, buffer.remaining());
+        int position = buffer.position();
+        buffer.get(chunk, 0, len);
+        if(!decoder.decode(chunk, 0, len))
+        {
+          buffer.position(position + decoder._consumed);
+          return;
+        }
+      }
+    }
+
+    decoder.end();
+  }
+
+  /**
+   * Decodes the content of the stream and adds the parameters to the query
+   *
+   * @see #decode(InputStream, QueryParameterVisitor)
+   */
+  public void decode(InputStream in, QueryBuilder query) throws IOException
+  {
+    decode(in, addTo(query));
+  }
+
+  /**
+   * Decodes the content of the buffer and adds the parameters to the query
+   *
+   * @see #decode(ByteBuffer, QueryParameterVisitor)
+   */
+  public void decode(ByteBuffer buffer, QueryBuilder query) throws IOException
+  {
+    decode(buffer, addTo(query));
+  }
+
+  private static QueryParameterVisitor addTo(final QueryBuilder query)
+  {
+    return new QueryParameterVisitor()
+    {
+      @Override
+      public boolean visit(String name, String value)
+      {
+        query.addParameter(name, value);
+        return true;
+      }
+    };
+  }
+
+  /**
+   * The state of one decoding (the input can be provided in several chunks)
+   */
+  private class Decoder
+  {
+    private final QueryParameterVisitor _visitor;
+
+    // the (decoded) bytes of the name or value being read
+    private byte[] _bytes = new byte[Math.min(64, Math.max(_maxParameterSize, 1))];
+    private int _length = 0;
+
+    private String _name = null;
+    private boolean _inValue = false;
+    private boolean _empty = true;
+
+    // escape (%) pattern being read: number of hexa digits read so far (-1 if none)
+    private int _escapeDigits = -1;
+    private int _escapeValue = 0;
+
+    private int _parameterCount = 0;
+
+    // number of bytes consumed in the last chunk when the visitor stopped the decoding
+    private int _consumed = 0;
+
+    private Decoder(QueryParameterVisitor visitor)
+    {
+      _visitor = visitor;
+    }
+
+    /**
+     * @return <code>false</code> if the visitor stopped the decoding
+     */
+    private boolean decode(byte[] buffer, int offset, int len) throws IOException
+    {
+      int end = offset + len;
+      for(int i = offset; i < end; i++)
+      {
+        int b = buffer[i];
+
+        if(_escapeDigits >= 0)
+        {
+          _escapeValue = (_escapeValue << 4) | hexaValue(b);
+          if(++_escapeDigits == 2)
+          {
+            append(_escapeValue);
+            _escapeDigits = -1;
+          }
+          continue;
+        }
+
+        switch(b)
+        {
+          case '&':
+            if(!endParameter())
+            {
+              _consumed = i + 1 - offset;
+              return false;
+            }
+            break;
+
+          case '=':
+            if(_inValue)
+            {
+              append(b);
+            }
+            else
+            {
+              _name = decodeBytes();
+              _inValue = true;
+              _empty = false;
+            }
+            break;
+
+          case '+':
+            append(' ');
+            break;
+
+          case '%':
+            _escapeDigits = 0;
+            _escapeValue = 0;
+            _empty = false;
+            break;
+
+          default:
+            append(b);
+            break;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * Called when there is no more input
+     */
+    private void end() throws IOException
+    {
+      if(_escapeDigits >= 0)
+        throw new IllegalArgumentException("Incomplete trailing escape (%) pattern");
+
+      endParameter();
+    }
+
+    /**
+     * @return <code>false</code> if the visitor stopped the decoding
+     */
+    private boolean endParameter() throws IOException
+    {
+      // we skip empty parameters (&&)
+      if(_empty)
+        return true;
+
+      if(++_parameterCount > _maxParameterCount)
+        throw new FormLimitExceededException("too many parameters (max: " +
+                                             _maxParameterCount + ")");
+
+      String name;
+      String value;
+      if(_inValue)
+      {
+        name = _name;
+        value = decodeBytes();
+      }
+      else
+      {
+        name = decodeBytes();
+        value = null;
+      }
+
+      _name = null;
+      _inValue = false;
+      _empty = true;
+
+      return _visitor.visit(name, value);
+    }
+
+    private void append(int b) throws FormLimitExceededException
+    {
+      _empty = false;
+
+      if(_length == _maxParameterSize)
+        throw new FormLimitExceededException("parameter too big (max: " +
+                                             getMaxParameterSize() + ")");
+
+      if(_length == _bytes.length)
+      {
+        byte[] bytes = new byte[(int) Math.min((long) _length * 2, _maxParameterSize)];
+        System.arraycopy(_bytes, 0, bytes, 0, _length);
+        _bytes = bytes;
+      }
+
+      _bytes[_length++] = (byte) b;
+    }
+
+    private String decodeBytes()
+    {
+      String s;
+      if(_length == 0)
+        s = "";
+      else
+        s = new String(_bytes, 0, _length, _charset);
+      _length = 0;
+      return s;
+    }
+  }
+
+  private static int hexaValue(int b)
+  {
+    if(b >= '0' && b <= '9')
+      return b - '0';
+    if(b >= 'A' && b <= 'F')
+      return b - 'A' + 10;
+    if(b >= 'a' && b <= 'f')
+      return b - 'a' + 10;
+    throw new IllegalArgumentException("Illegal hex characters in escape (%) pattern: " + (char) b);
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of a url (see {@link URLBuilder#freeze()}) meant to be used as a key
+ * (typically after {@link URLBuilder#createCanonicalURL()}): the url string and a 64 bits hash
+ * of it are computed once, so {@link #hashCode()} is free and {@link #equals(Object)} compares
+ * the hashes before comparing the strings. This class is thread safe.
+ *
+ * @author yan@pongasoft.com
+ */
+public class FrozenURL implements URL, Serializable
+{
+  private static final long serialVersionUID = 1L;
+
+  // FNV-1a (64 bits)
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final URLBuilder _url;
+  private final String _urlString;
+  private final long _hash64;
+  private final List<String> _pathComponents;
+  private final Query _query;
+
+  /**
+   * @param url the url to freeze (owned by this object from now on)
+   */
+  FrozenURL(URLBuilder url)
+  {
+    _url = url;
+    _urlString = url.getURL();
+    _hash64 = hash64(_urlString);
+    _pathComponents = Collections.unmodifiableList(url.getPathComponents());
+
+    QueryBuilder query = (QueryBuilder) url.getQuery();
+    // computes (and caches) everything up front so that reading the query never modifies it
+    query.getQuery();
+    _query = new ReadOnlyQuery(query);
+  }
+
+  /**
+   * @return the 64 bits hash of the url (computed once)
+   */
+  public long getHash64()
+  {
+    return _hash64;
+  }
+
+  @Override
+  public String getURL()
+  {
+    return _urlString;
+  }
+
+  @Override
+  public String getPath()
+  {
+    return _url.getPath();
+  }
+
+  @Override
+  public List<String> getPathComponents()
+  {
+    return _pathComponents;
+  }
+
+  @Override
+  public String getFragment()
+  {
+    return _url.getFragment();
+  }
+
+  @Override
+  public String getQueryString()
+  {
+    return _query.getQuery();
+  }
+
+  @Override
+  public Query getQuery()
+  {
+    return _query;
+  }
+
+  @Override
+  public boolean getHasPath()
+  {
+    return _url.getHasPath();
+  }
+
+  @Override
+  public boolean getHasFragment()
+  {
+    return _url.getHasFragment();
+  }
+
+  @Override
+  public boolean getHasQueryParameters()
+  {
+    return _query.getHasQueryParameters();
+  }
+
+  @Override
+  public String getScheme()
+  {
+    return _url.getScheme();
+  }
+
+  @Override
+  public boolean getHasScheme()
+  {
+    return _url.getHasScheme();
+  }
+
+  @Override
+  public String getUserInfo()
+  {
+    return _url.getUserInfo();
+  }
+
+  @Override
+  public boolean getHasUserInfo()
+  {
+    return _url.getHasUserInfo();
+  }
+
+  @Override
+  public String getHost()
+  {
+    return _url.getHost();
+  }
+
+  @Override
+  public boolean getHasHost()
+  {
+    return _url.getHasHost();
+  }
+
+  @Override
+  public int getPort()
+  {
+    return _url.getPort();
+  }
+
+  @Override
+  public boolean getHasPort()
+  {
+    return _url.getHasPort();
+  }
+
+  /**
+   * @return a new (mutable) relative url
+   */
+  @Override
+  public URL createRelativeURL()
+  {
+    return _url.createRelativeURL();
+  }
+
+  @Override
+  public java.net.URL toJavaURL()
+  {
+    return _url.toJavaURL();
+  }
+
+  /**
+   * @return a new (mutable) builder initialized with this url
+   */
+  public URLBuilder toURLBuilder()
+  {
+    return _url.deepClone();
+  }
+
+  @Override
+  public String toString()
+  {
+    return _urlString;
+  }
+
+  /**
+   * The caches of the query are not serialized: computes them again
+   */
+  private Object readResolve()
+  {
+    return new FrozenURL(_url);
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if(this == o) return true;
+    if(o == null || getClass() != o.getClass()) return false;
+
+    final FrozenURL that = (FrozenURL) o;
+
+    return _hash64 == that._hash64 && _urlString.equals(that._urlString);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return (int) (_hash64 ^ (_hash64 >>> 32));
+  }
+
+  /**
+   * @return the FNV-1a hash of the chars of the string
+   */
+  static long hash64(String s)
+  {
+    long hash = FNV_OFFSET_BASIS;
+    int len = s.length();
+    for(int i = 0; i < len; i++)
+    {
+      char c = s.charAt(i);
+      hash ^= c & 0xff;
+      hash *= FNV_PRIME;
+      hash ^= c >>> 8;
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * Hides the query builder (so that it cannot be modified with a cast)
+   */
+  private static class ReadOnlyQuery implements Query, Serializable
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final QueryBuilder _query;
+
+    // copy of the parameter map of the builder (the arrays are copied as well): shares no state
+    // with the builder
+    private final Map<String, String[]> _parameterMap;
+
+    private ReadOnlyQuery(QueryBuilder query)
+    {
+      _query = query;
+
+      Map<String, String[]> parameterMap = new LinkedHashMap<String, String[]>();
+      for(Map.Entry<String, String[]> entry : query.getParameterMap().entrySet())
+        parameterMap.put(entry.getKey(), entry.getValue().clone());
+      _parameterMap = Collections.unmodifiableMap(parameterMap);
+    }
+
+    @Override
+    public boolean getHasQueryParameters()
+    {
+      return _query.getHasQueryParameters();
+    }
+
+    @Override
+    public Iterator<String> getParameterNames()
+    {
+      return _parameterMap.keySet().iterator();
+    }
+
+    @Override
+    public String getQuery()
+    {
+      return _query.getQuery();
+    }
+
+    @Override
+    public String[] getParameterValues(String name)
+    {
+      String[] values = _query.getParameterValues(name);
+      return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap()
+    {
+      return _parameterMap;
+    }
+
+    @Override
+    public String getParameter(String name)
+    {
+      return _query.getParameter(name);
+    }
+
+    @Override
+    public String getEncoding()
+    {
+      return _query.getEncoding();
+    }
+
+    @Override
+    public boolean getBooleanParameter(String name)
+    {
+      return _query.getBooleanParameter(name);
+    }
+
+    @Override
+    public int getIntParameter(String name, int defaultValue)
+    {
+      return _query.getIntParameter(name, defaultValue);
+    }
+
+    @Override
+    public String toString()
+    {
+      return getQuery();
+    }
+  }
+}
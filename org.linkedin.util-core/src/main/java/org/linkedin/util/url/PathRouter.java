@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes request paths to targets. The route patterns are made of segments separated by
+ * <code>/</code>: literal segments (matched as is against the raw path, ex: <code>profile</code>),
+ * variables capturing a whole segment (ex: <code>{id}</code>) and a trailing wildcard
+ * (<code>*</code>) matching whatever remains (ex: <code>/static/*</code>). The patterns are
+ * compiled in a trie of segments so that a (raw, not decoded) path is matched in one pass over
+ * its segments, without allocating them: only the values of the variables are extracted and
+ * decoded (like {@link URLBuilder#getPathComponents()}). Empty segments are ignored (like
+ * {@link URLBuilder#getPathComponents(String, String)}) and the path stops at <code>?</code> or
+ * <code>#</code>.
+ *
+ * <p>When several routes match, a literal segment wins over a variable which wins over a
+ * wildcard (segment by segment, from left to right). The routes must all be added before the
+ * router is used by several threads (routing does not modify the router).</p>
+ *
+ * @author yan@pongasoft.com
+ */
+public class PathRouter<T>
+{
+  private static final String WILDCARD = "*";
+
+  /**
+   * A route (pattern and target)
+   */
+  private static class Route<T>
+  {
+    private final String pattern;
+    private final T target;
+    private final List<String> variableNames;
+    private final boolean wildcard;
+
+    private Route(String pattern, T target, List<String> variableNames, boolean wildcard)
+    {
+      this.pattern = pattern;
+      this.target = target;
+      this.variableNames = variableNames;
+      this.wildcard = wildcard;
+    }
+  }
+
+  /**
+   * One node of the trie (one segment)
+   */
+  private static class Node<T>
+  {
+    // sorted (binary search)
+    private String[] literals = new String[0];
+    private List<Node<T>> literalChildren = new ArrayList<Node<T>>();
+
+    private Node<T> variableChild = null;
+
+    // route ending at this node
+    private Route<T> route = null;
+
+    // route ending with a wildcard at this node
+    private Route<T> wildcardRoute = null;
+  }
+
+  /**
+   * The result of a successful routing
+   */
+  public static class Match<T>
+  {
+    private final String _pattern;
+    private final T _target;
+    private final Map<String, String> _variables;
+    private final String _remainingPath;
+
+    private Match(String pattern, T target, Map<String, String> variables, String remainingPath)
+    {
+      _pattern = pattern;
+      _target = target;
+      _variables = variables;
+      _remainingPath = remainingPath;
+    }
+
+    /**
+     * @return the pattern of the route which matched
+     */
+    public String getPattern()
+    {
+      return _pattern;
+    }
+
+    public T getTarget()
+    {
+      return _target;
+    }
+
+    /**
+     * @return the (decoded) values of the variables of the route (in the order of the pattern)
+     */
+    public Map<String, String> getVariables()
+    {
+      return _variables;
+    }
+
+    /**
+     * @return the (decoded) value of the variable (<code>null</code> if there is no such
+     * variable)
+     */
+    public String getVariable(String name)
+    {
+      return _variables.get(name);
+    }
+
+    /**
+     * @return the (raw) part of the path matched by the wildcard (<code>null</code> if the route
+     * does not end with a wildcard)
+     */
+    public String getRemainingPath()
+    {
+      return _remainingPath;
+    }
+
+    @Override
+    public String toString()
+    {
+      return _pattern + _variables;
+    }
+  }
+
+  private final Node<T> _root = new Node<T>();
+
+  // maximum number of variables in a route
+  private int _maxVariableCount = 0;
+
+  /**
+   * Adds a route
+   *
+   * @param pattern the pattern (ex: <code>/profile/{id}/connections/*</code>)
+   * @param target what the route leads to
+   * @return this router
+   * @throws IllegalArgumentException if the pattern is invalid or if there is already a route
+   * with the same pattern (variable names aside)
+   */
+  public PathRouter<T> addRoute(String pattern, T target)
+  {
+    String[] segments = splitPattern(pattern);
+
+    Node<T> node = _root;
+    List<String> variableNames = new ArrayList<String>();
+    boolean wildcard = false;
+
+    for(int i = 0; i < segments.length; i++)
+    {
+      String segment = segments[i];
+
+      if(WILDCARD.equals(segment))
+      {
+        if(i != segments.length - 1)
+          throw new IllegalArgumentException("* must be the last segment: " + pattern);
+        wildcard = true;
+      }
+      else if(segment.startsWith("{"))
+      {
+        if(!segment.endsWith("}") || segment.length() == 2)
+          throw new IllegalArgumentException("invalid variable " + segment + " in " + pattern);
+
+        String name = segment.substring(1, segment.length() - 1);
+        if(variableNames.contains(name))
+          throw new IllegalArgumentException("duplicate variable " + name + " in " + pattern);
+        variableNames.add(name);
+
+        if(node.variableChild == null)
+          node.variableChild = new Node<T>();
+        node = node.variableChild;
+      }
+      else
+      {
+        if(segment.indexOf('{') != -1 || segment.indexOf('}') != -1 || segment.indexOf('*') != -1)
+          throw new IllegalArgumentException("invalid segment " + segment + " in " + pattern);
+
+        node = literalChild(node, segment);
+      }
+    }
+
+    Route<T> route = new Route<T>(pattern,
+                                  target,
+                                  Collections.unmodifiableList(variableNames),
+                                  wildcard);
+
+    if(wildcard)
+    {
+      if(node.wildcardRoute != null)
+        throw new IllegalArgumentException("duplicate route " + pattern + " (" +
+                                           node.wildcardRoute.pattern + ")");
+      node.wildcardRoute = route;
+    }
+    else
+    {
+      if(node.route != null)
+        throw new IllegalArgumentException("duplicate route " + pattern + " (" +
+                                           node.route.pattern + ")");
+      node.route = route;
+    }
+
+    _maxVariableCount = Math.max(_maxVariableCount, variableNames.size());
+
+    return this;
+  }
+
+  /**
+   * @return the child of the node for the segment (created if it does not exist)
+   */
+  private Node<T> literalChild(Node<T> node, String segment)
+  {
+    String[] literals = node.literals;
+
+    int idx = binarySearch(literals, segment, 0, segment.length());
+    if(idx >= 0)
+      return node.literalChildren.get(idx);
+
+    idx = -(idx + 1);
+    String[] newLiterals = new String[literals.length + 1];
+    System.arraycopy(literals, 0, newLiterals, 0, idx);
+    newLiterals[idx] = segment;
+    System.arraycopy(literals, idx, newLiterals, idx + 1, literals.length - idx);
+
+    Node<T> child = new Node<T>();
+    node.literalChildren.add(idx, child);
+    node.literals = newLiterals;
+
+    return child;
+  }
+
+  /**
+   * Routes the path
+   *
+   * @param path the raw path (ex: <code>/profile/12345</code>)
+   * @return the match (<code>null</code> if no route matches)
+   */
+  public Match<T> route(String path)
+  {
+    return route(path, 0);
+  }
+
+  /**
+   * Routes the part of the request uri after the servlet path (same as
+   * {@link URLBuilder#getPathComponents(String, String)})
+   *
+   * @return the match (<code>null</code> if no route matches or if the servlet path is not in the
+   * request uri)
+   */
+  public Match<T> route(String requestURI, String servletPath)
+  {
+    if(requestURI == null || servletPath == null || servletPath.length() == 0)
+      return null;
+
+    int idx = requestURI.indexOf(servletPath);
+    if(idx == -1)
+      return null;
+
+    return route(requestURI, idx + servletPath.length());
+  }
+
+  private Match<T> route(String path, int start)
+  {
+    int end = start;
+    int len = path.length();
+    while(end < len)
+    {
+      char c = path.charAt(end);
+      if(c == '?' || c == '#')
+        break;
+      end++;
+    }
+
+    Matcher matcher = new Matcher(path, end, _maxVariableCount);
+    Route<T> route = matcher.match(_root, start, 0);
+    if(route == null)
+      return null;
+
+    Map<String, String> variables;
+    if(route.variableNames.isEmpty())
+    {
+      variables = Collections.emptyMap();
+    }
+    else
+    {
+      variables = new LinkedHashMap<String, String>();
+      int[] captures = matcher._captures;
+      for(int i = 0; i < route.variableNames.size(); i++)
+      {
+        String value = path.substring(captures[2 * i], captures[2 * i + 1]);
+        variables.put(route.variableNames.get(i), URLBuilder.urlDecode(value));
+      }
+      variables = Collections.unmodifiableMap(variables);
+    }
+
+    String remainingPath = null;
+    if(route.wildcard)
+      remainingPath = path.substring(matcher._remainingPathStart, end);
+
+    return new Match<T>(route.pattern, route.target, variables, remainingPath);
+  }
+
+  /**
+   * The state of one routing
+   */
+  private class Matcher
+  {
+    private final String _path;
+    private final int _end;
+
+    // start and end of each captured variable
+    private final int[] _captures;
+
+    private int _remainingPathStart;
+
+    private Matcher(String path, int end, int maxVariableCount)
+    {
+      _path = path;
+      _end = end;
+      _captures = new int[2 * maxVariableCount];
+    }
+
+    /**
+     * @param node the node matching the segments before <code>pos</code>
+     * @param variableCount the number of variables captured before <code>pos</code>
+     * @return the route (<code>null</code> if none)
+     */
+    private Route<T> match(Node<T> node, int pos, int variableCount)
+    {
+      String path = _path;
+      int end = _end;
+
+      // empty segments are ignored
+      while(pos < end && path.charAt(pos) == '/')
+        pos++;
+
+      if(pos == end)
+      {
+        if(node.route != null)
+          return node.route;
+        if(node.wildcardRoute != null)
+        {
+          _remainingPathStart = pos;
+          return node.wildcardRoute;
+        }
+        return null;
+      }
+
+      int segmentEnd = pos;
+      while(segmentEnd < end && path.charAt(segmentEnd) != '/')
+        segmentEnd++;
+
+      Route<T> route;
+
+      int idx = binarySearch(node.literals, path, pos, segmentEnd);
+      if(idx >= 0)
+      {
+        route = match(node.literalChildren.get(idx), segmentEnd, variableCount);
+        if(route != null)
+          return route;
+      }
+
+      if(node.variableChild != null)
+      {
+        route = match(node.variableChild, segmentEnd, variableCount + 1);
+        if(route != null)
+        {
+          _captures[2 * variableCount] = pos;
+          _captures[2 * variableCount + 1] = segmentEnd;
+          return route;
+        }
+      }
+
+      if(node.wildcardRoute != null)
+      {
+        _remainingPathStart = pos;
+        return node.wildcardRoute;
+      }
+
+      return null;
+    }
+  }
+
+  /**
+   * Binary search of the segment (<code>s[start, end[</code>) in the sorted literals (same
+   * contract as <code>Arrays.binarySearch</code>)
+   */
+  private static int binarySearch(String[] literals, String s, int start, int end)
+  {
+    int low = 0;
+    int high = literals.length - 1;
+
+    while(low <= high)
+    {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(literals[mid], s, start, end);
+      if(cmp < 0)
+        low = mid + 1;
+      else if(cmp > 0)
+        high = mid - 1;
+      else
+        return mid;
+    }
+
+    return -(low + 1);
+  }
+
+  /**
+   * Same as <code>literal.compareTo(s.substring(start, end))</code> without the substring
+   */
+  private static int compare(String literal, String s, int start, int end)
+  {
+    int len1 = literal.length();
+    int len2 = end - start;
+    int min = Math.min(len1, len2);
+    for(int i = 0; i < min; i++)
+    {
+      char c1 = literal.charAt(i);
+      char c2 = s.charAt(start + i);
+      if(c1 != c2)
+        return c1 - c2;
+    }
+    return len1 - len2;
+  }
+
+  /**
+   * @return the (non empty) segments of the pattern
+   */
+  private static String[] splitPattern(String pattern)
+  {
+    List<String> segments = new ArrayList<String>();
+    int len = pattern.length();
+    int start = 0;
+    while(start < len)
+    {
+      int end = pattern.indexOf('/', start);
+      if(end == -1)
+        end = len;
+      if(end > start)
+        segments.add(pattern.substring(start, end));
+      start = end + 1;
+    }
+    return segments.toArray(new String[segments.size()]);
+  }
+}
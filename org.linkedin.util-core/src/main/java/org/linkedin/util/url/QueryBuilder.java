@@ -16,6 +16,10 @@
 
 package org.linkedin.util.url;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
@@ -24,13 +28,18 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.linkedin.util.lang.LangUtils;
 import org.linkedin.util.text.StringSplitter;
 import org.linkedin.util.text.TextUtils;
 
 /**
- * Represents the query part in the URL
+ * Represents the query part in the URL. The parameters are kept in a (doubly) linked list in the
+ * order in which they were added: each parameter is stored once (name and value, decoded and
+ * encoded, each form being computed only when needed). The index by name (used to access,
+ * remove or replace the parameters) is built only when needed and the query string is built
+ * (and cached) only when requested.
  *
  * @author ypujante@linkedin.com
  */
@@ -38,13 +47,56 @@ public class QueryBuilder implements Query, Serializable
 {
   private static final long serialVersionUID = 1L;
 
+  // same serialized form as the previous implementation (which stored the query string)
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("_queryParameters", Map.class),
+    new ObjectStreamField("_query", StringBuilder.class),
+    new ObjectStreamField("_urlCodec", URLCodec.class)
+  };
+
   private static StringSplitter SS = new StringSplitter('&');
 
   /**
-   * key = name (<code>String</code>), value = values (<code>String[]</code>) */
-  private Map<String, String[]> _queryParameters = null;
-  private final StringBuilder _query = new StringBuilder();
-  private final URLCodec _urlCodec;
+   * One parameter (<code>name=value</code>) of the query
+   */
+  private static class Parameter
+  {
+    private String name;
+    private String value;
+    private String encodedName;
+    private String encodedValue;
+
+    private Parameter previous;
+    private Parameter next;
+
+    // next parameter with the same name (maintained only while the index exists)
+    private Parameter nextWithSameName;
+  }
+
+  /**
+   * All the parameters with the same name
+   */
+  private static class Values
+  {
+    private Parameter first;
+    private Parameter last;
+    private int count;
+
+    // cache
+    private String[] values;
+  }
+
+  private transient Parameter _first = null;
+  private transient Parameter _last = null;
+
+  /**
+   * key = name, value = parameters with this name (<code>null</code> until needed) */
+  private transient Map<String, Values> _index = null;
+
+  private transient Map<String, String[]> _parameterMap = null;
+  private transient String _query = null;
+
+  private URLCodec _urlCodec;
 
   /**
    * Constructor */
@@ -82,7 +134,7 @@ public class QueryBuilder implements Query, Serializable
   @Override
   public boolean getHasQueryParameters()
   {
-    return _query.length() > 0;
+    return _first != null;
   }
 
   /**
@@ -98,7 +150,30 @@ public class QueryBuilder implements Query, Serializable
   @Override
   public String getQuery()
   {
-    return _query.toString();
+    String query = _query;
+
+    if(query == null)
+    {
+      StringBuilder sb = new StringBuilder();
+      for(Parameter parameter = _first; parameter != null; parameter = parameter.next)
+      {
+        if(parameter != _first)
+          sb.append('&');
+
+        if(parameter.encodedName == null)
+          parameter.encodedName = encode(parameter.name);
+        sb.append(parameter.encodedName);
+
+        if(parameter.encodedValue == null && parameter.value != null)
+          parameter.encodedValue = encode(parameter.value);
+        if(parameter.encodedValue != null)
+          sb.append('=').append(parameter.encodedValue);
+      }
+      query = sb.toString();
+      _query = query;
+    }
+
+    return query;
   }
 
   /**
@@ -109,7 +184,7 @@ public class QueryBuilder implements Query, Serializable
   @Override
   public String[] getParameterValues(String name)
   {
-    return getMap().get(name);
+    return getValues(getIndex().get(name));
   }
 
   /**
@@ -117,7 +192,20 @@ public class QueryBuilder implements Query, Serializable
   @Override
   public Map<String,String[]> getParameterMap()
   {
-    return Collections.unmodifiableMap(getMap());
+    Map<String, String[]> parameterMap = _parameterMap;
+
+    if(parameterMap == null)
+    {
+      parameterMap = new LinkedHashMap<String, String[]>();
+      for(Map.Entry<String, Values> entry : getIndex().entrySet())
+      {
+        parameterMap.put(entry.getKey(), getValues(entry.getValue()));
+      }
+      parameterMap = Collections.unmodifiableMap(parameterMap);
+      _parameterMap = parameterMap;
+    }
+
+    return parameterMap;
   }
 
   /**
@@ -188,21 +276,6 @@ public class QueryBuilder implements Query, Serializable
     addParameter(name, "");
   }
 
-  /**
-   * Add query parameter to query string.
-   * 
-   * @param name
-   * @param value
-   */
-  private void addQueryParameter(String name, String value)
-  {
-    if(_query.length() > 0)
-      _query.append('&');
-    _query.append(encode(name));
-    _query.append('=');
-    _query.append(encode(value));
-  }
-  
   /**
    * Adds the query parameter
    *
@@ -210,70 +283,102 @@ public class QueryBuilder implements Query, Serializable
    * @param value */
   public void addParameter(String name, String value)
   {
-    addQueryParameter(name, value);
-    
-    if(_queryParameters != null)
-      addParameterToMap(name, value);
+    Parameter parameter = new Parameter();
+    parameter.name = name;
+    parameter.value = value;
+    addParameter(parameter);
   }
 
   /**
-   * Adds the query parameter
-   *
-   * @param name
-   * @param value */
-  private void addParameterToMap(String name, String value)
+   * Adds the parameter at the end of the list
+   */
+  private void addParameter(Parameter parameter)
   {
-    String[] params = getParameterValues(name);
-    if(params == null)
+    link(parameter, null);
+
+    if(_index != null)
+      addToIndex(parameter);
+
+    modified();
+  }
+
+  /**
+   * Adds the parameter to the list at the end (or before <code>before</code>)
+   */
+  private void link(Parameter parameter, Parameter before)
+  {
+    if(before == null)
     {
-      params = new String[1];
-      params[0] = value;
-      _queryParameters.put(name, params);
+      parameter.previous = _last;
+      if(_last == null)
+        _first = parameter;
+      else
+        _last.next = parameter;
+      _last = parameter;
     }
     else
     {
-      int len = params.length;
-      String[] newParams = new String[len + 1];
-      System.arraycopy(params, 0, newParams, 0, len);
-      newParams[len] = value;
-      _queryParameters.put(name, newParams);
+      parameter.previous = before.previous;
+      parameter.next = before;
+      if(before.previous == null)
+        _first = parameter;
+      else
+        before.previous.next = parameter;
+      before.previous = parameter;
     }
   }
 
   /**
-   * Adds the query parameter
-   *
-   * @param name
-   * @param values */
-  public void addParameters(String name, String[] values)
+   * Removes the parameter from the list (not from the index)
+   */
+  private void unlink(Parameter parameter)
   {
-    if(_query.length() > 0)
-      _query.append('&');
+    if(parameter.previous == null)
+      _first = parameter.next;
+    else
+      parameter.previous.next = parameter.next;
 
-    String encodedName = encode(name);
-    for(int i = 0; i < values.length; i++)
-    {
-      if(i > 0)
-        _query.append('&');
-      _query.append(encodedName);
-      _query.append('=');
-      _query.append(encode(values[i]));
-    }
+    if(parameter.next == null)
+      _last = parameter.previous;
+    else
+      parameter.next.previous = parameter.previous;
 
-    if(_queryParameters != null)
-      addParametersToMap(name, values);
+    parameter.previous = null;
+    parameter.next = null;
+    parameter.nextWithSameName = null;
   }
 
   /**
-   * Adds the map of parameters
-   * @param parameters
+   * Adds the parameter to the index
    */
-  public void addParameters(Map<String, String[]> parameters)
+  private void addToIndex(Parameter parameter)
   {
-    for(Map.Entry<String, String[]> entry : parameters.entrySet())
+    if(parameter.name == null)
+      parameter.name = decode(parameter.encodedName);
+
+    Values values = _index.get(parameter.name);
+    if(values == null)
     {
-      addParameters(entry.getKey(), entry.getValue());
+      values = new Values();
+      values.first = parameter;
+      _index.put(parameter.name, values);
     }
+    else
+    {
+      values.last.nextWithSameName = parameter;
+      values.values = null;
+    }
+    values.last = parameter;
+    values.count++;
+  }
+
+  /**
+   * Must be called whenever the parameters are modified (invalidates the caches)
+   */
+  private void modified()
+  {
+    _query = null;
+    _parameterMap = null;
   }
 
   /**
@@ -281,20 +386,23 @@ public class QueryBuilder implements Query, Serializable
    *
    * @param name
    * @param values */
-  private void addParametersToMap(String name, String[] values)
+  public void addParameters(String name, String[] values)
   {
-    String[] params = getParameterValues(name);
-    if(params == null)
+    for(String value : values)
     {
-      _queryParameters.put(name, values);
+      addParameter(name, value);
     }
-    else
+  }
+
+  /**
+   * Adds the map of parameters
+   * @param parameters
+   */
+  public void addParameters(Map<String, String[]> parameters)
+  {
+    for(Map.Entry<String, String[]> entry : parameters.entrySet())
     {
-      int len = params.length;
-      String[] newParams = new String[len + values.length];
-      System.arraycopy(params, 0, newParams, 0, len);
-      System.arraycopy(values, 0, newParams, len, values.length);
-      _queryParameters.put(name, newParams);
+      addParameters(entry.getKey(), entry.getValue());
     }
   }
 
@@ -423,15 +531,47 @@ public class QueryBuilder implements Query, Serializable
     if(validate)
       validateQuery(query);
 
-    if(_query.length() > 0)
-      _query.append('&');
+    addQuery(query, 0, query.length());
+  }
+
+  /**
+   * Adds the (properly encoded and valid) query contained in <code>query</code> between
+   * <code>start</code> (inclusive) and <code>end</code> (exclusive). The parameters are kept
+   * encoded (decoded only when needed).
+   */
+  void addQuery(String query, int start, int end)
+  {
+    while(start < end)
+    {
+      int next = query.indexOf('&', start);
+      if(next == -1 || next > end)
+        next = end;
 
-    _query.append(query);
+      if(next > start)
+      {
+        Parameter parameter = new Parameter();
+
+        int idx = start;
+        while(idx < next && query.charAt(idx) != '=')
+          idx++;
+
+        if(idx == next)
+        {
+          parameter.encodedName = query.substring(start, next);
+        }
+        else
+        {
+          parameter.encodedName = query.substring(start, idx);
+          parameter.encodedValue = query.substring(idx + 1, next);
+        }
+        addParameter(parameter);
+      }
 
-    if(_queryParameters != null)
-      addQueryToMap(query);
+      start = next + 1;
+    }
   }
 
+
   /**
    * Internal method in charge of validating the query provided. Exception
    * when query is not valid.
@@ -459,29 +599,6 @@ public class QueryBuilder implements Query, Serializable
     }
   }
 
-  /**
-   * Simply adds the query provided. It is assumed that the query is properly
-   * encoded for url!
-   *
-   * @param query the properly url encoded query */
-  private void addQueryToMap(String query)
-  {
-    String[] params = SS.split(query);
-    for(int i = 0; i < params.length; i++)
-    {
-      String param = params[i];
-      if(param.length() == 0)
-        continue;
-
-      int idx = param.indexOf('=');
-      if(idx == -1)
-        addParameterToMap(decode(param), null);
-      else
-        addParameterToMap(decode(param.substring(0, idx)),
-            decode(param.substring(idx + 1)));
-    }
-  }
-
   /**
    * Simply adds the query provided.
    *
@@ -495,7 +612,23 @@ public class QueryBuilder implements Query, Serializable
       if(!query.getEncoding().equals(getEncoding()))
         throw new RuntimeException("TODO");
 
-      addQuery(query.getQuery(), false);
+      if(query instanceof QueryBuilder)
+      {
+        // no need to go through the string representation
+        for(Parameter parameter = ((QueryBuilder) query)._first;
+            parameter != null;
+            parameter = parameter.next)
+        {
+          Parameter copy = new Parameter();
+          copy.name = parameter.name;
+          copy.value = parameter.value;
+          copy.encodedName = parameter.encodedName;
+          copy.encodedValue = parameter.encodedValue;
+          addParameter(copy);
+        }
+      }
+      else
+        addQuery(query.getQuery(), false);
     }
     catch(URISyntaxException e)
     {
@@ -509,8 +642,10 @@ public class QueryBuilder implements Query, Serializable
    * from scratch again */
   public void reset()
   {
-    _query.setLength(0);
-    _queryParameters = null;
+    _first = null;
+    _last = null;
+    _index = null;
+    modified();
   }
 
   /**
@@ -530,7 +665,7 @@ public class QueryBuilder implements Query, Serializable
     final QueryBuilder that = (QueryBuilder) o;
 
     if(!_urlCodec.equals(that._urlCodec)) return false;
-    if(!_query.toString().equals(that._query.toString())) return false;
+    if(!getQuery().equals(that.getQuery())) return false;
 
     return true;
   }
@@ -539,24 +674,54 @@ public class QueryBuilder implements Query, Serializable
   public int hashCode()
   {
     int result;
-    result = _query.hashCode();
+    result = getQuery().hashCode();
     result = 29 * result + _urlCodec.hashCode();
     return result;
   }
 
   /**
-   * Internal call that will return the map. If <code>null</code> then first
+   * Internal call that will return the index. If <code>null</code> then first
    * populate it
-   * @return the map  */
-  private Map<String,String[]> getMap()
+   * @return the index  */
+  private Map<String, Values> getIndex()
   {
-    if(_queryParameters != null)
-      return _queryParameters;
+    if(_index != null)
+      return _index;
 
-    _queryParameters = new LinkedHashMap<String,String[]>();
-    addQueryToMap(_query.toString());
+    _index = new LinkedHashMap<String, Values>();
+    for(Parameter parameter = _first; parameter != null; parameter = parameter.next)
+    {
+      parameter.nextWithSameName = null;
+      addToIndex(parameter);
+    }
 
-    return _queryParameters;
+    return _index;
+  }
+
+  /**
+   * @return the (decoded) values (<code>null</code> if <code>values</code> is <code>null</code>)
+   */
+  private String[] getValues(Values values)
+  {
+    if(values == null)
+      return null;
+
+    if(values.values == null)
+    {
+      String[] array = new String[values.count];
+      int i = 0;
+      for(Parameter parameter = values.first;
+          parameter != null;
+          parameter = parameter.nextWithSameName)
+      {
+        if(parameter.value == null && parameter.encodedValue != null)
+          parameter.value = decode(parameter.encodedValue);
+        array[i++] = parameter.value;
+      }
+      values.values = array;
+    }
+
+    return values.values;
   }
 
   /**
@@ -568,6 +733,22 @@ public class QueryBuilder implements Query, Serializable
     return query;
   }
 
+  /**
+   * @return a copy of this query with the parameters sorted by name (the values of a parameter
+   * stay in the same order) and all encoded the same way, whatever their original encoding was
+   * (<code>a+b</code> and <code>a%20b</code> for example) */
+  public QueryBuilder createCanonicalQuery()
+  {
+    QueryBuilder query = new QueryBuilder(_urlCodec);
+    Map<String, String[]> parameters = new TreeMap<String, String[]>(getParameterMap());
+    for(Map.Entry<String, String[]> entry : parameters.entrySet())
+    {
+      for(String value : entry.getValue())
+        query.addParameter(entry.getKey(), value);
+    }
+    return query;
+  }
+
   /**
    * Encodes the string
    *
@@ -623,25 +804,6 @@ public class QueryBuilder implements Query, Serializable
     return sb.toString();
   }
 
-  /**
-   * Rebuild query instance with values in the map. 
-   */
-  private void rebuildQuery()
-  {
-    Map<String, String[]> map = getMap();
-    
-    // reset query instance and re-populate it again
-    _query.setLength(0);
-    for (String key : map.keySet())
-    {
-      String[] parameters = map.get(key);
-      for (String param : parameters)
-      {
-        addQueryParameter(key, param);
-      }
-    }
-  }
-  
   /**
    * Remove parameter with given name and
    * return its previous value.
@@ -650,15 +812,10 @@ public class QueryBuilder implements Query, Serializable
    */
   public void removeParameters(String... parameterNames)
   {
-    Map<String, String[]> map = getMap();
-    boolean needsRebuild = false;
     for (String name : parameterNames)
     {
-      if(map.remove(name) != null)
-        needsRebuild = true;
+      removeParameter(name);
     }
-    if(needsRebuild)
-      rebuildQuery();
   }
   
   /**
@@ -670,27 +827,92 @@ public class QueryBuilder implements Query, Serializable
    */
   public String[] removeParameter(String name)
   {
-    Map<String, String[]> map = getMap();
-    String[] v = map.remove(name);
-    if(v != null)
-      rebuildQuery();    
+    Values values = getIndex().remove(name);
+    if(values == null)
+      return null;
+
+    String[] v = getValues(values);
+    unlinkAll(values);
+    modified();
     return v;
   }
   
   /**
    * Replace existing or add new parameter with given
    * value. Any existing parameter values are
-   * deleted prior to adding the new value.
+   * deleted prior to adding the new value. The new parameter takes the place of the first
+   * existing one.
    *  
    * @param name parameter to replace
    * @return previous values or null if parameter doesn't exist
    */
   public String[] replaceParameter(String name, String value)
   {
-    Map<String, String[]> map = getMap();
-    String[] v = map.put(name, new String[] { value });
-    rebuildQuery();
+    Parameter parameter = new Parameter();
+    parameter.name = name;
+    parameter.value = value;
+
+    Values values = getIndex().get(name);
+    if(values == null)
+    {
+      addParameter(parameter);
+      return null;
+    }
+
+    String[] v = getValues(values);
+
+    link(parameter, values.first);
+    unlinkAll(values);
+
+    // the entry in the index keeps its position
+    values.first = parameter;
+    values.last = parameter;
+    values.count = 1;
+    values.values = null;
+
+    modified();
     return v;
   }
-  
+
+  /**
+   * Removes all the parameters from the list
+   */
+  private void unlinkAll(Values values)
+  {
+    Parameter parameter = values.first;
+    while(parameter != null)
+    {
+      Parameter next = parameter.nextWithSameName;
+      unlink(parameter);
+      parameter = next;
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException
+  {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("_queryParameters", null);
+    fields.put("_query", new StringBuilder(getQuery()));
+    fields.put("_urlCodec", _urlCodec);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+  {
+    ObjectInputStream.GetField fields = in.readFields();
+    _urlCodec = (URLCodec) fields.get("_urlCodec", null);
+    StringBuilder query = (StringBuilder) fields.get("_query", null);
+    if(query != null)
+    {
+      try
+      {
+        addQuery(query.toString(), false);
+      }
+      catch(URISyntaxException e)
+      {
+        // cannot happen since there is no validation
+        throw new RuntimeException(e);
+      }
+    }
+  }
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+/**
+ * Called for each parameter decoded by a {@link FormDecoder}.
+ *
+ * @author yan@pongasoft.com
+ */
+public interface QueryParameterVisitor
+{
+  /**
+   * @param name the (decoded) name of the parameter
+   * @param value the (decoded) value of the parameter (<code>null</code> when there is no
+   *              <code>=</code> sign)
+   * @return <code>true</code> to continue decoding, <code>false</code> to stop
+   */
+  boolean visit(String name, String value);
+}
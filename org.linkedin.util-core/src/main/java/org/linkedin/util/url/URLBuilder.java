@@ -23,6 +23,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -41,6 +42,16 @@ public class URLBuilder implements URL, Serializable
 
   private static StringSplitter SS = new StringSplitter('/');
 
+  /**
+   * key = scheme, value = default port (dropped by {@link #createCanonicalURL()}) */
+  private static final Map<String, Integer> DEFAULT_PORTS = new HashMap<String, Integer>();
+  static
+  {
+    DEFAULT_PORTS.put("http", 80);
+    DEFAULT_PORTS.put("https", 443);
+    DEFAULT_PORTS.put("ftp", 21);
+  }
+
   private String _scheme = null;
   private String _userInfo = null;
   private String _host = null;
@@ -70,6 +81,7 @@ public class URLBuilder implements URL, Serializable
     _path = other._path;
     _query = other._query.deepClone();
     _fragment = other._fragment;
+    _escapeFragment = other._escapeFragment;
   }
 
   @Override
@@ -665,6 +677,146 @@ public class URLBuilder implements URL, Serializable
     return new URLBuilder(this);
   }
 
+  /**
+   * Creates the canonical form of this url which is meant to be used as a key: 2 urls which
+   * differ only by the case of the scheme or host, a default port, the order of the query
+   * parameters or the way characters are escaped have the same canonical form. The scheme and
+   * host are lower cased, the default port of the scheme (http, https, ftp) is dropped, an empty
+   * path becomes <code>/</code> (when there is a host), the escapes in the path are normalized
+   * (unreserved characters are decoded and hexa digits upper cased) and the query parameters are
+   * sorted and re-encoded (see {@link QueryBuilder#createCanonicalQuery()}).
+   *
+   * @return a new url (this one is not modified) */
+  public URLBuilder createCanonicalURL()
+  {
+    URLBuilder url = new URLBuilder();
+
+    url._scheme = _scheme == null ? null : toLowerCase(_scheme);
+    url._userInfo = _userInfo;
+    url._host = _host == null ? null : toLowerCase(_host);
+
+    url._port = _port;
+    Integer defaultPort = url._scheme == null ? null : DEFAULT_PORTS.get(url._scheme);
+    if(defaultPort != null && defaultPort == _port)
+      url._port = -1;
+
+    if(_path != null)
+      url._path = normalizeEscapes(_path);
+    else if(_host != null)
+      url._path = "/";
+
+    url._query = _query.createCanonicalQuery();
+    url._fragment = _fragment;
+    url._escapeFragment = _escapeFragment;
+
+    return url;
+  }
+
+  /**
+   * @return an immutable snapshot of this url (later changes to this builder do not affect it) */
+  public FrozenURL freeze()
+  {
+    return new FrozenURL(deepClone());
+  }
+
+  /**
+   * Lower cases the ascii letters only (host names and schemes are ascii)
+   */
+  private static String toLowerCase(String s)
+  {
+    int len = s.length();
+    int i = 0;
+    while(i < len)
+    {
+      char c = s.charAt(i);
+      if(c >= 'A' && c <= 'Z')
+        break;
+      i++;
+    }
+
+    if(i == len)
+      return s;
+
+    char[] chars = s.toCharArray();
+    for(; i < len; i++)
+    {
+      char c = chars[i];
+      if(c >= 'A' && c <= 'Z')
+        chars[i] = (char) (c + ('a' - 'A'));
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Decodes the escaped unreserved characters (<code>A-Z a-z 0-9 - . _ ~</code>) and upper cases
+   * the hexa digits of the other escapes (invalid escapes are left alone)
+   */
+  private static String normalizeEscapes(String s)
+  {
+    int idx = s.indexOf('%');
+    if(idx == -1)
+      return s;
+
+    int len = s.length();
+    StringBuilder sb = new StringBuilder(len);
+    sb.append(s, 0, idx);
+
+    int i = idx;
+    while(i < len)
+    {
+      char c = s.charAt(i);
+      int value;
+      if(c == '%' && i + 2 < len && (value = hexaValue(s.charAt(i + 1), s.charAt(i + 2))) != -1)
+      {
+        char decoded = (char) value;
+        if((decoded >= 'a' && decoded <= 'z') ||
+           (decoded >= 'A' && decoded <= 'Z') ||
+           (decoded >= '0' && decoded <= '9') ||
+           decoded == '-' || decoded == '.' || decoded == '_' || decoded == '~')
+        {
+          sb.append(decoded);
+        }
+        else
+        {
+          sb.append('%');
+          sb.append(Character.toUpperCase(s.charAt(i + 1)));
+          sb.append(Character.toUpperCase(s.charAt(i + 2)));
+        }
+        i += 3;
+      }
+      else
+      {
+        sb.append(c);
+        i++;
+      }
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * @return the value of the 2 hexa digits (<code>-1</code> if they are not hexa digits)
+   */
+  private static int hexaValue(char c1, char c2)
+  {
+    int d1 = hexaValue(c1);
+    int d2 = hexaValue(c2);
+    if(d1 == -1 || d2 == -1)
+      return -1;
+    return (d1 << 4) | d2;
+  }
+
+  private static int hexaValue(char c)
+  {
+    if(c >= '0' && c <= '9')
+      return c - '0';
+    if(c >= 'A' && c <= 'F')
+      return c - 'A' + 10;
+    if(c >= 'a' && c <= 'f')
+      return c - 'a' + 10;
+    return -1;
+  }
+
   @Override
   public String toString()
   {
@@ -780,7 +932,34 @@ public class URLBuilder implements URL, Serializable
     {
       url = url.trim();
     }
-    
+
+    URLParser parser = URLParser.parse(url);
+    if(parser == null)
+      return createFromURI(url);
+
+    URLBuilder res = new URLBuilder();
+    res.setScheme(parser.getScheme());
+    res.setUserInfo(parser.getUserInfo());
+    res.setHost(parser.getHost());
+    res.setPort(parser.getPort());
+    res.setPath(parser.getPath());
+    res.setFragment(parser.getFragment());
+    if(parser.getQueryStart() != -1)
+      res._query.addQuery(url, parser.getQueryStart(), parser.getQueryEnd());
+
+    return res;
+  }
+
+  /**
+   * Factory method from a url which uses <code>java.net.URI</code> to parse it (handles the urls
+   * that {@link URLParser} does not).
+   *
+   * @param url the (trimmed) url
+   * @return the builder
+   * @throws URISyntaxException if the url is invalid */
+  static URLBuilder createFromURI(String url)
+      throws URISyntaxException
+  {
     URI uri = new URI(url);
     if (uri.isOpaque())
       throw new URISyntaxException(url, "opaque uris not supported");
@@ -16,14 +16,16 @@
 
 package org.linkedin.util.url;
 
-import org.linkedin.util.text.TextUtils;
-
 import java.io.UnsupportedEncodingException;
 import java.io.Serializable;
-import java.net.URLEncoder;
-import java.net.URLDecoder;
+import java.nio.charset.Charset;
 
 /**
+ * Encodes / decodes strings the same way {@link java.net.URLEncoder} and
+ * {@link java.net.URLDecoder} do (<code>application/x-www-form-urlencoded</code>) but in a single
+ * pass driven by a lookup table. When nothing needs to be encoded (resp. decoded), the original
+ * string is returned.
+ *
  * @author ypujante@linkedin.com
  *
  */
@@ -39,10 +41,32 @@ public class URLCodec implements Serializable
   }
 
   public static final String CHARACTER_ENCODING = "UTF-8";
-  
+
+  private static final char[] HEXA_CHARS = "0123456789ABCDEF".toCharArray();
+
+  // characters which are not encoded (except '.' when encodeDot is set)
+  private static final boolean[] SAFE_CHARS = new boolean[128];
+  static
+  {
+    for(char c = 'a'; c <= 'z'; c++)
+      SAFE_CHARS[c] = true;
+    for(char c = 'A'; c <= 'Z'; c++)
+      SAFE_CHARS[c] = true;
+    for(char c = '0'; c <= '9'; c++)
+      SAFE_CHARS[c] = true;
+    SAFE_CHARS['.'] = true;
+    SAFE_CHARS['-'] = true;
+    SAFE_CHARS['*'] = true;
+    SAFE_CHARS['_'] = true;
+  }
+
   private final boolean _encodeDot;
   private final String _characterEncoding;
 
+  // resolved once (not serializable)
+  private transient Charset _charset;
+  private transient boolean _utf8;
+
   /**
    * Constructor
    */
@@ -85,28 +109,163 @@ public class URLCodec implements Serializable
    * Encapsulates the call to encoding a URL
    *
    * @param original the string to encode
-   * @return the encoded url */
+   * @return the encoded url (<code>original</code> if nothing needs to be encoded) */
   public String urlEncode(String original)
   {
-    // see http://www.w3.org/TR/html40/appendix/notes.html#non-ascii-chars
-    // for an explanation of the character encoding
-    String s = null;
-    try
+    int i = indexOfCharToEncode(original);
+    if(i == -1)
+      return original;
+
+    StringBuilder sb = new StringBuilder(original.length() + 16);
+    sb.append(original, 0, i);
+    encode(original, i, sb);
+    return sb.toString();
+  }
+
+  /**
+   * Encodes the string and appends the result to the builder
+   *
+   * @param original the string to encode
+   * @param sb where to append the encoded string
+   * @return <code>sb</code> */
+  public StringBuilder urlEncode(String original, StringBuilder sb)
+  {
+    int i = indexOfCharToEncode(original);
+    if(i == -1)
+      return sb.append(original);
+
+    sb.append(original, 0, i);
+    encode(original, i, sb);
+    return sb;
+  }
+
+  /**
+   * @return the index of the first char which needs to be encoded (<code>-1</code> if none)
+   */
+  private int indexOfCharToEncode(String s)
+  {
+    int len = s.length();
+    for(int i = 0; i < len; i++)
     {
-      s = URLEncoder.encode(original, _characterEncoding);
+      if(!isSafe(s.charAt(i)))
+        return i;
     }
-    catch(UnsupportedEncodingException e)
+    return -1;
+  }
+
+  private boolean isInRun(char c)
+  {
+    return !(c < 128 && SAFE_CHARS[c]) && c != ' ';
+  }
+
+  private boolean isSafe(char c)
+  {
+    // we encode . as well (when requested) because it can cause problems in url in emails.
+    return c < 128 && SAFE_CHARS[c] && !(c == '.' && _encodeDot);
+  }
+
+  /**
+   * Encodes <code>s</code> starting at <code>start</code>
+   */
+  private void encode(String s, int start, StringBuilder sb)
+  {
+    // see http://www.w3.org/TR/html40/appendix/notes.html#non-ascii-chars
+    // for an explanation of the character encoding
+    int len = s.length();
+    int i = start;
+    while(i < len)
     {
-      throw new RuntimeException(e);
+      char c = s.charAt(i);
+
+      if(isSafe(c))
+      {
+        sb.append(c);
+        i++;
+        continue;
+      }
+
+      if(c == ' ')
+      {
+        sb.append('+');
+        i++;
+        continue;
+      }
+
+      if(c == '.')
+      {
+        appendEscaped(sb, c);
+        i++;
+        continue;
+      }
+
+      // run of chars to encode => encoded with the charset
+      int end = i + 1;
+      while(end < len && isInRun(s.charAt(end)))
+        end++;
+
+      if(isUTF8())
+        appendUTF8(s, i, end, sb);
+      else
+      {
+        for(byte b : s.substring(i, end).getBytes(getCharset()))
+          appendEscaped(sb, b & 0xff);
+      }
+
+      i = end;
     }
+  }
 
-    if(_encodeDot)
+  /**
+   * Encodes the chars in utf-8 without creating intermediate arrays. Lone surrogates
+   * are encoded as '?' (like <code>String.getBytes</code> does).
+   */
+  private static void appendUTF8(String s, int start, int end, StringBuilder sb)
+  {
+    for(int i = start; i < end; i++)
     {
-      // we encode . as well because it can cause problems in url in emails.
-      s = TextUtils.searchAndReplace(s, ".", "%2E");
+      int c = s.charAt(i);
+
+      if(c < 0x80)
+      {
+        appendEscaped(sb, c);
+      }
+      else if(c < 0x800)
+      {
+        appendEscaped(sb, 0xc0 | (c >> 6));
+        appendEscaped(sb, 0x80 | (c & 0x3f));
+      }
+      else
+      {
+        if(c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+        {
+          if(Character.isHighSurrogate((char) c) &&
+             i + 1 < end &&
+             Character.isLowSurrogate(s.charAt(i + 1)))
+          {
+            int cp = Character.toCodePoint((char) c, s.charAt(++i));
+            appendEscaped(sb, 0xf0 | (cp >> 18));
+            appendEscaped(sb, 0x80 | ((cp >> 12) & 0x3f));
+            appendEscaped(sb, 0x80 | ((cp >> 6) & 0x3f));
+            appendEscaped(sb, 0x80 | (cp & 0x3f));
+          }
+          else
+          {
+            appendEscaped(sb, '?');
+          }
+        }
+        else
+        {
+          appendEscaped(sb, 0xe0 | (c >> 12));
+          appendEscaped(sb, 0x80 | ((c >> 6) & 0x3f));
+          appendEscaped(sb, 0x80 | (c & 0x3f));
+        }
+      }
     }
+  }
 
-    return s;
+  private static void appendEscaped(StringBuilder sb, int b)
+  {
+    sb.append('%').append(HEXA_CHARS[b >> 4]).append(HEXA_CHARS[b & 0xf]);
   }
 
   /**
@@ -114,19 +273,139 @@ public class URLCodec implements Serializable
    * with the encoding.
    *
    * @param original the string to decode
-   * @return the encoded url */
+   * @return the decoded url (<code>original</code> if nothing needs to be decoded)
+   * @throws IllegalArgumentException if an escape (%) pattern is invalid */
   public String urlDecode(String original)
   {
-    try
+    int i = indexOfCharToDecode(original);
+    if(i == -1)
+      return original;
+
+    StringBuilder sb = new StringBuilder(original.length());
+    sb.append(original, 0, i);
+    decode(original, i, sb);
+    return sb.toString();
+  }
+
+  /**
+   * Decodes the string and appends the result to the builder
+   *
+   * @param original the string to decode
+   * @param sb where to append the decoded string
+   * @return <code>sb</code>
+   * @throws IllegalArgumentException if an escape (%) pattern is invalid */
+  public StringBuilder urlDecode(String original, StringBuilder sb)
+  {
+    int i = indexOfCharToDecode(original);
+    if(i == -1)
+      return sb.append(original);
+
+    sb.append(original, 0, i);
+    decode(original, i, sb);
+    return sb;
+  }
+
+  private static int indexOfCharToDecode(String s)
+  {
+    int len = s.length();
+    for(int i = 0; i < len; i++)
     {
-      return URLDecoder.decode(original, _characterEncoding);
+      char c = s.charAt(i);
+      if(c == '%' || c == '+')
+        return i;
     }
-    catch(UnsupportedEncodingException e)
+    return -1;
+  }
+
+  /**
+   * Decodes <code>s</code> starting at <code>start</code>
+   */
+  private void decode(String s, int start, StringBuilder sb)
+  {
+    int len = s.length();
+    int i = start;
+    byte[] bytes = null;
+
+    while(i < len)
     {
-      throw new RuntimeException(e);
+      char c = s.charAt(i);
+      switch(c)
+      {
+        case '+':
+          sb.append(' ');
+          i++;
+          break;
+
+        case '%':
+          // sequence of escaped bytes => decoded all at once with the charset
+          if(bytes == null)
+            bytes = new byte[(len - i) / 3];
+          int pos = 0;
+          while(i + 2 < len && s.charAt(i) == '%')
+          {
+            int b = (hexaValue(s.charAt(i + 1)) << 4) | hexaValue(s.charAt(i + 2));
+            bytes[pos++] = (byte) b;
+            i += 3;
+          }
+          if(i < len && s.charAt(i) == '%')
+            throw new IllegalArgumentException("Incomplete trailing escape (%) pattern");
+
+          if(isUTF8() && isAscii(bytes, pos))
+          {
+            for(int j = 0; j < pos; j++)
+              sb.append((char) bytes[j]);
+          }
+          else
+            sb.append(new String(bytes, 0, pos, getCharset()));
+          break;
+
+        default:
+          sb.append(c);
+          i++;
+          break;
+      }
     }
   }
 
+  private static boolean isAscii(byte[] bytes, int len)
+  {
+    for(int i = 0; i < len; i++)
+    {
+      if(bytes[i] < 0)
+        return false;
+    }
+    return true;
+  }
+
+  private static int hexaValue(char c)
+  {
+    if(c >= '0' && c <= '9')
+      return c - '0';
+    if(c >= 'A' && c <= 'F')
+      return c - 'A' + 10;
+    if(c >= 'a' && c <= 'f')
+      return c - 'a' + 10;
+    throw new IllegalArgumentException("Illegal hex characters in escape (%) pattern: " + c);
+  }
+
+  private Charset getCharset()
+  {
+    Charset charset = _charset;
+    if(charset == null)
+    {
+      charset = Charset.forName(_characterEncoding);
+      _utf8 = "UTF-8".equals(charset.name());
+      _charset = charset;
+    }
+    return charset;
+  }
+
+  private boolean isUTF8()
+  {
+    getCharset();
+    return _utf8;
+  }
+
   @Override
   public boolean equals(Object o)
   {
@@ -0,0 +1,519 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+import java.nio.charset.Charset;
+
+/**
+ * Single pass parser for the urls handled by {@link URLBuilder#createFromURL(String)}. It only
+ * records the index ranges of each component in the url: the components are extracted (and
+ * decoded) when asked for. It handles the common (well formed) urls, http(s) hosts with
+ * underscores included, and gives up (returns <code>null</code>) as soon as it sees something
+ * unusual (ipv6, non ascii chars, invalid escapes, opaque uris...), in which case the url must be
+ * parsed with <code>java.net.URI</code> which knows how to handle (or reject) it. The components are the same
+ * ones <code>java.net.URI</code> would return.
+ *
+ * @author yan@pongasoft.com
+ */
+class URLParser
+{
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // character classes (see RFC 2396 and java.net.URI)
+  private static final int ALPHA = 1;
+  private static final int DIGIT = 1 << 1;
+  private static final int SCHEME = 1 << 2;
+  private static final int USER_INFO = 1 << 3;
+  private static final int PATH = 1 << 4;
+  private static final int URIC = 1 << 5;
+
+  private static final int[] CHAR_CLASSES = new int[128];
+  static
+  {
+    for(char c = 'a'; c <= 'z'; c++)
+      CHAR_CLASSES[c] |= ALPHA;
+    for(char c = 'A'; c <= 'Z'; c++)
+      CHAR_CLASSES[c] |= ALPHA;
+    for(char c = '0'; c <= '9'; c++)
+      CHAR_CLASSES[c] |= DIGIT;
+
+    addClass("+-.", SCHEME);
+
+    String unreserved = "-_.!~*'()";
+    addClass(unreserved, USER_INFO | PATH | URIC);
+    addClass("%", USER_INFO | PATH | URIC); // escaped (checked separately)
+    addClass(";:&=+$,", USER_INFO);
+    addClass(":@&=+$,;/", PATH);
+    addClass(";/?:@&=+$,[]", URIC);
+  }
+
+  private static void addClass(String chars, int charClass)
+  {
+    for(int i = 0; i < chars.length(); i++)
+      CHAR_CLASSES[chars.charAt(i)] |= charClass;
+  }
+
+  private final String _url;
+
+  private int _schemeEnd = -1;
+  private int _userInfoStart = -1;
+  private int _userInfoEnd = -1;
+  private int _hostStart = -1;
+  private int _hostEnd = -1;
+  private boolean _underscoreHost = false;
+  private int _port = -1;
+  private int _pathStart;
+  private int _pathEnd;
+  private int _queryStart = -1;
+  private int _queryEnd = -1;
+  private int _fragmentStart = -1;
+
+  private URLParser(String url)
+  {
+    _url = url;
+  }
+
+  /**
+   * @return the parsed url or <code>null</code> if this parser cannot handle it
+   */
+  static URLParser parse(String url)
+  {
+    URLParser parser = new URLParser(url);
+    return parser.doParse() ? parser : null;
+  }
+
+  private boolean doParse()
+  {
+    String url = _url;
+    int len = url.length();
+    int p = 0;
+
+    // scheme
+    int i = 0;
+    while(i < len)
+    {
+      char c = url.charAt(i);
+      if(c == ':' || c == '/' || c == '?' || c == '#')
+        break;
+      i++;
+    }
+
+    if(i < len && url.charAt(i) == ':')
+    {
+      if(!isScheme(url, 0, i))
+        return false;
+      _schemeEnd = i;
+      p = i + 1;
+
+      // we only handle <scheme>://<authority>
+      if(!url.startsWith("//", p))
+        return false;
+    }
+    else
+    {
+      // relative url: we don't handle network paths (//host/path)
+      if(url.startsWith("//"))
+        return false;
+    }
+
+    // authority
+    if(_schemeEnd != -1)
+    {
+      p += 2;
+      int authorityEnd = p;
+      while(authorityEnd < len)
+      {
+        char c = url.charAt(authorityEnd);
+        if(c == '/' || c == '?' || c == '#')
+          break;
+        authorityEnd++;
+      }
+
+      if(!parseAuthority(p, authorityEnd))
+        return false;
+
+      p = authorityEnd;
+    }
+
+    // path
+    _pathStart = p;
+    while(p < len)
+    {
+      char c = url.charAt(p);
+      if(c == '?' || c == '#')
+        break;
+      if(!isValid(url, p, PATH))
+        return false;
+      p++;
+    }
+    _pathEnd = p;
+
+    // query
+    if(p < len && url.charAt(p) == '?')
+    {
+      p++;
+      _queryStart = p;
+      while(p < len && url.charAt(p) != '#')
+      {
+        if(!isValid(url, p, URIC))
+          return false;
+        p++;
+      }
+      _queryEnd = p;
+    }
+
+    // fragment
+    if(p < len)
+    {
+      // url.charAt(p) == '#'
+      p++;
+      _fragmentStart = p;
+      while(p < len)
+      {
+        if(!isValid(url, p, URIC))
+          return false;
+        p++;
+      }
+    }
+
+    return true;
+  }
+
+  private boolean parseAuthority(int start, int end)
+  {
+    String url = _url;
+
+    // user info
+    int at = -1;
+    for(int i = start; i < end; i++)
+    {
+      if(url.charAt(i) == '@')
+      {
+        at = i;
+        break;
+      }
+    }
+
+    if(at != -1)
+    {
+      for(int i = start; i < at; i++)
+      {
+        if(!isValid(url, i, USER_INFO))
+          return false;
+      }
+      _userInfoStart = start;
+      _userInfoEnd = at;
+      start = at + 1;
+    }
+
+    // port
+    int colon = end;
+    for(int i = start; i < end; i++)
+    {
+      if(url.charAt(i) == ':')
+      {
+        colon = i;
+        break;
+      }
+    }
+
+    if(colon < end)
+    {
+      int portLength = end - colon - 1;
+      if(portLength > 5)
+        return false;
+      if(portLength > 0)
+      {
+        int port = 0;
+        for(int i = colon + 1; i < end; i++)
+        {
+          char c = url.charAt(i);
+          if(c < '0' || c > '9')
+            return false;
+          port = port * 10 + (c - '0');
+        }
+        _port = port;
+      }
+    }
+
+    // host
+    _hostStart = start;
+    _hostEnd = colon;
+
+    if(isHostname(url, start, colon) || isIPv4Address(url, start, colon))
+      return true;
+
+    // java.net.URI does not accept underscores in host names (and then does not return the
+    // user info either) although some systems use them: URLBuilder then falls back to
+    // java.net.URL which only knows a few schemes (and rejects the others)
+    if(isUnderscoreHostname(url, start, colon) && isHttpScheme(url, _schemeEnd))
+    {
+      _underscoreHost = true;
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * @return <code>true</code> if the scheme (<code>[0, end)</code>) is http or https
+   */
+  private static boolean isHttpScheme(String s, int end)
+  {
+    return (end == 4 && s.regionMatches(true, 0, "http", 0, 4)) ||
+           (end == 5 && s.regionMatches(true, 0, "https", 0, 5));
+  }
+
+  /**
+   * hostname = domainlabel [ "." ] | 1*( domainlabel "." ) toplabel [ "." ]
+   */
+  private static boolean isHostname(String s, int start, int end)
+  {
+    if(start == end)
+      return false;
+
+    int labelStart = start;
+    int lastLabelStart = -1;
+    while(labelStart < end)
+    {
+      int i = labelStart;
+      if(!is(s.charAt(i), ALPHA | DIGIT))
+        return false;
+      while(i < end && s.charAt(i) != '.')
+      {
+        char c = s.charAt(i);
+        if(!is(c, ALPHA | DIGIT) && c != '-')
+          return false;
+        i++;
+      }
+      if(s.charAt(i - 1) == '-')
+        return false;
+      lastLabelStart = labelStart;
+      labelStart = i + 1;
+    }
+
+    // rightmost label of a fully qualified hostname starts with an alpha char
+    return lastLabelStart == start || is(s.charAt(lastLabelStart), ALPHA);
+  }
+
+  /**
+   * Same as hostname but accepting underscores (and requiring at least one)
+   */
+  private static boolean isUnderscoreHostname(String s, int start, int end)
+  {
+    boolean underscore = false;
+    for(int i = start; i < end; i++)
+    {
+      char c = s.charAt(i);
+      if(c == '_')
+        underscore = true;
+      else
+      {
+        if(!is(c, ALPHA | DIGIT) && c != '-' && c != '.')
+          return false;
+      }
+    }
+
+    if(!underscore)
+      return false;
+
+    StringBuilder sb = new StringBuilder(end - start);
+    for(int i = start; i < end; i++)
+    {
+      char c = s.charAt(i);
+      sb.append(c == '_' ? 'a' : c);
+    }
+    String hostname = sb.toString();
+    return isHostname(hostname, 0, hostname.length());
+  }
+
+  /**
+   * 4 decimal numbers (0-255) separated by '.'
+   */
+  private static boolean isIPv4Address(String s, int start, int end)
+  {
+    int count = 0;
+    int i = start;
+    while(i < end)
+    {
+      int value = 0;
+      int digits = 0;
+      // leading zeros are left to java.net.URI
+      if(s.charAt(i) == '0' && i + 1 < end && is(s.charAt(i + 1), DIGIT))
+        return false;
+      while(i < end && is(s.charAt(i), DIGIT))
+      {
+        value = value * 10 + (s.charAt(i) - '0');
+        digits++;
+        i++;
+      }
+      if(digits == 0 || digits > 3 || value > 255)
+        return false;
+      count++;
+      if(i < end)
+      {
+        if(s.charAt(i) != '.' || count == 4)
+          return false;
+        i++;
+        if(i == end)
+          return false;
+      }
+    }
+    return count == 4;
+  }
+
+  private static boolean isScheme(String s, int start, int end)
+  {
+    if(start == end || !is(s.charAt(start), ALPHA))
+      return false;
+
+    for(int i = start + 1; i < end; i++)
+    {
+      if(!is(s.charAt(i), ALPHA | DIGIT | SCHEME))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return <code>true</code> if the char at <code>i</code> belongs to the class (escapes are
+   * checked as well)
+   */
+  private static boolean isValid(String s, int i, int charClass)
+  {
+    char c = s.charAt(i);
+    if(c == '%')
+      return i + 2 < s.length() && isHexa(s.charAt(i + 1)) && isHexa(s.charAt(i + 2));
+    return is(c, ALPHA | DIGIT | charClass);
+  }
+
+  private static boolean is(char c, int charClass)
+  {
+    return c < 128 && (CHAR_CLASSES[c] & charClass) != 0;
+  }
+
+  private static boolean isHexa(char c)
+  {
+    return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
+
+  private static int hexaValue(char c)
+  {
+    if(c <= '9')
+      return c - '0';
+    if(c <= 'F')
+      return c - 'A' + 10;
+    return c - 'a' + 10;
+  }
+
+  String getScheme()
+  {
+    return _schemeEnd == -1 ? null : _url.substring(0, _schemeEnd);
+  }
+
+  /**
+   * @return the (decoded) user info
+   */
+  String getUserInfo()
+  {
+    if(_userInfoStart == -1 || _underscoreHost)
+      return null;
+    return decode(_url.substring(_userInfoStart, _userInfoEnd));
+  }
+
+  String getHost()
+  {
+    return _hostStart == -1 ? null : _url.substring(_hostStart, _hostEnd);
+  }
+
+  int getPort()
+  {
+    return _port;
+  }
+
+  /**
+   * @return the raw path
+   */
+  String getPath()
+  {
+    return _url.substring(_pathStart, _pathEnd);
+  }
+
+  String getURL()
+  {
+    return _url;
+  }
+
+  /**
+   * @return where the (raw) query starts in the url (<code>-1</code> if there is no query)
+   */
+  int getQueryStart()
+  {
+    return _queryStart;
+  }
+
+  int getQueryEnd()
+  {
+    return _queryEnd;
+  }
+
+  /**
+   * @return the (decoded) fragment
+   */
+  String getFragment()
+  {
+    return _fragmentStart == -1 ? null : decode(_url.substring(_fragmentStart));
+  }
+
+  /**
+   * Decodes the escaped octets (utf-8) like <code>java.net.URI</code> does ('+' is left alone)
+   */
+  static String decode(String s)
+  {
+    int idx = s.indexOf('%');
+    if(idx == -1)
+      return s;
+
+    int len = s.length();
+    StringBuilder sb = new StringBuilder(len);
+    sb.append(s, 0, idx);
+    byte[] bytes = new byte[(len - idx) / 3];
+
+    int i = idx;
+    while(i < len)
+    {
+      char c = s.charAt(i);
+      if(c != '%')
+      {
+        sb.append(c);
+        i++;
+        continue;
+      }
+
+      int pos = 0;
+      while(i < len && s.charAt(i) == '%')
+      {
+        bytes[pos++] = (byte) ((hexaValue(s.charAt(i + 1)) << 4) | hexaValue(s.charAt(i + 2)));
+        i += 3;
+      }
+      sb.append(new String(bytes, 0, pos, UTF_8));
+    }
+
+    return sb.toString();
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A url with placeholders (ex: <code>/profile/{id}?trk={trk}&amp;lang=en</code>) compiled once
+ * and expanded many times. The result is the same as building the url with {@link URLBuilder}:
+ * the text before the path (scheme, host...) and the path are used as is (see
+ * {@link URLBuilder#setPath(String)}), the values of the placeholders in the path are encoded
+ * (see {@link URLBuilder#appendPath(String)}), and the query parameters and the fragment are
+ * encoded (the static parts are encoded when the template is compiled). A parameter without
+ * value (<code>?flag</code>) is expanded to <code>flag=</code> like
+ * {@link URLBuilder#addQueryParameter(String)} does.
+ *
+ * <p>The placeholders can be provided by name or by position (the order in which each name
+ * first appears in the template). A value is converted with <code>String.valueOf</code> and
+ * cannot be <code>null</code>. This class is immutable (and thread safe).</p>
+ *
+ * @author yan@pongasoft.com
+ */
+public class URLTemplate
+{
+  /**
+   * One part of the template: either static text or a placeholder
+   */
+  private static class Part
+  {
+    private final String text;
+    private final int placeholder;
+
+    private Part(String text, int placeholder)
+    {
+      this.text = text;
+      this.placeholder = placeholder;
+    }
+  }
+
+  private final String _template;
+  private final Part[] _parts;
+  private final List<String> _placeholderNames;
+  private final URLCodec _urlCodec;
+
+  private URLTemplate(String template,
+                      Part[] parts,
+                      List<String> placeholderNames,
+                      URLCodec urlCodec)
+  {
+    _template = template;
+    _parts = parts;
+    _placeholderNames = placeholderNames;
+    _urlCodec = urlCodec;
+  }
+
+  public String getTemplate()
+  {
+    return _template;
+  }
+
+  /**
+   * @return the names of the placeholders (in the order expected by the positional methods)
+   */
+  public List<String> getPlaceholderNames()
+  {
+    return _placeholderNames;
+  }
+
+  /**
+   * @param values the values of the placeholders in order
+   * @return the url
+   */
+  public String expand(Object... values)
+  {
+    return appendTo(new StringBuilder(_template.length() + 32), values).toString();
+  }
+
+  /**
+   * @param values the values of the placeholders by name
+   * @return the url
+   */
+  public String expand(Map<String, ?> values)
+  {
+    return appendTo(new StringBuilder(_template.length() + 32), values).toString();
+  }
+
+  /**
+   * Expands the template at the end of the builder (which can be reused from one call to the
+   * next)
+   *
+   * @param values the values of the placeholders in order
+   * @return <code>sb</code>
+   */
+  public StringBuilder appendTo(StringBuilder sb, Object... values)
+  {
+    if(values.length != _placeholderNames.size())
+      throw new IllegalArgumentException("expected " + _placeholderNames.size() +
+                                         " values but got " + values.length);
+
+    for(Part part : _parts)
+    {
+      if(part.placeholder == -1)
+        sb.append(part.text);
+      else
+        appendValue(sb, part, values[part.placeholder]);
+    }
+
+    return sb;
+  }
+
+  /**
+   * Expands the template at the end of the builder (which can be reused from one call to the
+   * next)
+   *
+   * @param values the values of the placeholders by name
+   * @return <code>sb</code>
+   */
+  public StringBuilder appendTo(StringBuilder sb, Map<String, ?> values)
+  {
+    for(Part part : _parts)
+    {
+      if(part.placeholder == -1)
+        sb.append(part.text);
+      else
+        appendValue(sb, part, values.get(part.text));
+    }
+
+    return sb;
+  }
+
+  private void appendValue(StringBuilder sb, Part part, Object value)
+  {
+    if(value == null)
+      throw new IllegalArgumentException("value is null for " + part.text);
+
+    _urlCodec.urlEncode(String.valueOf(value), sb);
+  }
+
+  @Override
+  public String toString()
+  {
+    return _template;
+  }
+
+  /**
+   * Compiles the template
+   *
+   * @param template the url with placeholders (<code>{name}</code>)
+   * @return the compiled template
+   * @throws IllegalArgumentException if the template is invalid
+   */
+  public static URLTemplate compile(String template)
+  {
+    return new Compiler(template, URLCodec.instance()).compile();
+  }
+
+  /**
+   * Splits the template in parts (merging consecutive static texts)
+   */
+  private static class Compiler
+  {
+    private final String _template;
+    private final URLCodec _urlCodec;
+
+    private final List<Part> _parts = new ArrayList<Part>();
+    private final List<String> _placeholderNames = new ArrayList<String>();
+    private final StringBuilder _text = new StringBuilder();
+
+    private Compiler(String template, URLCodec urlCodec)
+    {
+      _template = template;
+      _urlCodec = urlCodec;
+    }
+
+    private URLTemplate compile()
+    {
+      String template = _template;
+      int len = template.length();
+
+      int fragmentStart = indexOf('#', 0, len);
+      if(fragmentStart == -1)
+        fragmentStart = len;
+
+      int queryStart = indexOf('?', 0, fragmentStart);
+      if(queryStart == -1)
+        queryStart = fragmentStart;
+
+      // scheme, authority and path (as is)
+      addText(template, 0, queryStart, false);
+
+      // query
+      if(queryStart < fragmentStart)
+      {
+        int start = queryStart + 1;
+        boolean first = true;
+        while(start < fragmentStart)
+        {
+          int end = indexOf('&', start, fragmentStart);
+          if(end == -1)
+            end = fragmentStart;
+
+          if(end > start)
+          {
+            _text.append(first ? '?' : '&');
+            first = false;
+
+            int idx = indexOf('=', start, end);
+            if(idx == -1)
+            {
+              addText(template, start, end, true);
+              _text.append('=');
+            }
+            else
+            {
+              addText(template, start, idx, true);
+              _text.append('=');
+              addText(template, idx + 1, end, true);
+            }
+          }
+
+          start = end + 1;
+        }
+      }
+
+      // fragment
+      if(fragmentStart < len)
+      {
+        _text.append('#');
+        addText(template, fragmentStart + 1, len, true);
+      }
+
+      flushText();
+
+      return new URLTemplate(template,
+                             _parts.toArray(new Part[_parts.size()]),
+                             Collections.unmodifiableList(_placeholderNames),
+                             _urlCodec);
+    }
+
+    /**
+     * Adds the text between start and end (which may contain placeholders)
+     */
+    private void addText(String s, int start, int end, boolean encode)
+    {
+      int i = start;
+      while(i < end)
+      {
+        int open = s.indexOf('{', i);
+        if(open == -1 || open >= end)
+          open = end;
+
+        int close = s.indexOf('}', i);
+        if(close != -1 && close < open)
+          throw new IllegalArgumentException("unexpected } in template: " + _template);
+
+        String text = s.substring(i, open);
+        if(encode)
+          _urlCodec.urlEncode(text, _text);
+        else
+          _text.append(text);
+
+        if(open == end)
+          break;
+
+        if(close == -1 || close >= end)
+          throw new IllegalArgumentException("unclosed { in template: " + _template);
+
+        String name = s.substring(open + 1, close);
+        if(name.length() == 0 || name.indexOf('{') != -1)
+          throw new IllegalArgumentException("invalid placeholder in template: " + _template);
+
+        int placeholder = _placeholderNames.indexOf(name);
+        if(placeholder == -1)
+        {
+          placeholder = _placeholderNames.size();
+          _placeholderNames.add(name);
+        }
+
+        flushText();
+        _parts.add(new Part(name, placeholder));
+
+        i = close + 1;
+      }
+    }
+
+    private void flushText()
+    {
+      if(_text.length() > 0)
+      {
+        _parts.add(new Part(_text.toString(), -1));
+        _text.setLength(0);
+      }
+    }
+
+    /**
+     * @return the index of the char outside placeholders (<code>-1</code> if not found)
+     */
+    private int indexOf(char c, int start, int end)
+    {
+      boolean inPlaceholder = false;
+      for(int i = start; i < end; i++)
+      {
+        char ch = _template.charAt(i);
+        if(ch == '{')
+          inPlaceholder = true;
+        else if(ch == '}')
+          inPlaceholder = false;
+        else if(ch == c && !inPlaceholder)
+          return i;
+      }
+      return -1;
+    }
+  }
+}
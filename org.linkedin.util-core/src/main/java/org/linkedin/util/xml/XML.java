@@ -120,7 +120,7 @@ public class XML extends AbstractXMLBuilder
     else
     {
       addOpeningTag(tagName);
-      _xml.append(XMLUtils.xmlEncode(tagValue));
+      XMLUtils.xmlEncode(tagValue, _xml);
       addClosingTag(tagName);
     }
   }
@@ -224,7 +224,7 @@ public class XML extends AbstractXMLBuilder
     else
     {
       addOpeningTag(tagName, attributes);
-      _xml.append(XMLUtils.xmlEncode(tagValue));
+      XMLUtils.xmlEncode(tagValue, _xml);
       addClosingTag(tagName);
     }
   }
@@ -247,7 +247,7 @@ public class XML extends AbstractXMLBuilder
     else
     {
       addOpeningTag(tagName, attrName, attrValue);
-      _xml.append(XMLUtils.xmlEncode(tagValue));
+      XMLUtils.xmlEncode(tagValue, _xml);
       addClosingTag(tagName);
     }
   }
@@ -264,7 +264,7 @@ public class XML extends AbstractXMLBuilder
     
     _xml.append(' ');
     _xml.append(attrName).append("=\"");
-    _xml.append(XMLUtils.xmlEncode(attrValue)).append('"');
+    XMLUtils.xmlEncode(attrValue, _xml).append('"');
   }
 
   /**
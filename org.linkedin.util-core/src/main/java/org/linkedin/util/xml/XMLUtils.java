@@ -16,7 +16,7 @@
 
 package org.linkedin.util.xml;
 
-
+import java.io.IOException;
 
 /**
  * Contains XML related utilities
@@ -26,6 +26,12 @@ public class XMLUtils
 {
   private final static String[] _chars;
 
+  /**
+   * <code>true</code> for the characters from 0 to 127 which are not kept as is */
+  private final static boolean[] _needsEncoding;
+
+  private final static char[] HEXA_DIGITS = "0123456789abcdef".toCharArray();
+
   static
   {
     // we create a static array that will convert all the characters from 0 to 127 into their xml
@@ -49,6 +55,10 @@ public class XMLUtils
     _chars['>'] = "&gt;";
     _chars['&'] = "&amp;";
     _chars['"'] = "&quot;";
+
+    _needsEncoding = new boolean[128];
+    for(int i = 0; i < _chars.length; i++)
+      _needsEncoding[i] = _chars[i].length() != 1 || _chars[i].charAt(0) != (char) i;
   }
 
   /**
@@ -57,42 +67,62 @@ public class XMLUtils
    * &amp;apos;)
    *
    * @param original the string to encode
-   * @return the encoded string */
+   * @return the encoded string (<code>original</code> itself when there is
+   *         nothing to encode) */
   public static String xmlEncode(String original)
   {
     if(original == null)
       return null;
 
-    char[] chars = original.toCharArray();
-    final int len = chars.length;
-    StringBuilder sb = new StringBuilder(len);
+    int idx = indexOfCharToEncode(original, false);
+    if(idx == -1)
+      return original;
+
+    StringBuilder sb = new StringBuilder(original.length() + 16);
+    xmlEncode(original, idx, sb);
+    return sb.toString();
+  }
+
+  /**
+   * Same as {@link #xmlEncode(String)} but appends the encoded string to
+   * <code>out</code> (<code>"null"</code> if <code>s</code> is
+   * <code>null</code>, like <code>Appendable.append</code>)
+   *
+   * @return <code>out</code> */
+  public static <T extends Appendable> T xmlEncode(CharSequence s, T out) throws IOException
+  {
+    if(s == null)
+      out.append(null);
+    else
+      encode(s, 0, out, false);
+    return out;
+  }
 
-    for(int i = 0; i < chars.length; i++)
+  /**
+   * Same as {@link #xmlEncode(CharSequence, Appendable)} without the
+   * <code>IOException</code>
+   *
+   * @return <code>sb</code> */
+  public static StringBuilder xmlEncode(CharSequence s, StringBuilder sb)
+  {
+    if(s == null)
+      sb.append((String) null);
+    else
+      xmlEncode(s, 0, sb);
+    return sb;
+  }
+
+  private static void xmlEncode(CharSequence s, int from, StringBuilder sb)
+  {
+    try
     {
-      char c = chars[i];
-      if(c < _chars.length)
-      {
-        sb.append(_chars[c]);
-      }
-      else if (Character.isHighSurrogate(c))
-      {
-        int j = i+1;
-        if (j < len && Character.isLowSurrogate(chars[j]))
-        {
-          // use character reference anyway on this character, since the handling
-          // of some big code blocks might not be well defined in certain encodings.
-          sb.append("&#x").append(Integer.toHexString(Character.toCodePoint(c, chars[j]))).append(';');
-          i = j;
-        }
-        // else ignore this character, a single high surrogate is an invalid char
-      }
-      else if (!Character.isLowSurrogate(c))
-      {
-        sb.append(c);
-      }
+      encode(s, from, sb, false);
+    }
+    catch(IOException e)
+    {
+      // cannot happen with a StringBuilder
+      throw new RuntimeException(e);
     }
-
-    return sb.toString();
   }
 
   /**
@@ -107,40 +137,137 @@ public class XMLUtils
    * there is no need to encode those characters.
    *
    * @param s the string to encode
-   * @return the encoded string */
+   * @return the encoded string (<code>s</code> itself when there is
+   *         nothing to encode) */
   public static String xmlEncodeRaw(String s)
   {
     if(s == null)
       return null;
 
-    char[] chars = s.toCharArray();
-    final int len = chars.length;
-    StringBuilder sb = new StringBuilder(len);
+    int idx = indexOfCharToEncode(s, true);
+    if(idx == -1)
+      return s;
+
+    StringBuilder sb = new StringBuilder(s.length() + 16);
+    try
+    {
+      encode(s, idx, sb, true);
+    }
+    catch(IOException e)
+    {
+      // cannot happen with a StringBuilder
+      throw new RuntimeException(e);
+    }
+    return sb.toString();
+  }
 
+  /**
+   * Same as {@link #xmlEncodeRaw(String)} but appends the encoded string to
+   * <code>out</code> (<code>"null"</code> if <code>s</code> is
+   * <code>null</code>, like <code>Appendable.append</code>)
+   *
+   * @return <code>out</code> */
+  public static <T extends Appendable> T xmlEncodeRaw(CharSequence s, T out) throws IOException
+  {
+    if(s == null)
+      out.append(null);
+    else
+      encode(s, 0, out, true);
+    return out;
+  }
+
+  /**
+   * @param raw <code>true</code> if the characters &gt; 127 must be encoded
+   * @return the index of the first character which is not kept as is
+   *         (<code>-1</code> if there is none) */
+  private static int indexOfCharToEncode(CharSequence s, boolean raw)
+  {
+    int len = s.length();
     for(int i = 0; i < len; i++)
     {
-      char c = chars[i];
-      if(c < _chars.length)
+      char c = s.charAt(i);
+      if(c < 128)
       {
-        sb.append(_chars[c]);
+        if(_needsEncoding[c])
+          return i;
       }
-      else if (Character.isHighSurrogate(c))
+      else
       {
-        int j = i+1;
-        if (j < len && Character.isLowSurrogate(chars[j]))
-        {
-          sb.append("&#x").append(Integer.toHexString(Character.toCodePoint(c, chars[j]))).append(';');
-          i = j;
-        }
-        // else ignore this character, a single high surrogate is an invalid char
+        if(raw || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE))
+          return i;
       }
-      else if (!Character.isLowSurrogate(c))
+    }
+    return -1;
+  }
+
+  /**
+   * Encodes the string: the characters are copied in chunks, only the ones
+   * which must be encoded are looked at individually.
+   *
+   * @param from where to start looking for characters to encode (the
+   *             characters before are copied as is)
+   * @param raw <code>true</code> if the characters &gt; 127 must be encoded */
+  private static void encode(CharSequence s, int from, Appendable out, boolean raw)
+    throws IOException
+  {
+    final int len = s.length();
+
+    // the characters in [prev, i[ are copied as is
+    int prev = 0;
+
+    for(int i = from; i < len; i++)
+    {
+      char c = s.charAt(i);
+      if(c < 128)
+      {
+        if(!_needsEncoding[c])
+          continue;
+
+        out.append(s, prev, i);
+        out.append(_chars[c]);
+      }
+      else if(c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE)
       {
-        sb.append("&#x").append(Integer.toHexString(c)).append(';');
+        if(!raw)
+          continue;
+
+        out.append(s, prev, i);
+        appendCharacterReference(out, c);
+      }
+      else
+      {
+        out.append(s, prev, i);
+        if(Character.isHighSurrogate(c))
+        {
+          int j = i + 1;
+          if(j < len && Character.isLowSurrogate(s.charAt(j)))
+          {
+            // use character reference anyway on this character, since the handling
+            // of some big code blocks might not be well defined in certain encodings.
+            appendCharacterReference(out, Character.toCodePoint(c, s.charAt(j)));
+            i = j;
+          }
+          // else ignore this character, a single high surrogate is an invalid char
+        }
+        // else ignore this character, a single low surrogate is an invalid char
       }
+      prev = i + 1;
     }
 
-    return sb.toString();
+    out.append(s, prev, len);
+  }
+
+  /**
+   * Appends <code>&amp;#xhhhh;</code> */
+  private static void appendCharacterReference(Appendable out, int codePoint) throws IOException
+  {
+    out.append("&#x");
+    int shift = 28;
+    while(shift > 0 && (codePoint >>> shift) == 0)
+      shift -= 4;
+    for(; shift >= 0; shift -= 4)
+      out.append(HEXA_DIGITS[(codePoint >>> shift) & 0xf]);
+    out.append(';');
   }
 
   /**
@@ -159,7 +286,8 @@ public class XMLUtils
    * safe. It is the exact opposite of xmlEncode
    *
    * @param s the string to decode
-   * @return the decoded string
+   * @return the decoded string (<code>s</code> itself when there is nothing
+   *         to decode)
    * @exception IllegalArgumentException if the string cannot be decoded */
   public static String xmlDecode(String s) throws IllegalArgumentException
   {
@@ -171,84 +299,95 @@ public class XMLUtils
       return s;
 
     StringBuilder sb = new StringBuilder(s.length());
+    try
+    {
+      decode(s, idxS, sb);
+    }
+    catch(IOException e)
+    {
+      // cannot happen with a StringBuilder
+      throw new RuntimeException(e);
+    }
+    return sb.toString();
+  }
 
+  /**
+   * Same as {@link #xmlDecode(String)} but appends the decoded string to
+   * <code>out</code> (<code>"null"</code> if <code>s</code> is
+   * <code>null</code>, like <code>Appendable.append</code>)
+   *
+   * @return <code>out</code>
+   * @exception IllegalArgumentException if the string cannot be decoded */
+  public static <T extends Appendable> T xmlDecode(CharSequence s, T out)
+    throws IOException, IllegalArgumentException
+  {
+    if(s == null)
+    {
+      out.append(null);
+      return out;
+    }
+
+    int idxS = indexOf(s, '&', 0);
+    if(idxS < 0)
+      out.append(s);
+    else
+      decode(s, idxS, out);
+    return out;
+  }
+
+  /**
+   * @param idxS the index of the first '&amp;' */
+  private static void decode(CharSequence s, int idxS, Appendable sb)
+    throws IOException, IllegalArgumentException
+  {
     int idxE, idx, size;
     char c, c_1;
     int prev = 0;
 
     while(idxS != -1)
     {
-      idxE = s.indexOf(';', idxS);
+      idxE = indexOf(s, ';', idxS);
       if(idxE < 0)
         throw new IllegalArgumentException("missing ';' in: " +
-                                           s.substring(idxS));
+                                           s.subSequence(idxS, s.length()));
 
-      sb.append(s.substring(prev, idxS));
+      sb.append(s, prev, idxS);
 
       idx = idxS + 1;
       size = idxE - idxS - 1;
       if(size < 2)
-        throw new IllegalArgumentException("invalid escape tag: " +
-                                           s.substring(idxS, idxE + 1));
+        throw invalidEscapeTag(s, idxS, idxE);
       c = s.charAt(idx);
       c_1 = s.charAt(idx + 1);
       switch(c)
       {
         case 'l':
-          if(size != 2)
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
-          if(c_1 == 't')
-            sb.append('<');
-          else
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
+          if(size != 2 || c_1 != 't')
+            throw invalidEscapeTag(s, idxS, idxE);
+          sb.append('<');
           break;
 
         case 'g':
-          if(size != 2)
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
-          if(c_1 == 't')
-            sb.append('>');
-          else
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
+          if(size != 2 || c_1 != 't')
+            throw invalidEscapeTag(s, idxS, idxE);
+          sb.append('>');
           break;
 
         case 'q':
-          if(size != 4)
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
-          if(c_1 != 'u' || s.charAt(idx + 2) != 'o' ||
+          if(size != 4 || c_1 != 'u' || s.charAt(idx + 2) != 'o' ||
              s.charAt(idx + 3) != 't')
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
-          else
-            sb.append('"');
+            throw invalidEscapeTag(s, idxS, idxE);
+          sb.append('"');
           break;
 
         case 'a':
-          if(size == 3)
-          {
-            if(c_1 != 'm' || s.charAt(idx + 2) != 'p')
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
-            else
-              sb.append('&');
-          }
-          else if(size == 4)
-          {
-            if(c_1 != 'p' || s.charAt(idx + 2) != 'o' ||
-               s.charAt(idx + 3) != 's')
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
-            else
-              sb.append('\'');
-          }
+          if(size == 3 && c_1 == 'm' && s.charAt(idx + 2) == 'p')
+            sb.append('&');
+          else if(size == 4 && c_1 == 'p' && s.charAt(idx + 2) == 'o' &&
+                  s.charAt(idx + 3) == 's')
+            sb.append('\'');
           else
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
+            throw invalidEscapeTag(s, idxS, idxE);
           break;
 
         case '#':
@@ -256,36 +395,56 @@ public class XMLUtils
           try
           {
             codePoint = (c_1 == 'x')
-              ? Integer.parseInt(s.substring(idx + 2, idxE), 16)
-              : Integer.parseInt(s.substring(idx + 1, idxE));
+              ? Integer.parseInt(s.subSequence(idx + 2, idxE).toString(), 16)
+              : Integer.parseInt(s.subSequence(idx + 1, idxE).toString());
           }
           catch(NumberFormatException ex)
           {
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
+            throw invalidEscapeTag(s, idxS, idxE);
           }
 
           if (codePoint < 0)
             throw new IllegalArgumentException("invalid character codepoint: " +
-                                               s.substring(idxS, idxE + 1));
+                                               s.subSequence(idxS, idxE + 1));
 
           if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT)
             sb.append((char) codePoint);
           else
-            sb.append(Character.toChars(codePoint));
+          {
+            char[] chars = Character.toChars(codePoint);
+            sb.append(chars[0]).append(chars[1]);
+          }
           break;
 
         default:
-            throw new IllegalArgumentException("invalid escape tag: " +
-                                               s.substring(idxS, idxE + 1));
+          throw invalidEscapeTag(s, idxS, idxE);
       }
       prev = idxE + 1;
-      idxS = s.indexOf("&", prev);
+      idxS = indexOf(s, '&', prev);
     }
     if(prev < s.length())
-      sb.append(s.substring(prev));
+      sb.append(s, prev, s.length());
+  }
 
-    return sb.toString();
+  private static IllegalArgumentException invalidEscapeTag(CharSequence s, int idxS, int idxE)
+  {
+    return new IllegalArgumentException("invalid escape tag: " + s.subSequence(idxS, idxE + 1));
+  }
+
+  /**
+   * Same as <code>String.indexOf(int, int)</code> for any char sequence */
+  private static int indexOf(CharSequence s, char c, int from)
+  {
+    if(s instanceof String)
+      return ((String) s).indexOf(c, from);
+
+    int len = s.length();
+    for(int i = from; i < len; i++)
+    {
+      if(s.charAt(i) == c)
+        return i;
+    }
+    return -1;
   }
   
   public static String xmlDecodeSafely(String str)
@@ -310,7 +469,7 @@ public class XMLUtils
     {
       if (prev < idxS)
       {
-        sb.append(str.substring(prev, idxS));
+        sb.append(str, prev, idxS);
         // Update prev variable to indicate what's been consumed so far.
         prev = idxS;
       }
@@ -327,7 +486,7 @@ public class XMLUtils
       if(size < 2)
       {
         // Unknown entity, so just append the faux entity as is and move on.
-        sb.append(str.substring(idxS, idxE + 1));
+        sb.append(str, idxS, idxE + 1);
       }
       else
       {
@@ -401,7 +560,7 @@ public class XMLUtils
     
     if (prev < str.length())
     {
-      sb.append(str.substring(prev));
+      sb.append(str, prev, str.length());
     }
     
     return sb.toString();
@@ -0,0 +1,572 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.xml;
+
+import org.linkedin.util.text.Indent;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Implements the XMLBuilder interface to write XML documents directly to a <code>Writer</code>
+ * (or an <code>OutputStream</code> in UTF-8) as they are built, so that the memory used does not
+ * depend on the size of the document (the document is never available as a string:
+ * {@link #getXML()} is not supported). The output is the same as {@link XML} or, when built with
+ * an {@link Indent}, as {@link XMLIndent}. The <code>IOException</code>s thrown by the writer are
+ * rethrown wrapped in a <code>RuntimeException</code> (the methods of {@link XMLBuilder} do not
+ * throw checked exceptions).
+ *
+ * @author yan@pongasoft.com
+ * @see XMLBuilder */
+public class XMLWriter extends AbstractXMLBuilder implements Flushable, Closeable
+{
+  public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+  private final Writer _out;
+
+  /**
+   * The indent to use (<code>null</code> when not indenting) */
+  private final Indent _indent;
+
+  /**
+   * Constructor. The writer is used as is: it should be buffered.
+   *
+   * @param out where to write the xml */
+  public XMLWriter(Writer out)
+  {
+    this(out, null);
+  }
+
+  /**
+   * Constructor. The writer is used as is: it should be buffered.
+   *
+   * @param out where to write the xml
+   * @param indent the indentation to use (<code>null</code> for no indentation) */
+  public XMLWriter(Writer out, Indent indent)
+  {
+    _out = out;
+    _indent = indent;
+  }
+
+  /**
+   * Constructor. The xml is encoded in UTF-8 in a buffer which is written to the stream when
+   * full (or flushed).
+   *
+   * @param out where to write the xml
+   * @param indent the indentation to use (<code>null</code> for no indentation) */
+  public XMLWriter(OutputStream out, Indent indent)
+  {
+    this(new UTF8Writer(out, DEFAULT_BUFFER_SIZE), indent);
+  }
+
+  /**
+   * Constructor. The xml is encoded in UTF-8 (see {@link #XMLWriter(OutputStream, Indent)}).
+   *
+   * @param out where to write the xml */
+  public XMLWriter(OutputStream out)
+  {
+    this(out, null);
+  }
+
+  /**
+   * Adds the XML declaration (<code>&lt;?xml version="1.0" ?&gt;</code>)
+   *
+   * @param versionInfo the version info */
+  @Override
+  public void addXMLDecl(String versionInfo)
+  {
+    write("<?xml version=\"");
+    write(versionInfo);
+    write("\"?>\n");
+  }
+
+  /**
+   * Adds the XML declaration (<code>&lt;?xml version="1.0" encoding="UTF-8"
+   * standalone="yes"?&gt;</code>)
+   *
+   * @param versionInfo the version info
+   * @param encoding the encoding (eg: UTF-8)
+   * @param standalone <code>true</code> for standalone */
+  @Override
+  public void addXMLDecl(String versionInfo,
+                         String encoding,
+                         boolean standalone)
+  {
+    write("<?xml version=\"");
+    write(versionInfo);
+    write("\" encoding=\"");
+    write(encoding);
+    write("\" standalone=\"");
+    write(standalone ? "yes" : "no");
+    write("\"?>\n");
+  }
+
+  /**
+   * Adds an opening tag
+   *
+   * @param tagName the name of the opening tag to add */
+  @Override
+  public void addOpeningTag(String tagName)
+  {
+    addOpeningTag(tagName, null, null);
+  }
+
+  /**
+   * Adds an opening tag which contains an attribute
+   *
+   * @param tagName the name of the opening tag to add
+   * @param attrName the name of the attribute
+   * @param attrValue the value of the attribute  */
+  @Override
+  public void addOpeningTag(String tagName, String attrName, String attrValue)
+  {
+    startLine();
+    startTag(tagName);
+    addAttribute(attrName, attrValue);
+    write('>');
+    endLine();
+    incIndent();
+  }
+
+  /**
+   * Adds an opening tag which contains the attributes specified. All the
+   * properties will be turned into attributes.
+   *
+   * @param tagName the name of the opening tag to add
+   * @param attributes the attributes  */
+  @Override
+  public void addOpeningTag(String tagName, Map attributes)
+  {
+    startLine();
+    startTag(tagName);
+    addAttributes(attributes);
+    write('>');
+    endLine();
+    incIndent();
+  }
+
+  /**
+   * Adds a closing tag
+   *
+   * @param tagName the name of the closing tag to add */
+  @Override
+  public void addClosingTag(String tagName)
+  {
+    if(_indent != null)
+      _indent.dec();
+    startLine();
+    closeTag(tagName);
+    endLine();
+  }
+
+  /**
+   * Adds an empty tag
+   *
+   * @param tagName the name of the empty tag to add */
+  @Override
+  public void addEmptyTag(String tagName)
+  {
+    addEmptyTag(tagName, null, null);
+  }
+
+  /**
+   * Adds an empty tag which contains an attribute
+   *
+   * @param tagName the name of the empty tag to add
+   * @param attrName the name of the attribute
+   * @param attrValue the value of the attribute  */
+  @Override
+  public void addEmptyTag(String tagName, String attrName, String attrValue)
+  {
+    startLine();
+    startTag(tagName);
+    addAttribute(attrName, attrValue);
+    write(" />");
+    endLine();
+  }
+
+  /**
+   * Adds an empty tag which contains the attributes specified. All the
+   * properties will be turned into attributes.
+   *
+   * @param tagName the name of the empty tag to add
+   * @param attributes the attributes  */
+  @Override
+  public void addEmptyTag(String tagName, Map attributes)
+  {
+    startLine();
+    startTag(tagName);
+    addAttributes(attributes);
+    write(" />");
+    endLine();
+  }
+
+  /**
+   * Adds a tag
+   *
+   * @param tagName the name of the tag to add
+   * @param tagValue the value of the tag to add */
+  @Override
+  public void addTag(String tagName, String tagValue)
+  {
+    addTag(tagName, tagValue, null, null);
+  }
+
+  /**
+   * Adds a tag which contains an attribute
+   *
+   * @param tagName the name of the tag to add
+   * @param tagValue the value of the tag to add
+   * @param attrName the name of the attribute
+   * @param attrValue the value of the attribute  */
+  @Override
+  public void addTag(String tagName,
+                     String tagValue,
+                     String attrName,
+                     String attrValue)
+  {
+    startLine();
+    startTag(tagName);
+    addAttribute(attrName, attrValue);
+    endTag(tagName, tagValue);
+    endLine();
+  }
+
+  /**
+   * Adds a tag which contains the attributes specified. All the
+   * properties will be turned into attributes.
+   *
+   * @param tagName the name of the tag to add
+   * @param tagValue the value of the tag to add
+   * @param attributes the attributes  */
+  @Override
+  public void addTag(String tagName, String tagValue, Map attributes)
+  {
+    startLine();
+    startTag(tagName);
+    addAttributes(attributes);
+    endTag(tagName, tagValue);
+    endLine();
+  }
+
+  /**
+   * Adds the given block of XML. If it is not a properly formatter block
+   * of XML then the output will not be properly formatted.
+   *
+   * @param xml the block of XML to add */
+  @Override
+  public void addXML(String xml)
+  {
+    write(xml);
+  }
+
+  /**
+   * Not supported: the xml is written as it is built
+   *
+   * @throws UnsupportedOperationException always */
+  @Override
+  public String getXML()
+  {
+    throw new UnsupportedOperationException("the xml is written to the output");
+  }
+
+  /**
+   * Not supported: the xml already written cannot be taken back
+   *
+   * @throws UnsupportedOperationException always */
+  @Override
+  public void reset()
+  {
+    throw new UnsupportedOperationException("the xml is written to the output");
+  }
+
+  /**
+   * Flushes the xml written so far to the output */
+  @Override
+  public void flush() throws IOException
+  {
+    _out.flush();
+  }
+
+  /**
+   * Flushes and closes the output */
+  @Override
+  public void close() throws IOException
+  {
+    _out.close();
+  }
+
+  private void startTag(String tagName)
+  {
+    write('<');
+    write(tagName);
+  }
+
+  /**
+   * Ends the opening tag then writes the value and the closing tag (or ends the tag as an
+   * empty tag when there is no value) */
+  private void endTag(String tagName, String tagValue)
+  {
+    if(tagValue == null)
+    {
+      write(" />");
+    }
+    else
+    {
+      write('>');
+      writeEncoded(tagValue);
+      closeTag(tagName);
+    }
+  }
+
+  private void closeTag(String tagName)
+  {
+    write("</");
+    write(tagName);
+    write('>');
+  }
+
+  /**
+   * Adds the attribute
+   *
+   * @param attrName name of the attribute to add
+   * @param attrValue value of the attribute to add */
+  private void addAttribute(String attrName, String attrValue)
+  {
+    if(attrName == null)
+      return;
+
+    write(' ');
+    write(attrName);
+    write("=\"");
+    writeEncoded(attrValue);
+    write('"');
+  }
+
+  /**
+   * Adds the attributes. All the properties will be used as attributes
+   *
+   * @param attributes the attributes to add */
+  private void addAttributes(Map attributes)
+  {
+    if(attributes == null)
+      return;
+
+    Iterator iter = attributes.entrySet().iterator();
+    while(iter.hasNext())
+    {
+      Map.Entry entry = (Map.Entry) iter.next();
+      Object attrValue = entry.getValue();
+      if(attrValue != null)
+        addAttribute((String) entry.getKey(), attrValue.toString());
+    }
+  }
+
+  private void startLine()
+  {
+    if(_indent != null)
+      write(_indent.getIndentation());
+  }
+
+  private void endLine()
+  {
+    if(_indent != null)
+      write('\n');
+  }
+
+  private void incIndent()
+  {
+    if(_indent != null)
+      _indent.inc();
+  }
+
+  private void write(String s)
+  {
+    try
+    {
+      _out.write(s);
+    }
+    catch(IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Encodes the value straight into the writer (no intermediate string) */
+  private void writeEncoded(String s)
+  {
+    try
+    {
+      XMLUtils.xmlEncode(s, _out);
+    }
+    catch(IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void write(char c)
+  {
+    try
+    {
+      _out.write(c);
+    }
+    catch(IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Encodes the chars in UTF-8 in a (reused) buffer which is written to the stream when full */
+  private static class UTF8Writer extends Writer
+  {
+    private final OutputStream _out;
+    private final byte[] _buffer;
+    private int _count = 0;
+
+    // first half of a surrogate pair which was the last char written
+    private char _highSurrogate = 0;
+
+    private UTF8Writer(OutputStream out, int bufferSize)
+    {
+      _out = out;
+      _buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public void write(int c) throws IOException
+    {
+      encode((char) c);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException
+    {
+      int end = off + len;
+      for(int i = off; i < end; i++)
+        encode(str.charAt(i));
+    }
+
+    /**
+     * Overridden to encode the chars in place (the default implementation copies them) */
+    @Override
+    public Writer append(CharSequence csq, int start, int end) throws IOException
+    {
+      if(csq == null)
+        csq = "null";
+      for(int i = start; i < end; i++)
+        encode(csq.charAt(i));
+      return this;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException
+    {
+      int end = off + len;
+      for(int i = off; i < end; i++)
+        encode(cbuf[i]);
+    }
+
+    private void encode(char c) throws IOException
+    {
+      // a char is at most 4 bytes
+      if(_count > _buffer.length - 4)
+        flushBuffer();
+
+      byte[] buffer = _buffer;
+
+      if(_highSurrogate != 0)
+      {
+        char high = _highSurrogate;
+        _highSurrogate = 0;
+        if(c >= Character.MIN_LOW_SURROGATE && c <= Character.MAX_LOW_SURROGATE)
+        {
+          int codePoint = Character.toCodePoint(high, c);
+          buffer[_count++] = (byte) (0xf0 | (codePoint >> 18));
+          buffer[_count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+          buffer[_count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+          buffer[_count++] = (byte) (0x80 | (codePoint & 0x3f));
+          return;
+        }
+        // lone high surrogate (same as String.getBytes)
+        buffer[_count++] = '?';
+        encode(c);
+        return;
+      }
+
+      if(c < 0x80)
+      {
+        buffer[_count++] = (byte) c;
+      }
+      else if(c < 0x800)
+      {
+        buffer[_count++] = (byte) (0xc0 | (c >> 6));
+        buffer[_count++] = (byte) (0x80 | (c & 0x3f));
+      }
+      else if(c >= Character.MIN_HIGH_SURROGATE && c <= Character.MAX_HIGH_SURROGATE)
+      {
+        _highSurrogate = c;
+      }
+      else if(c >= Character.MIN_LOW_SURROGATE && c <= Character.MAX_LOW_SURROGATE)
+      {
+        buffer[_count++] = '?';
+      }
+      else
+      {
+        buffer[_count++] = (byte) (0xe0 | (c >> 12));
+        buffer[_count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buffer[_count++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+
+    private void flushBuffer() throws IOException
+    {
+      if(_count > 0)
+      {
+        _out.write(_buffer, 0, _count);
+        _count = 0;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+      flushBuffer();
+      _out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      if(_highSurrogate != 0)
+      {
+        _highSurrogate = 0;
+        encode('?');
+      }
+      flush();
+      _out.close();
+    }
+  }
+}
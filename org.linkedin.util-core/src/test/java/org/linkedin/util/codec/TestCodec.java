@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+
+package org.linkedin.util.codec;
+
+import junit.framework.TestCase;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestCodec extends TestCase
+{
+  private final Random _random = new Random(1);
+
+  public void testBase64() throws Exception
+  {
+    checkCodec(Base64Codec.INSTANCE);
+    checkCodec(new Base64Codec("password"));
+
+    // '.' is accepted for '-'
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    Base64Codec.INSTANCE.decode("-a", buffer);
+    Base64Codec.INSTANCE.decode(".a", buffer);
+    assertEquals(buffer.get(0), buffer.get(1));
+
+    assertCannotDecode(Base64Codec.INSTANCE, "ab*d");
+    assertCannotDecode(Base64Codec.INSTANCE, "abc\u00e9");
+    assertCannotDecode(Base64Codec.INSTANCE, "abcde");
+  }
+
+  public void testHexa() throws Exception
+  {
+    checkCodec(HexaCodec.INSTANCE);
+
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    assertEquals(3, HexaCodec.INSTANCE.decode("00fFA0", buffer));
+    buffer.flip();
+    assertEquals(ByteBuffer.wrap(new byte[] {0, (byte) 0xff, (byte) 0xa0}), buffer);
+
+    assertCannotDecode(HexaCodec.INSTANCE, "abc");
+    assertCannotDecode(HexaCodec.INSTANCE, "0g");
+
+    // decode(String) is the same as decode(CharSequence, ByteBuffer): leading zero bytes are
+    // preserved
+    assertTrue(Arrays.equals(new byte[] {(byte) 0x80}, HexaCodec.INSTANCE.decode("80")));
+    assertTrue(Arrays.equals(new byte[] {0, 0, 1}, HexaCodec.INSTANCE.decode("000001")));
+    assertEquals(0, HexaCodec.INSTANCE.decode("").length);
+    for(String s : new String[] {"abc", "0g"})
+    {
+      try
+      {
+        HexaCodec.INSTANCE.decode(s);
+        fail("should fail: " + s);
+      }
+      catch(Codec.CannotDecodeException e)
+      {
+        // expected
+      }
+    }
+  }
+
+  public void testMessageDigest() throws Exception
+  {
+    OneWayCodec codec = OneWayMessageDigestCodec.createSHA1Instance("password",
+                                                                   Base64Codec.INSTANCE);
+    byte[] bytes = randomBytes(100);
+    StringBuilder sb = new StringBuilder("prefix:");
+    assertSame(sb, codec.encode(bytes, 10, 50, sb));
+    assertEquals("prefix:" + codec.encode(Arrays.copyOfRange(bytes, 10, 60)), sb.toString());
+  }
+
+  public void testEncodeString() throws Exception
+  {
+    OneWayCodec codec = HexaCodec.INSTANCE;
+
+    String[] strings = {
+      "",
+      "abc",
+      "caf\u00e9 \u20ac \ud801\udc00",
+      "unpaired \ud801 and \udc00 surrogates\ud801"
+    };
+
+    for(String s : strings)
+    {
+      String expected = codec.encode(s.getBytes("UTF-8"));
+      assertEquals(expected, CodecUtils.encodeString(codec, s));
+      assertEquals(expected,
+                   CodecUtils.encodeString(codec, new StringBuilder(s), new StringBuilder()).toString());
+    }
+
+    // bigger than the cached buffer
+    char[] chars = new char[100000];
+    Arrays.fill(chars, '\u20ac');
+    String s = new String(chars);
+    assertEquals(codec.encode(s.getBytes("UTF-8")), CodecUtils.encodeString(codec, s));
+  }
+
+  /**
+   * Checks the range and buffer methods against the array ones
+   */
+  private void checkCodec(Codec codec) throws Exception
+  {
+    for(int size = 0; size < 40; size++)
+    {
+      byte[] bytes = randomBytes(size + 6);
+
+      byte[] range = Arrays.copyOfRange(bytes, 3, 3 + size);
+      String encoded = codec.encode(range);
+
+      assertTrue(Arrays.equals(range, codec.decode(encoded)));
+
+      StringBuilder sb = new StringBuilder("x");
+      assertSame(sb, codec.encode(bytes, 3, size, sb));
+      assertEquals("x" + encoded, sb.toString());
+
+      // decodes in the middle of the buffer
+      ByteBuffer buffer = ByteBuffer.allocate(size + 10);
+      buffer.position(5);
+      assertEquals(size, codec.decode(encoded, buffer));
+      assertEquals(size + 5, buffer.position());
+      buffer.flip();
+      buffer.position(5);
+      assertEquals(ByteBuffer.wrap(range), buffer);
+
+      // range of chars
+      buffer.clear();
+      String padded = "[" + encoded + "]";
+      assertEquals(size, codec.decode(CharBuffer.wrap(padded, 1, padded.length() - 1), buffer));
+
+      if(size > 0)
+      {
+        buffer = ByteBuffer.allocate(size - 1);
+        try
+        {
+          codec.decode(encoded, buffer);
+          fail("should fail");
+        }
+        catch(BufferOverflowException e)
+        {
+          assertEquals(0, buffer.position());
+        }
+      }
+    }
+  }
+
+  private byte[] randomBytes(int size)
+  {
+    byte[] bytes = new byte[size];
+    _random.nextBytes(bytes);
+    return bytes;
+  }
+
+  private static void assertCannotDecode(Codec codec, String s)
+  {
+    try
+    {
+      codec.decode(s, ByteBuffer.allocate(s.length()));
+      fail("should fail: " + s);
+    }
+    catch(Codec.CannotDecodeException e)
+    {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.codec;
+
+import junit.framework.TestCase;
+import org.linkedin.util.io.IOUtils;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestCodecPipeline extends TestCase
+{
+  private static final SecretKeySpec KEY =
+    new SecretKeySpec("encryptionkey123".getBytes(), "AES");
+
+  private final Random _random = new Random(1);
+
+  public void testRoundTrip() throws Exception
+  {
+    CodecStage aes = new CipherCodecStage("AES/CBC/PKCS5Padding", KEY);
+
+    CodecPipeline[] pipelines = {
+      new CodecPipeline(),
+      new CodecPipeline(CodecStages.deflate()),
+      new CodecPipeline(CodecStages.gzip(), CodecStages.hexa()),
+      new CodecPipeline(CodecStages.deflate(9), aes, CodecStages.base64(Base64Codec.INSTANCE)),
+      new CodecPipeline(aes, CodecStages.base64(new Base64Codec("password"), 30)),
+      new CodecPipeline(CodecStages.base64(Base64Codec.INSTANCE), CodecStages.hexa())
+    };
+
+    for(CodecPipeline pipeline : pipelines)
+    {
+      for(int size : new int[] {0, 1, 15, 16, 17, 1000, 100 * 1024})
+      {
+        byte[] content = compressibleBytes(size);
+        byte[] encoded = encode(pipeline, content);
+        assertTrue(pipeline.toString(), Arrays.equals(content, decode(pipeline, encoded)));
+      }
+    }
+  }
+
+  public void testStages() throws Exception
+  {
+    byte[] content = compressibleBytes(5000);
+
+    // each stage is the same as the corresponding stream
+    byte[] encoded = encode(new CodecPipeline(CodecStages.deflate()), content);
+    assertTrue(Arrays.equals(content,
+                             readFully(new InflaterInputStream(new ByteArrayInputStream(encoded)))));
+
+    encoded = encode(new CodecPipeline(CodecStages.gzip()), content);
+    assertTrue(Arrays.equals(content,
+                             readFully(new GZIPInputStream(new ByteArrayInputStream(encoded)))));
+
+    encoded = encode(new CodecPipeline(CodecStages.hexa()), content);
+    assertEquals(HexaCodec.INSTANCE.encode(content), new String(encoded, "US-ASCII"));
+
+    encoded = encode(new CodecPipeline(CodecStages.base64(Base64Codec.INSTANCE, 6000)), content);
+    assertEquals(Base64Codec.INSTANCE.encode(content), new String(encoded, "US-ASCII"));
+
+    // a new iv for each stream
+    CodecPipeline pipeline =
+      new CodecPipeline(new CipherCodecStage("AES/CBC/PKCS5Padding", KEY));
+    assertFalse(Arrays.equals(encode(pipeline, content), encode(pipeline, content)));
+
+    try
+    {
+      CodecStages.deflate(10);
+      fail("should fail");
+    }
+    catch(IllegalArgumentException e)
+    {
+      // expected
+    }
+  }
+
+  public void testStats() throws Exception
+  {
+    CodecPipeline pipeline = new CodecPipeline(CodecStages.deflate())
+      .then(new CipherCodecStage("AES/CBC/PKCS5Padding", KEY))
+      .then(CodecStages.base64(Base64Codec.INSTANCE));
+    assertEquals(3, pipeline.getStages().size());
+
+    byte[] content = compressibleBytes(50 * 1024);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    CodecPipeline.PipelineOutputStream os = pipeline.encode(baos);
+    os.write(content);
+    os.close();
+    byte[] encoded = baos.toByteArray();
+
+    checkStats(os.getStats(), content.length, encoded.length);
+
+    CodecPipeline.PipelineInputStream is = pipeline.decode(new ByteArrayInputStream(encoded));
+    assertTrue(Arrays.equals(content, readFully(is)));
+
+    checkStats(is.getStats(), content.length, encoded.length);
+  }
+
+  private void checkStats(List<CodecPipeline.StageStats> stats, long decoded, long encoded)
+  {
+    assertEquals(3, stats.size());
+    assertEquals("deflate", stats.get(0).getName());
+    assertEquals("cipher(AES/CBC/PKCS5Padding)", stats.get(1).getName());
+    assertEquals("base64", stats.get(2).getName());
+
+    assertEquals(decoded, stats.get(0).getDecodedBytes());
+    assertTrue(stats.get(0).getEncodedBytes() < decoded / 2);
+    assertEquals(stats.get(0).getEncodedBytes(), stats.get(1).getDecodedBytes());
+    // cipher parameters (2 + 18 bytes for an iv) and padding (1 to 16 bytes)
+    long cipherOverhead = stats.get(1).getEncodedBytes() - stats.get(1).getDecodedBytes();
+    assertTrue(cipherOverhead > 20 && cipherOverhead <= 36);
+    assertEquals(stats.get(1).getEncodedBytes(), stats.get(2).getDecodedBytes());
+    assertEquals(encoded, stats.get(2).getEncodedBytes());
+
+    for(CodecPipeline.StageStats stageStats : stats)
+      assertTrue(stageStats.toString(), stageStats.getTimeNanos() >= 0);
+  }
+
+  public void testErrors() throws Exception
+  {
+    byte[] content = compressibleBytes(1000);
+    CodecPipeline pipeline =
+      new CodecPipeline(CodecStages.gzip(), new CipherCodecStage("AES/CBC/PKCS5Padding", KEY));
+    byte[] encoded = encode(pipeline, content);
+
+    // wrong key
+    CodecPipeline other =
+      new CodecPipeline(CodecStages.gzip(),
+                        new CipherCodecStage("AES/CBC/PKCS5Padding",
+                                             new SecretKeySpec("encryptionkey999".getBytes(),
+                                                               "AES")));
+    try
+    {
+      decode(other, encoded);
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      // expected
+    }
+
+    // truncated
+    try
+    {
+      decode(pipeline, Arrays.copyOf(encoded, 1));
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      // expected
+    }
+
+    try
+    {
+      new CipherCodecStage("AES/CBC/PKCS5Padding", null);
+      fail("should fail");
+    }
+    catch(IllegalArgumentException e)
+    {
+      // expected
+    }
+  }
+
+  /**
+   * the time spent by a stage reading when it is created (gzip header) is part of its time
+   */
+  public void testStageCreationTime() throws Exception
+  {
+    CodecPipeline pipeline = new CodecPipeline(CodecStages.gzip());
+    byte[] encoded = encode(pipeline, compressibleBytes(1000));
+
+    // the first read (the header) is slow
+    InputStream in = new FilterInputStream(new ByteArrayInputStream(encoded))
+    {
+      private boolean _first = true;
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException
+      {
+        if(_first)
+        {
+          _first = false;
+          try
+          {
+            Thread.sleep(50);
+          }
+          catch(InterruptedException e)
+          {
+            throw new InterruptedIOException();
+          }
+        }
+        return super.read(b, off, len);
+      }
+    };
+
+    CodecPipeline.PipelineInputStream is = pipeline.decode(in);
+    readFully(is);
+    CodecPipeline.StageStats stats = is.getStats().get(0);
+    assertTrue(stats.toString(), stats.getTimeNanos() >= 0);
+  }
+
+  /**
+   * the stages already created are closed when the pipeline cannot be created
+   */
+  public void testStageCreationFailure() throws Exception
+  {
+    final List<String> closed = new ArrayList<String>();
+
+    CodecStage tracking = new CodecStage()
+    {
+      @Override
+      public String getName()
+      {
+        return "tracking";
+      }
+
+      @Override
+      public OutputStream encode(OutputStream out)
+      {
+        return new FilterOutputStream(out)
+        {
+          @Override
+          public void close() throws IOException
+          {
+            closed.add("encode");
+            super.close();
+          }
+        };
+      }
+
+      @Override
+      public InputStream decode(InputStream in)
+      {
+        return new FilterInputStream(in)
+        {
+          @Override
+          public void close() throws IOException
+          {
+            closed.add("decode");
+            super.close();
+          }
+        };
+      }
+    };
+
+    CodecStage failing = new CodecStage()
+    {
+      @Override
+      public String getName()
+      {
+        return "failing";
+      }
+
+      @Override
+      public OutputStream encode(OutputStream out) throws IOException
+      {
+        throw new IOException("cannot encode");
+      }
+
+      @Override
+      public InputStream decode(InputStream in) throws IOException
+      {
+        throw new IOException("cannot decode");
+      }
+    };
+
+    CodecPipeline pipeline = new CodecPipeline(failing, tracking);
+    try
+    {
+      pipeline.encode(new ByteArrayOutputStream());
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      assertEquals("cannot encode", e.getMessage());
+    }
+
+    try
+    {
+      pipeline.decode(new ByteArrayInputStream(new byte[0]));
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      assertEquals("cannot decode", e.getMessage());
+    }
+
+    assertEquals(Arrays.asList("encode", "decode"), closed);
+  }
+
+  private static byte[] encode(CodecPipeline pipeline, byte[] content) throws IOException
+  {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    CodecPipeline.PipelineOutputStream os = pipeline.encode(baos);
+    // in pieces of various sizes
+    int i = 0;
+    int len = 1;
+    while(i < content.length)
+    {
+      int count = Math.min(len, content.length - i);
+      if(count == 1)
+        os.write(content[i]);
+      else
+        os.write(content, i, count);
+      i += count;
+      len = len * 3 + 1;
+    }
+    os.close();
+    return baos.toByteArray();
+  }
+
+  private static byte[] decode(CodecPipeline pipeline, byte[] encoded) throws IOException
+  {
+    return readFully(pipeline.decode(new ByteArrayInputStream(encoded)));
+  }
+
+  /**
+   * @return random words (so that compression does something)
+   */
+  private byte[] compressibleBytes(int size)
+  {
+    byte[] res = new byte[size];
+    for(int i = 0; i < size; i++)
+      res[i] = (byte) (_random.nextInt(8) == 0 ? ' ' : 'a' + _random.nextInt(4));
+    return res;
+  }
+
+  private static byte[] readFully(InputStream is) throws IOException
+  {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try
+    {
+      IOUtils.copy(is, baos);
+    }
+    finally
+    {
+      is.close();
+    }
+    return baos.toByteArray();
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+
+package org.linkedin.util.codec;
+
+import junit.framework.TestCase;
+import org.linkedin.util.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestCodecStreams extends TestCase
+{
+  private final Random _random = new Random(1);
+
+  public void testBase64() throws Exception
+  {
+    Base64Codec[] codecs = { Base64Codec.INSTANCE, new Base64Codec("password") };
+
+    for(Base64Codec codec : codecs)
+    {
+      for(int frameSize : new int[] {3, 6, 30, Base64EncoderOutputStream.DEFAULT_FRAME_SIZE})
+      {
+        for(int size = 0; size < 70; size++)
+        {
+          byte[] content = randomBytes(size);
+
+          StringWriter writer = new StringWriter();
+          OutputStream os = new Base64EncoderOutputStream(codec, writer, frameSize);
+          writeInPieces(os, content);
+          os.close();
+
+          // each frame is encoded with the codec
+          StringBuilder expected = new StringBuilder();
+          for(int i = 0; i < size; i += frameSize)
+            expected.append(codec.encode(Arrays.copyOfRange(content, i,
+                                                            Math.min(size, i + frameSize))));
+          assertEquals(expected.toString(), writer.toString());
+
+          // fits in one frame => same as the codec
+          if(size <= frameSize)
+          {
+            assertEquals(codec.encode(content), writer.toString());
+            assertTrue(Arrays.equals(content, codec.decode(writer.toString())));
+          }
+
+          InputStream is = new Base64DecoderInputStream(codec,
+                                                        new StringReader(writer.toString()),
+                                                        frameSize);
+          assertTrue(Arrays.equals(content, readFully(is)));
+        }
+      }
+    }
+  }
+
+  public void testBase64Errors() throws Exception
+  {
+    // invalid character
+    assertDecodeFails(new Base64DecoderInputStream(Base64Codec.INSTANCE,
+                                                   new StringReader("ab*d")));
+
+    // invalid length
+    assertDecodeFails(new Base64DecoderInputStream(Base64Codec.INSTANCE,
+                                                   new StringReader("abcde")));
+
+    try
+    {
+      new Base64EncoderOutputStream(Base64Codec.INSTANCE, new StringWriter(), 4);
+      fail("should fail");
+    }
+    catch(IllegalArgumentException e)
+    {
+      // expected
+    }
+
+    OutputStream os = new Base64EncoderOutputStream(Base64Codec.INSTANCE, new StringWriter());
+    os.close();
+    try
+    {
+      os.write(1);
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      // expected
+    }
+  }
+
+  public void testHexa() throws Exception
+  {
+    for(int bufferSize : new int[] {1, 5, HexaEncoderOutputStream.DEFAULT_BUFFER_SIZE})
+    {
+      for(int size = 0; size < 40; size++)
+      {
+        byte[] content = randomBytes(size);
+
+        StringWriter writer = new StringWriter();
+        OutputStream os = new HexaEncoderOutputStream(writer, bufferSize);
+        writeInPieces(os, content);
+        os.close();
+        assertEquals(HexaCodec.INSTANCE.encode(content), writer.toString());
+
+        InputStream is = new HexaDecoderInputStream(new StringReader(writer.toString()),
+                                                    bufferSize);
+        assertTrue(Arrays.equals(content, readFully(is)));
+      }
+    }
+
+    // leading zeros are preserved and upper case is accepted
+    InputStream is = new HexaDecoderInputStream(new StringReader("0000FFa0"));
+    assertTrue(Arrays.equals(new byte[] {0, 0, (byte) 0xff, (byte) 0xa0}, readFully(is)));
+
+    assertDecodeFails(new HexaDecoderInputStream(new StringReader("abc")));
+    assertDecodeFails(new HexaDecoderInputStream(new StringReader("0g")));
+  }
+
+  /**
+   * read returns what is available without waiting for more
+   */
+  public void testPartialReads() throws Exception
+  {
+    String encoded = Base64Codec.INSTANCE.encode(new byte[] {1, 2, 3});
+    InputStream is = new Base64DecoderInputStream(Base64Codec.INSTANCE,
+                                                  new BlockingReader(encoded),
+                                                  3);
+    byte[] buffer = new byte[10];
+    assertEquals(3, is.read(buffer, 0, buffer.length));
+    assertEquals(3, buffer[2]);
+
+    is = new HexaDecoderInputStream(new BlockingReader("0102"), 5);
+    assertEquals(2, is.read(buffer, 0, buffer.length));
+    assertEquals(2, buffer[1]);
+
+    try
+    {
+      is.read(buffer, Integer.MAX_VALUE, Integer.MAX_VALUE);
+      fail("should fail");
+    }
+    catch(IndexOutOfBoundsException e)
+    {
+      // expected
+    }
+  }
+
+  private byte[] randomBytes(int size)
+  {
+    byte[] bytes = new byte[size];
+    _random.nextBytes(bytes);
+    return bytes;
+  }
+
+  /**
+   * Writes a byte at a time then in chunks of various sizes
+   */
+  private void writeInPieces(OutputStream os, byte[] content) throws IOException
+  {
+    int half = content.length / 2;
+    for(int i = 0; i < half; i++)
+      os.write(content[i]);
+
+    int i = half;
+    int chunk = 1;
+    while(i < content.length)
+    {
+      int len = Math.min(chunk, content.length - i);
+      os.write(content, i, len);
+      i += len;
+      chunk += 3;
+    }
+  }
+
+  private static void assertDecodeFails(InputStream is)
+  {
+    try
+    {
+      readFully(is);
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      // expected
+    }
+  }
+
+  private static byte[] readFully(InputStream is) throws IOException
+  {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try
+    {
+      IOUtils.copy(is, baos);
+    }
+    finally
+    {
+      is.close();
+    }
+    return baos.toByteArray();
+  }
+
+  /**
+   * Returns its content then fails (as if the next read would block)
+   */
+  private static class BlockingReader extends Reader
+  {
+    private final String _content;
+    private boolean _read = false;
+
+    private BlockingReader(String content)
+    {
+      _content = content;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException
+    {
+      if(_read)
+        throw new IOException("would block");
+      _read = true;
+      int count = Math.min(len, _content.length());
+      _content.getChars(0, count, cbuf, off);
+      return count;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+  }
+}
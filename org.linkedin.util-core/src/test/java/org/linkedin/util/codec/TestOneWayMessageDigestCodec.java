@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+
+package org.linkedin.util.codec;
+
+import junit.framework.TestCase;
+import org.linkedin.util.io.ram.RAMDirectory;
+import org.linkedin.util.io.resource.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestOneWayMessageDigestCodec extends TestCase
+{
+  private final Random _random = new Random(1);
+
+  public void testEncode() throws Exception
+  {
+    for(String algorithm : new String[] {"MD5", "SHA-1"})
+    {
+      for(String password : new String[] {null, "password"})
+      {
+        OneWayMessageDigestCodec codec =
+          new OneWayMessageDigestCodec(algorithm, password, HexaCodec.INSTANCE);
+
+        // the digest of each thread is reused: the result must not change from one call to the
+        // next
+        for(int i = 0; i < 3; i++)
+        {
+          byte[] bytes = randomBytes(100 * i);
+          String expected = digest(algorithm, password, bytes);
+          assertEquals(expected, codec.encode(bytes));
+          assertEquals(expected, codec.encode(bytes));
+          assertEquals(expected, codec.encode(new ByteArrayInputStream(bytes)));
+        }
+      }
+    }
+
+    // the state of the message digest is kept
+    MessageDigest md = MessageDigest.getInstance("MD5");
+    md.update("password".getBytes());
+    OneWayMessageDigestCodec codec = new OneWayMessageDigestCodec(md, HexaCodec.INSTANCE);
+    byte[] bytes = randomBytes(10);
+    assertEquals(digest("MD5", "password", bytes), codec.encode(bytes));
+    assertEquals(digest("MD5", "password", bytes), codec.encode(bytes));
+  }
+
+  public void testStreamFailure() throws Exception
+  {
+    OneWayMessageDigestCodec codec =
+      OneWayMessageDigestCodec.createSHA1Instance("password", HexaCodec.INSTANCE);
+
+    // returns some bytes then fails
+    InputStream failing = new InputStream()
+    {
+      private boolean _failing = false;
+
+      @Override
+      public int read() throws IOException
+      {
+        throw new IOException("failing");
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException
+      {
+        if(_failing)
+          throw new IOException("failing");
+        _failing = true;
+        return len;
+      }
+    };
+
+    try
+    {
+      codec.encode(failing);
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      assertEquals("failing", e.getMessage());
+    }
+
+    // the digest left in the middle of the stream is not reused as is
+    byte[] bytes = randomBytes(20);
+    assertEquals(digest("SHA-1", "password", bytes), codec.encode(bytes));
+  }
+
+  public void testEncodeAll() throws Exception
+  {
+    OneWayMessageDigestCodec codec =
+      OneWayMessageDigestCodec.createMD5Instance(HexaCodec.INSTANCE);
+
+    RAMDirectory root = new RAMDirectory();
+    List<Resource> resources = new ArrayList<Resource>();
+    List<String> expected = new ArrayList<String>();
+    for(int i = 0; i < 20; i++)
+    {
+      byte[] content = randomBytes(i * 1000);
+      root.add("f" + i, content);
+      resources.add(root.toResource().createRelative("/f" + i));
+      expected.add(digest("MD5", null, content));
+    }
+
+    assertEquals(expected.get(3), codec.encode(resources.get(3)));
+
+    assertEquals(expected, codec.encodeAll(resources, null));
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try
+    {
+      assertEquals(expected, codec.encodeAll(resources, executor));
+
+      // one of them does not exist
+      resources.add(10, root.toResource().createRelative("/doesNotExist"));
+      try
+      {
+        codec.encodeAll(resources, executor);
+        fail("should fail");
+      }
+      catch(IOException e)
+      {
+        // expected
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  private byte[] randomBytes(int size)
+  {
+    byte[] bytes = new byte[size];
+    _random.nextBytes(bytes);
+    return bytes;
+  }
+
+  private static String digest(String algorithm, String password, byte[] bytes) throws Exception
+  {
+    MessageDigest md = MessageDigest.getInstance(algorithm);
+    if(password != null)
+      md.update(password.getBytes());
+    return HexaCodec.INSTANCE.encode(md.digest(bytes));
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.codec;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestStandardBase64Codec extends TestCase
+{
+  private final Random _random = new Random(1);
+
+  /**
+   * Test vectors from RFC 4648 (section 10)
+   */
+  public void testRFC4648() throws Exception
+  {
+    String[][] vectors = {
+      {"", ""},
+      {"f", "Zg=="},
+      {"fo", "Zm8="},
+      {"foo", "Zm9v"},
+      {"foob", "Zm9vYg=="},
+      {"fooba", "Zm9vYmE="},
+      {"foobar", "Zm9vYmFy"}
+    };
+
+    StandardBase64Codec codec = StandardBase64Codec.INSTANCE;
+    StandardBase64Codec unpadded = codec.withoutPadding();
+
+    for(String[] vector : vectors)
+    {
+      byte[] bytes = vector[0].getBytes("US-ASCII");
+      assertEquals(vector[1], codec.encode(bytes));
+      assertTrue(Arrays.equals(bytes, codec.decode(vector[1])));
+
+      String noPad = vector[1].replace("=", "");
+      assertEquals(noPad, unpadded.encode(bytes));
+      // padding is optional when decoding
+      assertTrue(Arrays.equals(bytes, codec.decode(noPad)));
+      assertTrue(Arrays.equals(bytes, unpadded.decode(vector[1])));
+    }
+  }
+
+  public void testUrlSafe() throws Exception
+  {
+    byte[] bytes = {(byte) 0xfb, (byte) 0xff, (byte) 0xbf};
+    assertEquals("+/+/", StandardBase64Codec.INSTANCE.encode(bytes));
+    assertEquals("-_-_", StandardBase64Codec.URL_SAFE_INSTANCE.encode(bytes));
+    assertTrue(Arrays.equals(bytes, StandardBase64Codec.URL_SAFE_INSTANCE.decode("-_-_")));
+
+    assertCannotDecode(StandardBase64Codec.INSTANCE, "-_-_");
+    assertCannotDecode(StandardBase64Codec.URL_SAFE_INSTANCE, "+/+/");
+  }
+
+  public void testLineWrapping() throws Exception
+  {
+    StandardBase64Codec codec =
+      StandardBase64Codec.INSTANCE.withLineLength(StandardBase64Codec.MIME_LINE_LENGTH);
+
+    for(int size = 0; size < 200; size++)
+    {
+      byte[] bytes = randomBytes(size);
+      String encoded = codec.encode(bytes);
+      assertEquals(codec.encodedLength(size), encoded.length());
+
+      String[] lines = encoded.split("\r\n");
+      for(int i = 0; i < lines.length - 1; i++)
+        assertEquals(StandardBase64Codec.MIME_LINE_LENGTH, lines[i].length());
+      assertEquals(StandardBase64Codec.INSTANCE.encode(bytes), encoded.replace("\r\n", ""));
+
+      assertTrue(Arrays.equals(bytes, codec.decode(encoded)));
+      // trailing line separator and lines which are not a multiple of 4
+      assertTrue(Arrays.equals(bytes, codec.decode(encoded + "\r\n")));
+      String other = StandardBase64Codec.INSTANCE.encode(bytes).replaceAll("(.{7})", "$1\n");
+      assertTrue(Arrays.equals(bytes, codec.decode(other)));
+    }
+
+    // line separators are only accepted when the lines are wrapped
+    assertCannotDecode(StandardBase64Codec.INSTANCE, "Zm9v\r\nYmFy");
+
+    try
+    {
+      new StandardBase64Codec(false, true, 75);
+      fail("should fail");
+    }
+    catch(IllegalArgumentException e)
+    {
+      // expected
+    }
+  }
+
+  public void testRangeAndBuffer() throws Exception
+  {
+    StandardBase64Codec[] codecs = {
+      StandardBase64Codec.INSTANCE,
+      StandardBase64Codec.URL_SAFE_INSTANCE.withoutPadding(),
+      StandardBase64Codec.INSTANCE.withLineLength(8)
+    };
+
+    for(StandardBase64Codec codec : codecs)
+    {
+      for(int size = 0; size < 50; size++)
+      {
+        byte[] bytes = randomBytes(size + 4);
+        byte[] range = Arrays.copyOfRange(bytes, 2, 2 + size);
+        String encoded = codec.encode(range);
+
+        assertEquals(encoded, codec.encode(bytes, 2, size, new StringBuilder()).toString());
+
+        char[] chars = new char[codec.encodedLength(size) + 1];
+        assertEquals(encoded.length(), codec.encode(bytes, 2, size, chars, 1));
+        assertEquals(encoded, new String(chars, 1, encoded.length()));
+
+        ByteBuffer buffer = ByteBuffer.allocate(size + 1);
+        buffer.put((byte) 0);
+        assertEquals(size, codec.decode(encoded, buffer));
+        buffer.flip();
+        buffer.get();
+        assertEquals(ByteBuffer.wrap(range), buffer);
+      }
+    }
+  }
+
+  public void testInvalid() throws Exception
+  {
+    StandardBase64Codec codec = StandardBase64Codec.INSTANCE;
+    assertCannotDecode(codec, "Z");
+    assertCannotDecode(codec, "Zm9vY");
+    assertCannotDecode(codec, "Zg=");
+    assertCannotDecode(codec, "Zm9v=");
+    assertCannotDecode(codec, "Zm=v");
+    assertCannotDecode(codec, "Zm9*");
+    assertCannotDecode(codec, "Zm9\u0100");
+    assertCannotDecode(codec, "Zm9vYm\u00e9=");
+  }
+
+  private byte[] randomBytes(int size)
+  {
+    byte[] bytes = new byte[size];
+    _random.nextBytes(bytes);
+    return bytes;
+  }
+
+  private static void assertCannotDecode(Codec codec, String s)
+  {
+    try
+    {
+      codec.decode(s);
+      fail("should fail: " + s);
+    }
+    catch(Codec.CannotDecodeException e)
+    {
+      // expected
+    }
+  }
+}
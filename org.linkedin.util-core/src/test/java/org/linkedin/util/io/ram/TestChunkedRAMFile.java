@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.ram;
+
+import junit.framework.TestCase;
+import org.linkedin.util.clock.SettableClock;
+import org.linkedin.util.io.IOUtils;
+import org.linkedin.util.io.resource.Resource;
+import org.linkedin.util.lang.MemorySize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestChunkedRAMFile extends TestCase
+{
+  private static final MemorySize CHUNK_SIZE = new MemorySize(16);
+
+  public void testWriteAndRead() throws Exception
+  {
+    RAMBufferAllocator allocator = new RAMBufferAllocator(CHUNK_SIZE, null);
+    RAMDirectory root = new RAMDirectory(new SettableClock(), "",
+                                        new HashMap<String, RAMEntry>(),
+                                        allocator);
+
+    byte[] content = new byte[100];
+    for(int i = 0; i < content.length; i++)
+      content[i] = (byte) i;
+
+    OutputStream os = root.mkdirhier("/d1").createOutputStream("f1");
+    os.write(content, 0, 10);
+    os.write(content[10]);
+    os.write(content, 11, content.length - 11);
+    assertNull(root.getEntryByPath("/d1/f1"));
+    os.close();
+
+    RAMFile file = (RAMFile) root.getEntryByPath("/d1/f1");
+    assertTrue(file instanceof ChunkedRAMFile);
+    assertEquals(100, file.getContentLength());
+    assertTrue(Arrays.equals(content, file.getContent()));
+    assertEquals(new MemorySize(7 * 16), allocator.getUsed());
+
+    Resource resource = root.toResource().createRelative("/d1/f1");
+    assertEquals(100, resource.length());
+    assertTrue(Arrays.equals(content, readFully(resource.getInputStream())));
+
+    ByteBuffer buffer = resource.map();
+    assertEquals(100, buffer.remaining());
+    assertTrue(buffer.isReadOnly());
+
+    InputStream is = resource.getInputStream();
+    try
+    {
+      assertEquals(20, is.skip(20));
+      assertEquals(20, is.read());
+    }
+    finally
+    {
+      is.close();
+    }
+
+    // empty file
+    root.createOutputStream("empty").close();
+    assertEquals(0, root.toResource().createRelative("/empty").length());
+    assertEquals(0, root.toResource().createRelative("/empty").map().remaining());
+
+    // memory is given back when the file is removed
+    root.rm("d1");
+    assertEquals(0, allocator.getUsed().getSizeInBytes());
+  }
+
+  public void testBudget() throws Exception
+  {
+    RAMBufferAllocator allocator = new RAMBufferAllocator(CHUNK_SIZE, new MemorySize(48));
+    ConcurrentRAMDirectory root = new ConcurrentRAMDirectory(new SettableClock(), allocator);
+
+    OutputStream os = root.createOutputStream("f1");
+    os.write(new byte[20]);
+    os.close();
+
+    os = root.createOutputStream("f2");
+    try
+    {
+      os.write(new byte[20]);
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      // expected
+    }
+    os.close();
+    assertNull(root.getEntry("f2"));
+    assertEquals(32, allocator.getUsed().getSizeInBytes());
+
+    // replacing the file gives back its memory (once the new one has been written)
+    os = root.createOutputStream("f1");
+    os.write(new byte[5]);
+    os.close();
+    assertEquals(5, root.getEntry("f1").getContentLength());
+    assertEquals(16, allocator.getUsed().getSizeInBytes());
+
+    // snapshots share the content: the memory stays charged while the snapshot exists
+    Resource snapshot = root.toResource();
+    root.rm("f1");
+    assertEquals(16, allocator.getUsed().getSizeInBytes());
+    assertEquals(5, readFully(snapshot.createRelative("/f1").getInputStream()).length);
+
+    // ... and is given back once the snapshot has been garbage collected
+    snapshot = null;
+    for(int i = 0; i < 100 && allocator.getUsed().getSizeInBytes() > 0; i++)
+    {
+      System.gc();
+      Thread.sleep(10);
+      root.toResource();
+    }
+    assertEquals(0, allocator.getUsed().getSizeInBytes());
+  }
+
+  /**
+   * the memory of a file which is never created is given back
+   */
+  public void testFailedWrite() throws Exception
+  {
+    RAMBufferAllocator allocator = new RAMBufferAllocator(CHUNK_SIZE, new MemorySize(48));
+    ConcurrentRAMDirectory root = new ConcurrentRAMDirectory(new SettableClock(), allocator);
+
+    // budget exceeded in the middle of a write
+    OutputStream os = root.createOutputStream("f1");
+    os.write(new byte[20]);
+    try
+    {
+      os.write(new byte[100]);
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      // expected
+    }
+    assertEquals(0, allocator.getUsed().getSizeInBytes());
+    os.close();
+    assertNull(root.getEntry("f1"));
+    assertEquals(0, allocator.getUsed().getSizeInBytes());
+
+    // invalid (overflowing) range
+    os = root.createOutputStream("f1");
+    try
+    {
+      os.write(new byte[20], Integer.MAX_VALUE, Integer.MAX_VALUE);
+      fail("should fail");
+    }
+    catch(IndexOutOfBoundsException e)
+    {
+      // expected
+    }
+
+    // the directory has been removed before the file is added
+    RAMDirectory dir = root.mkdir("d1");
+    os = dir.createOutputStream("f1");
+    os.write(new byte[20]);
+    assertEquals(32, allocator.getUsed().getSizeInBytes());
+    root.rm("d1");
+    try
+    {
+      os.close();
+      fail("should fail");
+    }
+    catch(IllegalStateException e)
+    {
+      // expected
+    }
+    assertEquals(0, allocator.getUsed().getSizeInBytes());
+
+    // abandoned stream
+    os = root.createOutputStream("f1");
+    os.write(new byte[20]);
+    assertEquals(32, allocator.getUsed().getSizeInBytes());
+    os = null;
+    for(int i = 0; i < 100 && allocator.getUsed().getSizeInBytes() > 0; i++)
+    {
+      System.gc();
+      System.runFinalization();
+    }
+    assertEquals(0, allocator.getUsed().getSizeInBytes());
+  }
+
+  public void testOneBudgetPerTree() throws Exception
+  {
+    ConcurrentRAMDirectory root = new ConcurrentRAMDirectory(new SettableClock(),
+                                                             new RAMBufferAllocator(CHUNK_SIZE, null));
+
+    RAMDirectory dir = root.mkdirhier("/a/b/c");
+    assertSame(root.getAllocator(), dir.getAllocator());
+    assertSame(root.getAllocator(), root.mkdir("d").getAllocator());
+
+    OutputStream os = dir.createOutputStream("f1");
+    os.write(new byte[5]);
+    os.close();
+    assertEquals(16, root.getAllocator().getUsed().getSizeInBytes());
+
+    // the copy belongs to the same tree
+    RAMDirectory snapshot = root.snapshot();
+    assertSame(root.getAllocator(), snapshot.getAllocator());
+    assertSame(root.getAllocator(), snapshot.cd("/a/b/c").getAllocator());
+  }
+
+  private static byte[] readFully(InputStream is) throws IOException
+  {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try
+    {
+      IOUtils.copy(is, baos);
+    }
+    finally
+    {
+      is.close();
+    }
+    return baos.toByteArray();
+  }
+}
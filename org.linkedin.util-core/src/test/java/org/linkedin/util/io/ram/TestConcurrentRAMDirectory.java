@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.ram;
+
+import junit.framework.TestCase;
+import org.linkedin.util.clock.SettableClock;
+import org.linkedin.util.io.resource.RAMResource;
+import org.linkedin.util.io.resource.Resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestConcurrentRAMDirectory extends TestCase
+{
+  public void testPaths() throws Exception
+  {
+    ConcurrentRAMDirectory root = new ConcurrentRAMDirectory(new SettableClock());
+
+    RAMDirectory d3 = root.mkdirhier("/d1//d2/d3/");
+    assertTrue(d3 instanceof ConcurrentRAMDirectory);
+    assertSame(d3, root.getEntryByPath("d1/d2/d3"));
+    assertSame(d3, root.getEntryByPath("//d1/d2/d3//"));
+    assertSame(root, root.getEntryByPath("/"));
+    assertSame(root, root.getEntryByPath(""));
+
+    d3.add("f1", "abc");
+    assertEquals("f1", root.getEntryByPath("/d1/d2/d3/f1").name());
+    assertNull(root.getEntryByPath("/d1/d2/d3/f1/foo"));
+    assertNull(root.getEntryByPath("/d1/d4"));
+
+    assertSame(d3, root.mkdirhier("d1/d2/d3"));
+    try
+    {
+      root.mkdirhier("d1/d2/d3/f1/d4");
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      // expected
+    }
+  }
+
+  /**
+   * the resource returned by toResource is not affected by modifications
+   */
+  public void testSnapshot() throws Exception
+  {
+    SettableClock clock = new SettableClock();
+    ConcurrentRAMDirectory root = new ConcurrentRAMDirectory(clock);
+    root.mkdirhier("/d1").add("f1", "abc");
+
+    Resource snapshot = root.toResource();
+    Resource live = root.toLiveResource();
+    assertSame(snapshot, root.toResource());
+
+    long lastModified = snapshot.createRelative("/d1/f1").lastModified();
+
+    clock.setCurrentTimeMillis(lastModified + 1000);
+    root.cd("d1").add("f2", "def");
+    root.cd("d1").touch("f1", lastModified + 2000);
+    root.rm("d1");
+
+    assertTrue(snapshot.createRelative("/d1/f1").exists());
+    assertEquals(lastModified, snapshot.createRelative("/d1/f1").lastModified());
+    assertFalse(snapshot.createRelative("/d1/f2").exists());
+    assertFalse(live.createRelative("/d1/f1").exists());
+
+    Resource newSnapshot = root.toResource();
+    assertNotSame(snapshot, newSnapshot);
+    assertFalse(newSnapshot.createRelative("/d1").exists());
+
+    // plain copy
+    RAMDirectory copy = root.snapshot();
+    assertFalse(copy instanceof ConcurrentRAMDirectory);
+    assertTrue(copy.ls().isEmpty());
+  }
+
+  /**
+   * a modification only copies the directories on the path to the modified directory
+   */
+  public void testCopyOnWrite() throws Exception
+  {
+    ConcurrentRAMDirectory root = new ConcurrentRAMDirectory(new SettableClock());
+    root.mkdirhier("/d1").add("f1", "abc");
+    root.mkdirhier("/d2/d3").add("f2", "def");
+
+    Resource snapshot = root.toResource();
+    root.cd("d1").add("f3", "ghi");
+    Resource newSnapshot = root.toResource();
+
+    assertSame(getRAMEntry(snapshot, "/d2"), getRAMEntry(newSnapshot, "/d2"));
+    assertSame(getRAMEntry(snapshot, "/d1/f1"), getRAMEntry(newSnapshot, "/d1/f1"));
+    assertNotSame(getRAMEntry(snapshot, "/d1"), getRAMEntry(newSnapshot, "/d1"));
+    assertNull(getRAMEntry(snapshot, "/d1/f3"));
+
+    // snapshots are read only
+    try
+    {
+      ((RAMDirectory) getRAMEntry(snapshot, "/d1")).add("f4", "jkl");
+      fail("should fail");
+    }
+    catch(UnsupportedOperationException e)
+    {
+      // expected
+    }
+
+    // resource on a sub directory
+    RAMDirectory d2 = root.cd("d2");
+    Resource d2Snapshot = d2.toResource();
+    assertSame(d2Snapshot, d2.toResource());
+    d2.rm("d3");
+    assertTrue(d2Snapshot.createRelative("/d3/f2").exists());
+    assertFalse(d2.toResource().createRelative("/d3").exists());
+  }
+
+  /**
+   * a directory removed from the tree cannot be modified anymore
+   */
+  public void testRemovedDirectory() throws Exception
+  {
+    ConcurrentRAMDirectory root = new ConcurrentRAMDirectory(new SettableClock());
+    RAMDirectory d1 = root.mkdirhier("/d1");
+    d1.add("f1", "abc");
+
+    RAMEntry removed = root.rm("d1");
+    assertEquals("f1", ((RAMDirectory) removed).getEntry("f1").name());
+    assertNull(d1.getEntry("f1"));
+    try
+    {
+      d1.add("f2", "def");
+      fail("should fail");
+    }
+    catch(IllegalStateException e)
+    {
+      // expected
+    }
+
+    RAMDirectory newD1 = root.mkdir("d1");
+    assertNotSame(d1, newD1);
+    assertSame(newD1, root.cd("d1"));
+    assertTrue(newD1.ls().isEmpty());
+  }
+
+  /**
+   * concurrent readers after a modification share the same (new) snapshot
+   */
+  public void testConcurrentSnapshots() throws Exception
+  {
+    final ConcurrentRAMDirectory root = new ConcurrentRAMDirectory(new SettableClock());
+    for(int i = 0; i < 100; i++)
+      root.mkdirhier("/d" + (i % 10)).add("f" + i, "content" + i);
+
+    final Resource[] snapshots = new Resource[8];
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[snapshots.length];
+    for(int i = 0; i < threads.length; i++)
+    {
+      final int idx = i;
+      threads[i] = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            start.await();
+            snapshots[idx] = root.toResource();
+          }
+          catch(InterruptedException e)
+          {
+            // snapshot stays null => the test fails
+          }
+        }
+      });
+      threads[i].start();
+    }
+
+    start.countDown();
+    for(Thread thread : threads)
+      thread.join();
+
+    for(Resource snapshot : snapshots)
+      assertSame(snapshots[0], snapshot);
+  }
+
+  /**
+   * readers can walk snapshots while writers modify the tree
+   */
+  public void testConcurrentReadersAndWriters() throws Exception
+  {
+    final ConcurrentRAMDirectory root = new ConcurrentRAMDirectory();
+    final AtomicBoolean done = new AtomicBoolean(false);
+    final BlockingQueue<Throwable> errors = new ArrayBlockingQueue<Throwable>(10);
+    final int writerCount = 2;
+    final CountDownLatch writersDone = new CountDownLatch(writerCount);
+
+    for(int w = 0; w < writerCount; w++)
+    {
+      new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            for(int i = 0; i < 500; i++)
+            {
+              root.mkdirhier("/d" + (i % 10) + "/e").add("f" + i, "content" + i);
+              if(i % 3 == 0)
+                root.cd("/d" + (i % 10) + "/e").rm("f" + (i - 1));
+            }
+          }
+          catch(Throwable th)
+          {
+            errors.offer(th);
+          }
+          finally
+          {
+            writersDone.countDown();
+          }
+        }
+      }).start();
+    }
+
+    Thread reader = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          while(!done.get())
+          {
+            Resource resource = root.toResource();
+            for(int i = 0; i < 10; i++)
+            {
+              Resource e = resource.createRelative("/d" + i + "/e");
+              Resource[] files = e.list();
+              if(files != null)
+              {
+                for(Resource file : files)
+                {
+                  String expected = "content" + file.getFilename().substring(1);
+                  ByteBuffer content = file.map();
+                  byte[] bytes = new byte[content.remaining()];
+                  content.get(bytes);
+                  assertEquals(expected, new String(bytes, "UTF-8"));
+                }
+              }
+            }
+          }
+        }
+        catch(Throwable th)
+        {
+          errors.offer(th);
+        }
+      }
+    });
+    reader.start();
+
+    writersDone.await();
+    done.set(true);
+    reader.join();
+
+    List<Throwable> list = new ArrayList<Throwable>();
+    errors.drainTo(list);
+    assertEquals(Collections.<Throwable>emptyList(), list);
+
+    for(int i = 0; i < 10; i++)
+    {
+      assertTrue(root.cd("/d" + i + "/e").ls().size() > 0);
+    }
+  }
+
+  private static RAMEntry getRAMEntry(Resource resource, String path)
+  {
+    return ((RAMResource) resource.createRelative(path)).getRAMEntry();
+  }
+}
@@ -33,12 +33,18 @@ import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -1015,6 +1021,8 @@ public class TestResource extends TestCase
     else
     {
       assertEquals(readContent(file), readContent(resource));
+      assertEquals(readContent(file), readChannelContent(resource));
+      assertEquals(readContent(file), readMappedContent(resource));
     }
 
     checker.checkURI(resource, file);
@@ -1221,6 +1229,103 @@ public class TestResource extends TestCase
     }
   }
 
+  /**
+   * The copy of a file channel completes even if the target channel does not accept bytes from
+   * time to time (like a non blocking channel)
+   */
+  public void testChannelCopyToStallingChannel() throws IOException
+  {
+    File file = File.createTempFile(TestResource.class.getName(), ".txt");
+    try
+    {
+      byte[] content = new byte[100000];
+      for(int i = 0; i < content.length; i++)
+        content[i] = (byte) i;
+      FileOutputStream fos = new FileOutputStream(file);
+      try
+      {
+        fos.write(content);
+      }
+      finally
+      {
+        fos.close();
+      }
+
+      final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      WritableByteChannel stalling = new WritableByteChannel()
+      {
+        private final WritableByteChannel _channel = Channels.newChannel(baos);
+        private int _writes = 0;
+
+        @Override
+        public int write(ByteBuffer src) throws IOException
+        {
+          // accepts nothing on every other write
+          if(_writes++ % 2 == 0)
+            return 0;
+          return _channel.write(src);
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+          return true;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+      };
+
+      FileInputStream fis = new FileInputStream(file);
+      try
+      {
+        assertEquals(content.length, IOUtils.copy(fis.getChannel(), stalling));
+      }
+      finally
+      {
+        fis.close();
+      }
+
+      assertTrue(Arrays.equals(content, baos.toByteArray()));
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  /**
+   * Reads the full content of the resource through its channel
+   */
+  public static String readChannelContent(Resource resource) throws IOException
+  {
+    ReadableByteChannel channel = resource.getReadableChannel();
+    try
+    {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      IOUtils.copy(channel, Channels.newChannel(baos));
+      return new String(baos.toByteArray());
+    }
+    finally
+    {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads the full content of the resource through {@link Resource#map()}
+   */
+  public static String readMappedContent(Resource resource) throws IOException
+  {
+    ByteBuffer buffer = resource.map();
+    assertTrue(buffer.isReadOnly());
+    byte[] content = new byte[buffer.remaining()];
+    buffer.get(content);
+    return new String(content);
+  }
+
   /**
    * Reads the full content of the file
    *
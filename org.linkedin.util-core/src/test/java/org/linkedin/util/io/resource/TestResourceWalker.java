@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.resource;
+
+import junit.framework.TestCase;
+import org.linkedin.util.io.ram.RAMDirectory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestResourceWalker extends TestCase
+{
+  private Resource _root;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    super.setUp();
+
+    RAMDirectory root = new RAMDirectory();
+    root.add("f1", "f1");
+    root.mkdirhier("d1/d2/d3").add("f4", "f4");
+    root.cd("d1").add("f2", "f2");
+    root.cd("d1/d2").add("f3", "f3");
+    root.mkdir("e1").add("g2", "g2");
+    _root = root.toResource();
+  }
+
+  /**
+   * sequential walk (depth, filters)
+   */
+  public void testWalk() throws Exception
+  {
+    ResourceWalker walker = new ResourceWalker();
+
+    assertEquals(paths("/d1", "/d1/d2", "/d1/d2/d3", "/d1/d2/d3/f4", "/d1/d2/f3", "/d1/f2",
+                       "/e1", "/e1/g2", "/f1"),
+                 sort(walker.findAll(_root)));
+
+    // depth
+    walker.setMaxDepth(2);
+    assertEquals(paths("/d1", "/d1/d2", "/d1/f2", "/e1", "/e1/g2", "/f1"),
+                 sort(walker.findAll(_root)));
+    walker.setMaxDepth(-1);
+
+    // filter (directories are still descended into)
+    walker.setFilter(new FilenameEndsWithResourceFilter("3"));
+    assertEquals(paths("/d1/d2/d3", "/d1/d2/f3"), sort(walker.findAll(_root)));
+
+    // directory filter
+    walker.setFilter(null);
+    walker.setDirectoryFilter(new ResourceFilter()
+    {
+      @Override
+      public boolean accept(Resource resource)
+      {
+        return !resource.getFilename().equals("d2");
+      }
+    });
+    assertEquals(paths("/d1", "/d1/d2", "/d1/f2", "/e1", "/e1/g2", "/f1"),
+                 sort(walker.findAll(_root)));
+
+    // not a directory
+    assertEquals(0, walker.findAll(_root.createRelative("/f1")).size());
+  }
+
+  /**
+   * the walk stops as soon as the visitor returns false
+   */
+  public void testEarlyTermination() throws Exception
+  {
+    final AtomicInteger count = new AtomicInteger(0);
+
+    ResourceVisitor visitor = new ResourceVisitor()
+    {
+      @Override
+      public boolean visit(Resource resource)
+      {
+        return count.incrementAndGet() < 3;
+      }
+    };
+
+    assertFalse(new ResourceWalker().walk(_root, visitor));
+    assertEquals(3, count.get());
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try
+    {
+      count.set(0);
+      assertFalse(new ResourceWalker(executor).walk(_root, visitor));
+      assertTrue(count.get() >= 3);
+      assertTrue(count.get() < 9);
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * parallel walk finds the same resources
+   */
+  public void testParallelWalk() throws Exception
+  {
+    RAMDirectory root = new RAMDirectory();
+    List<String> expected = new ArrayList<String>();
+    for(int i = 0; i < 20; i++)
+    {
+      RAMDirectory dir = root.mkdirhier("d" + i + "/e" + i);
+      expected.add("/d" + i);
+      expected.add("/d" + i + "/e" + i);
+      for(int j = 0; j < 10; j++)
+      {
+        dir.add("f" + j, "f" + j);
+        expected.add("/d" + i + "/e" + i + "/f" + j);
+      }
+    }
+    Collections.sort(expected);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try
+    {
+      ResourceWalker walker = new ResourceWalker(executor);
+      assertEquals(expected, sort(walker.findAll(root.toResource())));
+
+      // the executor is reusable
+      assertEquals(expected, sort(walker.findAll(root.toResource())));
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * an exception while listing stops the walk and is propagated
+   */
+  public void testException() throws Exception
+  {
+    ResourceWalker walker = new ResourceWalker();
+    walker.setFilter(new ResourceFilter()
+    {
+      @Override
+      public boolean accept(Resource resource)
+      {
+        throw new IllegalStateException("failing");
+      }
+    });
+
+    try
+    {
+      walker.findAll(_root);
+      fail("should fail");
+    }
+    catch(IllegalStateException e)
+    {
+      // expected in the calling thread
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try
+    {
+      walker = new ResourceWalker(executor);
+      walker.setFilter(new ResourceFilter()
+      {
+        @Override
+        public boolean accept(Resource resource)
+        {
+          throw new IllegalStateException("failing");
+        }
+      });
+      walker.findAll(_root);
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<String> paths(String... paths)
+  {
+    List<String> res = new ArrayList<String>();
+    Collections.addAll(res, paths);
+    return res;
+  }
+
+  private static List<String> sort(List<Resource> resources)
+  {
+    List<String> res = new ArrayList<String>();
+    for(Resource resource : resources)
+    {
+      res.add(resource.getPath());
+    }
+    Collections.sort(res);
+    return res;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.resource.internal;
+
+import junit.framework.TestCase;
+import org.linkedin.util.io.IOUtils;
+import org.linkedin.util.io.resource.Resource;
+import org.linkedin.util.io.resource.ResourceInfo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the stats issued on the files when listing and inspecting file resources.
+ *
+ * @author yan@pongasoft.com
+ */
+public class TestFileResourceStats extends TestCase
+{
+  /**
+   * A file which counts the calls hitting the filesystem
+   */
+  private static class CountingFile extends File
+  {
+    private final AtomicInteger _stats;
+
+    private CountingFile(File file, AtomicInteger stats)
+    {
+      super(file.getPath());
+      _stats = stats;
+    }
+
+    @Override
+    public boolean exists()
+    {
+      _stats.incrementAndGet();
+      return super.exists();
+    }
+
+    @Override
+    public boolean isDirectory()
+    {
+      _stats.incrementAndGet();
+      return super.isDirectory();
+    }
+
+    @Override
+    public boolean isFile()
+    {
+      _stats.incrementAndGet();
+      return super.isFile();
+    }
+
+    @Override
+    public long lastModified()
+    {
+      _stats.incrementAndGet();
+      return super.lastModified();
+    }
+
+    @Override
+    public long length()
+    {
+      _stats.incrementAndGet();
+      return super.length();
+    }
+  }
+
+  private File _root;
+  private final AtomicInteger _stats = new AtomicInteger(0);
+  private Resource _rootResource;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    super.setUp();
+    _root = IOUtils.createTempDirectory(TestFileResourceStats.class.getName(), "files");
+    IOUtils.createNewDirectory(new File(_root, "dir"));
+    for(int i = 0; i < 3; i++)
+    {
+      FileOutputStream fos = new FileOutputStream(new File(_root, "file" + i));
+      try
+      {
+        fos.write(new byte[i + 1]);
+      }
+      finally
+      {
+        fos.close();
+      }
+    }
+
+    FileResourceProvider provider = new FileResourceProvider(_root)
+    {
+      @Override
+      protected File[] listFiles(File directory)
+      {
+        File[] files = super.listFiles(directory);
+        if(files != null)
+        {
+          for(int i = 0; i < files.length; i++)
+            files[i] = new CountingFile(files[i], _stats);
+        }
+        return files;
+      }
+    };
+    _rootResource = provider.createResource("/");
+  }
+
+  @Override
+  protected void tearDown() throws Exception
+  {
+    try
+    {
+      IOUtils.deleteFile(_root);
+    }
+    finally
+    {
+      super.tearDown();
+    }
+  }
+
+  /**
+   * last modified (1), length (2 for a file, 1 for a directory) and is directory (1)
+   */
+  public void testListAndInspect() throws IOException
+  {
+    Resource[] resources = _rootResource.list();
+    assertEquals(4, resources.length);
+    assertEquals(0, _stats.get());
+
+    for(Resource resource : resources)
+    {
+      int before = _stats.get();
+      long lastModified = resource.lastModified();
+      long length = resource.length();
+      boolean directory = resource.isDirectory();
+      assertTrue(lastModified > 0);
+      if(directory)
+      {
+        assertEquals(0, length);
+        assertEquals(resource.getPath(), 3, _stats.get() - before);
+      }
+      else
+      {
+        assertTrue(length > 0);
+        assertEquals(resource.getPath(), 4, _stats.get() - before);
+      }
+    }
+  }
+
+  /**
+   * exists (1), length (2) and last modified (1)
+   */
+  public void testGetInfo() throws IOException
+  {
+    for(Resource resource : _rootResource.list())
+    {
+      if(resource.getFilename().startsWith("file"))
+      {
+        int before = _stats.get();
+        ResourceInfo info = resource.getInfo();
+        assertTrue(info.getContentLength() > 0);
+        assertTrue(info.getLastModified() > 0);
+        assertEquals(resource.getPath(), 4, _stats.get() - before);
+      }
+    }
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.linkedin.util.io.resource.internal;
+
+import junit.framework.TestCase;
+import org.linkedin.util.clock.SettableClock;
+import org.linkedin.util.clock.Timespan;
+import org.linkedin.util.io.IOUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestJarFileCache extends TestCase
+{
+  private File _root;
+  private File _jar;
+  private SettableClock _clock;
+  private JarFileCache _cache;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    super.setUp();
+    _root = IOUtils.createTempDirectory(TestJarFileCache.class.getName(), "jars");
+    _jar = new File(_root, "test.jar");
+    createJar(_jar, "b/", "b/f1", "b/c/", "b/c/f2", "a", "d/f3");
+    _clock = new SettableClock();
+    _cache = new JarFileCache(_clock, Timespan.parse("10s"));
+  }
+
+  @Override
+  protected void tearDown() throws Exception
+  {
+    try
+    {
+      _cache.clear();
+      IOUtils.deleteFile(_root);
+    }
+    finally
+    {
+      super.tearDown();
+    }
+  }
+
+  /**
+   * the index should be sorted and follow the same lookup rules as <code>JarFile</code>
+   */
+  public void testIndex() throws IOException
+  {
+    CachedJarFile jarFile = _cache.acquire(_jar);
+    try
+    {
+      assertEquals(6, jarFile.getEntryCount());
+      for(int i = 1; i < jarFile.getEntryCount(); i++)
+        assertTrue(jarFile.getEntryName(i - 1).compareTo(jarFile.getEntryName(i)) < 0);
+
+      assertEquals("a", jarFile.getJarEntry("a").getName());
+      assertEquals("b/", jarFile.getJarEntry("b").getName());
+      assertEquals("b/c/", jarFile.getJarEntry("b/c/").getName());
+      assertNull(jarFile.getExactJarEntry("b/c"));
+      assertNull(jarFile.getJarEntry("d")); // no explicit directory entry
+      assertNull(jarFile.getJarEntry("e"));
+
+      assertEquals("b/", jarFile.getEntryName(jarFile.findFirstIndex("b/")));
+      assertEquals("d/f3", jarFile.getEntryName(jarFile.findFirstIndex("d/")));
+      assertEquals(jarFile.getEntryCount(), jarFile.findFirstIndex("e/"));
+    }
+    finally
+    {
+      jarFile.release();
+    }
+  }
+
+  /**
+   * the jar file is shared and stays open until idle for too long
+   */
+  public void testSharingAndIdleEviction() throws IOException
+  {
+    CachedJarFile jarFile1 = _cache.acquire(_jar);
+    CachedJarFile jarFile2 = _cache.acquire(_jar);
+    assertSame(jarFile1, jarFile2);
+    assertEquals(2, jarFile1.getRefCount());
+
+    jarFile1.release();
+    jarFile2.release();
+    assertEquals(0, jarFile1.getRefCount());
+    assertEquals(1, _cache.size());
+    assertFalse(jarFile1.isClosed());
+
+    _clock.addDuration(Timespan.parse("5s"));
+    _cache.evictIdle();
+    assertEquals(1, _cache.size());
+    assertSame(jarFile1, _cache.acquire(_jar));
+    jarFile1.release();
+
+    _clock.addDuration(Timespan.parse("10s"));
+    _cache.evictIdle();
+    assertEquals(0, _cache.size());
+    assertTrue(jarFile1.isClosed());
+
+    // a jar file in use is never evicted
+    CachedJarFile jarFile3 = _cache.acquire(_jar);
+    assertNotSame(jarFile1, jarFile3);
+    _clock.addDuration(Timespan.parse("1m"));
+    _cache.evictIdle();
+    assertEquals(1, _cache.size());
+    assertFalse(jarFile3.isClosed());
+    jarFile3.release();
+
+    try
+    {
+      jarFile3.release();
+      fail("should fail");
+    }
+    catch(IllegalStateException e)
+    {
+      // expected
+    }
+  }
+
+  /**
+   * a modified jar file is reopened and the old one is closed when not used anymore
+   */
+  public void testInvalidation() throws IOException
+  {
+    CachedJarFile jarFile1 = _cache.acquire(_jar);
+
+    createJar(_jar, "a", "z");
+    assertTrue(_jar.setLastModified(_jar.lastModified() + 2000));
+
+    CachedJarFile jarFile2 = _cache.acquire(_jar);
+    assertNotSame(jarFile1, jarFile2);
+    assertEquals(2, jarFile2.getEntryCount());
+    assertNotNull(jarFile2.getJarEntry("z"));
+
+    // still in use
+    assertFalse(jarFile1.isClosed());
+    jarFile1.release();
+    assertTrue(jarFile1.isClosed());
+
+    jarFile2.release();
+    assertFalse(jarFile2.isClosed());
+    assertEquals(1, _cache.size());
+  }
+
+  /**
+   * a jar file rewritten within the same last modified tick is detected with its length
+   */
+  public void testInvalidationSameLastModified() throws IOException
+  {
+    CachedJarFile jarFile1 = _cache.acquire(_jar);
+    long lastModified = _jar.lastModified();
+
+    createJar(_jar, "a", "z");
+    assertTrue(_jar.setLastModified(lastModified));
+
+    CachedJarFile jarFile2 = _cache.acquire(_jar);
+    assertNotSame(jarFile1, jarFile2);
+    assertEquals(2, jarFile2.getEntryCount());
+
+    jarFile1.release();
+    jarFile2.release();
+  }
+
+  /**
+   * concurrent acquires open the jar file only once and a failure is not cached
+   */
+  public void testConcurrentAcquire() throws Exception
+  {
+    final CachedJarFile[] jarFiles = new CachedJarFile[8];
+    final Throwable[] errors = new Throwable[jarFiles.length];
+    Thread[] threads = new Thread[jarFiles.length];
+    for(int i = 0; i < threads.length; i++)
+    {
+      final int idx = i;
+      threads[i] = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            jarFiles[idx] = _cache.acquire(_jar);
+          }
+          catch(Throwable th)
+          {
+            errors[idx] = th;
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    for(int i = 0; i < threads.length; i++)
+    {
+      threads[i].join();
+      assertNull(errors[i]);
+      assertSame(jarFiles[0], jarFiles[i]);
+    }
+    assertEquals(jarFiles.length, jarFiles[0].getRefCount());
+    for(CachedJarFile jarFile : jarFiles)
+      jarFile.release();
+
+    File missing = new File(_root, "missing.jar");
+    try
+    {
+      _cache.acquire(missing);
+      fail("should fail");
+    }
+    catch(IOException e)
+    {
+      // expected
+    }
+    assertEquals(1, _cache.size());
+
+    createJar(missing, "a");
+    CachedJarFile jarFile = _cache.acquire(missing);
+    assertEquals(1, jarFile.getEntryCount());
+    jarFile.release();
+  }
+
+  private static void createJar(File jar, String... entries) throws IOException
+  {
+    JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar));
+    try
+    {
+      for(String entry : entries)
+      {
+        jos.putNextEntry(new JarEntry(entry));
+        if(!entry.endsWith("/"))
+          jos.write(entry.getBytes("UTF-8"));
+        jos.closeEntry();
+      }
+    }
+    finally
+    {
+      jos.close();
+    }
+  }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.io.resource.internal;
+
+import junit.framework.TestCase;
+import org.linkedin.util.clock.SettableClock;
+import org.linkedin.util.clock.Timespan;
+import org.linkedin.util.io.IOUtils;
+import org.linkedin.util.io.ram.RAMDirectory;
+import org.linkedin.util.io.resource.Resource;
+import org.linkedin.util.lang.MemorySize;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestLocalContentCache extends TestCase
+{
+  private File _root;
+  private SettableClock _clock;
+  private RAMDirectory _ramDirectory;
+  private Resource _ramRoot;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    super.setUp();
+    _root = IOUtils.createTempDirectory(TestLocalContentCache.class.getName(), "cache");
+    _clock = new SettableClock();
+    _ramDirectory = new RAMDirectory(_clock);
+    _ramDirectory.add("a.txt", "0123456789");
+    _ramDirectory.add("b.txt", "abcdefghij");
+    _ramDirectory.add("c.txt", "ABCDEFGHIJ");
+    _ramRoot = _ramDirectory.toResource();
+  }
+
+  @Override
+  protected void tearDown() throws Exception
+  {
+    try
+    {
+      IOUtils.deleteFile(_root);
+    }
+    finally
+    {
+      super.tearDown();
+    }
+  }
+
+  /**
+   * hits, misses and revalidation
+   */
+  public void testHitAndMiss() throws IOException
+  {
+    LocalContentCache cache = new LocalContentCache(_root, MemorySize.parse("1k"));
+
+    Resource a = _ramRoot.createRelative("/a.txt");
+
+    File file = cache.getFile(a);
+    assertEquals("0123456789", readContent(file));
+    assertEquals(0, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    assertEquals(file, cache.getFile(a));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(10, cache.getSize().getSizeInBytes());
+
+    // modifying the resource => downloaded again
+    _clock.addDuration(Timespan.parse("1s"));
+    _ramDirectory.add("a.txt", "9876543210");
+    assertEquals("9876543210", readContent(cache.getFile(a)));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(1, cache.getEntryCount());
+    assertEquals(10, cache.getSize().getSizeInBytes());
+
+    // the local cache leaf resource uses the cache
+    LeafResource leaf = LocalCacheLeafResource.create(a, cache);
+    assertEquals("9876543210", readContent(leaf.getFile()));
+    assertEquals(10, leaf.length());
+    assertEquals(2, cache.getHitCount());
+
+    // the file gets deleted behind its back => fetched again
+    IOUtils.deleteFile(leaf.getFile());
+    assertEquals("9876543210", readContent(leaf.getFile()));
+    assertEquals(3, cache.getMissCount());
+
+    assertEquals(0, cache.getEvictionCount());
+  }
+
+  /**
+   * the least recently used entries are evicted when the limit is reached
+   */
+  public void testEviction() throws IOException
+  {
+    LocalContentCache cache = new LocalContentCache(_root, MemorySize.parse("25"));
+
+    Resource a = _ramRoot.createRelative("/a.txt");
+    Resource b = _ramRoot.createRelative("/b.txt");
+    Resource c = _ramRoot.createRelative("/c.txt");
+
+    File fa = cache.getFile(a);
+    File fb = cache.getFile(b);
+    cache.getFile(a); // a is now more recent than b
+    File fc = cache.getFile(c);
+
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(2, cache.getEntryCount());
+    assertEquals(20, cache.getSize().getSizeInBytes());
+    assertTrue(fa.exists());
+    assertFalse(fb.exists());
+    assertTrue(fc.exists());
+
+    cache.clear();
+    assertEquals(0, cache.getEntryCount());
+    assertEquals(0, cache.getSize().getSizeInBytes());
+    assertFalse(fa.exists());
+  }
+
+  /**
+   * the content survives a restart
+   */
+  public void testReload() throws IOException
+  {
+    LocalContentCache cache = new LocalContentCache(_root, MemorySize.parse("1k"));
+
+    Resource a = _ramRoot.createRelative("/a.txt");
+    Resource b = _ramRoot.createRelative("/b.txt");
+
+    File fa = cache.getFile(a);
+    cache.getFile(b);
+
+    // leftover from an interrupted download
+    File tmpFile = new File(_root, "xyz" + LocalContentCache.TMP_EXTENSION);
+    assertTrue(tmpFile.createNewFile());
+
+    cache = new LocalContentCache(_root, MemorySize.parse("1k"));
+    assertEquals(2, cache.getEntryCount());
+    assertEquals(20, cache.getSize().getSizeInBytes());
+    assertFalse(tmpFile.exists());
+
+    assertEquals(fa, cache.getFile(a));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(0, cache.getMissCount());
+
+    // reducing the size evicts entries
+    cache = new LocalContentCache(_root, MemorySize.parse("15"));
+    assertEquals(1, cache.getEntryCount());
+    assertEquals(1, cache.getEvictionCount());
+  }
+
+  /**
+   * concurrent misses for the same resource download it only once
+   */
+  public void testConcurrentMisses() throws Exception
+  {
+    final LocalContentCache cache = new LocalContentCache(_root, MemorySize.parse("1k"));
+
+    final AtomicInteger downloadCount = new AtomicInteger(0);
+    final Resource a = slowResource(_ramRoot.createRelative("/a.txt"), downloadCount);
+
+    final File[] files = new File[8];
+    final Throwable[] errors = new Throwable[files.length];
+    Thread[] threads = new Thread[files.length];
+    for(int i = 0; i < threads.length; i++)
+    {
+      final int idx = i;
+      threads[i] = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            files[idx] = cache.getFile(a);
+          }
+          catch(Throwable th)
+          {
+            errors[idx] = th;
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    for(int i = 0; i < threads.length; i++)
+    {
+      threads[i].join();
+      assertNull(errors[i]);
+      assertEquals(files[0], files[i]);
+    }
+
+    assertEquals(1, downloadCount.get());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(files.length - 1, cache.getHitCount());
+    assertEquals("0123456789", readContent(files[0]));
+    assertTrue(new File(_root, files[0].getName().replace(LocalContentCache.DATA_EXTENSION,
+                                                          LocalContentCache.INFO_EXTENSION))
+                 .exists());
+  }
+
+  /**
+   * the leaf resource can be used concurrently while its local copy gets evicted
+   */
+  public void testConcurrentLeafResource() throws Exception
+  {
+    final LocalContentCache cache = new LocalContentCache(_root, MemorySize.parse("1k"));
+    final LeafResource leaf = LocalCacheLeafResource.create(_ramRoot.createRelative("/a.txt"),
+                                                            cache);
+
+    final Throwable[] errors = new Throwable[1];
+    Thread reader = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          for(int i = 0; i < 2000; i++)
+          {
+            assertTrue(leaf.exists());
+            assertEquals(10, leaf.length());
+            assertTrue(leaf.lastModified() > 0);
+          }
+        }
+        catch(Throwable th)
+        {
+          errors[0] = th;
+        }
+      }
+    };
+    reader.start();
+
+    for(int i = 0; i < 100; i++)
+    {
+      IOUtils.deleteFile(leaf.getFile());
+      assertEquals("0123456789", readContent(leaf.getFile()));
+    }
+
+    reader.join();
+    assertNull(errors[0]);
+  }
+
+  /**
+   * @return the resource, counting the downloads (and making them slow)
+   */
+  private static Resource slowResource(final Resource resource, final AtomicInteger downloadCount)
+  {
+    return (Resource) Proxy.newProxyInstance(Resource.class.getClassLoader(),
+                                             new Class<?>[] {Resource.class},
+                                             new InvocationHandler()
+    {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+      {
+        if(method.getName().equals("getInputStream"))
+        {
+          downloadCount.incrementAndGet();
+          Thread.sleep(100);
+        }
+        try
+        {
+          return method.invoke(resource, args);
+        }
+        catch(InvocationTargetException e)
+        {
+          throw e.getCause();
+        }
+      }
+    });
+  }
+
+  private static String readContent(File file) throws IOException
+  {
+    InputStream is = new FileInputStream(file);
+    try
+    {
+      Reader reader = new InputStreamReader(is, "UTF-8");
+      StringWriter sw = new StringWriter();
+      IOUtils.copy(reader, sw);
+      return sw.toString();
+    }
+    finally
+    {
+      is.close();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.text;
+
+import junit.framework.TestCase;
+
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestMultiReplacer extends TestCase
+{
+  public void testReplace() throws Exception
+  {
+    Map<String, String> replacements = new LinkedHashMap<String, String>();
+    replacements.put(".", "%2E");
+    replacements.put("he", "HE");
+    replacements.put("hers", "HERS");
+    replacements.put("she", "SHE");
+    replacements.put("\u20ac", "EUR");
+
+    MultiReplacer replacer = MultiReplacer.compile(replacements);
+
+    // leftmost then longest
+    assertEquals("uSHErs", replacer.replace("ushers"));
+    assertEquals("HERS%2E", replacer.replace("hers."));
+    assertEquals("HEr", replacer.replace("her"));
+    assertEquals("10 EUR%2E", replacer.replace("10 \u20ac."));
+
+    // same instance when nothing matched
+    String s = "nothing to replace";
+    assertSame(s, replacer.replace(s));
+    assertNull(replacer.replace(null));
+    assertFalse(replacer.matches(s));
+    assertTrue(replacer.matches("a.b"));
+
+    // replacements are not searched again
+    replacements.clear();
+    replacements.put("a", "b");
+    replacements.put("b", "a");
+    assertEquals("ba", MultiReplacer.compile(replacements).replace("ab"));
+
+    // appendable
+    StringWriter writer = new StringWriter();
+    replacer.replace(new StringBuilder("she.he"), writer);
+    assertEquals("SHE%2EHE", writer.toString());
+    assertEquals("xSHE", replacer.replace("she", new StringBuilder("x")).toString());
+
+    assertEquals("a%2Eb", TextUtils.searchAndReplace("a.b", replacements(".", "%2E")));
+  }
+
+  public void testInvalid()
+  {
+    try
+    {
+      MultiReplacer.compile(replacements("", "x"));
+      fail("should fail");
+    }
+    catch(IllegalArgumentException e)
+    {
+      // expected
+    }
+
+    try
+    {
+      MultiReplacer.compile(replacements("a", null));
+      fail("should fail");
+    }
+    catch(IllegalArgumentException e)
+    {
+      // expected
+    }
+  }
+
+  /**
+   * Compares with a naive implementation
+   */
+  public void testRandom()
+  {
+    Random random = new Random(42);
+    for(int n = 0; n < 200; n++)
+    {
+      Map<String, String> replacements = new LinkedHashMap<String, String>();
+      int count = 1 + random.nextInt(6);
+      for(int i = 0; i < count; i++)
+        replacements.put(randomString(random, 1 + random.nextInt(4)), "<" + i + ">");
+
+      String s = randomString(random, random.nextInt(40));
+      assertEquals(naiveReplace(s, replacements), MultiReplacer.compile(replacements).replace(s));
+    }
+  }
+
+  private static String naiveReplace(String s, Map<String, String> replacements)
+  {
+    StringBuilder sb = new StringBuilder();
+    int i = 0;
+    while(i < s.length())
+    {
+      String best = null;
+      for(String src : replacements.keySet())
+      {
+        if(s.startsWith(src, i) && (best == null || src.length() > best.length()))
+          best = src;
+      }
+      if(best == null)
+      {
+        sb.append(s.charAt(i));
+        i++;
+      }
+      else
+      {
+        sb.append(replacements.get(best));
+        i += best.length();
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String randomString(Random random, int length)
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < length; i++)
+      sb.append((char) ('a' + random.nextInt(3)));
+    return sb.toString();
+  }
+
+  private static Map<String, String> replacements(String src, String dst)
+  {
+    Map<String, String> replacements = new LinkedHashMap<String, String>();
+    replacements.put(src, dst);
+    return replacements;
+  }
+}
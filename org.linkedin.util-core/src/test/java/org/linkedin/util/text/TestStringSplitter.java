@@ -18,8 +18,12 @@ package org.linkedin.util.text;
 
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.TreeSet;
 
 /**
  *
@@ -162,4 +166,73 @@ public class TestStringSplitter extends TestCase
       // ok
     }
   }
+
+  public void testStringSplitterIteratorBlockIgnore()
+  {
+    StringSplitter ss2 = new StringSplitter('=', '\'');
+    StringSplitter ss3 = new StringSplitter('=', "<|>");
+
+    checkResult(ss2.splitToIterator(""), EMPTY_STRING_ARRAY);
+    checkResult(ss2.splitToIterator(S2), new String[] { "param1", "value1&param2",
+                                                        "'value2=value3=value4'" });
+    checkResult(ss2.splitToIterator("'='"), new String[] { "'='" });
+    checkResult(ss3.splitToIterator(S3), new String[] { "param1", "value1&param2",
+                                                        "<|>value2=value3=value4<|>" });
+  }
+
+  public void testMultiCharDelimiter()
+  {
+    StringSplitter ss = new StringSplitter(", ");
+
+    checkResult(ss.split("a, b,c, , d"), new String[] { "a", "b,c", "", "d" });
+    checkResult(ss.split(", "), new String[] { "", "" });
+    checkResult(ss.split("a,"), new String[] { "a," });
+    checkResult(ss.splitToIterator("a, b,c"), new String[] { "a", "b,c" });
+
+    StringSplitter ssBlockIgnore = new StringSplitter("&&", "'");
+    checkResult(ssBlockIgnore.split("a=1&&b='x&&y'&&c"), new String[] { "a=1", "b='x&&y'", "c" });
+
+    try
+    {
+      new StringSplitter("");
+      fail("empty delimiter should fail");
+    }
+    catch(IllegalArgumentException e)
+    {
+      // ok
+    }
+  }
+
+  public void testVisitor()
+  {
+    StringSplitter ss2 = new StringSplitter('=', '\'');
+
+    final List<String> tokens = new ArrayList<String>();
+    TokenVisitor visitor = new TokenVisitor()
+    {
+      @Override
+      public boolean visitToken(CharSequence s, int start, int end)
+      {
+        tokens.add(s.subSequence(start, end).toString());
+        return !"stop".equals(tokens.get(tokens.size() - 1));
+      }
+    };
+
+    // works on any char sequence
+    assertTrue(ss2.split(new StringBuilder(S2), visitor));
+    assertEquals(Arrays.asList("param1", "value1&param2", "'value2=value3=value4'"), tokens);
+
+    // stops early
+    tokens.clear();
+    assertFalse(new StringSplitter(',').split("a,stop,b,c", visitor));
+    assertEquals(Arrays.asList("a", "stop"), tokens);
+
+    tokens.clear();
+    assertTrue(ss2.split("", visitor));
+    assertTrue(ss2.split(null, visitor));
+    assertEquals(0, tokens.size());
+
+    assertEquals(new TreeSet<String>(Arrays.asList("a", "b", "c")),
+                 new StringSplitter(',').splitAsSet("c,a,b,a"));
+  }
 }
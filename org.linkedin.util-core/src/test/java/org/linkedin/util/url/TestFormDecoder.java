@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+import junit.framework.TestCase;
+import org.linkedin.util.lang.MemorySize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestFormDecoder extends TestCase
+{
+  public void testDecode() throws Exception
+  {
+    String form = "a=b&c=d%20e+f&a=%E2%82%AC&&g=&h&i=j=k";
+
+    List<String> expected = Arrays.asList("a", "b",
+                                          "c", "d e f",
+                                          "a", "\u20ac",
+                                          "g", "",
+                                          "h", null,
+                                          "i", "j=k");
+
+    FormDecoder decoder = new FormDecoder();
+
+    assertEquals(expected, decode(decoder, new ByteArrayInputStream(bytes(form))));
+
+    // escapes split between 2 reads
+    for(int chunkSize = 1; chunkSize < 5; chunkSize++)
+      assertEquals(expected, decode(decoder, new ChunkedInputStream(bytes(form), chunkSize)));
+
+    assertEquals(expected, decode(decoder, ByteBuffer.wrap(bytes(form))));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(form.length() + 2);
+    direct.put((byte) 'x').put(bytes(form)).put((byte) 'x').flip();
+    direct.position(1).limit(form.length() + 1);
+    assertEquals(expected, decode(decoder, direct));
+    assertFalse(direct.hasRemaining());
+
+    // same as QueryBuilder
+    QueryBuilder query = new QueryBuilder();
+    decoder.decode(new ByteArrayInputStream(bytes("a=b&c=d%20e+f&a=%E2%82%AC")), query);
+    QueryBuilder expectedQuery = new QueryBuilder();
+    expectedQuery.addQuery("a=b&c=d%20e+f&a=%E2%82%AC");
+    assertEquals(expectedQuery.getParameterMap().keySet(), query.getParameterMap().keySet());
+    assertTrue(Arrays.equals(expectedQuery.getParameterValues("a"), query.getParameterValues("a")));
+    assertEquals(expectedQuery.getParameter("c"), query.getParameter("c"));
+
+    assertEquals(0, decode(decoder, new ByteArrayInputStream(new byte[0])).size());
+  }
+
+  public void testInvalidEscape() throws Exception
+  {
+    FormDecoder decoder = new FormDecoder();
+
+    for(String form : new String[]{"a=%2", "a=%zz&b=c", "a%"})
+    {
+      try
+      {
+        decode(decoder, new ByteArrayInputStream(bytes(form)));
+        fail("should fail: " + form);
+      }
+      catch(IllegalArgumentException e)
+      {
+        // expected
+      }
+    }
+  }
+
+  public void testLimits() throws Exception
+  {
+    FormDecoder decoder = new FormDecoder("UTF-8", 2, new MemorySize(4));
+
+    assertEquals(Arrays.asList("abcd", "%", "e", "1234"),
+                 decode(decoder, new ByteArrayInputStream(bytes("abcd=%25&e=1234"))));
+
+    try
+    {
+      decode(decoder, new ByteArrayInputStream(bytes("a=1&b=2&c=3")));
+      fail("should fail");
+    }
+    catch(FormLimitExceededException e)
+    {
+      // expected
+    }
+
+    try
+    {
+      decode(decoder, new ByteArrayInputStream(bytes("a=12345")));
+      fail("should fail");
+    }
+    catch(FormLimitExceededException e)
+    {
+      // expected
+    }
+  }
+
+  public void testStop() throws Exception
+  {
+    FormDecoder decoder = new FormDecoder();
+    final List<String> names = new ArrayList<String>();
+
+    QueryParameterVisitor visitor = new QueryParameterVisitor()
+    {
+      @Override
+      public boolean visit(String name, String value)
+      {
+        names.add(name);
+        return !name.equals("b");
+      }
+    };
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes("a=1&b=2&c=3"));
+    decoder.decode(buffer, visitor);
+    assertEquals(Arrays.asList("a", "b"), names);
+    assertEquals(8, buffer.position());
+
+    names.clear();
+    decoder.decode(new ByteArrayInputStream(bytes("a=1&b=2&%zz")), visitor);
+    assertEquals(Arrays.asList("a", "b"), names);
+  }
+
+  private static List<String> decode(FormDecoder decoder, InputStream in) throws Exception
+  {
+    Collector collector = new Collector();
+    decoder.decode(in, collector);
+    return collector.parameters;
+  }
+
+  private static List<String> decode(FormDecoder decoder, ByteBuffer buffer) throws Exception
+  {
+    Collector collector = new Collector();
+    decoder.decode(buffer, collector);
+    return collector.parameters;
+  }
+
+  private static byte[] bytes(String s) throws Exception
+  {
+    return s.getBytes("UTF-8");
+  }
+
+  private static class Collector implements QueryParameterVisitor
+  {
+    private final List<String> parameters = new ArrayList<String>();
+
+    @Override
+    public boolean visit(String name, String value)
+    {
+      parameters.add(name);
+      parameters.add(value);
+      return true;
+    }
+  }
+
+  /**
+   * Returns at most <code>chunkSize</code> bytes per read
+   */
+  private static class ChunkedInputStream extends ByteArrayInputStream
+  {
+    private final int _chunkSize;
+
+    private ChunkedInputStream(byte[] buf, int chunkSize)
+    {
+      super(buf);
+      _chunkSize = chunkSize;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len)
+    {
+      return super.read(b, off, Math.min(len, _chunkSize));
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestPathRouter extends TestCase
+{
+  public void testRoute()
+  {
+    PathRouter<String> router = new PathRouter<String>()
+      .addRoute("/", "root")
+      .addRoute("/profile/{id}", "profile")
+      .addRoute("/profile/view", "view")
+      .addRoute("/profile/{id}/connections/{page}", "connections")
+      .addRoute("/profile/view/connections/latest", "latest")
+      .addRoute("/static/*", "static")
+      .addRoute("/*", "fallback");
+
+    assertEquals("root", router.route("/").getTarget());
+    assertEquals("root", router.route("").getTarget());
+
+    PathRouter.Match<String> match = router.route("/profile/123?trk=x");
+    assertEquals("profile", match.getTarget());
+    assertEquals("/profile/{id}", match.getPattern());
+    assertEquals("123", match.getVariable("id"));
+    assertNull(match.getRemainingPath());
+
+    // literal wins over variable
+    assertEquals("view", router.route("/profile/view").getTarget());
+
+    // backtracking: literal 'view' does not lead anywhere => variable
+    match = router.route("/profile/view/connections/2");
+    assertEquals("connections", match.getTarget());
+    assertEquals(Arrays.asList("id", "page"), Arrays.asList(match.getVariables().keySet().toArray()));
+    assertEquals("view", match.getVariable("id"));
+    assertEquals("2", match.getVariable("page"));
+    assertEquals("latest", router.route("/profile/view/connections/latest").getTarget());
+
+    // only the variables are decoded (empty segments are ignored)
+    match = router.route("//profile/a%2Fb+c//connections/%E2%82%AC/");
+    assertEquals("connections", match.getTarget());
+    assertEquals("a/b c", match.getVariable("id"));
+    assertEquals("\u20ac", match.getVariable("page"));
+
+    // wildcards
+    match = router.route("/static/css/a%20b.css#top");
+    assertEquals("static", match.getTarget());
+    assertEquals("css/a%20b.css", match.getRemainingPath());
+    assertEquals(Collections.<String, String>emptyMap(), match.getVariables());
+    assertEquals("", router.route("/static").getRemainingPath());
+
+    match = router.route("/profile/123/unknown");
+    assertEquals("fallback", match.getTarget());
+    assertEquals("profile/123/unknown", match.getRemainingPath());
+
+    // servlet path
+    match = router.route("/app/profile/123", "/app");
+    assertEquals("123", match.getVariable("id"));
+    assertNull(router.route("/other/profile/123", "/app"));
+  }
+
+  public void testNoMatch()
+  {
+    PathRouter<String> router = new PathRouter<String>()
+      .addRoute("/a/{b}", "ab")
+      .addRoute("/a/b/c", "abc");
+
+    assertNull(router.route("/"));
+    assertNull(router.route("/a"));
+    assertNull(router.route("/a/b/d"));
+    assertNull(router.route("/a/x/c"));
+    assertNull(router.route("/ab"));
+    assertEquals("ab", router.route("/a/b").getTarget());
+  }
+
+  public void testInvalidPatterns()
+  {
+    PathRouter<String> router = new PathRouter<String>().addRoute("/a/{b}", "ab");
+
+    for(String pattern : new String[] {"/a/{c}", "/a/*/b", "/a/{}", "/a/{b", "/a/b}",
+                                       "/a{b}", "/{a}/{a}", "/a*"})
+    {
+      try
+      {
+        router.addRoute(pattern, "x");
+        fail("should fail: " + pattern);
+      }
+      catch(IllegalArgumentException e)
+      {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestQueryBuilder extends TestCase
+{
+  public void testAddAndAccess() throws Exception
+  {
+    QueryBuilder query = new QueryBuilder();
+    assertFalse(query.getHasQueryParameters());
+    assertEquals("", query.getQuery());
+
+    query.addParameter("a", "1 2");
+    query.addParameters("b", new String[] {"x&y", "z"});
+    // no validation when coming from a uri
+    query.addQuery(new URI("http://localhost/?a=3&&c=%C3%A9&d"));
+    query.addParameter("e", 4);
+
+    assertTrue(query.getHasQueryParameters());
+    assertEquals("a=1+2&b=x%26y&b=z&a=3&c=%C3%A9&d&e=4", query.getQuery());
+    assertSame(query.getQuery(), query.toString());
+
+    assertEquals("1 2", query.getParameter("a"));
+    assertEquals(Arrays.asList("1 2", "3"), Arrays.asList(query.getParameterValues("a")));
+    assertEquals("\u00e9", query.getParameter("c"));
+    assertNull(query.getParameter("d"));
+    assertNotNull(query.getParameterValues("d"));
+    assertNull(query.getParameterValues("f"));
+    assertEquals(4, query.getIntParameter("e", 0));
+
+    Iterator<String> names = query.getParameterNames();
+    for(String name : new String[] {"a", "b", "c", "d", "e"})
+      assertEquals(name, names.next());
+    assertFalse(names.hasNext());
+
+    // adding after the index has been built
+    query.addParameter("b", "w");
+    assertEquals(Arrays.asList("x&y", "z", "w"), Arrays.asList(query.getParameterValues("b")));
+    Map<String, String[]> map = query.getParameterMap();
+    assertEquals(3, map.get("b").length);
+    assertEquals("a=1+2&b=x%26y&b=z&a=3&c=%C3%A9&d&e=4&b=w", query.getQuery());
+  }
+
+  public void testRemoveAndReplace() throws Exception
+  {
+    QueryBuilder query = new QueryBuilder();
+    query.addQuery("a=1&b=2&a=3&c=4&b=5");
+
+    assertEquals(Arrays.asList("2", "5"), Arrays.asList(query.removeParameter("b")));
+    assertNull(query.removeParameter("b"));
+    assertEquals("a=1&a=3&c=4", query.getQuery());
+
+    assertEquals(Arrays.asList("1", "3"), Arrays.asList(query.replaceParameter("a", "x y")));
+    assertEquals("a=x+y&c=4", query.getQuery());
+    assertEquals("x y", query.getParameter("a"));
+
+    assertNull(query.replaceParameter("d", "6"));
+    query.addParameter("a", "7");
+    assertEquals("a=x+y&c=4&d=6&a=7", query.getQuery());
+    assertEquals(Arrays.asList("x y", "7"), Arrays.asList(query.getParameterValues("a")));
+
+    query.removeParameters("a", "d", "unknown");
+    assertEquals("c=4", query.getQuery());
+    query.removeParameter("c");
+    assertFalse(query.getHasQueryParameters());
+    assertEquals("", query.getQuery());
+
+    query.addParameter("e", "8");
+    assertEquals("e=8", query.getQuery());
+    query.reset();
+    assertEquals("", query.getQuery());
+    assertTrue(query.getParameterMap().isEmpty());
+  }
+
+  public void testEmptySegmentsAndNullValues() throws Exception
+  {
+    // empty segments are dropped
+    QueryBuilder query = new QueryBuilder();
+    query.addQuery("a=1&&b=2");
+    assertEquals("a=1&b=2", query.getQuery());
+
+    query = new QueryBuilder();
+    query.addQuery("&&");
+    assertFalse(query.getHasQueryParameters());
+    assertEquals("", query.getQuery());
+
+    assertEquals("http://localhost/p", URLBuilder.createFromURL("http://localhost/p?&").getURL());
+
+    // a null value is a parameter without value
+    query = new QueryBuilder();
+    query.addParameter("a", (String) null);
+    query.addParameter("b", "2");
+    assertEquals("a&b=2", query.getQuery());
+    assertNull(query.getParameter("a"));
+  }
+
+  public void testCloneEqualsAndSerialization() throws Exception
+  {
+    QueryBuilder query = new QueryBuilder();
+    query.addQuery("a=%7e&b=2");
+    query.addParameter("c", "3.4");
+
+    QueryBuilder clone = query.deepClone();
+    assertEquals(query, clone);
+    assertEquals(query.hashCode(), clone.hashCode());
+    clone.removeParameter("b");
+    assertEquals("a=%7e&c=3.4", clone.getQuery());
+    assertEquals("a=%7e&b=2&c=3.4", query.getQuery());
+    assertFalse(query.equals(clone));
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(baos);
+    oos.writeObject(query);
+    oos.close();
+
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+    QueryBuilder deserialized = (QueryBuilder) ois.readObject();
+    assertEquals(query, deserialized);
+    assertEquals("~", deserialized.getParameter("a"));
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+import junit.framework.TestCase;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestURLCodec extends TestCase
+{
+  private static final String[] VALUES = {
+    "",
+    "simple_value-123",
+    "a value/with=some&special?chars.txt",
+    "*.-_~!'()",
+    "caf\u00e9 cr\u00e8me \u4eba\u4e4b",
+    "emoji \ud83d\ude00.",
+    "lone \ud83d surrogate \ude00",
+    "100% + 1"
+  };
+
+  /**
+   * the codec must produce the same result as URLEncoder / URLDecoder
+   */
+  public void testSameAsJDK() throws Exception
+  {
+    for(String encoding : new String[] {"UTF-8", "ISO-8859-1", "UTF-16"})
+    {
+      URLCodec codec = new URLCodec(false, encoding);
+      URLCodec dotCodec = new URLCodec(true, encoding);
+
+      for(String value : VALUES)
+      {
+        String expected = URLEncoder.encode(value, encoding);
+        assertEquals(expected, codec.urlEncode(value));
+        assertEquals(expected.replace(".", "%2E"), dotCodec.urlEncode(value));
+        assertEquals("prefix:" + expected,
+                     codec.urlEncode(value, new StringBuilder("prefix:")).toString());
+
+        assertEquals(URLDecoder.decode(expected, encoding), codec.urlDecode(expected));
+        String dotEncoded = dotCodec.urlEncode(value);
+        assertEquals(URLDecoder.decode(dotEncoded, encoding), dotCodec.urlDecode(dotEncoded));
+      }
+    }
+  }
+
+  /**
+   * nothing to encode / decode => same instance
+   */
+  public void testNoEscape()
+  {
+    String s = "abc.DEF-123_*";
+    assertSame(s, URLCodec.instance().urlEncode(s));
+    assertSame(s, URLCodec.instance().urlDecode(s));
+    assertNotSame(s, new URLCodec(true).urlEncode(s));
+    assertEquals("a b%", URLCodec.instance().urlDecode("a+b%25", new StringBuilder()).toString());
+  }
+
+  public void testInvalidDecode()
+  {
+    for(String s : new String[] {"abc%", "abc%2", "abc%zz", "%-1"})
+    {
+      try
+      {
+        URLCodec.instance().urlDecode(s);
+        fail("should fail for " + s);
+      }
+      catch(IllegalArgumentException e)
+      {
+        // expected
+      }
+    }
+  }
+}
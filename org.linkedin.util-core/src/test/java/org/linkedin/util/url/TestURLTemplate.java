@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.url;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestURLTemplate extends TestCase
+{
+  /**
+   * the template must produce the same url as URLBuilder
+   */
+  public void testSameAsURLBuilder() throws Exception
+  {
+    URLTemplate template =
+      URLTemplate.compile("http://www.linkedin.com/profile/{id}?trk={trk}&lang=fr ca&flag&trk={trk}#top {id}");
+
+    assertEquals(Arrays.asList("id", "trk"), template.getPlaceholderNames());
+
+    for(Object id : new Object[] {12345, "a/b c", "caf\u00e9.html"})
+    {
+      String trk = "nav&x=y";
+
+      URLBuilder builder = URLBuilder.createFromURL("http://www.linkedin.com/profile");
+      builder.appendPath(String.valueOf(id));
+      builder.addQueryParameter("trk", trk);
+      builder.addQueryParameter("lang", "fr ca");
+      builder.addQueryParameter("flag");
+      builder.addQueryParameter("trk", trk);
+      builder.setFragment("top " + id);
+
+      assertEquals(builder.getURL(), template.expand(id, trk));
+
+      Map<String, Object> values = new HashMap<String, Object>();
+      values.put("id", id);
+      values.put("trk", trk);
+      assertEquals(builder.getURL(), template.expand(values));
+
+      StringBuilder sb = new StringBuilder("<a href=\"");
+      assertEquals("<a href=\"" + builder.getURL(), template.appendTo(sb, id, trk).toString());
+    }
+  }
+
+  public void testPathOnly()
+  {
+    URLTemplate template = URLTemplate.compile("/static/path");
+    assertEquals("/static/path", template.expand());
+    assertTrue(template.getPlaceholderNames().isEmpty());
+
+    template = URLTemplate.compile("/{a}/{b}.html");
+    assertEquals("/x%2Fy/1.html", template.expand("x/y", 1));
+  }
+
+  public void testErrors()
+  {
+    for(String s : new String[] {"/{a", "/a}", "/{}", "/{a{b}"})
+    {
+      try
+      {
+        URLTemplate.compile(s);
+        fail("should fail for " + s);
+      }
+      catch(IllegalArgumentException e)
+      {
+        // expected
+      }
+    }
+
+    URLTemplate template = URLTemplate.compile("/{a}?b={b}");
+    try
+    {
+      template.expand("1");
+      fail("should fail");
+    }
+    catch(IllegalArgumentException e)
+    {
+      // expected
+    }
+
+    try
+    {
+      template.expand(new HashMap<String, Object>());
+      fail("should fail");
+    }
+    catch(IllegalArgumentException e)
+    {
+      // expected
+    }
+  }
+}
@@ -19,6 +19,9 @@ package org.linkedin.util.xml;
 
 import junit.framework.TestCase;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 public class TestXMLUtils extends TestCase
 {
   public void testNull() throws Exception
@@ -130,6 +133,50 @@ public class TestXMLUtils extends TestCase
     }
   }
 
+  public void testNothingToEncodeOrDecode()
+  {
+    // no copy when there is nothing to do
+    String s = "nothing to do here: 'quotes' and \u00e9t\u00e9";
+    assertSame(s, XMLUtils.xmlEncode(s));
+    assertSame(s, XMLUtils.xmlDecode(s));
+    assertSame(s, XMLUtils.xmlDecodeSafely(s));
+
+    String ascii = "ascii only\r\n\tend";
+    assertSame(ascii, XMLUtils.xmlEncodeRaw(ascii));
+
+    assertNotSame(s, XMLUtils.xmlEncodeRaw(s));
+  }
+
+  public void testAppendable() throws Exception
+  {
+    StringBuilder sb = new StringBuilder("prefix:");
+    assertSame(sb, XMLUtils.xmlEncode("a<b", sb));
+    assertEquals("prefix:a&lt;b", sb.toString());
+
+    // appends to what is already there
+    XMLUtils.xmlEncode(new StringBuilder("&c"), sb);
+    assertEquals("prefix:a&lt;b&amp;c", sb.toString());
+
+    // null is appended like Appendable does
+    assertEquals("null", XMLUtils.xmlEncode(null, new StringBuilder()).toString());
+    assertEquals("null", XMLUtils.xmlEncode(null, new StringWriter()).toString());
+
+    StringWriter writer = new StringWriter();
+    XMLUtils.xmlDecode("x&amp;y", writer);
+    XMLUtils.xmlDecode(" z", writer);
+    assertEquals("x&y z", writer.toString());
+
+    try
+    {
+      XMLUtils.xmlDecode("&foo;", new StringWriter());
+      fail("should fail");
+    }
+    catch(IllegalArgumentException e)
+    {
+      assertEquals("invalid escape tag: &foo;", e.getMessage());
+    }
+  }
+
   private void testCodec(String expected,
                          String expectedRaw,
                          String input)
@@ -149,5 +196,24 @@ public class TestXMLUtils extends TestCase
       assertEquals(input, XMLUtils.xmlDecode(XMLUtils.xmlEncode(input)));
       assertEquals(input, XMLUtils.xmlDecode(XMLUtils.xmlEncodeRaw(input)));
     }
+
+    if(input != null)
+    {
+      try
+      {
+        assertEquals(expected, XMLUtils.xmlEncode(input, new StringBuilder()).toString());
+        assertEquals(expected, XMLUtils.xmlEncode(input, new StringWriter()).toString());
+        assertEquals(expectedRaw, XMLUtils.xmlEncodeRaw(input, new StringWriter()).toString());
+        if(decode)
+        {
+          assertEquals(input, XMLUtils.xmlDecode(expected, new StringWriter()).toString());
+          assertEquals(input, XMLUtils.xmlDecode(expectedRaw, new StringWriter()).toString());
+        }
+      }
+      catch(IOException e)
+      {
+        throw new RuntimeException(e);
+      }
+    }
   }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.linkedin.util.xml;
+
+import junit.framework.TestCase;
+import org.linkedin.util.text.Indent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author yan@pongasoft.com
+ */
+public class TestXMLWriter extends TestCase
+{
+  public void testSameAsXML() throws Exception
+  {
+    XML xml = new XML();
+    StringWriter sw = new StringWriter();
+    XMLWriter writer = new XMLWriter(sw);
+    build(xml);
+    build(writer);
+    writer.flush();
+    assertEquals(xml.getXML(), sw.toString());
+
+    XMLIndent xmlIndent = new XMLIndent();
+    sw = new StringWriter();
+    writer = new XMLWriter(sw, new Indent());
+    build(xmlIndent);
+    build(writer);
+    writer.flush();
+    assertEquals(xmlIndent.getXML(), sw.toString());
+  }
+
+  public void testUTF8() throws Exception
+  {
+    XMLIndent xml = new XMLIndent();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    XMLWriter writer = new XMLWriter(baos, new Indent());
+
+    // bigger than the buffer
+    for(int i = 0; i < 2000; i++)
+    {
+      build(xml);
+      build(writer);
+    }
+    // raw (not encoded) chars and surrogate pairs
+    String raw = "<raw>\u00e9\u20ac\ud801\udc00 \ud801</raw>";
+    xml.addXML(raw);
+    writer.addXML(raw);
+    writer.close();
+
+    assertTrue(baos.size() > XMLWriter.DEFAULT_BUFFER_SIZE);
+    assertEquals(new String(xml.getXML().getBytes("UTF-8"), "UTF-8"), baos.toString("UTF-8"));
+
+    try
+    {
+      writer.getXML();
+      fail("should fail");
+    }
+    catch(UnsupportedOperationException e)
+    {
+      // expected
+    }
+  }
+
+  private static void build(XMLBuilder builder)
+  {
+    Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+    attributes.put("a1", "v1 & v2");
+    attributes.put("a2", 3);
+    attributes.put("a3", null);
+
+    builder.addXMLDecl("1.0", "UTF-8", true);
+    builder.addOpeningTag("root", "version", "1");
+    builder.addOpeningTag("list", attributes);
+    builder.addTag("item", "<value> \u00e9\u20ac\ud801\udc00");
+    builder.addTag("item", 12);
+    builder.addTag("item", 1.5, "unit", "\"cm\"");
+    builder.addTag("item", null, attributes);
+    builder.addTag("item", "x", attributes);
+    builder.addEmptyTag("empty");
+    builder.addEmptyTag("empty", "a", "b");
+    builder.addEmptyTag("empty", attributes);
+    builder.addClosingTag("list");
+    builder.addOpeningTag("other");
+    builder.addClosingTag("other");
+    builder.addClosingTag("root");
+  }
+}
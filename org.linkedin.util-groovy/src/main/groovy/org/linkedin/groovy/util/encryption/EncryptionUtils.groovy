@@ -31,6 +31,7 @@ import javax.crypto.SecretKey
 import javax.crypto.spec.IvParameterSpec
 import javax.crypto.spec.SecretKeySpec
 import org.linkedin.util.codec.Base64Codec
+import org.linkedin.util.codec.CipherCodecStage
 
 public class EncryptionUtils
 {
@@ -186,6 +187,21 @@ public class EncryptionUtils
     return new String(decrypted);
   }
 
+  /**
+   * Creates a stage which encrypts (AES) with the given key in a streaming fashion, to be used in
+   * a <code>CodecPipeline</code> (ex: to compress, encrypt then encode a big payload in one pass).
+   *
+   * @throws IllegalArgumentException if there is no such key
+   */
+  public static CipherCodecStage createCipherStage(Map<String, byte[]> secretKeys, String keyName)
+  {
+    SecretKeySpec sks = getSecretKeySpec(secretKeys, keyName);
+    if (sks == null) {
+      throw new IllegalArgumentException("Unknown key: " + keyName);
+    }
+    return new CipherCodecStage(CRYPTO, sks);
+  }
+
   /**
    * Given a buffer with embedded encrypted strings, decrypt it. Keeping the plain text part intact.
    *
@@ -19,12 +19,17 @@
 package org.linkedin.groovy.util.io
 
 import org.linkedin.util.io.resource.Resource
+import org.linkedin.util.io.resource.ResourceFilter
+import org.linkedin.util.io.resource.ResourceVisitor
+import org.linkedin.util.io.resource.ResourceWalker
 import org.linkedin.util.io.IOUtils
 import org.linkedin.util.io.PathUtils
 import org.linkedin.groovy.util.net.GroovyNetUtils
 import org.linkedin.groovy.util.ant.AntUtils
 import org.linkedin.groovy.util.lang.GroovyLangUtils
 
+import java.util.concurrent.ExecutorService
+
 /**
  * IO related utilities
  *
@@ -207,14 +212,19 @@ class GroovyIOUtils extends IOUtils
    */
   static def findAll(Resource resource, Closure closure)
   {
-    def matchingResources = []
-
-    eachChildRecurse(resource) { Resource r ->
-      if(closure(r))
-        matchingResources << r
-    }
+    return findAll(resource, null, closure)
+  }
 
-    return matchingResources
+  /**
+   * Same as {@link #findAll(Resource, Closure)} but the directories are listed in parallel
+   * using the executor: the closure must be thread safe and the order of the result is not
+   * defined.
+   */
+  static def findAll(Resource resource, ExecutorService executor, Closure closure)
+  {
+    ResourceWalker walker = new ResourceWalker(executor)
+    walker.filter = { Resource r -> closure(r) as boolean } as ResourceFilter
+    return walker.findAll(resource)
   }
 
   /**
@@ -223,16 +233,7 @@ class GroovyIOUtils extends IOUtils
    */
   static Resource eachChildRecurse(Resource resource, Closure closure)
   {
-    def dirs = []
-
-    resource.list().each { Resource r ->
-      closure(r)
-      if(r.isDirectory())
-        dirs << r
-    }
-
-    dirs.each { eachChildRecurse(it, closure) }
-
+    new ResourceWalker().walk(resource, { Resource r -> closure(r); return true } as ResourceVisitor)
     return resource
   }
 
@@ -22,6 +22,9 @@ import org.linkedin.util.io.resource.ResourceInfo
 import org.linkedin.util.io.resource.ResourceFilter
 import org.linkedin.util.io.resource.FileResource
 
+import java.nio.ByteBuffer
+import java.nio.channels.ReadableByteChannel
+
 /**
  * FileResource is not serializable
  *
@@ -87,6 +90,18 @@ class SerializableFileResource implements Resource, Serializable
     return _fileResource.getInputStream();
   }
 
+  public ReadableByteChannel getReadableChannel()
+    throws IOException
+  {
+    return _fileResource.getReadableChannel();
+  }
+
+  public ByteBuffer map()
+    throws IOException
+  {
+    return _fileResource.map();
+  }
+
   def withInputStream(Closure closure)
   {
     InputStream is = getInputStream()
@@ -19,6 +19,9 @@ package test.util.encryption
 import org.linkedin.groovy.util.io.fs.FileSystemImpl
 import org.linkedin.groovy.util.io.fs.FileSystem
 import org.linkedin.groovy.util.encryption.EncryptionUtils
+import org.linkedin.util.codec.Base64Codec
+import org.linkedin.util.codec.CodecPipeline
+import org.linkedin.util.codec.CodecStages
 
 /**
  * User: mdubey
@@ -148,4 +151,33 @@ class TestEncryptionUtils extends GroovyTestCase
 
     testDir.deleteDir()
   }
+
+  public void testCipherStage()
+  {
+    Map<String, byte[]> secretKeys = [
+            'key1': 'encryptionkey123'.getBytes(),
+            'key2': 'encryptionkey999'.getBytes()
+    ]
+
+    String plainText = "This is a plain text string which is long enough to be compressed. " * 100
+
+    CodecPipeline pipeline = new CodecPipeline(CodecStages.deflate(),
+                                               EncryptionUtils.createCipherStage(secretKeys, 'key1'),
+                                               CodecStages.base64(Base64Codec.INSTANCE))
+
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream()
+    OutputStream os = pipeline.encode(encoded)
+    os.write(plainText.getBytes())
+    os.close()
+
+    assertTrue(encoded.size() < plainText.length())
+
+    InputStream is = pipeline.decode(new ByteArrayInputStream(encoded.toByteArray()))
+    assertTrue(plainText == new String(is.bytes))
+    is.close()
+
+    shouldFail(IllegalArgumentException) {
+      EncryptionUtils.createCipherStage(secretKeys, 'key3')
+    }
+  }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2013 Yan Pujante
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package test.util.io
+
+import com.sun.net.httpserver.HttpExchange
+import org.linkedin.groovy.util.net.GroovyNetUtils
+import org.linkedin.util.clock.SettableClock
+import org.linkedin.util.clock.Timespan
+import org.linkedin.util.io.resource.Resource
+import org.linkedin.util.io.resource.ResourceNotFoundException
+import org.linkedin.util.io.resource.URLResource
+import org.linkedin.util.io.resource.internal.URLResourceInfoCache
+import org.linkedin.util.io.resource.internal.URLResourceProvider
+
+import java.text.SimpleDateFormat
+
+/**
+ * @author yan@pongasoft.com */
+public class TestURLResource extends GroovyTestCase
+{
+  def requests = []
+  long lastModified = 1300000000000L
+  String content = 'abcdef'
+
+  def handler = { HttpExchange t ->
+    String ifModifiedSince = t.requestHeaders.getFirst('If-Modified-Since')
+    requests << "${t.requestMethod}${ifModifiedSince ? ' IMS' : ''}".toString()
+
+    def format = new SimpleDateFormat('EEE, dd MMM yyyy HH:mm:ss zzz', Locale.US)
+    format.timeZone = TimeZone.getTimeZone('GMT')
+
+    if(ifModifiedSince && format.parse(ifModifiedSince).time >= lastModified)
+    {
+      t.sendResponseHeaders(304, -1)
+      t.close()
+      return
+    }
+
+    t.responseHeaders.set('Last-Modified', format.format(new Date(lastModified)))
+
+    if(t.requestMethod == 'HEAD')
+    {
+      t.responseHeaders.set('Content-Length', content.size().toString())
+      t.sendResponseHeaders(200, -1)
+      t.close()
+    }
+    else
+    {
+      t.sendResponseHeaders(200, content.size())
+      OutputStream os = t.responseBody
+      os.write(content.bytes)
+      os.close()
+    }
+  }
+
+  /**
+   * Probing the resource should not read the content
+   */
+  public void testProbing()
+  {
+    GroovyNetUtils.withHttpServer(0, ['/content': handler]) { int port ->
+      Resource r = URLResource.create(new URL("http://localhost:${port}/content"))
+
+      assertTrue(r.exists())
+      assertEquals(lastModified, r.lastModified())
+      assertEquals(6, r.length())
+      assertEquals(['HEAD', 'HEAD', 'HEAD'], requests)
+
+      requests.clear()
+      assertEquals('abcdef', r.inputStream.withStream { it.text })
+      assertEquals(['GET'], requests)
+
+      Resource notFound = URLResource.create(new URL("http://localhost:${port}/foo"))
+      assertFalse(notFound.exists())
+      assertEquals(0, notFound.lastModified())
+      shouldFail(ResourceNotFoundException) { notFound.info }
+    }
+  }
+
+  /**
+   * The information is cached and revalidated with 'If-Modified-Since'
+   */
+  public void testInfoCache()
+  {
+    SettableClock clock = new SettableClock()
+    URLResourceInfoCache cache = new URLResourceInfoCache(clock, Timespan.parse('5s'))
+
+    GroovyNetUtils.withHttpServer(0, ['/content': handler]) { int port ->
+      Resource root = new URLResourceProvider(new URL("http://localhost:${port}/"),
+                                              '/',
+                                              Timespan.parse('5s'),
+                                              Timespan.parse('5s'),
+                                              cache).rootResource
+      Resource r = root.createRelative('/content')
+
+      assertTrue(r.exists())
+      assertEquals(lastModified, r.lastModified())
+      assertEquals(6, r.length())
+      assertEquals(['HEAD'], requests)
+
+      // expired => revalidated (not modified)
+      clock.addDuration(Timespan.parse('6s'))
+      assertEquals(lastModified, r.lastModified())
+      assertEquals(6, r.length())
+      assertEquals(['HEAD', 'HEAD IMS'], requests)
+
+      // expired and modified
+      lastModified += 10000
+      content = 'xyz'
+      clock.addDuration(Timespan.parse('6s'))
+      assertEquals(lastModified, r.lastModified())
+      assertEquals(3, r.length())
+      assertEquals(['HEAD', 'HEAD IMS', 'HEAD IMS'], requests)
+
+      assertEquals(1, cache.size())
+
+      // not found is not cached
+      assertFalse(root.createRelative('/foo').exists())
+      assertEquals(1, cache.size())
+    }
+  }
+}
@@ -23,6 +23,7 @@ spec = [
     versions: [
       groovy: '2.0.7',
       jackson: '2.1.4',
+      jmh: '1.19',
       slf4j: '1.6.2' // to be compatible with grails 2.2.1
     ],
 
@@ -47,6 +48,8 @@ spec.external = [
   json: 'org.json:json:20090211',
   jacksoncore: "com.fasterxml.jackson.core:jackson-core:${spec.versions.jackson}",
   jacksondatabind: "com.fasterxml.jackson.core:jackson-databind:${spec.versions.jackson}",
+  jmhcore: "org.openjdk.jmh:jmh-core:${spec.versions.jmh}",
+  jmhannprocess: "org.openjdk.jmh:jmh-generator-annprocess:${spec.versions.jmh}",
   junit: 'junit:junit:4.10',
   log4j: 'log4j:log4j:1.2.16',
   slf4j: "org.slf4j:slf4j-api:${spec.versions.slf4j}",